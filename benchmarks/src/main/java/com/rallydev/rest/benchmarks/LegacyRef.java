@@ -0,0 +1,51 @@
+package com.rallydev.rest.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The regex based ref parsing used by {@link com.rallydev.rest.util.Ref} up to version 2.3.0,
+ * kept as a baseline for {@link RefBenchmark}.
+ */
+public class LegacyRef {
+
+    private static List<Pattern> patterns = new ArrayList<Pattern>(Arrays.asList(
+            Pattern.compile(".*?/(\\w{2,}/\\w+)/(\\d+/\\w+)(?:\\.js\\??.*)*$"),
+            Pattern.compile(".*?/(\\w{2,}/\\w+)/(\\d+)(?:\\.js\\??.*)*$"),
+            Pattern.compile(".*?/(\\w+/-?\\d+)/(\\w+)(?:\\.js\\??.*)*$"),
+            Pattern.compile(".*?/(\\w+)/(-?\\d+)(?:\\.js\\??.*)*$"),
+            Pattern.compile(".*?/(\\w+)/(\\d+u\\d+[pw]\\d+)(?:\\.js\\??.*)*$"),
+            Pattern.compile(".*?/(\\w{2,}/\\w+)/([0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}/\\w+)(?:\\.js\\??.*)*$"),
+            Pattern.compile(".*?/(\\w{2,}/\\w+)/([0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12})(?:\\.js\\??.*)*$"),
+            Pattern.compile(".*?/(\\w+/-?[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12})/(\\w+)(?:\\.js\\??.*)*$"),
+            Pattern.compile(".*?/(\\w+)/([0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12})(?:\\.js\\??.*)*$")
+    ));
+
+    private static Matcher match(String ref) {
+        String test = ref != null ? ref : "";
+        for (Pattern pattern : patterns) {
+            Matcher m = pattern.matcher(test);
+            if (m.matches()) {
+                return m;
+            }
+        }
+        return null;
+    }
+
+    public static boolean isRef(String ref) {
+        return match(ref) != null;
+    }
+
+    public static String getRelativeRef(String ref) {
+        Matcher matcher = match(ref);
+        return matcher != null ? String.format("/%s/%s", matcher.group(1), matcher.group(2)) : null;
+    }
+
+    public static String getTypeFromRef(String ref) {
+        Matcher matcher = match(ref);
+        return matcher != null ? matcher.group(1) : null;
+    }
+}
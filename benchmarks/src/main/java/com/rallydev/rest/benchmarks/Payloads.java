@@ -0,0 +1,86 @@
+package com.rallydev.rest.benchmarks;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+/**
+ * Builds WSAPI documents shaped like real responses, for use by the benchmarks.
+ */
+final class Payloads {
+
+    static final String WSAPI = "https://rally1.rallydev.com/slm/webservice/v2.0";
+
+    private Payloads() {
+    }
+
+    static JsonObject reference(String type, long objectId, String name) {
+        JsonObject ref = new JsonObject();
+        ref.addProperty("_rallyAPIMajor", "2");
+        ref.addProperty("_rallyAPIMinor", "0");
+        ref.addProperty("_ref", WSAPI + "/" + type + "/" + objectId);
+        ref.addProperty("_refObjectUUID", "81348db8-aacd-447e-8678-" + String.format("%012d", objectId));
+        ref.addProperty("_refObjectName", name);
+        ref.addProperty("_type", type.substring(0, 1).toUpperCase() + type.substring(1));
+        return ref;
+    }
+
+    static JsonObject defect(long objectId) {
+        JsonObject defect = reference("defect", objectId, "Login fails intermittently when SSO session expires " + objectId);
+        defect.addProperty("ObjectID", objectId);
+        defect.addProperty("FormattedID", "DE" + objectId);
+        defect.addProperty("Name", "Login fails intermittently when SSO session expires " + objectId);
+        defect.addProperty("Description", "<p>Steps to reproduce:</p><ol><li>Sign in with SSO</li>" +
+                "<li>Wait for the session to expire</li><li>Refresh the page</li></ol>");
+        defect.addProperty("CreationDate", "2024-03-0" + (objectId % 9 + 1) + "T12:34:56.789Z");
+        defect.addProperty("LastUpdateDate", "2024-04-1" + (objectId % 9) + "T08:00:00.000Z");
+        defect.addProperty("State", objectId % 3 == 0 ? "Open" : "Fixed");
+        defect.addProperty("ScheduleState", "In-Progress");
+        defect.addProperty("Severity", "Major Problem");
+        defect.addProperty("Priority", "High Attention");
+        defect.addProperty("PlanEstimate", (objectId % 8) + 0.5);
+        defect.addProperty("Blocked", objectId % 5 == 0);
+        defect.addProperty("Ready", false);
+        defect.add("Owner", reference("user", 1000 + objectId % 20, "Pat Developer"));
+        defect.add("Project", reference("project", 2000, "Identity Team"));
+        defect.add("Iteration", reference("iteration", 3000 + objectId % 4, "Sprint " + objectId % 4));
+        defect.add("Requirement", reference("hierarchicalrequirement", 4000 + objectId, "Single sign on"));
+        JsonObject tasks = new JsonObject();
+        tasks.addProperty("_ref", WSAPI + "/defect/" + objectId + "/Tasks");
+        tasks.addProperty("_type", "Task");
+        tasks.addProperty("Count", objectId % 4);
+        defect.add("Tasks", tasks);
+        JsonArray tags = new JsonArray();
+        tags.add(reference("tag", 5000, "customer"));
+        tags.add(reference("tag", 5001, "regression"));
+        defect.add("Tags", tags);
+        return defect;
+    }
+
+    static String queryResponse(int results) {
+        JsonObject queryResult = new JsonObject();
+        queryResult.addProperty("_rallyAPIMajor", "2");
+        queryResult.addProperty("_rallyAPIMinor", "0");
+        queryResult.add("Errors", new JsonArray());
+        queryResult.add("Warnings", new JsonArray());
+        queryResult.addProperty("TotalResultCount", results * 10);
+        queryResult.addProperty("StartIndex", 1);
+        queryResult.addProperty("PageSize", results);
+        JsonArray array = new JsonArray();
+        for (int i = 0; i < results; i++) {
+            array.add(defect(100000 + i));
+        }
+        queryResult.add("Results", array);
+        JsonObject document = new JsonObject();
+        document.add("QueryResult", queryResult);
+        return document.toString();
+    }
+
+    static String getResponse() {
+        JsonObject object = defect(100000);
+        object.add("Errors", new JsonArray());
+        object.add("Warnings", new JsonArray());
+        JsonObject document = new JsonObject();
+        document.add("Defect", object);
+        return document.toString();
+    }
+}
@@ -0,0 +1,75 @@
+package com.rallydev.rest.benchmarks;
+
+import com.rallydev.rest.util.QueryFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building and rendering large OR filters, as used for bulk lookups by FormattedID or ObjectID.
+ * The chained variants build the tree one {@link QueryFilter#or(QueryFilter)} at a time, so it is as deep as it
+ * is wide; the balanced variants use {@link QueryFilter#or(QueryFilter...)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryFilterBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    private QueryFilter[] conditions;
+    private QueryFilter balanced;
+    private QueryFilter chained;
+
+    @Setup
+    public void setUp() {
+        conditions = new QueryFilter[size];
+        for (int i = 0; i < size; i++) {
+            conditions[i] = new QueryFilter("FormattedID", "=", "DE" + (10000 + i));
+        }
+        balanced = QueryFilter.or(conditions);
+        chained = chain(conditions);
+    }
+
+    private static QueryFilter chain(QueryFilter[] conditions) {
+        QueryFilter result = conditions[0];
+        for (int i = 1; i < conditions.length; i++) {
+            result = result.or(conditions[i]);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public String balancedToString() {
+        return balanced.toString();
+    }
+
+    @Benchmark
+    public String chainedToString() {
+        return chained.toString();
+    }
+
+    @Benchmark
+    public QueryFilter buildBalanced() {
+        return QueryFilter.or(conditions);
+    }
+
+    @Benchmark
+    public QueryFilter buildChained() {
+        return chain(conditions);
+    }
+}
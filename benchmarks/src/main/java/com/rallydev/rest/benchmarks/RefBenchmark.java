@@ -0,0 +1,99 @@
+package com.rallydev.rest.benchmarks;
+
+import com.rallydev.rest.util.ParsedRef;
+import com.rallydev.rest.util.QueryFilter;
+import com.rallydev.rest.util.Ref;
+import com.rallydev.rest.util.RefCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the single pass {@link Ref} parser with the regex cascade it replaced ({@link LegacyRef}).
+ * <p>The legacy benchmarks reproduce what callers used to pay: QueryFilter and GetRequest called isRef
+ * and then getRelativeRef, running the cascade twice.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RefBenchmark {
+
+    @Param({
+            "https://rally1.rallydev.com/slm/webservice/v2.0/defect/12345678.js",
+            "/portfolioitem/feature/12345678",
+            "https://rally1.rallydev.com/slm/webservice/v2.0/defect/12345678/tasks",
+            "/workspacepermission/123u456w1",
+            "https://rally1.rallydev.com/slm/webservice/v2.0/defect/81348db8-aacd-447e-8678-2fb910ae9dc3",
+            "Accepted"
+    })
+    public String ref;
+
+    private QueryFilter filter;
+    private RefCache cache;
+
+    @Setup
+    public void setUp() {
+        filter = new QueryFilter("Parent", "=", ref);
+        cache = new RefCache(1000);
+    }
+
+    @Benchmark
+    public ParsedRef parse() {
+        return Ref.parse(ref);
+    }
+
+    @Benchmark
+    public ParsedRef cachedParse() {
+        return cache.parse(ref);
+    }
+
+    @Benchmark
+    public void relativeRef(Blackhole blackhole) {
+        ParsedRef parsed = Ref.parse(ref);
+        blackhole.consume(parsed != null ? parsed.getRelativeRef() : null);
+    }
+
+    @Benchmark
+    public void legacyRelativeRef(Blackhole blackhole) {
+        blackhole.consume(LegacyRef.isRef(ref) ? LegacyRef.getRelativeRef(ref) : null);
+    }
+
+    @Benchmark
+    public boolean isRef() {
+        return Ref.isRef(ref);
+    }
+
+    @Benchmark
+    public boolean legacyIsRef() {
+        return LegacyRef.isRef(ref);
+    }
+
+    @Benchmark
+    public String typeFromRef() {
+        return Ref.getTypeFromRef(ref);
+    }
+
+    @Benchmark
+    public String legacyTypeFromRef() {
+        return LegacyRef.getTypeFromRef(ref);
+    }
+
+    @Benchmark
+    public String queryFilter() {
+        return filter.toString();
+    }
+}
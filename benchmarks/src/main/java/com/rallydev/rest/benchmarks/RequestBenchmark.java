@@ -0,0 +1,84 @@
+package com.rallydev.rest.benchmarks;
+
+import com.google.gson.JsonObject;
+import com.rallydev.rest.request.CreateRequest;
+import com.rallydev.rest.request.QueryRequest;
+import com.rallydev.rest.request.UpdateRequest;
+import com.rallydev.rest.util.Fetch;
+import com.rallydev.rest.util.QueryFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures turning requests into urls and bodies.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestBenchmark {
+
+    private Fetch fetch;
+    private QueryRequest queryRequest;
+    private CreateRequest createRequest;
+    private UpdateRequest updateRequest;
+
+    @Setup
+    public void setUp() {
+        fetch = new Fetch("FormattedID", "Name", "State", "ScheduleState", "Owner", "Project", "Iteration",
+                "PlanEstimate", "Blocked", "Tags", "Tasks", "LastUpdateDate");
+
+        queryRequest = new QueryRequest("Defect");
+        queryRequest.setFetch(fetch);
+        queryRequest.setOrder("Rank");
+        queryRequest.setWorkspace(Payloads.WSAPI + "/workspace/1234");
+        queryRequest.setProject("/project/2000");
+        queryRequest.setQueryFilter(QueryFilter.and(
+                new QueryFilter("State", "=", "Open"),
+                new QueryFilter("Iteration", "=", Payloads.WSAPI + "/iteration/3000"),
+                new QueryFilter("Owner.UserName", "=", "pat@example.com")));
+
+        JsonObject defect = Payloads.defect(100000);
+        createRequest = new CreateRequest("Defect", defect);
+        createRequest.setFetch(fetch);
+
+        JsonObject update = new JsonObject();
+        update.addProperty("State", "Fixed");
+        update.addProperty("Name", "Login fails intermittently when SSO session expires");
+        update.add("Iteration", Payloads.reference("iteration", 3001, "Sprint 1"));
+        updateRequest = new UpdateRequest(Payloads.WSAPI + "/defect/100000", update);
+        updateRequest.setFetch(fetch);
+    }
+
+    @Benchmark
+    public String fetchToString() {
+        return fetch.toString();
+    }
+
+    @Benchmark
+    public String queryRequestToUrl() {
+        return queryRequest.toUrl();
+    }
+
+    @Benchmark
+    public String createRequestBody() {
+        return createRequest.getBody();
+    }
+
+    @Benchmark
+    public String updateRequestBody() {
+        return updateRequest.getBody();
+    }
+}
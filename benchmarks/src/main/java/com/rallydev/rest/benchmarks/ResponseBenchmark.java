@@ -0,0 +1,73 @@
+package com.rallydev.rest.benchmarks;
+
+import com.google.gson.JsonObject;
+import com.rallydev.rest.client.JsonResponseHandler;
+import com.rallydev.rest.response.GetResponse;
+import com.rallydev.rest.response.QueryResponse;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.message.BasicHttpResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing responses, both from a string and streamed from the response entity as
+ * {@link com.rallydev.rest.RallyRestApi#setStreamingResponses} does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseBenchmark {
+
+    @Param({"200"})
+    public int results;
+
+    private String queryResponse;
+    private byte[] queryResponseBytes;
+    private String getResponse;
+    private JsonResponseHandler handler;
+
+    @Setup
+    public void setUp() {
+        queryResponse = Payloads.queryResponse(results);
+        queryResponseBytes = queryResponse.getBytes(StandardCharsets.UTF_8);
+        getResponse = Payloads.getResponse();
+        handler = new JsonResponseHandler();
+    }
+
+    @Benchmark
+    public int parseQueryResponse() {
+        return new QueryResponse(queryResponse).getResults().size();
+    }
+
+    @Benchmark
+    public int streamQueryResponse() throws IOException {
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        response.setEntity(new ByteArrayEntity(queryResponseBytes, ContentType.APPLICATION_JSON));
+        JsonObject document = handler.handleResponse(response);
+        return new QueryResponse(document).getResults().size();
+    }
+
+    @Benchmark
+    public JsonObject parseGetResponse() {
+        return new GetResponse(getResponse).getObject();
+    }
+}
@@ -0,0 +1,273 @@
+package com.rallydev.rest.benchmarks;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.rallydev.rest.RallyRestApi;
+import com.rallydev.rest.client.ConnectionSettings;
+import com.rallydev.rest.response.Response;
+import com.rallydev.rest.simulator.WsapiSimulator;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Measures end to end throughput and latency of {@link RallyRestApi} against an embedded {@link WsapiSimulator},
+ * running each {@link Workload} for a fixed time at each level of concurrency.</p>
+ * <p>For each run the harness reports operations, pages (http requests) and response bytes per second, and the
+ * p50, p99 and maximum latency of an operation, on the console and as JSON and CSV files for comparing releases.
+ * Options, with their defaults:</p>
+ * <pre>
+ * --workloads   QUERY_FIRST_PAGE,QUERY_SMALL_PAGES,QUERY_ALL,CREATE,MIXED
+ * --concurrency 1,4,16,64,256
+ * --warmup      5     seconds before measuring each run
+ * --duration    10    seconds measured for each run
+ * --defects     5000  defects served by the simulator
+ * --latency     0     milliseconds added by the simulator to every response, or a range such as 5-20
+ * --out         throughput  writes throughput.json and throughput.csv
+ * </pre>
+ */
+public class ThroughputBenchmark {
+
+    private static final String CSV_HEADER = "workload,concurrency,operations,errors,seconds,opsPerSecond," +
+            "pagesPerSecond,bytesPerSecond,p50Millis,p99Millis,maxMillis";
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<String, String>();
+        options.put("workloads", "QUERY_FIRST_PAGE,QUERY_SMALL_PAGES,QUERY_ALL,CREATE,MIXED");
+        options.put("concurrency", "1,4,16,64,256");
+        options.put("warmup", "5");
+        options.put("duration", "10");
+        options.put("defects", "5000");
+        options.put("latency", "0");
+        options.put("out", "throughput");
+        for (int i = 0; i < args.length; i += 2) {
+            String name = args[i].replaceFirst("^--", "");
+            if (!options.containsKey(name) || i + 1 == args.length) {
+                System.err.println("Usage: ThroughputBenchmark [--" + String.join(" value] [--", options.keySet()) +
+                        " value]");
+                System.exit(1);
+            }
+            options.put(name, args[i + 1]);
+        }
+
+        List<Result> results = new ArrayList<Result>();
+        try (WsapiSimulator simulator = new WsapiSimulator().start()) {
+            String[] latency = options.get("latency").split("-");
+            simulator.setLatency(Long.parseLong(latency[0]), Long.parseLong(latency[latency.length - 1]));
+            System.out.println(CSV_HEADER);
+            for (String workload : options.get("workloads").split(",")) {
+                for (String concurrency : options.get("concurrency").split(",")) {
+                    simulator.getStore().clear();
+                    Workload.Dataset dataset = new Workload.Dataset(simulator.getStore(),
+                            Integer.parseInt(options.get("defects")));
+                    Result result = run(simulator, dataset, Workload.valueOf(workload.trim()),
+                            Integer.parseInt(concurrency.trim()), Long.parseLong(options.get("warmup")),
+                            Long.parseLong(options.get("duration")));
+                    System.out.println(result.toCsv());
+                    results.add(result);
+                }
+            }
+        }
+        write(results, options.get("out"));
+    }
+
+    static Result run(WsapiSimulator simulator, final Workload.Dataset dataset, final Workload workload,
+                      int concurrency, long warmupSeconds, long durationSeconds) throws Exception {
+        final RallyRestApi api = new RallyRestApi(simulator.getServer(), "benchmark");
+        ConnectionSettings connectionSettings = new ConnectionSettings();
+        connectionSettings.setMaxConnectionsTotal(Math.max(concurrency, connectionSettings.getMaxConnectionsTotal()));
+        connectionSettings.setMaxConnectionsPerRoute(Math.max(concurrency,
+                connectionSettings.getMaxConnectionsPerRoute()));
+        api.getClient().setConnectionSettings(connectionSettings);
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            long start = System.nanoTime();
+            final long measureStart = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+            final long measureEnd = measureStart + TimeUnit.SECONDS.toNanos(durationSeconds);
+            List<Future<Recorder>> callers = new ArrayList<Future<Recorder>>();
+            for (int i = 0; i < concurrency; i++) {
+                callers.add(executor.submit(() -> {
+                    Recorder recorder = new Recorder();
+                    for (long now = System.nanoTime(); now < measureEnd; ) {
+                        boolean succeeded;
+                        try {
+                            Response response = workload.run(api, dataset);
+                            succeeded = response.wasSuccessful();
+                        } catch (IOException e) {
+                            succeeded = false;
+                        }
+                        long finished = System.nanoTime();
+                        if (finished >= measureStart && finished < measureEnd) {
+                            recorder.record(finished - now, succeeded);
+                        }
+                        now = finished;
+                    }
+                    return recorder;
+                }));
+            }
+
+            TimeUnit.NANOSECONDS.sleep(measureStart - System.nanoTime());
+            long requests = simulator.getRequestCount();
+            long bytes = simulator.getBytesSent();
+            TimeUnit.NANOSECONDS.sleep(measureEnd - System.nanoTime());
+            requests = simulator.getRequestCount() - requests;
+            bytes = simulator.getBytesSent() - bytes;
+
+            Recorder total = new Recorder();
+            for (Future<Recorder> caller : callers) {
+                total.add(caller.get());
+            }
+            return new Result(workload, concurrency, durationSeconds, total, requests, bytes);
+        } finally {
+            executor.shutdownNow();
+            api.close();
+        }
+    }
+
+    private static void write(List<Result> results, String out) throws IOException {
+        JsonObject document = new JsonObject();
+        document.addProperty("javaVersion", System.getProperty("java.version"));
+        document.addProperty("toolkitVersion", getToolkitVersion());
+        document.addProperty("processors", Runtime.getRuntime().availableProcessors());
+        document.addProperty("timestamp", System.currentTimeMillis());
+        JsonArray runs = new JsonArray();
+        for (Result result : results) {
+            runs.add(result.toJson());
+        }
+        document.add("results", runs);
+        try (PrintWriter json = writer(out + ".json")) {
+            json.println(new GsonBuilder().setPrettyPrinting().create().toJson(document));
+        }
+        try (PrintWriter csv = writer(out + ".csv")) {
+            csv.println(CSV_HEADER);
+            for (Result result : results) {
+                csv.println(result.toCsv());
+            }
+        }
+    }
+
+    private static String getToolkitVersion() throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = RallyRestApi.class.getResourceAsStream(
+                "/META-INF/maven/com.rallydev.rest/rally-rest-api/pom.properties")) {
+            if (in != null) {
+                properties.load(in);
+            }
+        }
+        return properties.getProperty("version", "unknown");
+    }
+
+    private static PrintWriter writer(String file) throws IOException {
+        return new PrintWriter(new OutputStreamWriter(new FileOutputStream(new File(file)), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Records the latencies and outcomes of the operations completed by one caller.
+     */
+    static class Recorder {
+        private long[] latencies = new long[1024];
+        private int operations;
+        private int errors;
+
+        void record(long latency, boolean succeeded) {
+            if (operations == latencies.length) {
+                latencies = Arrays.copyOf(latencies, operations * 2);
+            }
+            latencies[operations++] = latency;
+            if (!succeeded) {
+                errors++;
+            }
+        }
+
+        void add(Recorder other) {
+            for (int i = 0; i < other.operations; i++) {
+                record(other.latencies[i], true);
+            }
+            errors += other.errors;
+        }
+
+        /**
+         * Get the latency below which the specified proportion of operations completed.
+         *
+         * @param quantile the quantile, between 0 and 1
+         * @return the latency in nanoseconds, or 0 if there were no operations
+         */
+        long getLatency(double quantile) {
+            if (operations == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(latencies, operations);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(quantile * operations) - 1;
+            return sorted[Math.max(0, Math.min(operations - 1, index))];
+        }
+    }
+
+    /**
+     * The outcome of running one workload at one level of concurrency.
+     */
+    static class Result {
+        private final Workload workload;
+        private final int concurrency;
+        private final long seconds;
+        private final int operations;
+        private final int errors;
+        private final double p50;
+        private final double p99;
+        private final double max;
+        private final long requests;
+        private final long bytes;
+
+        Result(Workload workload, int concurrency, long seconds, Recorder recorder, long requests, long bytes) {
+            this.workload = workload;
+            this.concurrency = concurrency;
+            this.seconds = seconds;
+            this.operations = recorder.operations;
+            this.errors = recorder.errors;
+            this.p50 = recorder.getLatency(0.5) / 1e6;
+            this.p99 = recorder.getLatency(0.99) / 1e6;
+            this.max = recorder.getLatency(1) / 1e6;
+            this.requests = requests;
+            this.bytes = bytes;
+        }
+
+        JsonObject toJson() {
+            JsonObject json = new JsonObject();
+            json.addProperty("workload", workload.name());
+            json.addProperty("concurrency", concurrency);
+            json.addProperty("operations", operations);
+            json.addProperty("errors", errors);
+            json.addProperty("seconds", seconds);
+            json.addProperty("opsPerSecond", (double) operations / seconds);
+            json.addProperty("pagesPerSecond", (double) requests / seconds);
+            json.addProperty("bytesPerSecond", (double) bytes / seconds);
+            json.addProperty("p50Millis", p50);
+            json.addProperty("p99Millis", p99);
+            json.addProperty("maxMillis", max);
+            return json;
+        }
+
+        String toCsv() {
+            return String.format(Locale.ROOT, "%s,%d,%d,%d,%d,%.1f,%.1f,%.0f,%.3f,%.3f,%.3f", workload, concurrency,
+                    operations, errors, seconds, (double) operations / seconds, (double) requests / seconds,
+                    (double) bytes / seconds, p50, p99, max);
+        }
+    }
+}
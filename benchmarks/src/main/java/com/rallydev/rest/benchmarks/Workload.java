@@ -0,0 +1,146 @@
+package com.rallydev.rest.benchmarks;
+
+import com.google.gson.JsonObject;
+import com.rallydev.rest.RallyRestApi;
+import com.rallydev.rest.request.CreateRequest;
+import com.rallydev.rest.request.GetRequest;
+import com.rallydev.rest.request.QueryRequest;
+import com.rallydev.rest.request.UpdateRequest;
+import com.rallydev.rest.response.Response;
+import com.rallydev.rest.simulator.SimulatorStore;
+import com.rallydev.rest.util.Fetch;
+import com.rallydev.rest.util.QueryFilter;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The operations measured by {@link ThroughputBenchmark}, each run repeatedly by every caller.
+ */
+enum Workload {
+
+    /**
+     * Query the first page of 20 open defects, as a UI list would.
+     */
+    QUERY_FIRST_PAGE {
+        @Override
+        Response run(RallyRestApi api, Dataset dataset) throws IOException {
+            QueryRequest request = new QueryRequest("Defect");
+            request.setQueryFilter(new QueryFilter("State", "=", "Open"));
+            request.setFetch(new Fetch("FormattedID", "Name", "State", "Owner"));
+            request.setPageSize(20);
+            request.setLimit(20);
+            return api.query(request);
+        }
+    },
+
+    /**
+     * Query 1000 defects in pages of 200.
+     */
+    QUERY_SMALL_PAGES {
+        @Override
+        Response run(RallyRestApi api, Dataset dataset) throws IOException {
+            QueryRequest request = new QueryRequest("Defect");
+            request.setFetch(new Fetch("FormattedID", "Name", "State", "Severity", "Priority", "PlanEstimate",
+                    "Owner", "Description"));
+            request.setPageSize(200);
+            request.setLimit(1000);
+            return api.query(request);
+        }
+    },
+
+    /**
+     * Query every defect in pages of 2000 with all fields.
+     */
+    QUERY_ALL {
+        @Override
+        Response run(RallyRestApi api, Dataset dataset) throws IOException {
+            QueryRequest request = new QueryRequest("Defect");
+            request.setPageSize(2000);
+            request.setLimit(Integer.MAX_VALUE);
+            return api.query(request);
+        }
+    },
+
+    /**
+     * Create a defect.
+     */
+    CREATE {
+        @Override
+        Response run(RallyRestApi api, Dataset dataset) throws IOException {
+            return api.create(new CreateRequest("Defect", dataset.newDefect()));
+        }
+    },
+
+    /**
+     * Get a random defect 80% of the time and update one otherwise.
+     */
+    MIXED {
+        @Override
+        Response run(RallyRestApi api, Dataset dataset) throws IOException {
+            String ref = dataset.randomDefect();
+            if (ThreadLocalRandom.current().nextInt(5) > 0) {
+                GetRequest request = new GetRequest(ref);
+                request.setFetch(new Fetch("FormattedID", "Name", "State", "Owner", "Description"));
+                return api.get(request);
+            }
+            JsonObject update = new JsonObject();
+            update.addProperty("State", ThreadLocalRandom.current().nextBoolean() ? "Open" : "Fixed");
+            return api.update(new UpdateRequest(ref, update));
+        }
+    };
+
+    /**
+     * Perform one operation.
+     *
+     * @param api     the api to use
+     * @param dataset the dataset served by the simulator
+     * @return the response
+     * @throws IOException if the operation fails
+     */
+    abstract Response run(RallyRestApi api, Dataset dataset) throws IOException;
+
+    /**
+     * The defects served by the simulator, shaped like {@link Payloads#defect(long)}.
+     */
+    static class Dataset {
+        private final String[] defects;
+        private final String owner;
+        private final String project;
+
+        Dataset(SimulatorStore store, int size) {
+            JsonObject user = new JsonObject();
+            user.addProperty("UserName", "pat@example.com");
+            user.addProperty("DisplayName", "Pat Developer");
+            owner = store.create("User", user).get("_ref").getAsString();
+            JsonObject identityTeam = new JsonObject();
+            identityTeam.addProperty("Name", "Identity Team");
+            project = store.create("Project", identityTeam).get("_ref").getAsString();
+            defects = new String[size];
+            for (int i = 0; i < size; i++) {
+                defects[i] = store.create("Defect", newDefect()).get("_ref").getAsString();
+            }
+        }
+
+        JsonObject newDefect() {
+            long n = ThreadLocalRandom.current().nextInt(1000000);
+            JsonObject defect = new JsonObject();
+            defect.addProperty("Name", "Login fails intermittently when SSO session expires " + n);
+            defect.addProperty("Description", "<p>Steps to reproduce:</p><ol><li>Sign in with SSO</li>" +
+                    "<li>Wait for the session to expire</li><li>Refresh the page</li></ol>");
+            defect.addProperty("State", n % 3 == 0 ? "Open" : "Fixed");
+            defect.addProperty("ScheduleState", "In-Progress");
+            defect.addProperty("Severity", "Major Problem");
+            defect.addProperty("Priority", "High Attention");
+            defect.addProperty("PlanEstimate", (n % 8) + 0.5);
+            defect.addProperty("Blocked", n % 5 == 0);
+            defect.addProperty("Owner", owner);
+            defect.addProperty("Project", project);
+            return defect;
+        }
+
+        String randomDefect() {
+            return defects[ThreadLocalRandom.current().nextInt(defects.length)];
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.rallydev.rest.simulator;
+
+import com.rallydev.rest.util.QueryFilter;
+
+/**
+ * Parses the WSAPI query syntax produced by {@link QueryFilter#toString()}, e.g.
+ * ((State = Open) AND (Iteration.Name = "Sprint 1")), back into a {@link QueryFilter}.
+ */
+final class QueryParser {
+
+    private final String query;
+    private int position;
+
+    private QueryParser(String query) {
+        this.query = query;
+    }
+
+    /**
+     * Parse the specified query.
+     *
+     * @param query the query
+     * @return the filter
+     * @throws IllegalArgumentException if the query cannot be parsed
+     */
+    static QueryFilter parse(String query) {
+        QueryParser parser = new QueryParser(query);
+        QueryFilter filter = parser.parseExpression();
+        parser.skipSpaces();
+        if (parser.position != query.length()) {
+            throw parser.error();
+        }
+        return filter;
+    }
+
+    private QueryFilter parseExpression() {
+        skipSpaces();
+        expect('(');
+        skipSpaces();
+        QueryFilter filter;
+        if (peek() == '(') {
+            QueryFilter left = parseExpression();
+            skipSpaces();
+            String operator = readWord().toUpperCase();
+            if (!operator.equals("AND") && !operator.equals("OR")) {
+                throw error();
+            }
+            QueryFilter right = parseExpression();
+            filter = operator.equals("AND") ? left.and(right) : left.or(right);
+        } else {
+            String field = readWord();
+            skipSpaces();
+            String operator = readWord();
+            skipSpaces();
+            filter = new QueryFilter(field, operator, readValue());
+        }
+        skipSpaces();
+        expect(')');
+        return filter;
+    }
+
+    private String readWord() {
+        int start = position;
+        while (position < query.length() && !Character.isWhitespace(query.charAt(position)) &&
+                query.charAt(position) != '(' && query.charAt(position) != ')') {
+            position++;
+        }
+        if (start == position) {
+            throw error();
+        }
+        return query.substring(start, position);
+    }
+
+    private String readValue() {
+        if (peek() == '"') {
+            int end = query.indexOf('"', position + 1);
+            if (end < 0) {
+                throw error();
+            }
+            String value = query.substring(position + 1, end);
+            position = end + 1;
+            return value;
+        }
+        int start = position;
+        while (position < query.length() && query.charAt(position) != ')') {
+            position++;
+        }
+        return query.substring(start, position).trim();
+    }
+
+    private char peek() {
+        return position < query.length() ? query.charAt(position) : 0;
+    }
+
+    private void expect(char c) {
+        if (peek() != c) {
+            throw error();
+        }
+        position++;
+    }
+
+    private void skipSpaces() {
+        while (position < query.length() && Character.isWhitespace(query.charAt(position))) {
+            position++;
+        }
+    }
+
+    private IllegalArgumentException error() {
+        return new IllegalArgumentException("Could not parse query at position " + position + ": " + query);
+    }
+}
@@ -0,0 +1,371 @@
+package com.rallydev.rest.simulator;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.rallydev.rest.util.ParsedRef;
+import com.rallydev.rest.util.Ref;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>The in-memory dataset served by a {@link WsapiSimulator}.</p>
+ * <p>Objects are stored by type and ObjectID.  References to other objects, given as refs or as objects with a _ref,
+ * are stored as reference objects holding _ref, _type and _refObjectName.  Arrays of references are stored as
+ * collections, which are served as a count and a ref and can be read and changed through their collection urls.</p>
+ * Types are case insensitive, e.g. Defect and defect are the same type.  This class is thread safe.
+ */
+public class SimulatorStore {
+
+    private static final Map<String, String> FORMATTED_ID_PREFIXES = new HashMap<String, String>();
+
+    static {
+        FORMATTED_ID_PREFIXES.put("defect", "DE");
+        FORMATTED_ID_PREFIXES.put("defectsuite", "DS");
+        FORMATTED_ID_PREFIXES.put("hierarchicalrequirement", "US");
+        FORMATTED_ID_PREFIXES.put("task", "TA");
+        FORMATTED_ID_PREFIXES.put("testcase", "TC");
+        FORMATTED_ID_PREFIXES.put("testset", "TS");
+        FORMATTED_ID_PREFIXES.put("portfolioitem/feature", "F");
+        FORMATTED_ID_PREFIXES.put("portfolioitem/initiative", "I");
+        FORMATTED_ID_PREFIXES.put("portfolioitem/theme", "T");
+    }
+
+    private final String baseUrl;
+    private final Map<String, Map<Long, JsonObject>> objects = new HashMap<String, Map<Long, JsonObject>>();
+    private final Map<String, String> typeNames = new HashMap<String, String>();
+    private final Map<String, AtomicLong> formattedIds = new HashMap<String, AtomicLong>();
+    private final AtomicLong objectIds = new AtomicLong(10000);
+
+    SimulatorStore(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    /**
+     * Get the type key used to store objects of the specified type.
+     *
+     * @param type the type, e.g. Defect or PortfolioItem/Feature
+     * @return the lower case type without spaces
+     */
+    static String getTypeKey(String type) {
+        return type.toLowerCase().replace(" ", "");
+    }
+
+    /**
+     * Create a new object.  An ObjectID, ref, UUID and CreationDate are assigned, along with a FormattedID for
+     * artifact types.
+     *
+     * @param type   the type of the object, e.g. Defect
+     * @param fields the fields of the object
+     * @return a copy of the created object
+     */
+    public synchronized JsonObject create(String type, JsonObject fields) {
+        String key = getTypeKey(type);
+        if (!typeNames.containsKey(key) || typeNames.get(key).equals(key)) {
+            typeNames.put(key, type);
+        }
+        long objectId = objectIds.incrementAndGet();
+        JsonObject object = new JsonObject();
+        object.addProperty("_ref", baseUrl + "/" + key + "/" + objectId);
+        object.addProperty("_refObjectUUID", UUID.randomUUID().toString());
+        object.addProperty("_type", typeNames.get(key));
+        object.addProperty("ObjectID", objectId);
+        object.addProperty("CreationDate", now());
+        String prefix = FORMATTED_ID_PREFIXES.get(key);
+        if (prefix != null) {
+            AtomicLong formattedId = formattedIds.get(key);
+            if (formattedId == null) {
+                formattedId = new AtomicLong();
+                formattedIds.put(key, formattedId);
+            }
+            object.addProperty("FormattedID", prefix + formattedId.incrementAndGet());
+        }
+        setFields(object, fields);
+        Map<Long, JsonObject> typeObjects = objects.get(key);
+        if (typeObjects == null) {
+            typeObjects = new LinkedHashMap<Long, JsonObject>();
+            objects.put(key, typeObjects);
+        }
+        typeObjects.put(objectId, object);
+        return object.deepCopy();
+    }
+
+    /**
+     * Get the object of the specified type and ObjectID.
+     *
+     * @param type     the type
+     * @param objectId the ObjectID
+     * @return a copy of the object, or null if there is no such object
+     */
+    public synchronized JsonObject get(String type, long objectId) {
+        JsonObject object = find(type, objectId);
+        return object != null ? object.deepCopy() : null;
+    }
+
+    /**
+     * Get the object with the specified ref.
+     *
+     * @param ref the ref
+     * @return a copy of the object, or null if there is no such object
+     */
+    public synchronized JsonObject get(String ref) {
+        ParsedRef parsedRef = Ref.parse(ref);
+        long objectId = getObjectId(parsedRef);
+        return objectId >= 0 ? get(parsedRef.getType(), objectId) : null;
+    }
+
+    /**
+     * Update the fields of the object of the specified type and ObjectID.
+     *
+     * @param type     the type
+     * @param objectId the ObjectID
+     * @param fields   the fields to be updated
+     * @return a copy of the updated object, or null if there is no such object
+     */
+    public synchronized JsonObject update(String type, long objectId, JsonObject fields) {
+        JsonObject object = find(type, objectId);
+        if (object == null) {
+            return null;
+        }
+        object = object.deepCopy();
+        setFields(object, fields);
+        objects.get(getTypeKey(type)).put(objectId, object);
+        return object.deepCopy();
+    }
+
+    /**
+     * Delete the object of the specified type and ObjectID.
+     *
+     * @param type     the type
+     * @param objectId the ObjectID
+     * @return whether the object existed
+     */
+    public synchronized boolean delete(String type, long objectId) {
+        Map<Long, JsonObject> typeObjects = objects.get(getTypeKey(type));
+        return typeObjects != null && typeObjects.remove(objectId) != null;
+    }
+
+    /**
+     * Get all objects of the specified type, in the order they were created.
+     *
+     * @param type the type
+     * @return copies of the objects
+     */
+    public synchronized List<JsonObject> list(String type) {
+        Map<Long, JsonObject> typeObjects = objects.get(getTypeKey(type));
+        if (typeObjects == null) {
+            return Collections.emptyList();
+        }
+        List<JsonObject> list = new ArrayList<JsonObject>(typeObjects.size());
+        for (JsonObject object : typeObjects.values()) {
+            list.add(object.deepCopy());
+        }
+        return list;
+    }
+
+    /**
+     * Get all objects of the specified type, in the order they were created, without copying them.
+     * Stored objects are replaced rather than modified by updates, so the snapshot is stable, but it must not be
+     * modified by the caller.
+     *
+     * @param type the type
+     * @return the objects
+     */
+    synchronized List<JsonObject> snapshot(String type) {
+        Map<Long, JsonObject> typeObjects = objects.get(getTypeKey(type));
+        return typeObjects != null ? new ArrayList<JsonObject>(typeObjects.values()) :
+                Collections.<JsonObject>emptyList();
+    }
+
+    /**
+     * Get the number of objects of the specified type.
+     *
+     * @param type the type
+     * @return the number of objects
+     */
+    public synchronized int count(String type) {
+        Map<Long, JsonObject> typeObjects = objects.get(getTypeKey(type));
+        return typeObjects != null ? typeObjects.size() : 0;
+    }
+
+    /**
+     * Add items to, or remove them from, a collection of the object of the specified type and ObjectID.
+     *
+     * @param type       the type
+     * @param objectId   the ObjectID
+     * @param collection the collection field, e.g. Tags
+     * @param items      the items, each a ref or an object with a _ref
+     * @param adding     true to add the items, false to remove them
+     * @return copies of the items added or removed, or null if there is no such object
+     */
+    public synchronized List<JsonObject> updateCollection(String type, long objectId, String collection,
+                                                          JsonArray items, boolean adding) {
+        JsonObject object = find(type, objectId);
+        if (object == null) {
+            return null;
+        }
+        object = object.deepCopy();
+        objects.get(getTypeKey(type)).put(objectId, object);
+        JsonArray members = getCollection(object, collection);
+        if (members == null) {
+            members = new JsonArray();
+            object.add(findField(object, collection), members);
+        }
+        List<JsonObject> changed = new ArrayList<JsonObject>();
+        for (JsonElement item : items) {
+            JsonObject reference = toReference(item);
+            if (reference == null) {
+                continue;
+            }
+            int index = indexOf(members, reference);
+            if (adding && index < 0) {
+                members.add(reference);
+            } else if (!adding && index >= 0) {
+                members.remove(index);
+            }
+            JsonObject target = get(reference.get("_ref").getAsString());
+            changed.add(target != null ? target : reference);
+        }
+        return changed;
+    }
+
+    /**
+     * Get the members of a collection of the object of the specified type and ObjectID.
+     *
+     * @param type       the type
+     * @param objectId   the ObjectID
+     * @param collection the collection field, e.g. Tags
+     * @return copies of the members, or null if there is no such object
+     */
+    public synchronized List<JsonObject> getCollection(String type, long objectId, String collection) {
+        JsonObject object = find(type, objectId);
+        if (object == null) {
+            return null;
+        }
+        List<JsonObject> list = new ArrayList<JsonObject>();
+        JsonArray members = getCollection(object, collection);
+        if (members != null) {
+            for (JsonElement member : members) {
+                JsonObject target = get(member.getAsJsonObject().get("_ref").getAsString());
+                list.add(target != null ? target : member.getAsJsonObject().deepCopy());
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Remove all objects.
+     */
+    public synchronized void clear() {
+        objects.clear();
+        formattedIds.clear();
+    }
+
+    private JsonObject find(String type, long objectId) {
+        Map<Long, JsonObject> typeObjects = objects.get(getTypeKey(type));
+        return typeObjects != null ? typeObjects.get(objectId) : null;
+    }
+
+    private static String findField(JsonObject object, String field) {
+        for (Map.Entry<String, JsonElement> member : object.entrySet()) {
+            if (member.getKey().equalsIgnoreCase(field)) {
+                return member.getKey();
+            }
+        }
+        return field;
+    }
+
+    private static JsonArray getCollection(JsonObject object, String collection) {
+        JsonElement members = object.get(findField(object, collection));
+        return members != null && members.isJsonArray() ? members.getAsJsonArray() : null;
+    }
+
+    private static int indexOf(JsonArray members, JsonObject reference) {
+        String ref = reference.get("_ref").getAsString();
+        for (int i = 0; i < members.size(); i++) {
+            if (ref.equals(members.get(i).getAsJsonObject().get("_ref").getAsString())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void setFields(JsonObject object, JsonObject fields) {
+        for (Map.Entry<String, JsonElement> field : fields.entrySet()) {
+            if (field.getKey().startsWith("_") || field.getKey().equals("ObjectID")) {
+                continue;
+            }
+            JsonElement value = field.getValue();
+            if (value.isJsonArray()) {
+                JsonArray references = new JsonArray();
+                for (JsonElement item : value.getAsJsonArray()) {
+                    JsonObject reference = toReference(item);
+                    if (reference != null) {
+                        references.add(reference);
+                    }
+                }
+                value = references;
+            } else {
+                JsonObject reference = toReference(value);
+                if (reference != null) {
+                    value = reference;
+                }
+            }
+            object.add(field.getKey(), value);
+        }
+        JsonElement name = object.has("Name") ? object.get("Name") : object.get("FormattedID");
+        if (name != null && name.isJsonPrimitive()) {
+            object.add("_refObjectName", name);
+        }
+        object.addProperty("LastUpdateDate", now());
+    }
+
+    private JsonObject toReference(JsonElement value) {
+        String ref = null;
+        if (value.isJsonPrimitive() && value.getAsJsonPrimitive().isString()) {
+            ref = value.getAsString();
+        } else if (value.isJsonObject() && value.getAsJsonObject().has("_ref")) {
+            ref = value.getAsJsonObject().get("_ref").getAsString();
+        }
+        ParsedRef parsedRef = ref != null ? Ref.parse(ref) : null;
+        if (parsedRef == null) {
+            return null;
+        }
+        JsonObject reference = new JsonObject();
+        reference.addProperty("_ref", baseUrl + parsedRef.getRelativeRef());
+        String key = getTypeKey(parsedRef.getType());
+        reference.addProperty("_type", typeNames.containsKey(key) ? typeNames.get(key) : parsedRef.getType());
+        JsonObject target = find(key, getObjectId(parsedRef));
+        if (target != null && target.has("_refObjectName")) {
+            reference.add("_refObjectName", target.get("_refObjectName"));
+        }
+        return reference;
+    }
+
+    private static long getObjectId(ParsedRef parsedRef) {
+        if (parsedRef == null || parsedRef.isUuid() || parsedRef.isCollection()) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(parsedRef.getObjectId());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String now() {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(new Date());
+    }
+}
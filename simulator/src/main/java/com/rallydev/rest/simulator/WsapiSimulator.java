@@ -0,0 +1,624 @@
+package com.rallydev.rest.simulator;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.rallydev.rest.util.QueryFilter;
+import com.rallydev.rest.util.ResultOrder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * <p>A lightweight stand-in for the Rally WSAPI, served over HTTP on localhost, for load testing and benchmarking
+ * code built on {@link com.rallydev.rest.RallyRestApi} without a Rally subscription.</p>
+ * <p>The simulator implements the v2.0 query, get, create, update, delete, collection query, collection add and
+ * remove, batch and security token endpoints against an in-memory {@link SimulatorStore}.  Queries support the filter
+ * syntax produced by {@link QueryFilter}, ordering, fetch lists and paging.  Workspace and project scoping are
+ * ignored, as are credentials.</p>
+ * <p>Every response can be delayed by a random latency and a proportion of requests can be failed, to exercise
+ * retries and concurrency limits.  The largest accepted page size can be lowered below the WSAPI maximum of
+ * 2000.</p>
+ * <pre>
+ * WsapiSimulator simulator = new WsapiSimulator();
+ * simulator.start();
+ * RallyRestApi api = new RallyRestApi(simulator.getServer(), "any api key");
+ * </pre>
+ * This class is thread safe.
+ */
+public class WsapiSimulator implements Closeable {
+
+    /**
+     * The path of the WSAPI served by the simulator.
+     */
+    public static final String WSAPI_PATH = "/slm/webservice/v2.0";
+
+    private static final Set<String> META_FIELDS = new HashSet<String>(Arrays.asList(
+            "_ref", "_refObjectUUID", "_refObjectName", "_type"));
+
+    static {
+        // the JDK server closes idle keep-alive connections beyond this limit (200 by default),
+        // which clients pooling more connections see as dropped requests
+        setDefault("sun.net.httpserver.maxIdleConnections", "1024");
+        // without TCP_NODELAY a response written as headers then body waits on the client's delayed ack
+        setDefault("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final SimulatorStore store;
+    private volatile long minLatency;
+    private volatile long maxLatency;
+    private volatile double errorRate;
+    private volatile int errorStatus = 503;
+    private volatile int maxPageSize = 2000;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+
+    /**
+     * Create a new simulator listening on a free port.
+     *
+     * @throws IOException if the server cannot be created
+     */
+    public WsapiSimulator() throws IOException {
+        this(0);
+    }
+
+    /**
+     * Create a new simulator listening on the specified port.
+     *
+     * @param port the port, or 0 for a free port
+     * @throws IOException if the server cannot be created
+     */
+    public WsapiSimulator(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        final AtomicInteger threads = new AtomicInteger();
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "wsapi-simulator-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        store = new SimulatorStore(getServer() + WSAPI_PATH);
+    }
+
+    /**
+     * Start serving requests.
+     *
+     * @return this simulator
+     */
+    public WsapiSimulator start() {
+        server.start();
+        return this;
+    }
+
+    /**
+     * Get the server to be passed to {@link com.rallydev.rest.RallyRestApi}.
+     *
+     * @return the server, e.g. http://127.0.0.1:50123
+     */
+    public URI getServer() {
+        return URI.create("http://" + server.getAddress().getAddress().getHostAddress() + ":" +
+                server.getAddress().getPort());
+    }
+
+    /**
+     * Get the dataset served by this simulator.
+     *
+     * @return the store
+     */
+    public SimulatorStore getStore() {
+        return store;
+    }
+
+    /**
+     * Delay every response by a random time within the specified range.  Defaults to no delay.
+     *
+     * @param minLatency the minimum delay in milliseconds
+     * @param maxLatency the maximum delay in milliseconds
+     */
+    public void setLatency(long minLatency, long maxLatency) {
+        if (minLatency < 0 || maxLatency < minLatency) {
+            throw new IllegalArgumentException("Latency must satisfy 0 <= minLatency <= maxLatency");
+        }
+        this.minLatency = minLatency;
+        this.maxLatency = maxLatency;
+    }
+
+    /**
+     * Fail the specified proportion of requests with the error status.  Defaults to 0.
+     *
+     * @param errorRate the proportion of requests to fail, between 0 and 1
+     */
+    public void setErrorRate(double errorRate) {
+        if (errorRate < 0 || errorRate > 1) {
+            throw new IllegalArgumentException("errorRate must be between 0 and 1");
+        }
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * Set the status of failed requests.  Defaults to 503.  429 and 503 responses carry a Retry-After of 0.
+     *
+     * @param errorStatus the http status
+     */
+    public void setErrorStatus(int errorStatus) {
+        this.errorStatus = errorStatus;
+    }
+
+    /**
+     * Set the largest page size accepted by queries; queries asking for more fail.  Defaults to 2000, the WSAPI
+     * maximum.
+     *
+     * @param maxPageSize the maximum page size
+     */
+    public void setMaxPageSize(int maxPageSize) {
+        if (maxPageSize < 1) {
+            throw new IllegalArgumentException("maxPageSize must be at least 1");
+        }
+        this.maxPageSize = maxPageSize;
+    }
+
+    /**
+     * Get the number of requests received.
+     *
+     * @return the number of requests
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * Get the number of requests deliberately failed.
+     *
+     * @return the number of failed requests
+     */
+    public long getErrorCount() {
+        return errors.get();
+    }
+
+    /**
+     * Get the number of response body bytes sent.
+     *
+     * @return the number of bytes
+     */
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    /**
+     * Stop serving requests.
+     */
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private static void setDefault(String property, String value) {
+        if (System.getProperty(property) == null) {
+            System.setProperty(property, value);
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            requests.incrementAndGet();
+            String body = read(exchange.getRequestBody());
+            delay();
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                errors.incrementAndGet();
+                if (errorStatus == 429 || errorStatus == 503) {
+                    exchange.getResponseHeaders().add("Retry-After", "0");
+                }
+                send(exchange, errorStatus, "");
+                return;
+            }
+            String path = exchange.getRequestURI().getRawPath();
+            if (!path.startsWith(WSAPI_PATH + "/")) {
+                send(exchange, 404, "");
+                return;
+            }
+            Map<String, String> params = parseParams(exchange.getRequestURI().getRawQuery());
+            JsonObject response = route(exchange.getRequestMethod(), decode(path.substring(WSAPI_PATH.length())),
+                    params, body);
+            if (response == null) {
+                send(exchange, 404, "");
+            } else {
+                send(exchange, 200, response.toString());
+            }
+        } catch (RuntimeException e) {
+            send(exchange, 500, "");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void delay() {
+        long latency = maxLatency > minLatency ?
+                ThreadLocalRandom.current().nextLong(minLatency, maxLatency + 1) : minLatency;
+        if (latency > 0) {
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private JsonObject route(String method, String path, Map<String, String> params, String body)
+            throws UnsupportedEncodingException {
+        if (path.equals("/security/authorize")) {
+            JsonObject result = createResult();
+            result.addProperty("SecurityToken", UUID.randomUUID().toString());
+            return wrap("OperationResult", result);
+        } else if (path.equals("/batch.js") || path.equals("/batch")) {
+            return method.equals("POST") ? batch(body) : null;
+        }
+        String resource = path.endsWith(".js") ? path.substring(1, path.length() - 3) : path.substring(1);
+        List<String> segments = new ArrayList<String>(Arrays.asList(resource.split("/")));
+        int oidIndex = -1;
+        for (int i = 0; i < segments.size() && oidIndex < 0; i++) {
+            if (!segments.get(i).isEmpty() && segments.get(i).chars().allMatch(Character::isDigit)) {
+                oidIndex = i;
+            }
+        }
+        if (oidIndex < 0) {
+            String last = segments.get(segments.size() - 1);
+            if (method.equals("POST") && last.equals("create") && segments.size() > 1) {
+                return create(join(segments.subList(0, segments.size() - 1)), params, body);
+            } else if (method.equals("GET")) {
+                String type = join(segments);
+                if (type.equals("users") || type.equals("subscriptions")) {
+                    type = type.substring(0, type.length() - 1);
+                }
+                return query(store.snapshot(type), params);
+            }
+            return null;
+        }
+        if (oidIndex == 0) {
+            return null;
+        }
+        String type = join(segments.subList(0, oidIndex));
+        long objectId = Long.parseLong(segments.get(oidIndex));
+        List<String> rest = segments.subList(oidIndex + 1, segments.size());
+        if (rest.isEmpty()) {
+            if (method.equals("GET")) {
+                return get(type, objectId, params);
+            } else if (method.equals("POST") || method.equals("PUT")) {
+                return update(type, objectId, params, body);
+            } else if (method.equals("DELETE")) {
+                return delete(type, objectId);
+            }
+        } else if (rest.size() == 1 && method.equals("GET")) {
+            List<JsonObject> members = store.getCollection(type, objectId, rest.get(0));
+            return members != null ? query(members, params) : wrap("QueryResult", createError(
+                    "Cannot find object to read"));
+        } else if (rest.size() == 2 && method.equals("POST") &&
+                (rest.get(1).equals("add") || rest.get(1).equals("remove"))) {
+            return updateCollection(type, objectId, rest.get(0), rest.get(1).equals("add"), params, body);
+        }
+        return null;
+    }
+
+    private JsonObject query(List<JsonObject> candidates, Map<String, String> params) {
+        Predicate<JsonObject> predicate = null;
+        String query = params.get("query");
+        if (query != null && !query.isEmpty()) {
+            try {
+                predicate = QueryParser.parse(query).toPredicate();
+            } catch (IllegalArgumentException e) {
+                return wrap("QueryResult", createError(e.getMessage()));
+            }
+        }
+        String order = params.containsKey("order") ? params.get("order") : "ObjectID";
+        boolean expand = (query != null && query.contains(".")) || order.contains(".");
+
+        List<JsonObject[]> matches = new ArrayList<JsonObject[]>();
+        for (JsonObject candidate : candidates) {
+            JsonObject view = expand ? expand(candidate, 2) : candidate;
+            if (predicate == null || predicate.test(view)) {
+                matches.add(new JsonObject[]{candidate, view});
+            }
+        }
+        if (!order.replace(" ", "").matches("(?i)ObjectID(ASC)?(,ObjectID(ASC)?)*")) {
+            // the store lists objects in ObjectID order already
+            final ResultOrder resultOrder = new ResultOrder(order + ",ObjectID");
+            Collections.sort(matches, (a, b) -> resultOrder.compare(a[1], b[1]));
+        }
+
+        int start = Math.max(parseInt(params.get("start"), 1), 1);
+        int pageSize = parseInt(params.get("pagesize"), 20);
+        if (pageSize < 1 || pageSize > maxPageSize) {
+            return wrap("QueryResult", createError("The pagesize must be between 1 and " + maxPageSize));
+        }
+        Set<String> fetch = parseFetch(params.get("fetch"));
+        JsonArray results = new JsonArray();
+        for (int i = start - 1; i < matches.size() && i < start - 1 + pageSize; i++) {
+            results.add(render(matches.get(i)[0], fetch));
+        }
+        JsonObject result = createResult();
+        result.addProperty("TotalResultCount", matches.size());
+        result.addProperty("StartIndex", start);
+        result.addProperty("PageSize", pageSize);
+        result.add("Results", results);
+        return wrap("QueryResult", result);
+    }
+
+    private JsonObject get(String type, long objectId, Map<String, String> params) {
+        JsonObject object = store.get(type, objectId);
+        if (object == null) {
+            return wrap("OperationResult", createError("Cannot find object to read"));
+        }
+        JsonObject rendered = render(object, parseFetch(params.get("fetch")));
+        rendered.add("Errors", new JsonArray());
+        rendered.add("Warnings", new JsonArray());
+        return wrap(object.get("_type").getAsString(), rendered);
+    }
+
+    private JsonObject create(String type, Map<String, String> params, String body) {
+        JsonObject fields = unwrap(body);
+        if (fields == null) {
+            return wrap("CreateResult", createError("Cannot parse object"));
+        }
+        JsonObject result = createResult();
+        result.add("Object", render(store.create(type, fields), parseFetch(params.get("fetch"))));
+        return wrap("CreateResult", result);
+    }
+
+    private JsonObject update(String type, long objectId, Map<String, String> params, String body) {
+        JsonObject fields = unwrap(body);
+        if (fields == null) {
+            return wrap("OperationResult", createError("Cannot parse object"));
+        }
+        JsonObject object = store.update(type, objectId, fields);
+        if (object == null) {
+            return wrap("OperationResult", createError("Cannot find object to update"));
+        }
+        JsonObject result = createResult();
+        result.add("Object", render(object, parseFetch(params.get("fetch"))));
+        return wrap("OperationResult", result);
+    }
+
+    private JsonObject delete(String type, long objectId) {
+        if (!store.delete(type, objectId)) {
+            return wrap("OperationResult", createError("Cannot find object to delete"));
+        }
+        return wrap("OperationResult", createResult());
+    }
+
+    private JsonObject updateCollection(String type, long objectId, String collection, boolean adding,
+                                        Map<String, String> params, String body) {
+        JsonObject document = parseObject(body);
+        JsonElement items = document != null ? document.get("CollectionItems") : null;
+        if (items == null || !items.isJsonArray()) {
+            return wrap("OperationResult", createError("Cannot parse collection items"));
+        }
+        List<JsonObject> changed = store.updateCollection(type, objectId, collection, items.getAsJsonArray(), adding);
+        if (changed == null) {
+            return wrap("OperationResult", createError("Cannot find object to update"));
+        }
+        Set<String> fetch = parseFetch(params.get("fetch"));
+        JsonArray results = new JsonArray();
+        for (JsonObject item : changed) {
+            results.add(render(item, fetch));
+        }
+        JsonObject result = createResult();
+        result.add("Results", results);
+        return wrap("OperationResult", result);
+    }
+
+    /**
+     * Perform each operation of a batch in turn, as though it had been requested on its own.
+     */
+    private JsonObject batch(String body) throws UnsupportedEncodingException {
+        JsonObject document = parseObject(body);
+        JsonElement entries = document != null ? document.get("Batch") : null;
+        if (entries == null || !entries.isJsonArray()) {
+            return wrap("BatchResult", createError("Cannot parse batch"));
+        }
+        JsonArray results = new JsonArray();
+        for (JsonElement element : entries.getAsJsonArray()) {
+            JsonObject entry = element.isJsonObject() ? element.getAsJsonObject().getAsJsonObject("Entry") : null;
+            if (entry == null || !entry.has("Path") || !entry.has("Method")) {
+                results.add(createError("Cannot parse batch entry"));
+                continue;
+            }
+            String path = entry.get("Path").getAsString();
+            int query = path.indexOf('?');
+            JsonObject response = route(entry.get("Method").getAsString().toUpperCase(Locale.ROOT),
+                    decode(query >= 0 ? path.substring(0, query) : path),
+                    parseParams(query >= 0 ? path.substring(query + 1) : null),
+                    entry.has("Body") ? entry.get("Body").toString() : "");
+            results.add(response != null ? response.entrySet().iterator().next().getValue() :
+                    createError("Cannot perform batch operation on " + path));
+        }
+        JsonObject result = createResult();
+        result.add("Results", results);
+        return wrap("BatchResult", result);
+    }
+
+    /**
+     * Render an object for a response, including only the fetched fields and summarizing collections.
+     */
+    private static JsonObject render(JsonObject object, Set<String> fetch) {
+        JsonObject rendered = new JsonObject();
+        rendered.addProperty("_rallyAPIMajor", "2");
+        rendered.addProperty("_rallyAPIMinor", "0");
+        for (Map.Entry<String, JsonElement> field : object.entrySet()) {
+            if (fetch != null && !META_FIELDS.contains(field.getKey()) && !fetch.contains(field.getKey())) {
+                continue;
+            }
+            JsonElement value = field.getValue();
+            if (value.isJsonArray()) {
+                JsonObject collection = new JsonObject();
+                collection.addProperty("_ref", object.get("_ref").getAsString() + "/" + field.getKey());
+                collection.addProperty("Count", value.getAsJsonArray().size());
+                value = collection;
+            }
+            rendered.add(field.getKey(), value);
+        }
+        return rendered;
+    }
+
+    /**
+     * Replace references with the objects they refer to, so that filters and orders can follow dotted paths.
+     */
+    private JsonObject expand(JsonObject object, int depth) {
+        if (depth == 0) {
+            return object;
+        }
+        JsonObject expanded = new JsonObject();
+        for (Map.Entry<String, JsonElement> field : object.entrySet()) {
+            JsonElement value = field.getValue();
+            if (value.isJsonObject() && value.getAsJsonObject().has("_ref")) {
+                value = expandReference(value.getAsJsonObject(), depth);
+            } else if (value.isJsonArray()) {
+                JsonArray members = new JsonArray();
+                for (JsonElement member : value.getAsJsonArray()) {
+                    members.add(member.isJsonObject() ? expandReference(member.getAsJsonObject(), depth) : member);
+                }
+                value = members;
+            }
+            expanded.add(field.getKey(), value);
+        }
+        return expanded;
+    }
+
+    private JsonObject expandReference(JsonObject reference, int depth) {
+        JsonObject target = store.get(reference.get("_ref").getAsString());
+        return target != null ? expand(target, depth - 1) : reference;
+    }
+
+    private static JsonObject createResult() {
+        JsonObject result = new JsonObject();
+        result.addProperty("_rallyAPIMajor", "2");
+        result.addProperty("_rallyAPIMinor", "0");
+        result.add("Errors", new JsonArray());
+        result.add("Warnings", new JsonArray());
+        return result;
+    }
+
+    private static JsonObject createError(String error) {
+        JsonObject result = createResult();
+        result.getAsJsonArray("Errors").add(error);
+        return result;
+    }
+
+    private static JsonObject wrap(String root, JsonObject result) {
+        JsonObject document = new JsonObject();
+        document.add(root, result);
+        return document;
+    }
+
+    private static JsonObject unwrap(String body) {
+        JsonObject document = parseObject(body);
+        if (document == null || document.size() != 1) {
+            return null;
+        }
+        JsonElement fields = document.entrySet().iterator().next().getValue();
+        return fields.isJsonObject() ? fields.getAsJsonObject() : null;
+    }
+
+    private static JsonObject parseObject(String body) {
+        try {
+            JsonElement document = new JsonParser().parse(body);
+            return document.isJsonObject() ? document.getAsJsonObject() : null;
+        } catch (JsonParseException e) {
+            return null;
+        }
+    }
+
+    private static Set<String> parseFetch(String fetch) {
+        if (fetch == null || fetch.isEmpty() || fetch.equalsIgnoreCase("true")) {
+            return null;
+        }
+        return new HashSet<String>(Arrays.asList(fetch.split(",")));
+    }
+
+    private static int parseInt(String value, int defaultValue) {
+        try {
+            return value != null ? Integer.parseInt(value) : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private static String join(List<String> segments) {
+        StringBuilder s = new StringBuilder();
+        for (String segment : segments) {
+            s.append(s.length() > 0 ? "/" : "").append(segment);
+        }
+        return s.toString();
+    }
+
+    private static Map<String, String> parseParams(String query) throws UnsupportedEncodingException {
+        Map<String, String> params = new HashMap<String, String>();
+        if (query != null) {
+            for (String param : query.split("&")) {
+                int equals = param.indexOf('=');
+                if (equals > 0) {
+                    params.put(URLDecoder.decode(param.substring(0, equals), "utf-8"),
+                            URLDecoder.decode(param.substring(equals + 1), "utf-8"));
+                }
+            }
+        }
+        return params;
+    }
+
+    private static String decode(String path) throws UnsupportedEncodingException {
+        return URLDecoder.decode(path.replace("+", "%2B"), "utf-8");
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        for (int n; (n = in.read(buffer)) > 0; ) {
+            bytes.write(buffer, 0, n);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0) {
+            exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+        }
+        exchange.sendResponseHeaders(status, bytes.length > 0 ? bytes.length : -1);
+        if (bytes.length > 0) {
+            OutputStream out = exchange.getResponseBody();
+            out.write(bytes);
+            bytesSent.addAndGet(bytes.length);
+        }
+    }
+}
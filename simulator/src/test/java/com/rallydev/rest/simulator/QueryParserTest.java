@@ -0,0 +1,31 @@
+package com.rallydev.rest.simulator;
+
+import com.rallydev.rest.util.QueryFilter;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+@Test
+public class QueryParserTest {
+
+    public void shouldParseSimpleCondition() {
+        QueryFilter filter = new QueryFilter("Name", "=", "My Story");
+        assertEquals(QueryParser.parse(filter.toString()).toString(), filter.toString());
+    }
+
+    public void shouldParseNestedConditions() {
+        QueryFilter filter = new QueryFilter("State", "=", "Open")
+                .or(new QueryFilter("Priority", "<=", "2").and(new QueryFilter("Owner.UserName", "!=", "null")));
+        assertEquals(QueryParser.parse(filter.toString()).toString(), filter.toString());
+    }
+
+    public void shouldParseQuotedValuesContainingParentheses() {
+        QueryFilter filter = new QueryFilter("Name", "contains", "fix (again)");
+        assertEquals(QueryParser.parse(filter.toString()).toString(), filter.toString());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectUnbalancedParentheses() {
+        QueryParser.parse("((Name = foo)");
+    }
+}
@@ -0,0 +1,191 @@
+package com.rallydev.rest.simulator;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.rallydev.rest.RallyRestApi;
+import com.rallydev.rest.request.BatchRequest;
+import com.rallydev.rest.request.CollectionUpdateRequest;
+import com.rallydev.rest.request.CreateRequest;
+import com.rallydev.rest.request.DeleteRequest;
+import com.rallydev.rest.request.GetRequest;
+import com.rallydev.rest.request.QueryRequest;
+import com.rallydev.rest.request.UpdateRequest;
+import com.rallydev.rest.response.CollectionUpdateResponse;
+import com.rallydev.rest.response.CreateResponse;
+import com.rallydev.rest.response.DeleteResponse;
+import com.rallydev.rest.response.GetResponse;
+import com.rallydev.rest.response.QueryResponse;
+import com.rallydev.rest.response.Response;
+import com.rallydev.rest.response.UpdateResponse;
+import com.rallydev.rest.util.Fetch;
+import com.rallydev.rest.util.QueryFilter;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@Test
+public class WsapiSimulatorTest {
+    private WsapiSimulator simulator;
+    private RallyRestApi api;
+
+    @BeforeMethod
+    protected void setUp() throws Exception {
+        simulator = new WsapiSimulator().start();
+        api = new RallyRestApi(simulator.getServer(), "apiKey");
+    }
+
+    @AfterMethod
+    protected void tearDown() throws Exception {
+        api.close();
+        simulator.close();
+    }
+
+    public void shouldCreateGetUpdateAndDelete() throws Exception {
+        JsonObject defect = new JsonObject();
+        defect.addProperty("Name", "Broken");
+        defect.addProperty("Severity", "Major Problem");
+        CreateResponse createResponse = api.create(new CreateRequest("defect", defect));
+        assertTrue(createResponse.wasSuccessful());
+        String ref = createResponse.getObject().get("_ref").getAsString();
+        assertTrue(createResponse.getObject().get("FormattedID").getAsString().startsWith("DE"));
+
+        GetResponse getResponse = api.get(new GetRequest(ref));
+        assertTrue(getResponse.wasSuccessful());
+        assertEquals(getResponse.getObject().get("Name").getAsString(), "Broken");
+
+        JsonObject update = new JsonObject();
+        update.addProperty("Name", "Fixed");
+        UpdateResponse updateResponse = api.update(new UpdateRequest(ref, update));
+        assertTrue(updateResponse.wasSuccessful());
+        assertEquals(updateResponse.getObject().get("Name").getAsString(), "Fixed");
+
+        DeleteResponse deleteResponse = api.delete(new DeleteRequest(ref));
+        assertTrue(deleteResponse.wasSuccessful());
+        assertFalse(api.get(new GetRequest(ref)).wasSuccessful());
+    }
+
+    public void shouldQueryWithFilterOrderAndPaging() throws Exception {
+        for (int i = 0; i < 25; i++) {
+            JsonObject story = new JsonObject();
+            story.addProperty("Name", "Story " + i);
+            story.addProperty("PlanEstimate", i % 5);
+            simulator.getStore().create("HierarchicalRequirement", story);
+        }
+
+        QueryRequest request = new QueryRequest("HierarchicalRequirement");
+        request.setQueryFilter(new QueryFilter("PlanEstimate", ">=", "3"));
+        request.setFetch(new Fetch("Name", "PlanEstimate"));
+        request.setOrder("PlanEstimate DESC");
+        request.setPageSize(4);
+        request.setLimit(Integer.MAX_VALUE);
+        QueryResponse response = api.query(request);
+
+        assertTrue(response.wasSuccessful());
+        assertEquals(response.getTotalResultCount(), 10);
+        assertEquals(response.getResults().size(), 10);
+        assertEquals(response.getResults().get(0).getAsJsonObject().get("PlanEstimate").getAsInt(), 4);
+        assertEquals(response.getResults().get(9).getAsJsonObject().get("PlanEstimate").getAsInt(), 3);
+        assertFalse(response.getResults().get(0).getAsJsonObject().has("FormattedID"));
+        assertEquals(simulator.getRequestCount(), 3);
+    }
+
+    public void shouldFilterOnReferencedFields() throws Exception {
+        JsonObject owner = new JsonObject();
+        owner.addProperty("UserName", "alice");
+        JsonObject user = simulator.getStore().create("User", owner);
+        for (int i = 0; i < 3; i++) {
+            JsonObject task = new JsonObject();
+            task.addProperty("Name", "Task " + i);
+            if (i != 1) {
+                task.add("Owner", user);
+            }
+            simulator.getStore().create("Task", task);
+        }
+
+        QueryRequest request = new QueryRequest("Task");
+        request.setQueryFilter(new QueryFilter("Owner.UserName", "=", "alice"));
+        QueryResponse response = api.query(request);
+
+        assertTrue(response.wasSuccessful());
+        assertEquals(response.getTotalResultCount(), 2);
+    }
+
+    public void shouldReportInvalidQueries() throws Exception {
+        QueryRequest request = new QueryRequest("Defect");
+        request.setQueryFilter(new QueryFilter("Name", "=", "x").and((QueryFilter) null));
+        QueryResponse response = api.query(request);
+        assertFalse(response.wasSuccessful());
+    }
+
+    public void shouldUpdateCollections() throws Exception {
+        JsonObject defect = simulator.getStore().create("Defect", new JsonObject());
+        JsonObject tag = new JsonObject();
+        tag.addProperty("Name", "urgent");
+        JsonObject created = simulator.getStore().create("Tag", tag);
+
+        JsonArray items = new JsonArray();
+        items.add(created);
+        CollectionUpdateResponse response = api.updateCollection(
+                new CollectionUpdateRequest(defect.get("_ref").getAsString() + "/Tags", items, true));
+        assertTrue(response.wasSuccessful());
+        assertEquals(response.getResults().size(), 1);
+
+        JsonObject collection = api.get(new GetRequest(defect.get("_ref").getAsString())).getObject()
+                .getAsJsonObject("Tags");
+        assertEquals(collection.get("Count").getAsInt(), 1);
+        QueryResponse tags = api.query(new QueryRequest(collection));
+        assertEquals(tags.getTotalResultCount(), 1);
+        assertEquals(tags.getResults().get(0).getAsJsonObject().get("Name").getAsString(), "urgent");
+    }
+
+    public void shouldPerformBatches() throws Exception {
+        JsonObject existing = new JsonObject();
+        existing.addProperty("Name", "Old");
+        String ref = simulator.getStore().create("Defect", existing).get("_ref").getAsString();
+        String deletedRef = simulator.getStore().create("Defect", new JsonObject()).get("_ref").getAsString();
+
+        JsonObject defect = new JsonObject();
+        defect.addProperty("Name", "New");
+        JsonObject update = new JsonObject();
+        update.addProperty("Name", "Renamed");
+        List<Response> responses = api.batch(new BatchRequest(new CreateRequest("defect", defect),
+                new UpdateRequest(ref, update), new DeleteRequest(deletedRef), new DeleteRequest(deletedRef)));
+
+        assertEquals(responses.size(), 4);
+        assertEquals(((CreateResponse) responses.get(0)).getObject().get("Name").getAsString(), "New");
+        assertEquals(((UpdateResponse) responses.get(1)).getObject().get("Name").getAsString(), "Renamed");
+        assertTrue(responses.get(2).wasSuccessful());
+        assertFalse(responses.get(3).wasSuccessful());
+        assertEquals(api.get(new GetRequest(ref)).getObject().get("Name").getAsString(), "Renamed");
+        assertEquals(simulator.getRequestCount(), 2);
+    }
+
+    public void shouldFailTheConfiguredProportionOfRequests() throws Exception {
+        simulator.setErrorRate(1);
+        simulator.setErrorStatus(500);
+        try {
+            api.get(new GetRequest("/defect/1"));
+        } catch (IOException expected) {
+            assertEquals(simulator.getErrorCount(), 1);
+            return;
+        }
+        throw new AssertionError("Expected the request to fail");
+    }
+
+    public void shouldRejectPageSizesAboveTheMaximum() throws Exception {
+        simulator.setMaxPageSize(2);
+        QueryRequest request = new QueryRequest("Defect");
+        request.setPageSize(3);
+        assertFalse(api.query(request).wasSuccessful());
+
+        request.setPageSize(2);
+        assertTrue(api.query(request).wasSuccessful());
+    }
+}
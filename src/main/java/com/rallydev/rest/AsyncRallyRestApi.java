@@ -0,0 +1,249 @@
+package com.rallydev.rest;
+
+import com.google.gson.JsonArray;
+import com.rallydev.rest.client.HttpClient;
+import com.rallydev.rest.client.JfrEvents;
+import com.rallydev.rest.request.*;
+import com.rallydev.rest.response.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * <p>Asynchronous variants of the CRUD and query operations provided by {@link RallyRestApi}.</p>
+ * <p>Requests are sent over a non-blocking transport, so many requests may be in flight on a small
+ * number of I/O threads.  Each operation returns immediately with a {@link CompletableFuture} which
+ * is completed with the parsed response, or completed exceptionally with an {@link java.io.IOException}
+ * if a non-200 response code is returned or some other problem occurs.</p>
+ * <p>Instances are obtained from {@link RallyRestApi#async()} and share its configuration and resources,
+ * including its identity map, which is read by asynchronous gets and updated by asynchronous writes just as by
+ * synchronous ones.
+ * Dependent stages run on the I/O threads unless an executor is supplied, so long running work should
+ * be chained using the {@code *Async} variants of the {@link CompletableFuture} methods.</p>
+ */
+public class AsyncRallyRestApi {
+
+    /**
+     * The maximum number of pages of a query in flight at once, unless set by
+     * {@link RallyRestApi#setParallelPaging}.
+     */
+    static final int DEFAULT_MAX_CONCURRENT_PAGES = 4;
+
+    private final RallyRestApi api;
+
+    AsyncRallyRestApi(RallyRestApi api) {
+        this.api = api;
+    }
+
+    /**
+     * Create the specified object.
+     *
+     * @param request the {@link CreateRequest} specifying the object to be created.
+     * @return a future completed with the resulting {@link CreateResponse}
+     */
+    public CompletableFuture<CreateResponse> create(final CreateRequest request) {
+        return getClient().doPostAsync(request.toUrl(), request.getBody()).thenApply(body -> {
+            CreateResponse response = new CreateResponse(body);
+            api.updateIdentityMap(request, response);
+            return response;
+        });
+    }
+
+    /**
+     * Update the specified object.
+     *
+     * @param request the {@link UpdateRequest} specifying the object to be updated.
+     * @return a future completed with the resulting {@link UpdateResponse}
+     */
+    public CompletableFuture<UpdateResponse> update(final UpdateRequest request) {
+        api.evictFromIdentityMap(request.getRef());
+        return getClient().doPostAsync(request.toUrl(), request.getBody()).thenApply(body -> {
+            UpdateResponse response = new UpdateResponse(body);
+            api.updateIdentityMap(request, response);
+            return response;
+        });
+    }
+
+    /**
+     * Update the specified collection.
+     * Note that this method is only usable with WSAPI versions 2.0 and above.
+     *
+     * @param request the {@link CollectionUpdateRequest} specifying the collection to be updated.
+     * @return a future completed with the resulting {@link CollectionUpdateResponse}
+     */
+    public CompletableFuture<CollectionUpdateResponse> updateCollection(final CollectionUpdateRequest request) {
+        api.evictFromIdentityMap(request.getRef());
+        return getClient().doPostAsync(request.toUrl(), request.getBody()).thenApply(body -> {
+            CollectionUpdateResponse response = new CollectionUpdateResponse(body);
+            api.updateIdentityMap(request, response);
+            return response;
+        });
+    }
+
+    /**
+     * Delete the specified object.
+     *
+     * @param request the {@link DeleteRequest} specifying the object to be deleted.
+     * @return a future completed with the resulting {@link DeleteResponse}
+     */
+    public CompletableFuture<DeleteResponse> delete(DeleteRequest request) {
+        api.evictFromIdentityMap(request.getRef());
+        return getClient().doDeleteAsync(request.toUrl()).thenApply(DeleteResponse::new);
+    }
+
+    /**
+     * Get the specified object.
+     * As with {@link RallyRestApi#get}, the object is returned from the identity map without a request if it holds
+     * the requested fields.
+     *
+     * @param request the {@link GetRequest} specifying the object to be retrieved.
+     * @return a future completed with the resulting {@link GetResponse}
+     */
+    public CompletableFuture<GetResponse> get(final GetRequest request) {
+        GetResponse mapped = api.getFromIdentityMap(request);
+        if (mapped != null) {
+            return CompletableFuture.completedFuture(mapped);
+        }
+        final String url = request.toUrl();
+        return getClient().doGetAsync(url).thenApply(body -> {
+            GetResponse response = new GetResponse(api.parse("GET", url, body));
+            api.putInIdentityMap(request, response);
+            return response;
+        });
+    }
+
+    /**
+     * Query for objects matching the specified request.
+     * <p>Paging follows the same rules as {@link RallyRestApi#query}.  Once the first page has been
+     * returned the remaining pages are requested concurrently, with no more pages in flight at once than
+     * the limit set by {@link RallyRestApi#setParallelPaging}, or 4 if parallel paging is not enabled.
+     * When keyset paging is used each page is requested when the previous one completes.</p>
+     * <p>Queries too long for the maximum query url length are split as by {@link RallyRestApi#query}, with the
+     * same limit on the sub-queries in flight at once, and each page and query is reported to the request listener
+     * and to JFR.</p>
+     *
+     * @param request the {@link QueryRequest} specifying the objects to be returned.
+     * @return a future completed with the resulting {@link QueryResponse}
+     */
+    public CompletableFuture<QueryResponse> query(final QueryRequest request) {
+        final long start = System.nanoTime();
+        List<QueryRequest> subQueries = api.splitQuery(request);
+        CompletableFuture<QueryResponse> response = subQueries != null ?
+                querySubQueries(request, subQueries) : queryPages(request);
+        return response.thenApply(queryResponse -> {
+            api.reportQueryCompleted(request, queryResponse, start);
+            return queryResponse;
+        });
+    }
+
+    private CompletableFuture<QueryResponse> querySubQueries(final QueryRequest request, List<QueryRequest> subQueries) {
+        final List<CompletableFuture<QueryResponse>> responses = new ArrayList<CompletableFuture<QueryResponse>>();
+        int maxConcurrentQueries = api.getMaxConcurrentPages(DEFAULT_MAX_CONCURRENT_PAGES);
+        for (final QueryRequest subQuery : subQueries) {
+            int index = responses.size();
+            if (index < maxConcurrentQueries) {
+                responses.add(queryPages(subQuery));
+            } else {
+                //Each sub-query after the first few waits for the one maxConcurrentQueries before it
+                responses.add(responses.get(index - maxConcurrentQueries).thenCompose(previous -> queryPages(subQuery)));
+            }
+        }
+        return CompletableFuture.allOf(responses.toArray(new CompletableFuture<?>[responses.size()]))
+                .thenApply(done -> {
+                    List<QueryResponse> queryResponses = new ArrayList<QueryResponse>(responses.size());
+                    for (CompletableFuture<QueryResponse> response : responses) {
+                        queryResponses.add(response.join());
+                    }
+                    return RallyRestApi.mergeSubQueries(request, queryResponses);
+                });
+    }
+
+    private CompletableFuture<QueryResponse> queryPages(final QueryRequest request) {
+        return queryPage(request).thenCompose(queryResponse -> {
+            if (!queryResponse.wasSuccessful()) {
+                return CompletableFuture.completedFuture(queryResponse);
+            } else if (request.usesKeysetPaging()) {
+                JsonArray results = queryResponse.getResults();
+                int remainingRecords = queryResponse.getTotalResultCount() - (request.getStart() - 1) - results.size();
+                return queryNextPageByKeyset(request, queryResponse, request.getPageSize(), remainingRecords,
+                        RallyRestApi.getLastObjectId(results));
+            } else {
+                return queryRemainingPages(request, queryResponse);
+            }
+        });
+    }
+
+    private CompletableFuture<QueryResponse> queryRemainingPages(QueryRequest request, final QueryResponse queryResponse) {
+        final List<CompletableFuture<QueryResponse>> pageResponses = new ArrayList<CompletableFuture<QueryResponse>>();
+        int maxConcurrentPages = api.getMaxConcurrentPages(DEFAULT_MAX_CONCURRENT_PAGES);
+        int receivedRecords = request.getPageSize();
+        while (receivedRecords < request.getLimit() &&
+                (receivedRecords + request.getStart() - 1) < queryResponse.getTotalResultCount()) {
+            final QueryRequest pageRequest = request.clone();
+            pageRequest.setStart(receivedRecords + request.getStart());
+            int page = pageResponses.size();
+            if (page < maxConcurrentPages) {
+                pageResponses.add(queryPage(pageRequest));
+            } else {
+                //Each page after the first few waits for the one maxConcurrentPages before it
+                pageResponses.add(pageResponses.get(page - maxConcurrentPages)
+                        .thenCompose(previous -> queryPage(pageRequest)));
+            }
+            receivedRecords += pageRequest.getPageSize();
+        }
+
+        return CompletableFuture.allOf(pageResponses.toArray(new CompletableFuture<?>[pageResponses.size()]))
+                .thenApply(done -> {
+                    JsonArray results = queryResponse.getResults();
+                    List<QueryResponse> failedPages = new ArrayList<QueryResponse>();
+                    for (CompletableFuture<QueryResponse> pageResponse : pageResponses) {
+                        QueryResponse page = pageResponse.join();
+                        if (page.wasSuccessful()) {
+                            results.addAll(page.getResults());
+                        } else {
+                            failedPages.add(page);
+                        }
+                    }
+                    return failedPages.isEmpty() ? queryResponse :
+                            RallyRestApi.addPageErrors(queryResponse, failedPages);
+                });
+    }
+
+    private CompletableFuture<QueryResponse> queryNextPageByKeyset(final QueryRequest request, final QueryResponse queryResponse,
+                                                                   final int receivedRecords, int remainingRecords, String lastObjectId) {
+        if (receivedRecords >= request.getLimit() || remainingRecords <= 0 || lastObjectId == null) {
+            return CompletableFuture.completedFuture(queryResponse);
+        }
+        final QueryRequest pageRequest = request.getKeysetPageRequest(lastObjectId);
+        return queryPage(pageRequest).thenCompose(pageResponse -> {
+            if (!pageResponse.wasSuccessful()) {
+                return CompletableFuture.completedFuture(
+                        RallyRestApi.addPageErrors(queryResponse, Collections.singletonList(pageResponse)));
+            }
+            JsonArray pageResults = pageResponse.getResults();
+            int remaining = pageResponse.getTotalResultCount() - pageResults.size();
+            String last = RallyRestApi.getLastObjectId(pageResults);
+            queryResponse.getResults().addAll(pageResults);
+            return queryNextPageByKeyset(request, queryResponse, receivedRecords + pageRequest.getPageSize(), remaining, last);
+        });
+    }
+
+    private CompletableFuture<QueryResponse> queryPage(final QueryRequest request) {
+        final Object event = JfrEvents.beginQueryPage();
+        final String url = request.toUrl();
+        return getClient().doGetAsync(url).thenApply(body -> {
+            QueryResponse response = new QueryResponse(api.parse("GET", url, body));
+            if (event != null) {
+                JfrEvents.endQueryPage(event, url, request.getStart(), request.getPageSize(),
+                        RallyRestApi.countResults(response));
+            }
+            return response;
+        });
+    }
+
+    private HttpClient getClient() {
+        return api.getClient();
+    }
+}
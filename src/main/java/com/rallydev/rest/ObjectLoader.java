@@ -0,0 +1,316 @@
+package com.rallydev.rest;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.rallydev.rest.request.QueryRequest;
+import com.rallydev.rest.response.QueryResponse;
+import com.rallydev.rest.util.Fetch;
+import com.rallydev.rest.util.ParsedRef;
+import com.rallydev.rest.util.QueryFilter;
+import com.rallydev.rest.util.Ref;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Loads objects by ref in batches, replacing one get per object with one query per type.</p>
+ * <p>Refs passed to {@link #load} are queued until the loader is dispatched, either explicitly or at the end of its
+ * batch window.  The queued refs are then grouped by type and each group is retrieved with queries of the form
+ * ((ObjectID = 1) OR (ObjectID = 2) ...), split so that no query url exceeds the maximum url length.
+ * Each caller receives its own object.</p>
+ * Objects are queried across the whole of the workspace, regardless of project.  This class is thread safe.
+ */
+public class ObjectLoader {
+
+    private static final int MAX_PAGE_SIZE = 2000;
+
+    private final RallyRestApi api;
+    private final Fetch fetch;
+    private String workspace = "";
+    private int maxUrlLength = 4000;
+    private int maxBatchSize = MAX_PAGE_SIZE;
+    private ScheduledExecutorService scheduler;
+    private long batchWindow;
+    private Map<String, Map<String, List<CompletableFuture<JsonObject>>>> queued =
+            new LinkedHashMap<String, Map<String, List<CompletableFuture<JsonObject>>>>();
+    private boolean dispatchScheduled;
+
+    /**
+     * Create a new loader which fetches all fields.
+     *
+     * @param api the api used to query for objects
+     */
+    public ObjectLoader(RallyRestApi api) {
+        this(api, new Fetch());
+    }
+
+    /**
+     * Create a new loader which fetches the specified fields.
+     *
+     * @param api   the api used to query for objects
+     * @param fetch the fields to be fetched.  ObjectID is always fetched.
+     */
+    public ObjectLoader(RallyRestApi api, Fetch fetch) {
+        this.api = api;
+        this.fetch = new Fetch();
+        this.fetch.addAll(fetch);
+        if (!this.fetch.isEmpty() && !this.fetch.contains("ObjectID")) {
+            this.fetch.add("ObjectID");
+        }
+    }
+
+    /**
+     * Get the workspace queried.
+     *
+     * @return the workspace ref, or an empty string for the user's default workspace
+     */
+    public String getWorkspace() {
+        return workspace;
+    }
+
+    /**
+     * Set the workspace queried.  Defaults to the user's default workspace.
+     *
+     * @param workspaceRef the workspace ref
+     */
+    public void setWorkspace(String workspaceRef) {
+        this.workspace = workspaceRef;
+    }
+
+    /**
+     * Get the maximum length of a query url, including the WSAPI url.
+     *
+     * @return the maximum url length
+     */
+    public int getMaxUrlLength() {
+        return maxUrlLength;
+    }
+
+    /**
+     * Set the maximum length of a query url, including the WSAPI url.  Defaults to 4000.
+     *
+     * @param maxUrlLength the maximum url length
+     */
+    public void setMaxUrlLength(int maxUrlLength) {
+        this.maxUrlLength = maxUrlLength;
+    }
+
+    /**
+     * Get the maximum number of objects retrieved by a single query.
+     *
+     * @return the maximum batch size
+     */
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Set the maximum number of objects retrieved by a single query.  Defaults to 2000, the largest WSAPI page.
+     *
+     * @param maxBatchSize the maximum batch size, between 1 and 2000
+     */
+    public void setMaxBatchSize(int maxBatchSize) {
+        if (maxBatchSize < 1 || maxBatchSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("maxBatchSize must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * <p>Dispatch queued refs automatically once the specified window has passed since the first of them was queued.</p>
+     * By default refs are only dispatched by {@link #dispatch} and {@link #loadAll}.
+     *
+     * @param scheduler    the scheduler on which dispatches are run, or null to stop dispatching automatically.
+     *                     The scheduler is not shut down by this loader.
+     * @param batchWindow the time in milliseconds for which refs are collected
+     */
+    public synchronized void setBatchWindow(ScheduledExecutorService scheduler, long batchWindow) {
+        this.scheduler = scheduler;
+        this.batchWindow = batchWindow;
+    }
+
+    /**
+     * Queue the object with the specified ref to be loaded.
+     *
+     * @param ref the ref of the object
+     * @return a future completed with the object, or with null if no such object exists.
+     * The future is completed exceptionally with an IOException if the object could not be retrieved.
+     * @throws IllegalArgumentException if the ref is not the ref of an object
+     */
+    public CompletableFuture<JsonObject> load(String ref) {
+        ParsedRef parsedRef = Ref.parse(ref);
+        if (parsedRef == null || parsedRef.isCollection() || parsedRef.isUuid()) {
+            throw new IllegalArgumentException("Not an object ref: " + ref);
+        }
+        CompletableFuture<JsonObject> future = new CompletableFuture<JsonObject>();
+        synchronized (this) {
+            Map<String, List<CompletableFuture<JsonObject>>> type = queued.get(parsedRef.getType());
+            if (type == null) {
+                type = new LinkedHashMap<String, List<CompletableFuture<JsonObject>>>();
+                queued.put(parsedRef.getType(), type);
+            }
+            List<CompletableFuture<JsonObject>> futures = type.get(parsedRef.getObjectId());
+            if (futures == null) {
+                futures = new ArrayList<CompletableFuture<JsonObject>>(1);
+                type.put(parsedRef.getObjectId(), futures);
+            }
+            futures.add(future);
+            if (scheduler != null && !dispatchScheduled) {
+                dispatchScheduled = true;
+                scheduler.schedule(this::dispatch, batchWindow, TimeUnit.MILLISECONDS);
+            }
+        }
+        return future;
+    }
+
+    /**
+     * Load the objects with the specified refs, along with any other refs queued.
+     *
+     * @param refs the refs of the objects
+     * @return the objects, in the order of the refs.  Objects which do not exist are returned as null.
+     * @throws IOException if the objects could not be retrieved
+     */
+    public List<JsonObject> loadAll(Collection<String> refs) throws IOException {
+        List<CompletableFuture<JsonObject>> futures = new ArrayList<CompletableFuture<JsonObject>>(refs.size());
+        for (String ref : refs) {
+            futures.add(load(ref));
+        }
+        dispatch();
+        List<JsonObject> objects = new ArrayList<JsonObject>(futures.size());
+        try {
+            for (CompletableFuture<JsonObject> future : futures) {
+                objects.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for objects");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Unable to load objects", cause);
+        }
+        return objects;
+    }
+
+    /**
+     * Retrieve all queued refs, completing their futures.
+     */
+    public void dispatch() {
+        Map<String, Map<String, List<CompletableFuture<JsonObject>>>> batch;
+        synchronized (this) {
+            batch = queued;
+            queued = new LinkedHashMap<String, Map<String, List<CompletableFuture<JsonObject>>>>();
+            dispatchScheduled = false;
+        }
+        for (Map.Entry<String, Map<String, List<CompletableFuture<JsonObject>>>> type : batch.entrySet()) {
+            List<String> objectIds = new ArrayList<String>(type.getValue().keySet());
+            for (List<String> chunk : partition(type.getKey(), objectIds)) {
+                Map<String, List<CompletableFuture<JsonObject>>> futures =
+                        new LinkedHashMap<String, List<CompletableFuture<JsonObject>>>();
+                for (String objectId : chunk) {
+                    futures.put(objectId, type.getValue().get(objectId));
+                }
+                load(type.getKey(), futures);
+            }
+        }
+    }
+
+    private void load(String type, Map<String, List<CompletableFuture<JsonObject>>> futures) {
+        try {
+            QueryResponse response = api.query(createRequest(type, futures.keySet()));
+            if (!response.wasSuccessful()) {
+                throw new IOException("Unable to load " + type + " objects: " + String.join(", ", response.getErrors()));
+            }
+            for (JsonElement result : response.getResults()) {
+                JsonObject object = result.getAsJsonObject();
+                List<CompletableFuture<JsonObject>> waiting = futures.remove(RallyRestApi.getObjectId(object));
+                if (waiting != null) {
+                    complete(waiting, object);
+                }
+            }
+            for (List<CompletableFuture<JsonObject>> notFound : futures.values()) {
+                complete(notFound, null);
+            }
+        } catch (IOException | RuntimeException e) {
+            for (List<CompletableFuture<JsonObject>> failed : futures.values()) {
+                for (CompletableFuture<JsonObject> future : failed) {
+                    future.completeExceptionally(e);
+                }
+            }
+        }
+    }
+
+    private static void complete(List<CompletableFuture<JsonObject>> futures, JsonObject object) {
+        for (int i = 0; i < futures.size(); i++) {
+            futures.get(i).complete(i == 0 || object == null ? object : object.deepCopy());
+        }
+    }
+
+    private QueryRequest createRequest(String type, Collection<String> objectIds) {
+        List<QueryFilter> filters = new ArrayList<QueryFilter>(objectIds.size());
+        for (String objectId : objectIds) {
+            filters.add(new QueryFilter("ObjectID", "=", objectId));
+        }
+        QueryRequest request = new QueryRequest(type);
+        request.setFetch(fetch);
+        request.setWorkspace(workspace);
+        request.setProject(null);
+        request.setQueryFilter(QueryFilter.or(filters.toArray(new QueryFilter[filters.size()])));
+        request.setPageSize(Math.max(objectIds.size(), 1));
+        request.setLimit(objectIds.size());
+        return request;
+    }
+
+    /**
+     * Split the specified ObjectIDs into chunks whose query urls fit within the maximum url length.
+     * Each ObjectID beyond the first lengthens the query by "( OR (ObjectID = oid))".
+     */
+    List<List<String>> partition(String type, List<String> objectIds) {
+        List<List<String>> chunks = new ArrayList<List<String>>();
+        if (objectIds.isEmpty()) {
+            return chunks;
+        }
+        QueryRequest template = createRequest(type, objectIds.subList(0, 1));
+        template.setPageSize(maxBatchSize);
+        int baseLength = api.getClient().getWsapiUrl().length() + template.toUrl().length() -
+                encodedLength(objectIds.get(0));
+        List<String> chunk = new ArrayList<String>();
+        int length = baseLength;
+        for (String objectId : objectIds) {
+            int cost = encodedLength(objectId) + (chunk.isEmpty() ? 0 : encodedLength("( OR (ObjectID = ))"));
+            if (!chunk.isEmpty() && (length + cost > maxUrlLength || chunk.size() == maxBatchSize)) {
+                chunks.add(chunk);
+                chunk = new ArrayList<String>();
+                length = baseLength;
+                cost = encodedLength(objectId);
+            }
+            chunk.add(objectId);
+            length += cost;
+        }
+        chunks.add(chunk);
+        return chunks;
+    }
+
+    private static int encodedLength(String value) {
+        try {
+            return URLEncoder.encode(value, "utf-8").length();
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.rallydev.rest;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.rallydev.rest.request.QueryRequest;
+import com.rallydev.rest.response.QueryResponse;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * <p>A lazily evaluated view of the objects matching a query.</p>
+ * <p>Pages are requested from the WSAPI only as they are iterated, and only the current page of
+ * results is held in memory.  Paging follows the same rules as {@link RallyRestApi#query}:
+ * if no limit is set on the request only one page of data will be returned, and pages are requested
+ * by ObjectID if keyset paging is enabled on the request.</p>
+ * <p>Each call to {@link #iterator()} executes the query again from the first page.
+ * Errors occurring while paging are reported as {@link UncheckedIOException}.</p>
+ */
+public class QueryResults implements Iterable<JsonObject> {
+
+    private final RallyRestApi api;
+    private final QueryRequest request;
+
+    QueryResults(RallyRestApi api, QueryRequest request) {
+        this.api = api;
+        this.request = request;
+    }
+
+    /**
+     * Get an iterator over the matching objects.
+     *
+     * @return the iterator
+     */
+    public Iterator<JsonObject> iterator() {
+        return new ResultIterator();
+    }
+
+    /**
+     * Get a sequential stream of the matching objects.
+     *
+     * @return the stream
+     */
+    public Stream<JsonObject> stream() {
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    private class ResultIterator implements Iterator<JsonObject> {
+
+        private JsonArray page;
+        private int index;
+        private int receivedRecords;
+        private int totalResultCount = -1;
+        private int remainingRecords;
+        private String lastObjectId;
+
+        public boolean hasNext() {
+            while (page == null || index >= page.size()) {
+                if (!fetchNextPage()) {
+                    page = null;
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public JsonObject next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            JsonObject result = page.get(index).getAsJsonObject();
+            //release the reference so consumed results can be collected before the page is exhausted
+            page.set(index++, JsonNull.INSTANCE);
+            return result;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        private boolean fetchNextPage() {
+            QueryRequest pageRequest = request;
+            if (totalResultCount >= 0) {
+                if (receivedRecords >= request.getLimit()) {
+                    return false;
+                }
+                if (request.usesKeysetPaging()) {
+                    if (remainingRecords <= 0 || lastObjectId == null) {
+                        return false;
+                    }
+                    pageRequest = request.getKeysetPageRequest(lastObjectId);
+                } else {
+                    if ((receivedRecords + request.getStart() - 1) >= totalResultCount) {
+                        return false;
+                    }
+                    pageRequest = request.clone();
+                    pageRequest.setStart(receivedRecords + request.getStart());
+                }
+            }
+
+            QueryResponse pageResponse;
+            try {
+                pageResponse = api.queryPage(pageRequest);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (!pageResponse.wasSuccessful()) {
+                throw new UncheckedIOException(new IOException(
+                        "Query failed: " + Arrays.toString(pageResponse.getErrors())));
+            }
+
+            totalResultCount = pageResponse.getTotalResultCount();
+            page = pageResponse.getResults();
+            remainingRecords = totalResultCount - (pageRequest.getStart() - 1) - page.size();
+            lastObjectId = RallyRestApi.getLastObjectId(page);
+            index = 0;
+            receivedRecords += pageRequest.getPageSize();
+            return true;
+        }
+    }
+}
@@ -1,15 +1,42 @@
 package com.rallydev.rest;
 
 import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
 import com.rallydev.rest.client.ApiKeyClient;
 import com.rallydev.rest.client.BasicAuthClient;
 import com.rallydev.rest.client.HttpClient;
+import com.rallydev.rest.client.JfrEvents;
+import com.rallydev.rest.client.JsonResponseHandler;
+import com.rallydev.rest.client.RequestListener;
 import com.rallydev.rest.request.*;
 import com.rallydev.rest.response.*;
+import com.rallydev.rest.util.Fetch;
+import com.rallydev.rest.util.IdentityMap;
+import com.rallydev.rest.util.ParsedRef;
+import com.rallydev.rest.util.QueryFilter;
+import com.rallydev.rest.util.Ref;
+import com.rallydev.rest.util.ResultOrder;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UnsupportedEncodingException;
 import java.net.URI;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 
 /**
  * <p>The main interface to the Rest API.</p>
@@ -17,7 +44,14 @@ import java.net.URI;
  */
 public class RallyRestApi implements Closeable {
 
+    private static final JsonResponseHandler JSON_RESPONSE_HANDLER = new JsonResponseHandler();
+
     protected HttpClient client;
+    private boolean streamingResponses = false;
+    private IdentityMap identityMap;
+    private ExecutorService pagingExecutor;
+    private int maxConcurrentPages;
+    private int maxQueryUrlLength;
 
     /**
      * Creates a new instance for the specified server using the specified credentials.
@@ -114,6 +148,104 @@ public class RallyRestApi implements Closeable {
         client.setWsapiVersion(wsapiVersion);
     }
 
+    /**
+     * <p>Enable fetching the remaining pages of a query concurrently.</p>
+     * Once the first page of a query has been returned and the total result count is known
+     * the remaining pages will be requested on the specified executor, with no more than
+     * the specified number of pages in flight at once.  The results are still merged in start order.
+     * By default pages are fetched one after another on the calling thread.
+     * The same limit applies to the pages requested by {@link AsyncRallyRestApi#query}.
+     *
+     * @param executor           the executor used to fetch pages, or null to fetch pages sequentially.
+     *                           The executor is not shut down when this instance is closed.
+     * @param maxConcurrentPages the maximum number of pages to be requested at once.  Must be at least 1.
+     */
+    public void setParallelPaging(ExecutorService executor, int maxConcurrentPages) {
+        if (executor != null && maxConcurrentPages < 1) {
+            throw new IllegalArgumentException("maxConcurrentPages must be at least 1");
+        }
+        this.pagingExecutor = executor;
+        this.maxConcurrentPages = maxConcurrentPages;
+    }
+
+    /**
+     * Get the maximum number of pages of a query to be requested at once when paging in parallel.
+     *
+     * @param defaultMaxConcurrentPages the limit to be used if parallel paging is not enabled
+     * @return the maximum number of pages in flight at once
+     */
+    int getMaxConcurrentPages(int defaultMaxConcurrentPages) {
+        return pagingExecutor == null ? defaultMaxConcurrentPages : maxConcurrentPages;
+    }
+
+    /**
+     * Get the maximum length of a query url, beyond which queries are split.
+     *
+     * @return the maximum query url length, or 0 if queries are never split
+     */
+    public int getMaxQueryUrlLength() {
+        return maxQueryUrlLength;
+    }
+
+    /**
+     * <p>Set the maximum length of a query url, including the WSAPI url, beyond which queries are split.</p>
+     * <p>A {@link #query} whose url would be longer, because its filter ORs together many conditions, is instead
+     * run as several queries each ORing together some of the conditions.  The queries are run on the paging executor
+     * if one is set, see {@link #setParallelPaging}.  Their results are merged, removing objects matched by more
+     * than one query, and sorted locally by the requested order, so the order fields are added to any fetch.</p>
+     * Defaults to 0, i.e. queries are never split.
+     *
+     * @param maxQueryUrlLength the maximum query url length, or 0 to never split queries
+     */
+    public void setMaxQueryUrlLength(int maxQueryUrlLength) {
+        this.maxQueryUrlLength = maxQueryUrlLength;
+    }
+
+    /**
+     * Get whether responses are parsed directly from the response stream.
+     *
+     * @return whether responses are streamed
+     */
+    public boolean isStreamingResponses() {
+        return streamingResponses;
+    }
+
+    /**
+     * <p>Set whether responses should be parsed directly from the response stream.</p>
+     * When enabled each response body is parsed as it arrives instead of first being read into a string,
+     * reducing the peak memory used by large pages.  The string based methods of the underlying
+     * {@link HttpClient}, e.g. {@link HttpClient#doGet(String)}, are then bypassed in favor of their
+     * {@link org.apache.http.client.ResponseHandler} based variants.
+     * Defaults to false.
+     *
+     * @param streamingResponses whether to stream responses
+     */
+    public void setStreamingResponses(boolean streamingResponses) {
+        this.streamingResponses = streamingResponses;
+    }
+
+    /**
+     * Get the identity map holding the objects read and written by this instance.
+     *
+     * @return the identity map, or null if none is used
+     */
+    public IdentityMap getIdentityMap() {
+        return identityMap;
+    }
+
+    /**
+     * <p>Set the identity map used to hold the objects read and written by this instance.</p>
+     * <p>Objects are stored as they are created, updated and retrieved, and removed as they are deleted.
+     * A {@link #get} for an object whose stored state holds all of the requested fields is then answered from the
+     * identity map without a request.  Gets with additional parameters always go to the server.</p>
+     * Defaults to null, i.e. no identity map.
+     *
+     * @param identityMap the identity map, or null to stop using one
+     */
+    public void setIdentityMap(IdentityMap identityMap) {
+        this.identityMap = identityMap;
+    }
+
     /**
      * Create the specified object.
      *
@@ -122,7 +254,9 @@ public class RallyRestApi implements Closeable {
      * @throws IOException if an error occurs during the creation.
      */
     public CreateResponse create(CreateRequest request) throws IOException {
-        return new CreateResponse(client.doPost(request.toUrl(), request.getBody()));
+        CreateResponse response = new CreateResponse(doPost(request.toUrl(), request.getBody()));
+        updateIdentityMap(request, response);
+        return response;
     }
 
     /**
@@ -133,7 +267,10 @@ public class RallyRestApi implements Closeable {
      * @throws IOException if an error occurs during the update.
      */
     public UpdateResponse update(UpdateRequest request) throws IOException {
-        return new UpdateResponse(client.doPost(request.toUrl(), request.getBody()));
+        evictFromIdentityMap(request.getRef());
+        UpdateResponse response = new UpdateResponse(doPost(request.toUrl(), request.getBody()));
+        updateIdentityMap(request, response);
+        return response;
     }
 
     /**
@@ -145,7 +282,10 @@ public class RallyRestApi implements Closeable {
      * @throws IOException if an error occurs during the update.
      */
     public CollectionUpdateResponse updateCollection(CollectionUpdateRequest request) throws IOException {
-        return new CollectionUpdateResponse(client.doPost(request.toUrl(), request.getBody()));
+        evictFromIdentityMap(request.getRef());
+        CollectionUpdateResponse response = new CollectionUpdateResponse(doPost(request.toUrl(), request.getBody()));
+        updateIdentityMap(request, response);
+        return response;
     }
 
     /**
@@ -156,27 +296,127 @@ public class RallyRestApi implements Closeable {
      * @throws IOException if an error occurs during the deletion.
      */
     public DeleteResponse delete(DeleteRequest request) throws IOException {
-        return new DeleteResponse(client.doDelete(request.toUrl()));
+        evictFromIdentityMap(request.getRef());
+        return new DeleteResponse(doDelete(request.toUrl()));
+    }
+
+    /**
+     * <p>Perform the specified create, update, collection update and delete operations using the WSAPI batch endpoint.</p>
+     * The operations are split into as many batches as the request's limits require and the batches are sent in order.
+     * If a batch as a whole fails, every operation in it reports the batch's errors.
+     *
+     * @param request the {@link BatchRequest} specifying the operations to be performed.
+     * @return the resulting responses, one per operation and in the same order.
+     * Each is a {@link CreateResponse}, {@link UpdateResponse}, {@link CollectionUpdateResponse}
+     * or {@link DeleteResponse} matching the type of the operation.
+     * @throws IOException if an error occurs sending a batch.
+     */
+    public List<Response> batch(BatchRequest request) throws IOException {
+        List<Response> responses = new ArrayList<Response>();
+        for (BatchRequest batch : request.partition()) {
+            for (Request operation : batch.getRequests()) {
+                if (operation instanceof UpdateRequest) {
+                    evictFromIdentityMap(((UpdateRequest) operation).getRef());
+                } else if (operation instanceof CollectionUpdateRequest) {
+                    evictFromIdentityMap(((CollectionUpdateRequest) operation).getRef());
+                } else if (operation instanceof DeleteRequest) {
+                    evictFromIdentityMap(((DeleteRequest) operation).getRef());
+                }
+            }
+            BatchResponse batchResponse = new BatchResponse(doPost(batch.toUrl(), batch.getBody()));
+            JsonArray results = batchResponse.getResults();
+            List<Request> operations = batch.getRequests();
+            for (int i = 0; i < operations.size(); i++) {
+                JsonObject result = batchResponse.wasSuccessful() && i < results.size() ?
+                        results.get(i).getAsJsonObject() : getBatchErrorResult(batchResponse);
+                Response response = toOperationResponse(operations.get(i), result);
+                updateIdentityMap(operations.get(i), response);
+                responses.add(response);
+            }
+        }
+        return responses;
+    }
+
+    private static JsonObject getBatchErrorResult(BatchResponse batchResponse) {
+        JsonObject result = new JsonObject();
+        JsonArray errors = new JsonArray();
+        for (String error : batchResponse.getErrors()) {
+            errors.add(error);
+        }
+        if (errors.size() == 0) {
+            errors.add("No result returned for batch operation");
+        }
+        JsonArray warnings = new JsonArray();
+        for (String warning : batchResponse.getWarnings()) {
+            warnings.add(warning);
+        }
+        result.add("Errors", errors);
+        result.add("Warnings", warnings);
+        return result;
+    }
+
+    private static Response toOperationResponse(Request operation, JsonObject result) {
+        if (!result.has("Errors")) {
+            result.add("Errors", new JsonArray());
+        }
+        if (!result.has("Warnings")) {
+            result.add("Warnings", new JsonArray());
+        }
+        JsonObject document = new JsonObject();
+        if (operation instanceof CreateRequest) {
+            document.add("CreateResult", result);
+            return new CreateResponse(document);
+        }
+        document.add("OperationResult", result);
+        if (operation instanceof UpdateRequest) {
+            return new UpdateResponse(document);
+        } else if (operation instanceof CollectionUpdateRequest) {
+            return new CollectionUpdateResponse(document);
+        }
+        return new DeleteResponse(document);
     }
 
     /**
      * Query for objects matching the specified request.
      * By default one page of data will be returned.
      * Paging will automatically be performed if a limit is set on the request.
+     * Pages are requested by ObjectID rather than start index if keyset paging is enabled on the request,
+     * see {@link QueryRequest#setKeysetPaging}.
+     * Queries too long for the maximum query url length are split, see {@link #setMaxQueryUrlLength}.
      *
      * @param request the {@link QueryRequest} specifying the object to be created.
      * @return the resulting {@link QueryResponse}
      * @throws IOException if an error occurs during the query.
      */
     public QueryResponse query(QueryRequest request) throws IOException {
-        QueryResponse queryResponse = new QueryResponse(client.doGet(request.toUrl()));
-        if (queryResponse.wasSuccessful()) {
+        long start = System.nanoTime();
+        List<QueryRequest> subQueries = splitQuery(request);
+        QueryResponse response = subQueries != null ?
+                mergeSubQueries(request, queryConcurrently(subQueries, true)) : queryPages(request, true);
+        reportQueryCompleted(request, response, start);
+        return response;
+    }
+
+    void reportQueryCompleted(QueryRequest request, QueryResponse response, long start) {
+        RequestListener listener = client.getRequestListener();
+        if (listener != null) {
+            listener.queryCompleted(request.toUrl(), countResults(response), System.nanoTime() - start);
+        }
+    }
+
+    private QueryResponse queryPages(QueryRequest request, boolean parallel) throws IOException {
+        QueryResponse queryResponse = queryPage(request);
+        if (queryResponse.wasSuccessful() && request.usesKeysetPaging()) {
+            return queryRemainingPagesByKeyset(request, queryResponse);
+        } else if (queryResponse.wasSuccessful() && parallel && pagingExecutor != null) {
+            return queryRemainingPagesInParallel(request, queryResponse);
+        } else if (queryResponse.wasSuccessful()) {
             int receivedRecords = request.getPageSize();
             while (receivedRecords < request.getLimit() &&
                     (receivedRecords + request.getStart() - 1) < queryResponse.getTotalResultCount()) {
                 QueryRequest pageRequest = request.clone();
                 pageRequest.setStart(receivedRecords + request.getStart());
-                QueryResponse pageResponse = new QueryResponse(client.doGet(pageRequest.toUrl()));
+                QueryResponse pageResponse = queryPage(pageRequest);
                 if (pageResponse.wasSuccessful()) {
                     JsonArray results = queryResponse.getResults();
                     results.addAll(pageResponse.getResults());
@@ -188,6 +428,351 @@ public class RallyRestApi implements Closeable {
         return queryResponse;
     }
 
+    private QueryResponse queryRemainingPagesByKeyset(QueryRequest request, QueryResponse queryResponse)
+            throws IOException {
+        JsonArray results = queryResponse.getResults();
+        int remainingRecords = queryResponse.getTotalResultCount() - (request.getStart() - 1) - results.size();
+        String lastObjectId = getLastObjectId(results);
+        int receivedRecords = request.getPageSize();
+        while (receivedRecords < request.getLimit() && remainingRecords > 0 && lastObjectId != null) {
+            QueryRequest pageRequest = request.getKeysetPageRequest(lastObjectId);
+            QueryResponse pageResponse = queryPage(pageRequest);
+            if (!pageResponse.wasSuccessful()) {
+                return addPageErrors(queryResponse, Collections.singletonList(pageResponse));
+            }
+            JsonArray pageResults = pageResponse.getResults();
+            remainingRecords = pageResponse.getTotalResultCount() - pageResults.size();
+            lastObjectId = getLastObjectId(pageResults);
+            results.addAll(pageResults);
+            receivedRecords += pageRequest.getPageSize();
+        }
+        return queryResponse;
+    }
+
+    /**
+     * Get the ObjectID of the last object in the specified results, for use in keyset paging.
+     *
+     * @param results the results of a page
+     * @return the ObjectID, or null if the results are empty
+     */
+    static String getLastObjectId(JsonArray results) {
+        if (results.size() == 0) {
+            return null;
+        }
+        return getObjectId(results.get(results.size() - 1).getAsJsonObject());
+    }
+
+    /**
+     * Get the ObjectID of the specified object, from its ObjectID field or else its ref.
+     *
+     * @param object the object
+     * @return the ObjectID, or null if the object has neither
+     */
+    static String getObjectId(JsonObject object) {
+        JsonElement objectId = object.get("ObjectID");
+        if (objectId != null && !objectId.isJsonNull()) {
+            return objectId.getAsString();
+        }
+        return object.has("_ref") ? Ref.getOidFromRef(object.get("_ref").getAsString()) : null;
+    }
+
+    private QueryResponse queryRemainingPagesInParallel(QueryRequest request, QueryResponse queryResponse)
+            throws IOException {
+        List<QueryRequest> pageRequests = new ArrayList<QueryRequest>();
+        int receivedRecords = request.getPageSize();
+        while (receivedRecords < request.getLimit() &&
+                (receivedRecords + request.getStart() - 1) < queryResponse.getTotalResultCount()) {
+            QueryRequest pageRequest = request.clone();
+            pageRequest.setStart(receivedRecords + request.getStart());
+            pageRequests.add(pageRequest);
+            receivedRecords += pageRequest.getPageSize();
+        }
+
+        JsonArray results = queryResponse.getResults();
+        List<QueryResponse> failedPages = new ArrayList<QueryResponse>();
+        for (QueryResponse pageResponse : queryConcurrently(pageRequests, false)) {
+            if (pageResponse.wasSuccessful()) {
+                results.addAll(pageResponse.getResults());
+            } else {
+                failedPages.add(pageResponse);
+            }
+        }
+        return failedPages.isEmpty() ? queryResponse : addPageErrors(queryResponse, failedPages);
+    }
+
+    /**
+     * Copy a query response, adding the errors of the pages which failed to be retrieved,
+     * so that a response missing some of its results is not reported as successful.
+     *
+     * @param queryResponse the response holding the results received
+     * @param failedPages   the responses to the pages which failed
+     * @return the response with the errors of the failed pages
+     */
+    static QueryResponse addPageErrors(QueryResponse queryResponse, List<QueryResponse> failedPages) {
+        List<String> errors = new ArrayList<String>();
+        for (QueryResponse page : failedPages) {
+            Collections.addAll(errors, page.getErrors());
+        }
+        return queryResponse.withErrors(errors);
+    }
+
+    /**
+     * Run the specified queries on the paging executor, if one is set, or else one after another.
+     *
+     * @param requests the queries
+     * @param allPages whether to retrieve all pages of each query, or only the requested one
+     * @return the responses, in the order of the queries
+     * @throws IOException if an error occurs during any of the queries
+     */
+    private List<QueryResponse> queryConcurrently(List<QueryRequest> requests, final boolean allPages)
+            throws IOException {
+        List<QueryResponse> responses = new ArrayList<QueryResponse>(requests.size());
+        if (pagingExecutor == null) {
+            for (QueryRequest request : requests) {
+                responses.add(allPages ? queryPages(request, false) : queryPage(request));
+            }
+            return responses;
+        }
+
+        final Semaphore permits = new Semaphore(maxConcurrentPages);
+        List<Future<QueryResponse>> futures = new ArrayList<Future<QueryResponse>>();
+        try {
+            for (final QueryRequest request : requests) {
+                permits.acquire();
+                try {
+                    futures.add(pagingExecutor.submit(new Callable<QueryResponse>() {
+                        public QueryResponse call() throws IOException {
+                            try {
+                                return allPages ? queryPages(request, false) : queryPage(request);
+                            } finally {
+                                permits.release();
+                            }
+                        }
+                    }));
+                } catch (RejectedExecutionException e) {
+                    permits.release();
+                    throw e;
+                }
+            }
+
+            for (Future<QueryResponse> future : futures) {
+                responses.add(future.get());
+            }
+            return responses;
+        } catch (InterruptedException e) {
+            cancel(futures);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for query pages");
+        } catch (ExecutionException e) {
+            cancel(futures);
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Unable to retrieve query page", cause);
+        } catch (RuntimeException e) {
+            cancel(futures);
+            throw e;
+        }
+    }
+
+    /**
+     * Split a query whose url is too long into queries for parts of its largest OR.
+     * An OR nested inside an AND is split by distributing the rest of the AND over it.
+     *
+     * @param request the query
+     * @return the sub-queries, or null if the query does not need to, or cannot, be split
+     */
+    List<QueryRequest> splitQuery(QueryRequest request) {
+        int maxLength = maxQueryUrlLength;
+        QueryFilter filter = request.getQueryFilter();
+        if (maxLength <= 0 || filter == null) {
+            return null;
+        }
+        int wsapiLength = client.getWsapiUrl().length();
+        if (wsapiLength + request.toUrl().length() <= maxLength) {
+            return null;
+        }
+
+        List<QueryFilter> conjuncts = filter.getConjuncts();
+        int split = -1;
+        List<QueryFilter> disjuncts = null;
+        for (int i = 0; i < conjuncts.size(); i++) {
+            List<QueryFilter> candidate = conjuncts.get(i).getDisjuncts();
+            if (candidate.size() > 1 && (disjuncts == null || candidate.size() > disjuncts.size())) {
+                split = i;
+                disjuncts = candidate;
+            }
+        }
+        if (disjuncts == null) {
+            return null;
+        }
+
+        ResultOrder order = new ResultOrder(request.getOrder());
+        Fetch fetch = request.getFetch();
+        if (!fetch.isEmpty()) {
+            fetch = new Fetch();
+            fetch.addAll(request.getFetch());
+            for (String field : order.getFields()) {
+                if (!fetch.contains(field)) {
+                    fetch.add(field);
+                }
+            }
+            if (!fetch.contains("ObjectID")) {
+                fetch.add("ObjectID");
+            }
+        }
+        int needed = getResultsNeeded(request);
+        List<QueryRequest> subQueries = new ArrayList<QueryRequest>();
+        int joinLength = encodedLength("( OR )");
+        int baseLength = -1;
+        int length = 0;
+        List<QueryFilter> chunk = new ArrayList<QueryFilter>();
+        for (QueryFilter disjunct : disjuncts) {
+            int disjunctLength = encodedLength(disjunct.toString());
+            if (baseLength < 0) {
+                baseLength = wsapiLength - disjunctLength +
+                        createSubQuery(request, conjuncts, split, disjuncts.subList(0, 1), fetch, needed).toUrl().length();
+            } else if (!chunk.isEmpty() && length + joinLength + disjunctLength > maxLength) {
+                subQueries.add(createSubQuery(request, conjuncts, split, chunk, fetch, needed));
+                chunk = new ArrayList<QueryFilter>();
+            }
+            length = chunk.isEmpty() ? baseLength + disjunctLength : length + joinLength + disjunctLength;
+            chunk.add(disjunct);
+        }
+        if (subQueries.isEmpty()) {
+            return null;
+        }
+        subQueries.add(createSubQuery(request, conjuncts, split, chunk, fetch, needed));
+        return subQueries;
+    }
+
+    private static QueryRequest createSubQuery(QueryRequest request, List<QueryFilter> conjuncts, int split,
+                                               List<QueryFilter> disjuncts, Fetch fetch, int needed) {
+        QueryFilter[] filters = conjuncts.toArray(new QueryFilter[conjuncts.size()]);
+        filters[split] = QueryFilter.or(disjuncts.toArray(new QueryFilter[disjuncts.size()]));
+        QueryRequest subQuery = request.clone();
+        subQuery.setQueryFilter(QueryFilter.and(filters));
+        subQuery.setFetch(fetch);
+        subQuery.setStart(1);
+        subQuery.setLimit(needed);
+        return subQuery;
+    }
+
+    private static int getResultsNeeded(QueryRequest request) {
+        long needed = request.getStart() - 1L + Math.max(request.getLimit(), request.getPageSize());
+        return (int) Math.min(needed, Integer.MAX_VALUE);
+    }
+
+    private static int encodedLength(String value) {
+        try {
+            return URLEncoder.encode(value, "utf-8").length();
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Merge the responses to the sub-queries of a split query, removing duplicates and reapplying the order,
+     * start and page size of the query.
+     * The total result count is exact if every sub-query returned all of its results, and otherwise
+     * an upper bound which may count objects matched by more than one sub-query twice.
+     *
+     * @param request   the query which was split
+     * @param responses the responses to the sub-queries
+     * @return the merged response
+     */
+    static QueryResponse mergeSubQueries(QueryRequest request, List<QueryResponse> responses) {
+        Map<String, JsonObject> distinct = new LinkedHashMap<String, JsonObject>();
+        JsonArray warnings = new JsonArray();
+        int totalResultCount = 0;
+        boolean complete = true;
+        for (QueryResponse response : responses) {
+            if (!response.wasSuccessful()) {
+                return response;
+            }
+            for (String warning : response.getWarnings()) {
+                if (!warnings.contains(new JsonPrimitive(warning))) {
+                    warnings.add(warning);
+                }
+            }
+            JsonArray results = response.getResults();
+            totalResultCount += response.getTotalResultCount();
+            complete &= results.size() >= response.getTotalResultCount();
+            for (JsonElement result : results) {
+                JsonObject object = result.getAsJsonObject();
+                String objectId = getObjectId(object);
+                String key = objectId != null ? objectId : object.toString();
+                if (!distinct.containsKey(key)) {
+                    distinct.put(key, object);
+                }
+            }
+        }
+
+        List<JsonObject> sorted = new ArrayList<JsonObject>(distinct.values());
+        Collections.sort(sorted, new ResultOrder(request.getOrder() + ",ObjectID"));
+        int end = Math.min(sorted.size(), getResultsNeeded(request));
+        JsonArray results = new JsonArray();
+        for (int i = request.getStart() - 1; i < end; i++) {
+            results.add(sorted.get(i));
+        }
+
+        JsonObject queryResult = new JsonObject();
+        queryResult.add("Errors", new JsonArray());
+        queryResult.add("Warnings", warnings);
+        queryResult.addProperty("TotalResultCount", complete ? distinct.size() : totalResultCount);
+        queryResult.addProperty("StartIndex", request.getStart());
+        queryResult.addProperty("PageSize", request.getPageSize());
+        queryResult.add("Results", results);
+        JsonObject document = new JsonObject();
+        document.add("QueryResult", queryResult);
+        return new QueryResponse(document);
+    }
+
+    private static void cancel(List<? extends Future<?>> futures) {
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * <p>Lazily query for objects matching the specified request.</p>
+     * Unlike {@link #query} the full result set is never held in memory: pages are requested
+     * as the returned results are iterated and each page may be garbage collected once consumed.
+     * Paging follows the same rules as {@link #query}, so a limit should be set on the request
+     * in order to retrieve more than one page.
+     *
+     * @param request the {@link QueryRequest} specifying the objects to be returned.
+     * @return the lazily evaluated {@link QueryResults}
+     */
+    public QueryResults iterate(QueryRequest request) {
+        return new QueryResults(this, request);
+    }
+
+    /**
+     * Request a single page of query results.
+     *
+     * @param request the {@link QueryRequest} specifying the page to be returned.
+     * @return the resulting {@link QueryResponse}
+     * @throws IOException if an error occurs during the query.
+     */
+    QueryResponse queryPage(QueryRequest request) throws IOException {
+        Object event = JfrEvents.beginQueryPage();
+        String url = request.toUrl();
+        QueryResponse response = new QueryResponse(doGet(url));
+        if (event != null) {
+            JfrEvents.endQueryPage(event, url, request.getStart(), request.getPageSize(), countResults(response));
+        }
+        return response;
+    }
+
+    static int countResults(QueryResponse response) {
+        JsonArray results = response.getResults();
+        return results != null ? results.size() : 0;
+    }
+
     /**
      * Get the specified object.
      *
@@ -196,7 +781,114 @@ public class RallyRestApi implements Closeable {
      * @throws IOException if an error occurs during the retrieval.
      */
     public GetResponse get(GetRequest request) throws IOException {
-        return new GetResponse(client.doGet(request.toUrl()));
+        GetResponse mapped = getFromIdentityMap(request);
+        if (mapped != null) {
+            return mapped;
+        }
+        GetResponse response = new GetResponse(doGet(request.toUrl()));
+        putInIdentityMap(request, response);
+        return response;
+    }
+
+    /**
+     * Get the response to the specified request from the identity map, if it holds the object with the requested fields.
+     *
+     * @param request the {@link GetRequest} specifying the object to be retrieved.
+     * @return the response, or null if the object must be retrieved from the server
+     */
+    GetResponse getFromIdentityMap(GetRequest request) {
+        IdentityMap map = identityMap;
+        if (map != null && request.getParams().isEmpty()) {
+            JsonObject object = map.get(request.getRef(), request.getFetch());
+            if (object != null) {
+                object.add("Errors", new JsonArray());
+                object.add("Warnings", new JsonArray());
+                JsonObject document = new JsonObject();
+                document.add(object.has("_type") ? object.get("_type").getAsString() : "Object", object);
+                return new GetResponse(document);
+            }
+        }
+        return null;
+    }
+
+    void putInIdentityMap(GetRequest request, GetResponse response) {
+        IdentityMap map = identityMap;
+        if (map != null && response.wasSuccessful() && request.getParams().isEmpty()) {
+            map.put(response.getObject(), request.getFetch().isEmpty());
+        }
+    }
+
+    void evictFromIdentityMap(String ref) {
+        IdentityMap map = identityMap;
+        if (map != null) {
+            ParsedRef parsedRef = Ref.parse(ref);
+            if (parsedRef != null) {
+                //a collection update changes the owning object
+                map.remove(String.format("/%s/%s", parsedRef.getType(), parsedRef.getObjectId()));
+            }
+        }
+    }
+
+    void updateIdentityMap(Request request, Response response) {
+        IdentityMap map = identityMap;
+        if (map == null || !response.wasSuccessful()) {
+            return;
+        }
+        if (request instanceof CreateRequest) {
+            map.put(((CreateResponse) response).getObject(), ((CreateRequest) request).getFetch().isEmpty());
+        } else if (request instanceof UpdateRequest) {
+            map.put(((UpdateResponse) response).getObject(), ((UpdateRequest) request).getFetch().isEmpty());
+        } else if (request instanceof CollectionUpdateRequest) {
+            boolean complete = ((CollectionUpdateRequest) request).getFetch().isEmpty();
+            for (JsonElement item : ((CollectionUpdateResponse) response).getResults()) {
+                if (item.isJsonObject()) {
+                    map.put(item.getAsJsonObject(), complete);
+                }
+            }
+        }
+    }
+
+    private JsonObject doGet(String url) throws IOException {
+        return streamingResponses ? client.doGet(url, JSON_RESPONSE_HANDLER) : parse("GET", url, client.doGet(url));
+    }
+
+    private JsonObject doPost(String url, String body) throws IOException {
+        return streamingResponses ? client.doPost(url, body, JSON_RESPONSE_HANDLER) :
+                parse("POST", url, client.doPost(url, body));
+    }
+
+    private JsonObject doDelete(String url) throws IOException {
+        return streamingResponses ? client.doDelete(url, JSON_RESPONSE_HANDLER) :
+                parse("DELETE", url, client.doDelete(url));
+    }
+
+    JsonObject parse(String method, String url, String response) {
+        RequestListener listener = client.getRequestListener();
+        Object event = JfrEvents.beginParse();
+        if (listener == null && event == null) {
+            return parse(response);
+        }
+        long start = System.nanoTime();
+        JsonObject parsed = parse(response);
+        JfrEvents.endParse(event, url, response.length());
+        if (listener != null) {
+            listener.responseParsed(method, url, response.length(), System.nanoTime() - start);
+        }
+        return parsed;
+    }
+
+    private static JsonObject parse(String response) {
+        return new JsonParser().parse(response).getAsJsonObject();
+    }
+
+    /**
+     * Get the asynchronous variants of the operations provided by this instance.
+     * The returned instance shares this instance's configuration and is closed along with it.
+     *
+     * @return the {@link AsyncRallyRestApi}
+     */
+    public AsyncRallyRestApi async() {
+        return new AsyncRallyRestApi(this);
     }
 
     /**
@@ -0,0 +1,218 @@
+package com.rallydev.rest.client;
+
+import org.apache.http.client.methods.HttpRequestBase;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * <p>A {@link RequestGovernor} which adapts the number of concurrent requests to what the server can sustain.</p>
+ * <p>The concurrency limit follows an additive increase, multiplicative decrease scheme.  Each successful request
+ * raises the limit by a fraction of a request, so that it grows by about one request per round of requests.
+ * A 429 or 5xx response, a request which fails without a response, e.g. because it timed out, or a latency well
+ * above the lowest recently observed for the same type and operation, multiplies the limit by the decrease factor.
+ * Latencies are compared per operation, so that slow but healthy requests such as large queries do not shrink
+ * the limit for fast ones.  The limit is decreased at most once per round trip, so a burst of failures from
+ * requests sent together only counts once.</p>
+ * Requests beyond the current limit wait until an earlier request completes.  Asynchronous requests wait in a queue
+ * without holding a thread, and are allowed ahead of blocked synchronous requests.
+ */
+public class AdaptiveConcurrencyGovernor implements RequestGovernor {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private double decreaseFactor = 0.5;
+    private double latencyTolerance = 2;
+
+    private double limit;
+    private int inFlight;
+    private final Map<String, Long> baselineLatencies = new HashMap<String, Long>();
+    private final Queue<CompletableFuture<Void>> waiting = new ArrayDeque<CompletableFuture<Void>>();
+    private long lastDecrease;
+
+    /**
+     * Create a new governor.
+     *
+     * @param initialLimit the initial number of concurrent requests allowed
+     * @param minLimit     the lowest number of concurrent requests the limit may shrink to
+     * @param maxLimit     the highest number of concurrent requests the limit may grow to
+     */
+    public AdaptiveConcurrencyGovernor(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= minLimit <= initialLimit <= maxLimit");
+        }
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.lastDecrease = System.nanoTime();
+    }
+
+    /**
+     * Get the factor the limit is multiplied by when the server is overloaded.
+     *
+     * @return the decrease factor
+     */
+    public synchronized double getDecreaseFactor() {
+        return decreaseFactor;
+    }
+
+    /**
+     * <p>Set the factor the limit is multiplied by when the server is overloaded.</p>
+     * The default is 0.5.
+     *
+     * @param decreaseFactor the decrease factor, between 0 and 1
+     */
+    public synchronized void setDecreaseFactor(double decreaseFactor) {
+        this.decreaseFactor = decreaseFactor;
+    }
+
+    /**
+     * Get how many times the lowest recent latency a request may take before the server is considered overloaded.
+     *
+     * @return the latency tolerance
+     */
+    public synchronized double getLatencyTolerance() {
+        return latencyTolerance;
+    }
+
+    /**
+     * <p>Set how many times the lowest recent latency a request may take before the server is considered overloaded.</p>
+     * The default is 2.
+     *
+     * @param latencyTolerance the latency tolerance
+     */
+    public synchronized void setLatencyTolerance(double latencyTolerance) {
+        this.latencyTolerance = latencyTolerance;
+    }
+
+    /**
+     * Get the current number of concurrent requests allowed.
+     *
+     * @return the concurrency limit
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Get the number of requests currently in progress.
+     *
+     * @return the number of requests in flight
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Wait until fewer requests than the current limit are in progress.
+     *
+     * @param request the request about to be sent
+     * @throws IOException if the calling thread is interrupted while waiting
+     */
+    public synchronized void beforeRequest(HttpRequestBase request) throws IOException {
+        try {
+            while (inFlight >= (int) limit) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a concurrency permit");
+        }
+        inFlight++;
+    }
+
+    /**
+     * Allow the request once fewer requests than the current limit are in progress, without blocking.
+     *
+     * @param request  the request about to be sent
+     * @param executor not used, since waiting requests are queued
+     * @return a future completed once the request may be sent
+     */
+    @Override
+    public synchronized CompletableFuture<Void> beforeRequestAsync(HttpRequestBase request, Executor executor) {
+        if (waiting.isEmpty() && inFlight < (int) limit) {
+            inFlight++;
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> permit = new CompletableFuture<Void>();
+        waiting.add(permit);
+        return permit;
+    }
+
+    /**
+     * Adjust the limit based on the outcome of the request and allow a waiting request to proceed.
+     *
+     * @param request    the request which was sent
+     * @param statusCode the status code of the response, -1 if no response was received,
+     *                   or 0 if the request was abandoned without being sent
+     * @param latency    the time taken by the request in nanoseconds
+     */
+    public void afterRequest(HttpRequestBase request, int statusCode, long latency) {
+        List<CompletableFuture<Void>> allowed;
+        synchronized (this) {
+            inFlight--;
+            String operation = getOperation(request);
+            if (statusCode == 429 || statusCode >= 500 || statusCode < 0) {
+                decrease(operation);
+            } else if (statusCode > 0) {
+                Long baselineLatency = baselineLatencies.get(operation);
+                boolean slow = baselineLatency != null && latency > baselineLatency * latencyTolerance;
+                updateBaseline(operation, latency);
+                if (slow) {
+                    decrease(operation);
+                } else {
+                    limit = Math.min(maxLimit, limit + 1 / limit);
+                }
+            }
+            allowed = allowWaiting();
+            notifyAll();
+        }
+        for (CompletableFuture<Void> permit : allowed) {
+            if (!permit.complete(null)) {
+                //the waiting request was cancelled, so pass its permit on
+                afterRequest(request, 0, 0);
+            }
+        }
+    }
+
+    private List<CompletableFuture<Void>> allowWaiting() {
+        List<CompletableFuture<Void>> allowed = new ArrayList<CompletableFuture<Void>>();
+        while (!waiting.isEmpty() && inFlight < (int) limit) {
+            inFlight++;
+            allowed.add(waiting.remove());
+        }
+        return allowed;
+    }
+
+    private static String getOperation(HttpRequestBase request) {
+        String[] tags = RequestMetrics.getTags(request.getMethod(), request.getURI().toString());
+        return tags[0] + " " + tags[1];
+    }
+
+    private void updateBaseline(String operation, long latency) {
+        Long baselineLatency = baselineLatencies.get(operation);
+        if (baselineLatency == null || latency < baselineLatency) {
+            baselineLatencies.put(operation, latency);
+        } else {
+            //drift slowly towards the observed latency so the baseline follows lasting changes
+            baselineLatencies.put(operation, baselineLatency + (latency - baselineLatency) / 100);
+        }
+    }
+
+    private void decrease(String operation) {
+        Long baselineLatency = baselineLatencies.get(operation);
+        long now = System.nanoTime();
+        if (baselineLatency == null || now - lastDecrease >= baselineLatency) {
+            limit = Math.max(minLimit, limit * decreaseFactor);
+            lastDecrease = now;
+        }
+    }
+}
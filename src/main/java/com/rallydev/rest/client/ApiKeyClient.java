@@ -1,9 +1,11 @@
 package com.rallydev.rest.client;
 
+import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.methods.HttpRequestBase;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * A HttpClient which authenticates using an API Key.
@@ -36,4 +38,32 @@ public class ApiKeyClient extends HttpClient {
         request.setHeader(API_KEY_HEADER, this.apiKey);
         return super.doRequest(request);
     }
+
+    /**
+     * Execute a request against the WSAPI, processing the response with the specified handler.
+     *
+     * @param request the request to be executed
+     * @param handler the handler used to process the response
+     * @param <T>     the type of the processed response
+     * @return the processed response
+     * @throws IOException if the handler rejects the response or if some other
+     *                     problem occurs while executing the request
+     */
+    @Override
+    protected <T> T doRequest(HttpRequestBase request, ResponseHandler<? extends T> handler) throws IOException {
+        request.setHeader(API_KEY_HEADER, this.apiKey);
+        return super.doRequest(request, handler);
+    }
+
+    /**
+     * Execute a request against the WSAPI without blocking the calling thread.
+     *
+     * @param request the request to be executed
+     * @return a future completed with the JSON encoded string response
+     */
+    @Override
+    protected CompletableFuture<String> doRequestAsync(HttpRequestBase request) {
+        request.setHeader(API_KEY_HEADER, this.apiKey);
+        return super.doRequestAsync(request);
+    }
 }
\ No newline at end of file
@@ -5,6 +5,7 @@ import com.google.gson.JsonPrimitive;
 import com.rallydev.rest.response.GetResponse;
 import org.apache.http.auth.Credentials;
 import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.utils.URIBuilder;
@@ -12,6 +13,7 @@ import org.apache.http.impl.auth.BasicScheme;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * A HttpClient which authenticates using basic authentication (username/password).
@@ -46,6 +48,27 @@ public class BasicAuthClient extends HttpClient {
      */
     @Override
     protected String doRequest(HttpRequestBase request) throws IOException {
+        secureRequest(request);
+        return super.doRequest(request);
+    }
+
+    /**
+     * Execute a request against the WSAPI, processing the response with the specified handler.
+     *
+     * @param request the request to be executed
+     * @param handler the handler used to process the response
+     * @param <T>     the type of the processed response
+     * @return the processed response
+     * @throws IOException if the handler rejects the response or if some other
+     *                     problem occurs while executing the request
+     */
+    @Override
+    protected <T> T doRequest(HttpRequestBase request, ResponseHandler<? extends T> handler) throws IOException {
+        secureRequest(request);
+        return super.doRequest(request, handler);
+    }
+
+    private void secureRequest(HttpRequestBase request) throws IOException {
         if(!request.getMethod().equals(HttpGet.METHOD_NAME) &&
                 !this.getWsapiVersion().matches("^1[.]\\d+")) {
             try {
@@ -54,7 +77,51 @@ public class BasicAuthClient extends HttpClient {
                 throw new IOException("Unable to build URI with security token", e);
             }
         }
-        return super.doRequest(request);
+    }
+
+    /**
+     * Execute a request against the WSAPI without blocking the calling thread.
+     * The security token is requested asynchronously the first time it is needed.
+     *
+     * @param request the request to be executed
+     * @return a future completed with the JSON encoded string response
+     */
+    @Override
+    protected CompletableFuture<String> doRequestAsync(final HttpRequestBase request) {
+        if (request.getMethod().equals(HttpGet.METHOD_NAME) ||
+                this.getWsapiVersion().matches("^1[.]\\d+")) {
+            return super.doRequestAsync(request);
+        }
+        return getSecurityTokenAsync().thenCompose(token -> {
+            if (!SECURITY_ENDPOINT_DOES_NOT_EXIST.equals(token)) {
+                try {
+                    request.setURI(new URIBuilder(request.getURI()).addParameter(SECURITY_TOKEN_PARAM_KEY, token).build());
+                } catch (URISyntaxException e) {
+                    CompletableFuture<String> failed = new CompletableFuture<String>();
+                    failed.completeExceptionally(new IOException("Unable to build URI with security token", e));
+                    return failed;
+                }
+            }
+            return super.doRequestAsync(request);
+        });
+    }
+
+    private CompletableFuture<String> getSecurityTokenAsync() {
+        if (securityToken != null) {
+            return CompletableFuture.completedFuture(securityToken);
+        }
+        HttpGet httpGet = new HttpGet(getWsapiUrl() + SECURITY_TOKEN_URL);
+        httpGet.addHeader(BasicScheme.authenticate(credentials, "utf-8", false));
+        return doRequestAsync(httpGet).handle((response, error) -> {
+            if (error != null) {
+                //a failed request indicates running an old version of ALM without the security endpoint
+                securityToken = SECURITY_ENDPOINT_DOES_NOT_EXIST;
+            } else {
+                JsonObject operationResult = new GetResponse(response).getObject();
+                securityToken = operationResult.getAsJsonPrimitive(SECURITY_TOKEN_KEY).getAsString();
+            }
+            return securityToken;
+        });
     }
 
     /**
@@ -0,0 +1,73 @@
+package com.rallydev.rest.client;
+
+/**
+ * Represents the body of a successful WSAPI GET response along with the validators needed to revalidate it.
+ * Instances are immutable.
+ */
+public class CachedResponse {
+
+    private final String body;
+    private final String eTag;
+    private final String lastModified;
+    private final long storedAt;
+
+    /**
+     * Create a new cached response.
+     *
+     * @param body         the JSON encoded string response
+     * @param eTag         the value of the response's ETag header, or null if none
+     * @param lastModified the value of the response's Last-Modified header, or null if none
+     * @param storedAt     the time the response was received or last revalidated, in milliseconds since the epoch
+     */
+    public CachedResponse(String body, String eTag, String lastModified, long storedAt) {
+        this.body = body;
+        this.eTag = eTag;
+        this.lastModified = lastModified;
+        this.storedAt = storedAt;
+    }
+
+    /**
+     * Get the JSON encoded string response.
+     *
+     * @return the response body
+     */
+    public String getBody() {
+        return body;
+    }
+
+    /**
+     * Get the value of the response's ETag header.
+     *
+     * @return the entity tag, or null if none was returned
+     */
+    public String getETag() {
+        return eTag;
+    }
+
+    /**
+     * Get the value of the response's Last-Modified header.
+     *
+     * @return the last modified date, or null if none was returned
+     */
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Get the time the response was received or last revalidated.
+     *
+     * @return the time in milliseconds since the epoch
+     */
+    public long getStoredAt() {
+        return storedAt;
+    }
+
+    /**
+     * Returns whether the response can be revalidated with a conditional request.
+     *
+     * @return whether the response has an ETag or Last-Modified header
+     */
+    public boolean hasValidators() {
+        return eTag != null || lastModified != null;
+    }
+}
@@ -0,0 +1,100 @@
+package com.rallydev.rest.client;
+
+import org.apache.http.client.methods.HttpRequestBase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * A {@link RequestGovernor} which requires each request to be allowed by all of a list of governors,
+ * e.g. a {@link TokenBucketGovernor} and an {@link AdaptiveConcurrencyGovernor}.
+ */
+public class CompositeGovernor implements RequestGovernor {
+
+    private final List<RequestGovernor> governors;
+
+    /**
+     * Create a new governor.
+     *
+     * @param governors the governors to consult, in order
+     */
+    public CompositeGovernor(RequestGovernor... governors) {
+        this.governors = new ArrayList<RequestGovernor>(Arrays.asList(governors));
+    }
+
+    /**
+     * Wait until each governor in turn allows the request.
+     * If a governor fails, the governors which already allowed the request are released.
+     *
+     * @param request the request about to be sent
+     * @throws IOException if the calling thread is interrupted while waiting
+     */
+    public void beforeRequest(HttpRequestBase request) throws IOException {
+        for (int i = 0; i < governors.size(); i++) {
+            try {
+                governors.get(i).beforeRequest(request);
+            } catch (IOException e) {
+                for (int j = i - 1; j >= 0; j--) {
+                    governors.get(j).afterRequest(request, 0, 0);
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Ask each governor in turn to allow the request, without blocking the calling thread.
+     * If a governor fails, the governors which already allowed the request are released.
+     *
+     * @param request  the request about to be sent
+     * @param executor an executor whose threads may block until the request is allowed
+     * @return a future completed once every governor allows the request
+     */
+    @Override
+    public CompletableFuture<Void> beforeRequestAsync(HttpRequestBase request, Executor executor) {
+        return beforeRequestAsync(request, executor, 0);
+    }
+
+    private CompletableFuture<Void> beforeRequestAsync(final HttpRequestBase request, final Executor executor,
+                                                       final int index) {
+        if (index == governors.size()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        final CompletableFuture<Void> result = new CompletableFuture<Void>();
+        governors.get(index).beforeRequestAsync(request, executor).whenComplete((allowed, error) -> {
+            if (error != null) {
+                for (int j = index - 1; j >= 0; j--) {
+                    governors.get(j).afterRequest(request, 0, 0);
+                }
+                result.completeExceptionally(error);
+            } else {
+                beforeRequestAsync(request, executor, index + 1).whenComplete((rest, restError) -> {
+                    if (restError != null) {
+                        result.completeExceptionally(restError);
+                    } else {
+                        result.complete(null);
+                    }
+                });
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Record the outcome with each governor, in reverse order.
+     *
+     * @param request    the request which was sent
+     * @param statusCode the status code of the response, -1 if no response was received,
+     *                   or 0 if the request was abandoned without being sent
+     * @param latency    the time taken by the request in nanoseconds
+     */
+    public void afterRequest(HttpRequestBase request, int statusCode, long latency) {
+        for (int i = governors.size() - 1; i >= 0; i--) {
+            governors.get(i).afterRequest(request, statusCode, latency);
+        }
+    }
+}
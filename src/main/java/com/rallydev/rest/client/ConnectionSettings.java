@@ -0,0 +1,173 @@
+package com.rallydev.rest.client;
+
+/**
+ * <p>Represents the connection pooling and timeout settings used by a {@link HttpClient}.</p>
+ * All durations are in milliseconds.  A negative duration means no limit is applied.
+ */
+public class ConnectionSettings {
+
+    private int maxConnectionsTotal = 20;
+    private int maxConnectionsPerRoute = 20;
+    private long connectionTimeToLive = -1;
+    private long maxIdleTime = -1;
+    private int validateAfterInactivity = 2000;
+    private int connectTimeout = -1;
+    private int socketTimeout = -1;
+    private int connectionRequestTimeout = -1;
+
+    /**
+     * Get the maximum number of pooled connections.
+     *
+     * @return the maximum number of connections
+     */
+    public int getMaxConnectionsTotal() {
+        return maxConnectionsTotal;
+    }
+
+    /**
+     * <p>Set the maximum number of pooled connections.</p>
+     * The default is 20.
+     *
+     * @param maxConnectionsTotal the maximum number of connections
+     */
+    public void setMaxConnectionsTotal(int maxConnectionsTotal) {
+        this.maxConnectionsTotal = maxConnectionsTotal;
+    }
+
+    /**
+     * Get the maximum number of pooled connections to a single server.
+     *
+     * @return the maximum number of connections per route
+     */
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    /**
+     * <p>Set the maximum number of pooled connections to a single server.</p>
+     * The default is 20.  Since all requests are sent to the same server this is usually
+     * the effective limit on the number of concurrent requests.
+     *
+     * @param maxConnectionsPerRoute the maximum number of connections per route
+     */
+    public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    /**
+     * Get the maximum lifetime of a pooled connection.
+     *
+     * @return the time to live
+     */
+    public long getConnectionTimeToLive() {
+        return connectionTimeToLive;
+    }
+
+    /**
+     * <p>Set the maximum lifetime of a pooled connection, after which it will not be reused.</p>
+     * The default is no limit.
+     *
+     * @param connectionTimeToLive the time to live
+     */
+    public void setConnectionTimeToLive(long connectionTimeToLive) {
+        this.connectionTimeToLive = connectionTimeToLive;
+    }
+
+    /**
+     * Get the time after which idle pooled connections are evicted.
+     *
+     * @return the maximum idle time
+     */
+    public long getMaxIdleTime() {
+        return maxIdleTime;
+    }
+
+    /**
+     * <p>Set the time after which idle pooled connections are closed by a background thread.</p>
+     * Expired connections are also evicted when this is set.
+     * The default is to not evict idle connections.
+     * Only applies to synchronous requests.
+     *
+     * @param maxIdleTime the maximum idle time
+     */
+    public void setMaxIdleTime(long maxIdleTime) {
+        this.maxIdleTime = maxIdleTime;
+    }
+
+    /**
+     * Get the period of inactivity after which pooled connections are validated before reuse.
+     *
+     * @return the period of inactivity
+     */
+    public int getValidateAfterInactivity() {
+        return validateAfterInactivity;
+    }
+
+    /**
+     * <p>Set the period of inactivity after which pooled connections are validated before reuse.</p>
+     * The default is 2000.  A negative value disables validation.
+     * Only applies to synchronous requests.
+     *
+     * @param validateAfterInactivity the period of inactivity
+     */
+    public void setValidateAfterInactivity(int validateAfterInactivity) {
+        this.validateAfterInactivity = validateAfterInactivity;
+    }
+
+    /**
+     * Get the timeout for establishing a connection.
+     *
+     * @return the connect timeout
+     */
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * <p>Set the timeout for establishing a connection.</p>
+     * The default is the system default.
+     *
+     * @param connectTimeout the connect timeout
+     */
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    /**
+     * Get the maximum period of inactivity while waiting for data.
+     *
+     * @return the socket timeout
+     */
+    public int getSocketTimeout() {
+        return socketTimeout;
+    }
+
+    /**
+     * <p>Set the maximum period of inactivity while waiting for data.</p>
+     * The default is the system default.
+     *
+     * @param socketTimeout the socket timeout
+     */
+    public void setSocketTimeout(int socketTimeout) {
+        this.socketTimeout = socketTimeout;
+    }
+
+    /**
+     * Get the timeout for leasing a connection from the pool.
+     *
+     * @return the connection request timeout
+     */
+    public int getConnectionRequestTimeout() {
+        return connectionRequestTimeout;
+    }
+
+    /**
+     * <p>Set the timeout for leasing a connection from the pool.</p>
+     * The default is to wait indefinitely.
+     *
+     * @param connectionRequestTimeout the connection request timeout
+     */
+    public void setConnectionRequestTimeout(int connectionRequestTimeout) {
+        this.connectionRequestTimeout = connectionRequestTimeout;
+    }
+}
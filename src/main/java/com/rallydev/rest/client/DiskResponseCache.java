@@ -0,0 +1,491 @@
+package com.rallydev.rest.client;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>A {@link ResponseCache} which persists responses to disk so that they survive restarts.</p>
+ * <p>Responses are appended to a log file in the cache directory and located through an in-memory index which is
+ * rebuilt from the log when the cache is opened.  When the responses held exceed the maximum size the least
+ * recently used are evicted, and when the log holds too much superseded data it is compacted by rewriting only the
+ * live responses.  Responses older than the maximum age are discarded.  A response revalidated by the server is
+ * refreshed in the index only, without appending its body to the log again; the refreshed time and validators
+ * are written to the log when it is next compacted.</p>
+ * <p>The directory is locked while the cache is open, so it cannot be shared by processes running at the same
+ * time.  Errors reading or writing the log are treated as cache misses so that they never fail a request.</p>
+ * This class is thread safe.
+ */
+public class DiskResponseCache implements ResponseCache, Closeable {
+
+    private static final String LOG_FILE = "responses.log";
+    private static final String COMPACT_FILE = "responses.compact";
+    private static final String LOCK_FILE = "responses.lock";
+    //records of earlier versions, whose strings were limited to 64KB, have other types and so are discarded
+    private static final int PUT = 3;
+    private static final int REMOVE = 4;
+
+    private static class Entry {
+        private final long offset;
+        private final int length;
+        private final long storedAt;
+        //the time and validators of a revalidated response, which supersede those in its record
+        private final CachedResponse refreshed;
+
+        private Entry(long offset, int length, long storedAt) {
+            this(offset, length, storedAt, null);
+        }
+
+        private Entry(long offset, int length, long storedAt, CachedResponse refreshed) {
+            this.offset = offset;
+            this.length = length;
+            this.storedAt = storedAt;
+            this.refreshed = refreshed;
+        }
+
+        private CachedResponse apply(CachedResponse response) {
+            return refreshed == null ? response : new CachedResponse(response.getBody(),
+                    refreshed.getETag(), refreshed.getLastModified(), refreshed.getStoredAt());
+        }
+    }
+
+    private final File directory;
+    private final long maxBytes;
+    private final long timeToLive;
+    private final long maxAge;
+    private final Map<String, Entry> index = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private RandomAccessFile log;
+    private long liveBytes;
+
+    /**
+     * Open the cache in the specified directory, creating it if necessary.
+     *
+     * @param directory  the directory holding the cache files
+     * @param maxBytes   the maximum total size of the responses held
+     * @param timeToLive the time in milliseconds for which a response is used without revalidating it
+     * @param maxAge     the time in milliseconds after which a response is discarded
+     * @throws IOException if the directory cannot be created or is in use by another cache
+     */
+    public DiskResponseCache(File directory, long maxBytes, long timeToLive, long maxAge) throws IOException {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("maxBytes must be at least 1");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create cache directory " + directory);
+        }
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.timeToLive = timeToLive;
+        this.maxAge = maxAge;
+        this.lockChannel = new RandomAccessFile(new File(directory, LOCK_FILE), "rw").getChannel();
+        FileLock acquired;
+        try {
+            acquired = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            acquired = null;
+        } catch (IOException e) {
+            lockChannel.close();
+            throw e;
+        }
+        if (acquired == null) {
+            lockChannel.close();
+            throw new IOException("Cache directory " + directory + " is in use");
+        }
+        this.lock = acquired;
+        this.log = new RandomAccessFile(new File(directory, LOG_FILE), "rw");
+        load();
+    }
+
+    private void load() throws IOException {
+        long validLength = 0;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(new File(directory, LOG_FILE))));
+        try {
+            long offset = 0;
+            while (true) {
+                int type = in.read();
+                if (type == PUT) {
+                    String url = readString(in);
+                    int length = in.readInt();
+                    byte[] record = new byte[checkLength(length)];
+                    in.readFully(record);
+                    long storedAt = readStoredAt(record);
+                    long recordOffset = offset + 1 + stringLength(url) + 4;
+                    remove(index.put(url, new Entry(recordOffset, length, storedAt)));
+                    liveBytes += length;
+                    offset = recordOffset + length;
+                } else if (type == REMOVE) {
+                    String url = readString(in);
+                    remove(index.remove(url));
+                    offset += 1 + stringLength(url);
+                } else {
+                    break;
+                }
+                validLength = offset;
+            }
+        } catch (EOFException e) {
+            //a partially written record at the end of the log is discarded
+        } finally {
+            in.close();
+        }
+        log.setLength(validLength);
+        log.seek(validLength);
+        evict();
+    }
+
+    private void remove(Entry entry) {
+        if (entry != null) {
+            liveBytes -= entry.length;
+        }
+    }
+
+    /**
+     * Write a string as its length followed by its UTF-8 bytes.
+     * Unlike {@link DataOutputStream#writeUTF} this has no 64KB limit, so long urls and validators can be stored.
+     */
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[checkLength(in.readInt())];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int checkLength(int length) throws EOFException {
+        if (length < 0) {
+            //only a damaged log holds a negative length, so it is treated as ending here
+            throw new EOFException("Invalid length " + length);
+        }
+        return length;
+    }
+
+    private static int stringLength(String s) {
+        return 4 + s.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static long readStoredAt(byte[] record) {
+        long storedAt = 0;
+        for (int i = 0; i < 8; i++) {
+            storedAt = (storedAt << 8) | (record[i] & 0xff);
+        }
+        return storedAt;
+    }
+
+    private static byte[] encode(CachedResponse response) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(response.getStoredAt());
+        writeNullable(out, response.getETag());
+        writeNullable(out, response.getLastModified());
+        out.write(response.getBody().getBytes(StandardCharsets.UTF_8));
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static CachedResponse decode(byte[] record) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        long storedAt = in.readLong();
+        String eTag = readNullable(in);
+        String lastModified = readNullable(in);
+        int headerLength = 8 + nullableLength(eTag) + nullableLength(lastModified);
+        String body = new String(record, headerLength, record.length - headerLength, StandardCharsets.UTF_8);
+        return new CachedResponse(body, eTag, lastModified, storedAt);
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            writeString(out, value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? readString(in) : null;
+    }
+
+    private static int nullableLength(String value) {
+        return 1 + (value != null ? stringLength(value) : 0);
+    }
+
+    public synchronized CachedResponse get(String url) {
+        Entry entry = index.get(url);
+        if (entry == null || log == null) {
+            return null;
+        }
+        if (isExpired(entry, System.currentTimeMillis())) {
+            removeQuietly(url);
+            return null;
+        }
+        try {
+            return entry.apply(decode(read(entry)));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private byte[] read(Entry entry) throws IOException {
+        //positional reads leave the file pointer at the end of the log for the next append
+        ByteBuffer record = ByteBuffer.allocate(entry.length);
+        FileChannel channel = log.getChannel();
+        while (record.hasRemaining()) {
+            if (channel.read(record, entry.offset + record.position()) < 0) {
+                throw new EOFException("Record at " + entry.offset + " extends beyond the log");
+            }
+        }
+        return record.array();
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return maxAge >= 0 && now - entry.storedAt >= maxAge;
+    }
+
+    public synchronized void put(String url, CachedResponse response) {
+        if (log == null) {
+            return;
+        }
+        try {
+            byte[] record = encode(response);
+            if (record.length > maxBytes) {
+                removeQuietly(url);
+                return;
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(record.length + 64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.write(PUT);
+            writeString(out, url);
+            out.writeInt(record.length);
+            out.write(record);
+            out.flush();
+            long offset = log.getFilePointer();
+            log.write(bytes.toByteArray());
+            remove(index.put(url, new Entry(offset + 1 + stringLength(url) + 4, record.length, response.getStoredAt())));
+            liveBytes += record.length;
+            evict();
+            if (log.length() > 2 * maxBytes) {
+                compact();
+            }
+        } catch (IOException e) {
+            //the response is simply not cached
+        }
+    }
+
+    public synchronized void refresh(String url, CachedResponse response) {
+        Entry entry = index.get(url);
+        if (entry == null) {
+            put(url, response);
+        } else {
+            index.put(url, new Entry(entry.offset, entry.length, response.getStoredAt(),
+                    new CachedResponse(null, response.getETag(), response.getLastModified(), response.getStoredAt())));
+        }
+    }
+
+    public synchronized void invalidate(String url) {
+        List<String> matches = new ArrayList<String>();
+        for (String key : index.keySet()) {
+            if (InMemoryResponseCache.isWithin(key, url)) {
+                matches.add(key);
+            }
+        }
+        for (String key : matches) {
+            removeQuietly(key);
+        }
+    }
+
+    private void removeQuietly(String url) {
+        Entry entry = index.remove(url);
+        if (entry == null || log == null) {
+            return;
+        }
+        remove(entry);
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.write(REMOVE);
+            writeString(out, url);
+            out.flush();
+            log.write(bytes.toByteArray());
+        } catch (IOException e) {
+            //the response will be served again after a restart, subject to revalidation
+        }
+    }
+
+    private void evict() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<String, Entry>> entries = index.entrySet().iterator();
+        List<String> evicted = new ArrayList<String>();
+        long remaining = liveBytes;
+        while (entries.hasNext()) {
+            Map.Entry<String, Entry> entry = entries.next();
+            if (remaining > maxBytes || isExpired(entry.getValue(), now)) {
+                evicted.add(entry.getKey());
+                remaining -= entry.getValue().length;
+            }
+        }
+        for (String url : evicted) {
+            removeQuietly(url);
+        }
+    }
+
+    /**
+     * Rewrite the log so that it holds only the live responses, in least recently used order.
+     *
+     * @throws IOException if the log cannot be rewritten
+     */
+    public synchronized void compact() throws IOException {
+        if (log == null) {
+            return;
+        }
+        File compactFile = new File(directory, COMPACT_FILE);
+        Map<String, Entry> compacted = new LinkedHashMap<String, Entry>();
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(compactFile)));
+        long compactedBytes = 0;
+        try {
+            long offset = 0;
+            for (Map.Entry<String, Entry> entry : index.entrySet()) {
+                Entry value = entry.getValue();
+                byte[] record = read(value);
+                if (value.refreshed != null) {
+                    record = encode(value.apply(decode(record)));
+                }
+                compactedBytes += record.length;
+                out.write(PUT);
+                writeString(out, entry.getKey());
+                out.writeInt(record.length);
+                out.write(record);
+                long recordOffset = offset + 1 + stringLength(entry.getKey()) + 4;
+                compacted.put(entry.getKey(), new Entry(recordOffset, record.length, value.storedAt));
+                offset = recordOffset + record.length;
+            }
+        } finally {
+            out.close();
+        }
+        File logFile = new File(directory, LOG_FILE);
+        RandomAccessFile compactedLog;
+        if (compactFile.renameTo(logFile)) {
+            //the old log stays in use until the compacted one is open
+            compactedLog = openLog(logFile);
+            closeQuietly(log);
+        } else {
+            //an open file cannot be replaced on some platforms, so the old log is closed first
+            log.close();
+            log = null;
+            boolean deleted = logFile.delete();
+            if (!deleted || !compactFile.renameTo(logFile)) {
+                if (deleted) {
+                    //the old log is gone, so the cache starts again empty
+                    index.clear();
+                    liveBytes = 0;
+                }
+                log = openLog(logFile);
+                throw new IOException("Unable to replace " + logFile);
+            }
+            compactedLog = openLog(logFile);
+        }
+        log = compactedLog;
+        index.clear();
+        index.putAll(compacted);
+        liveBytes = compactedBytes;
+    }
+
+    private static RandomAccessFile openLog(File logFile) throws IOException {
+        RandomAccessFile opened = new RandomAccessFile(logFile, "rw");
+        opened.seek(opened.length());
+        return opened;
+    }
+
+    private static void closeQuietly(RandomAccessFile file) {
+        try {
+            file.close();
+        } catch (IOException e) {
+            //nothing more is read from or written to it
+        }
+    }
+
+    public synchronized void clear() {
+        index.clear();
+        liveBytes = 0;
+        if (log != null) {
+            try {
+                log.setLength(0);
+                log.seek(0);
+            } catch (IOException e) {
+                //entries are already gone from the index
+            }
+        }
+    }
+
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    /**
+     * Get the number of responses currently cached.
+     *
+     * @return the number of responses
+     */
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * Get the total size of the responses currently cached.
+     *
+     * @return the size in bytes
+     */
+    public synchronized long getSize() {
+        return liveBytes;
+    }
+
+    /**
+     * Get the size of the log file, including superseded responses not yet compacted.
+     *
+     * @return the size in bytes
+     */
+    public synchronized long getLogSize() {
+        return new File(directory, LOG_FILE).length();
+    }
+
+    /**
+     * Close the log and release the lock on the cache directory.
+     *
+     * @throws IOException if the log cannot be closed
+     */
+    public synchronized void close() throws IOException {
+        try {
+            if (log != null) {
+                log.close();
+                log = null;
+            }
+        } finally {
+            index.clear();
+            lock.release();
+            lockChannel.close();
+        }
+    }
+}
@@ -1,28 +1,62 @@
 package com.rallydev.rest.client;
 
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.rallydev.rest.util.ParsedRef;
+import com.rallydev.rest.util.Ref;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.AuthenticationStrategy;
 import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.config.CookieSpecs;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.*;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
 import org.apache.http.conn.params.ConnRoutePNames;
+import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.impl.client.ProxyAuthenticationStrategy;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
 import org.apache.http.util.EntityUtils;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A HttpClient implementation providing connectivity to Rally.  This class does not
@@ -34,9 +68,20 @@ public class HttpClient
     protected final URI server;
     protected String wsapiVersion = "v2.0";
     protected CloseableHttpClient client;
+    protected CloseableHttpAsyncClient asyncClient;
     private String userName;
     private String password;
     private URI proxy;
+    private ConnectionSettings connectionSettings = new ConnectionSettings();
+    private PoolingHttpClientConnectionManager connectionManager;
+    private PoolingNHttpClientConnectionManager asyncConnectionManager;
+    private RetryPolicy retryPolicy;
+    private RequestGovernor requestGovernor;
+    private volatile RequestListener requestListener;
+    private ResponseCache responseCache;
+    private volatile SingleFlight<String> singleFlight;
+    private ScheduledExecutorService retryScheduler;
+    private ExecutorService governorExecutor;
 
     private enum Header {
         Library,
@@ -66,8 +111,19 @@ public class HttpClient
     }
 
     protected CloseableHttpClient buildClient() {
+        connectionManager = new PoolingHttpClientConnectionManager(
+                connectionSettings.getConnectionTimeToLive(), TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(connectionSettings.getMaxConnectionsTotal());
+        connectionManager.setDefaultMaxPerRoute(connectionSettings.getMaxConnectionsPerRoute());
+        connectionManager.setValidateAfterInactivity(connectionSettings.getValidateAfterInactivity());
+
         HttpClientBuilder builder = HttpClients.custom().
+            setConnectionManager(connectionManager).
             setDefaultRequestConfig(getRequestConfig());
+        if (connectionSettings.getMaxIdleTime() >= 0) {
+            builder.evictExpiredConnections().
+                evictIdleConnections(connectionSettings.getMaxIdleTime(), TimeUnit.MILLISECONDS);
+        }
         if (userName != null && password != null) {
             builder.setDefaultCredentialsProvider(getCredentials(userName, password));
         }
@@ -77,9 +133,54 @@ public class HttpClient
         return builder.build();
     }
 
+    protected CloseableHttpAsyncClient buildAsyncClient() throws IOException {
+        IOReactorConfig ioReactorConfig = IOReactorConfig.custom().
+            setConnectTimeout(Math.max(connectionSettings.getConnectTimeout(), 0)).
+            setSoTimeout(Math.max(connectionSettings.getSocketTimeout(), 0)).
+            build();
+        Registry<SchemeIOSessionStrategy> sessionStrategies = RegistryBuilder.<SchemeIOSessionStrategy>create().
+            register("http", NoopIOSessionStrategy.INSTANCE).
+            register("https", SSLIOSessionStrategy.getDefaultStrategy()).
+            build();
+        asyncConnectionManager = new PoolingNHttpClientConnectionManager(
+                new DefaultConnectingIOReactor(ioReactorConfig), null, sessionStrategies, null, null,
+                connectionSettings.getConnectionTimeToLive(), TimeUnit.MILLISECONDS);
+        asyncConnectionManager.setMaxTotal(connectionSettings.getMaxConnectionsTotal());
+        asyncConnectionManager.setDefaultMaxPerRoute(connectionSettings.getMaxConnectionsPerRoute());
+
+        HttpAsyncClientBuilder builder = HttpAsyncClients.custom().
+            setConnectionManager(asyncConnectionManager).
+            setDefaultRequestConfig(getRequestConfig());
+        if (userName != null && password != null) {
+            builder.setDefaultCredentialsProvider(getCredentials(userName, password));
+        }
+        if (proxy != null) {
+            builder.setProxy(new HttpHost(proxy.getHost(), proxy.getPort(), proxy.getScheme()));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Get the non-blocking client used for asynchronous requests, starting it on first use.
+     *
+     * @return the started asynchronous client
+     */
+    protected synchronized CloseableHttpAsyncClient getAsyncClient() throws IOException {
+        if (asyncClient == null) {
+            asyncClient = buildAsyncClient();
+        }
+        if (!asyncClient.isRunning()) {
+            asyncClient.start();
+        }
+        return asyncClient;
+    }
+
     private RequestConfig getRequestConfig() {
         return RequestConfig.custom().
                 setCookieSpec(CookieSpecs.STANDARD).
+                setConnectTimeout(connectionSettings.getConnectTimeout()).
+                setSocketTimeout(connectionSettings.getSocketTimeout()).
+                setConnectionRequestTimeout(connectionSettings.getConnectionRequestTimeout()).
                 build();
     }
 
@@ -118,14 +219,175 @@ public class HttpClient
         return proxy;
     }
 
+    /**
+     * Get the connection pooling and timeout settings in use.
+     *
+     * @return the connection settings
+     */
+    public ConnectionSettings getConnectionSettings() {
+        return connectionSettings;
+    }
+
+    /**
+     * Set the connection pooling and timeout settings to use.
+     * Any pooled connections are closed and the underlying clients are rebuilt with the new settings.
+     * Subsequent changes to the specified settings only take effect once they are set again.
+     *
+     * @param connectionSettings the connection settings
+     */
+    public void setConnectionSettings(ConnectionSettings connectionSettings) {
+        closeClient();
+        this.connectionSettings = connectionSettings;
+        client = buildClient();
+    }
+
+    /**
+     * Get the current statistics of the connection pool used for synchronous requests.
+     *
+     * @return the number of leased, pending and available connections and the maximum pool size
+     */
+    public PoolStats getPoolStats() {
+        return connectionManager.getTotalStats();
+    }
+
+    /**
+     * Get the current statistics of the connection pool used for asynchronous requests.
+     *
+     * @return the pool statistics, or null if no asynchronous requests have been made
+     */
+    public synchronized PoolStats getAsyncPoolStats() {
+        return asyncClient != null ? asyncConnectionManager.getTotalStats() : null;
+    }
+
+    /**
+     * Get the policy used to retry failed requests.
+     *
+     * @return the retry policy, or null if failed requests are not retried
+     */
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Set the policy used to retry failed requests.  By default failed requests are not retried.
+     *
+     * @param retryPolicy the retry policy, or null to disable retries
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Get the governor controlling the rate and concurrency of requests.
+     *
+     * @return the request governor, or null if requests are not governed
+     */
+    public RequestGovernor getRequestGovernor() {
+        return requestGovernor;
+    }
+
+    /**
+     * <p>Set the governor controlling the rate and concurrency of requests.  By default requests are not governed.</p>
+     * Every attempt made by a request, including each retry, must be allowed by the governor.
+     * Asynchronous requests are allowed by {@link RequestGovernor#beforeRequestAsync}, so that they never block
+     * the calling thread or the I/O threads.
+     *
+     * @param requestGovernor the request governor, or null to stop governing requests
+     */
+    public void setRequestGovernor(RequestGovernor requestGovernor) {
+        this.requestGovernor = requestGovernor;
+    }
+
+    /**
+     * Get the listener observing requests.
+     *
+     * @return the request listener, or null if requests are not observed
+     */
+    public RequestListener getRequestListener() {
+        return requestListener;
+    }
+
+    /**
+     * Set the listener observing requests, e.g. a {@link RequestMetrics}.  By default requests are not observed.
+     * Both synchronous and asynchronous requests are reported.
+     *
+     * @param requestListener the request listener, or null to stop observing requests
+     */
+    public void setRequestListener(RequestListener requestListener) {
+        this.requestListener = requestListener;
+    }
+
+    /**
+     * Get the cache used to store the responses to GET requests.
+     *
+     * @return the response cache, or null if responses are not cached
+     */
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * <p>Set the cache used to store the responses to GET requests.  By default responses are not cached.</p>
+     * <p>Synchronous GET requests for a single object, e.g. /defect/1234.js?fetch=Name, including those processed
+     * with a handler, consult the cache.  Queries and collections are always read from the server, since a write
+     * cannot tell which of them it changes.  Cached responses for an object are removed when it, or one of its
+     * collections, is updated or deleted through this client, including by an operation of a batch.</p>
+     * A cache should only be shared by clients authenticating as the same user.
+     *
+     * @param responseCache the response cache, or null to stop caching responses
+     */
+    public void setResponseCache(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    /**
+     * Get whether concurrent identical GET requests are coalesced.
+     *
+     * @return true if identical GET requests share a single call
+     */
+    public boolean isCoalescingRequests() {
+        return singleFlight != null;
+    }
+
+    /**
+     * <p>Set whether concurrent identical GET requests are coalesced.  By default they are not.</p>
+     * <p>When enabled, a synchronous GET for a url already being retrieved by another thread waits for that
+     * request and receives its response, or its exception, instead of making its own call.
+     * Responses are only shared between requests which overlap in time.  Requests arriving after an object has been
+     * updated or deleted through this client are not coalesced with requests started before.</p>
+     * Each caller parses the shared response itself, so the objects returned to callers are never shared.
+     *
+     * @param coalescingRequests true to coalesce identical GET requests
+     */
+    public void setCoalescingRequests(boolean coalescingRequests) {
+        singleFlight = coalescingRequests ? new SingleFlight<String>() : null;
+    }
+
+    /**
+     * Get the coalescing of GET requests, which counts the requests executed and the responses shared.
+     *
+     * @return the coalescing, or null if requests are not coalesced
+     */
+    public SingleFlight<String> getSingleFlight() {
+        return singleFlight;
+    }
+
     private void closeClient() {
         try {
             client.close();
+            closeAsyncClient();
         } catch (Throwable t) {
             throw new RuntimeException(t);
         }
     }
 
+    private synchronized void closeAsyncClient() throws IOException {
+        if (asyncClient != null) {
+            asyncClient.close();
+            asyncClient = null;
+        }
+    }
+
     /**
      * Set the value of the X-RallyIntegrationVendor header included on all requests.
      * This should be set to your company name.
@@ -184,19 +446,217 @@ public class HttpClient
     }
 
     /**
-     * Execute a request against the WSAPI
+     * Execute a request against the WSAPI.
+     * Failed requests are retried according to the retry policy, if one is set.
      *
      * @param request the request to be executed
      * @return the JSON encoded string response
      * @throws IOException if a non-200 response code is returned or if some other
      *                     problem occurs while executing the request
      */
-    protected String doRequest(HttpRequestBase request) throws IOException {
+    protected String doRequest(final HttpRequestBase request) throws IOException {
+        setIntegrationHeaders(request);
+        return execute(request, () -> this.executeRequest(request));
+    }
+
+    /**
+     * Execute a request against the WSAPI, processing the response with the specified handler.
+     * Failed requests are retried according to the retry policy, if one is set.
+     *
+     * @param request the request to be executed
+     * @param handler the handler used to process the response
+     * @param <T>     the type of the processed response
+     * @return the processed response
+     * @throws IOException if the handler rejects the response or if some other
+     *                     problem occurs while executing the request
+     */
+    protected <T> T doRequest(final HttpRequestBase request, final ResponseHandler<? extends T> handler)
+            throws IOException {
+        setIntegrationHeaders(request);
+        return execute(request, () -> this.executeRequest(request, handler));
+    }
+
+    /**
+     * Execute a request against the WSAPI without blocking the calling thread.
+     * Failed requests are retried according to the retry policy, if one is set.
+     *
+     * @param request the request to be executed
+     * @return a future completed with the JSON encoded string response, or completed exceptionally with an
+     * IOException if a non-200 response code is returned or if some other problem occurs while executing the request
+     */
+    protected CompletableFuture<String> doRequestAsync(HttpRequestBase request) {
+        setIntegrationHeaders(request);
+        return executeRequestAsync(request, 1);
+    }
+
+    private CompletableFuture<String> executeRequestAsync(final HttpRequestBase request, final int attempts) {
+        final RetryPolicy policy = retryPolicy;
+        if (policy == null) {
+            return executeGovernedAsync(request);
+        }
+        final CompletableFuture<String> result = new CompletableFuture<String>();
+        executeGovernedAsync(request).whenComplete((response, error) -> {
+            if (error == null) {
+                policy.onSuccess();
+                result.complete(response);
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ?
+                    error.getCause() : error;
+            long delay = cause instanceof IOException ?
+                    policy.getRetryDelay(request.getMethod(), (IOException) cause, attempts) : -1;
+            if (delay < 0) {
+                result.completeExceptionally(cause);
+                return;
+            }
+            RequestListener listener = requestListener;
+            if (listener != null) {
+                listener.requestRetried(request, attempts, delay);
+            }
+            getRetryScheduler().schedule(() -> {
+                request.reset();
+                executeRequestAsync(request, attempts + 1).whenComplete((retried, retryError) -> {
+                    if (retryError == null) {
+                        result.complete(retried);
+                    } else {
+                        result.completeExceptionally(retryError);
+                    }
+                });
+            }, delay, TimeUnit.MILLISECONDS);
+        });
+        return result;
+    }
+
+    private CompletableFuture<String> executeGovernedAsync(final HttpRequestBase request) {
+        final RequestGovernor governor = requestGovernor;
+        if (governor == null) {
+            return this.executeRequestAsync(request);
+        }
+        return governor.beforeRequestAsync(request, getGovernorExecutor()).thenCompose(allowed -> {
+            final long start = System.nanoTime();
+            CompletableFuture<String> response;
+            try {
+                response = this.executeRequestAsync(request);
+            } catch (RuntimeException e) {
+                governor.afterRequest(request, -1, System.nanoTime() - start);
+                throw e;
+            }
+            return response.whenComplete((body, error) -> {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ?
+                        error.getCause() : error;
+                int statusCode = error == null ? 200 :
+                        cause instanceof HttpStatusException ? ((HttpStatusException) cause).getStatusCode() : -1;
+                governor.afterRequest(request, statusCode, System.nanoTime() - start);
+            });
+        });
+    }
+
+    /**
+     * Get the executor on which a governor may wait to allow asynchronous requests.
+     * It has no more threads than the maximum number of connections, since no more requests can be sent at once.
+     */
+    private synchronized ExecutorService getGovernorExecutor() {
+        if (governorExecutor == null) {
+            int threads = Math.max(connectionSettings.getMaxConnectionsTotal(), 1);
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), runnable -> {
+                Thread thread = new Thread(runnable, "rally-rest-governor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.allowCoreThreadTimeOut(true);
+            governorExecutor = executor;
+        }
+        return governorExecutor;
+    }
+
+    private synchronized ScheduledExecutorService getRetryScheduler() {
+        if (retryScheduler == null) {
+            retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "rally-rest-retry");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return retryScheduler;
+    }
+
+    private synchronized void shutdownExecutors() {
+        //pending retries and governed requests still run, and fail once the client is closed
+        if (retryScheduler != null) {
+            retryScheduler.shutdown();
+            retryScheduler = null;
+        }
+        if (governorExecutor != null) {
+            governorExecutor.shutdown();
+            governorExecutor = null;
+        }
+    }
+
+    private interface Attempt<T> {
+        T execute() throws IOException;
+    }
+
+    private <T> T execute(HttpRequestBase request, Attempt<T> attempt) throws IOException {
+        for (int attempts = 1; ; attempts++) {
+            try {
+                T response = executeGoverned(request, attempt);
+                RetryPolicy policy = retryPolicy;
+                if (policy != null) {
+                    policy.onSuccess();
+                }
+                return response;
+            } catch (IOException e) {
+                awaitRetry(request, e, attempts);
+            }
+        }
+    }
+
+    private <T> T executeGoverned(HttpRequestBase request, Attempt<T> attempt) throws IOException {
+        RequestGovernor governor = requestGovernor;
+        if (governor == null) {
+            return attempt.execute();
+        }
+        governor.beforeRequest(request);
+        long start = System.nanoTime();
+        int statusCode = -1;
+        try {
+            T response = attempt.execute();
+            statusCode = 200;
+            return response;
+        } catch (HttpStatusException e) {
+            statusCode = e.getStatusCode();
+            throw e;
+        } finally {
+            governor.afterRequest(request, statusCode, System.nanoTime() - start);
+        }
+    }
+
+    private void awaitRetry(HttpRequestBase request, IOException error, int attempts) throws IOException {
+        RetryPolicy policy = retryPolicy;
+        long delay = policy != null ? policy.getRetryDelay(request.getMethod(), error, attempts) : -1;
+        if (delay < 0) {
+            throw error;
+        }
+        RequestListener listener = requestListener;
+        if (listener != null) {
+            listener.requestRetried(request, attempts, delay);
+        }
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            InterruptedIOException interrupted = new InterruptedIOException("Interrupted while waiting to retry");
+            interrupted.initCause(error);
+            throw interrupted;
+        }
+        request.reset();
+    }
+
+    private void setIntegrationHeaders(HttpRequestBase request) {
         for (Map.Entry<Header, String> header : headers.entrySet()) {
             request.setHeader("X-RallyIntegration" + header.getKey().name(), header.getValue());
         }
-
-        return this.executeRequest(request);
     }
 
     /**
@@ -208,17 +668,107 @@ public class HttpClient
      *                     problem occurs while executing the request
      */
     protected String executeRequest(HttpRequestBase request) throws IOException {
+        RequestObservation observation = RequestObservation.start(requestListener, request);
+        IOException error = null;
         try (CloseableHttpResponse response = client.execute(request)) {
+            observation.observe(response);
             HttpEntity entity = response.getEntity();
             if (response.getStatusLine().getStatusCode() == 200) {
                 return EntityUtils.toString(entity, "utf-8");
             } else {
                 EntityUtils.consumeQuietly(entity);
-                throw new IOException(response.getStatusLine().toString());
+                throw HttpStatusException.fromResponse(response);
+            }
+        } catch (IOException e) {
+            error = e;
+            throw e;
+        } finally {
+            observation.complete(error);
+        }
+    }
+
+    /**
+     * Execute a request against the WSAPI, processing the response with the specified handler.
+     * The handler is responsible for checking the response status.
+     *
+     * @param request the request to be executed
+     * @param handler the handler used to process the response
+     * @param <T>     the type of the processed response
+     * @return the processed response
+     * @throws IOException if the handler rejects the response or if some other
+     *                     problem occurs while executing the request
+     */
+    protected <T> T executeRequest(HttpRequestBase request, ResponseHandler<? extends T> handler) throws IOException {
+        RequestObservation observation = RequestObservation.start(requestListener, request);
+        IOException error = null;
+        try (CloseableHttpResponse response = client.execute(request)) {
+            observation.observe(response);
+            try {
+                return handler.handleResponse(response);
+            } finally {
+                EntityUtils.consumeQuietly(response.getEntity());
             }
+        } catch (IOException e) {
+            error = e;
+            throw e;
+        } finally {
+            observation.complete(error);
         }
     }
 
+    /**
+     * Execute a request against the WSAPI without blocking the calling thread.
+     *
+     * @param request the request to be executed
+     * @return a future completed with the JSON encoded string response, or completed exceptionally with an
+     * IOException if a non-200 response code is returned or if some other problem occurs while executing the request
+     */
+    protected CompletableFuture<String> executeRequestAsync(HttpRequestBase request) {
+        final CompletableFuture<String> result = new CompletableFuture<String>();
+        final RequestObservation observation = RequestObservation.start(requestListener, request);
+        try {
+            getAsyncClient().execute(request, new FutureCallback<HttpResponse>() {
+                public void completed(HttpResponse response) {
+                    observation.observe(response);
+                    HttpEntity entity = response.getEntity();
+                    try {
+                        if (response.getStatusLine().getStatusCode() == 200) {
+                            String body = EntityUtils.toString(entity, "utf-8");
+                            observation.complete(null);
+                            result.complete(body);
+                        } else {
+                            EntityUtils.consumeQuietly(entity);
+                            HttpStatusException error = HttpStatusException.fromResponse(response);
+                            observation.complete(error);
+                            result.completeExceptionally(error);
+                        }
+                    } catch (Exception e) {
+                        observation.complete(e);
+                        result.completeExceptionally(e);
+                    } catch (Throwable t) {
+                        result.completeExceptionally(t);
+                    }
+                }
+
+                public void failed(Exception e) {
+                    observation.complete(e);
+                    result.completeExceptionally(e);
+                }
+
+                public void cancelled() {
+                    observation.complete(null);
+                    result.cancel(false);
+                }
+            });
+        } catch (Exception e) {
+            observation.complete(e);
+            result.completeExceptionally(e);
+        } catch (Throwable t) {
+            result.completeExceptionally(t);
+        }
+        return result;
+    }
+
     /**
      * Perform a post against the WSAPI
      *
@@ -229,6 +779,7 @@ public class HttpClient
      *                     problem occurs while executing the request
      */
     public String doPost(String url, String body) throws IOException {
+        invalidateCache(url, body);
         HttpPost httpPost = new HttpPost(getWsapiUrl() + url);
         httpPost.setEntity(new StringEntity(body, "utf-8"));
         return doRequest(httpPost);
@@ -245,6 +796,7 @@ public class HttpClient
      *                     problem occurs while executing the request
      */
     public String doPut(String url, String body) throws IOException {
+        invalidateCache(url, body);
         HttpPut httpPut = new HttpPut(getWsapiUrl() + url);
         httpPut.setEntity(new StringEntity(body, "utf-8"));
         return doRequest(httpPut);
@@ -259,6 +811,7 @@ public class HttpClient
      *                     problem occurs while executing the request
      */
     public String doDelete(String url) throws IOException {
+        invalidateCache(url, null);
         HttpDelete httpDelete = new HttpDelete(getWsapiUrl() + url);
         return doRequest(httpDelete);
     }
@@ -272,18 +825,302 @@ public class HttpClient
      *                     problem occurs while executing the request
      */
     public String doGet(String url) throws IOException {
-        HttpGet httpGet = new HttpGet(getWsapiUrl() + url);
+        final String fullUrl = getWsapiUrl() + url;
+        SingleFlight<String> flight = singleFlight;
+        if (flight != null) {
+            return flight.execute(fullUrl, () -> this.doGetFullUrl(fullUrl));
+        }
+        return doGetFullUrl(fullUrl);
+    }
+
+    private String doGetFullUrl(String url) throws IOException {
+        ResponseCache cache = responseCache;
+        if (cache != null && isObjectUrl(url)) {
+            return doCachedGet(cache, url);
+        }
+        HttpGet httpGet = new HttpGet(url);
         return doRequest(httpGet);
     }
 
+    /**
+     * Returns whether the specified url reads a single object, e.g. /defect/1234.js?fetch=Name.
+     * Only these responses are cached, since a write cannot tell which queries or collections it changes.
+     *
+     * @param url the request url
+     * @return whether the url is the ref of an object
+     */
+    static boolean isObjectUrl(String url) {
+        String path = url;
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            path = path.substring(0, query);
+        }
+        if (path.endsWith(".js")) {
+            path = path.substring(0, path.length() - 3);
+        }
+        ParsedRef ref = Ref.parse(path);
+        return ref != null && !ref.isCollection() && path.endsWith(ref.getRelativeRef());
+    }
+
+    private String doCachedGet(ResponseCache cache, String url) throws IOException {
+        final CachedResponse cached = cache.get(url);
+        if (cached != null && System.currentTimeMillis() - cached.getStoredAt() < cache.getTimeToLive()) {
+            return cached.getBody();
+        }
+        HttpGet httpGet = new HttpGet(url);
+        if (cached != null) {
+            if (cached.getETag() != null) {
+                httpGet.setHeader("If-None-Match", cached.getETag());
+            }
+            if (cached.getLastModified() != null) {
+                httpGet.setHeader("If-Modified-Since", cached.getLastModified());
+            }
+        }
+        ConditionalResponse response = doRequest(httpGet, new ResponseHandler<ConditionalResponse>() {
+            public ConditionalResponse handleResponse(HttpResponse response) throws IOException {
+                return toConditionalResponse(response, cached);
+            }
+        });
+        if (response.notModified) {
+            //the cached body is unchanged, so only its time and validators are updated
+            cache.refresh(url, response.response);
+        } else if (response.response.hasValidators() || cache.getTimeToLive() > 0) {
+            cache.put(url, response.response);
+        }
+        return response.response.getBody();
+    }
+
+    private static ConditionalResponse toConditionalResponse(HttpResponse response, CachedResponse cached)
+            throws IOException {
+        int statusCode = response.getStatusLine().getStatusCode();
+        String eTag = getHeaderValue(response, "ETag");
+        String lastModified = getHeaderValue(response, "Last-Modified");
+        if (statusCode == 304 && cached != null) {
+            return new ConditionalResponse(new CachedResponse(cached.getBody(),
+                    eTag != null ? eTag : cached.getETag(),
+                    lastModified != null ? lastModified : cached.getLastModified(),
+                    System.currentTimeMillis()), true);
+        } else if (statusCode != 200) {
+            EntityUtils.consumeQuietly(response.getEntity());
+            throw HttpStatusException.fromResponse(response);
+        }
+        return new ConditionalResponse(new CachedResponse(EntityUtils.toString(response.getEntity(), "utf-8"),
+                eTag, lastModified, System.currentTimeMillis()), false);
+    }
+
+    /**
+     * The response to a conditional GET, along with whether the server reported it as not modified.
+     */
+    private static class ConditionalResponse {
+
+        private final CachedResponse response;
+        private final boolean notModified;
+
+        ConditionalResponse(CachedResponse response, boolean notModified) {
+            this.response = response;
+            this.notModified = notModified;
+        }
+    }
+
+    private static String getHeaderValue(HttpResponse response, String name) {
+        org.apache.http.Header header = response.getFirstHeader(name);
+        return header != null ? header.getValue() : null;
+    }
+
+    private void invalidateCache(String url, String body) {
+        ResponseCache cache = responseCache;
+        SingleFlight<String> flight = singleFlight;
+        if (cache != null || flight != null) {
+            for (String path : getModifiedPaths(url, body)) {
+                if (flight != null) {
+                    flight.forget(getWsapiUrl() + path);
+                }
+                if (cache != null) {
+                    cache.invalidate(getWsapiUrl() + path);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the paths of the objects modified by a write, as expected by {@link ResponseCache#invalidate}.
+     * A collection update, e.g. /defect/1234/tasks/add.js, modifies the owning object /defect/1234 and so the
+     * collection beneath it.  A batch modifies the objects of each of its operations.
+     *
+     * @param url  the url of the write, relative to the WSAPI
+     * @param body the body of the write, or null
+     * @return the modified paths, without the .js extension or query string
+     */
+    static List<String> getModifiedPaths(String url, String body) {
+        String path = url;
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            path = path.substring(0, query);
+        }
+        if (path.endsWith(".js")) {
+            path = path.substring(0, path.length() - 3);
+        }
+
+        List<String> paths = new ArrayList<String>();
+        if (path.equals("/batch")) {
+            if (body != null) {
+                try {
+                    for (JsonElement entry : new JsonParser().parse(body).getAsJsonObject().getAsJsonArray("Batch")) {
+                        String entryPath = entry.getAsJsonObject().getAsJsonObject("Entry").get("Path").getAsString();
+                        paths.addAll(getModifiedPaths(entryPath, null));
+                    }
+                } catch (RuntimeException e) {
+                    //not a batch body, so its operations cannot be known
+                }
+            }
+            return paths;
+        }
+
+        int action = path.lastIndexOf('/');
+        if (path.endsWith("/add") || path.endsWith("/remove")) {
+            ParsedRef collection = Ref.parse(path.substring(0, action));
+            if (collection != null && collection.isCollection()) {
+                String owner = path.substring(0, action - collection.getCollection().length() - 1);
+                paths.add(owner);
+                return paths;
+            }
+        }
+        paths.add(path);
+        return paths;
+    }
+
+    /**
+     * Perform a post against the WSAPI, processing the response with the specified handler.
+     * Use a {@link JsonResponseHandler} to parse the response as it is streamed.
+     *
+     * @param url     the request url
+     * @param body    the body of the post
+     * @param handler the handler used to process the response
+     * @param <T>     the type of the processed response
+     * @return the processed response
+     * @throws IOException if the handler rejects the response or if some other
+     *                     problem occurs while executing the request
+     */
+    public <T> T doPost(String url, String body, ResponseHandler<? extends T> handler) throws IOException {
+        invalidateCache(url, body);
+        HttpPost httpPost = new HttpPost(getWsapiUrl() + url);
+        httpPost.setEntity(new StringEntity(body, "utf-8"));
+        return doRequest(httpPost, handler);
+    }
+
+    /**
+     * Perform a put against the WSAPI, processing the response with the specified handler.
+     *
+     * @param url     the request url
+     * @param body    the body of the put
+     * @param handler the handler used to process the response
+     * @param <T>     the type of the processed response
+     * @return the processed response
+     * @throws IOException if the handler rejects the response or if some other
+     *                     problem occurs while executing the request
+     */
+    public <T> T doPut(String url, String body, ResponseHandler<? extends T> handler) throws IOException {
+        invalidateCache(url, body);
+        HttpPut httpPut = new HttpPut(getWsapiUrl() + url);
+        httpPut.setEntity(new StringEntity(body, "utf-8"));
+        return doRequest(httpPut, handler);
+    }
+
+    /**
+     * Perform a delete against the WSAPI, processing the response with the specified handler.
+     *
+     * @param url     the request url
+     * @param handler the handler used to process the response
+     * @param <T>     the type of the processed response
+     * @return the processed response
+     * @throws IOException if the handler rejects the response or if some other
+     *                     problem occurs while executing the request
+     */
+    public <T> T doDelete(String url, ResponseHandler<? extends T> handler) throws IOException {
+        invalidateCache(url, null);
+        HttpDelete httpDelete = new HttpDelete(getWsapiUrl() + url);
+        return doRequest(httpDelete, handler);
+    }
+
+    /**
+     * Perform a get against the WSAPI, processing the response with the specified handler.
+     *
+     * @param url     the request url
+     * @param handler the handler used to process the response
+     * @param <T>     the type of the processed response
+     * @return the processed response
+     * @throws IOException if the handler rejects the response or if some other
+     *                     problem occurs while executing the request
+     */
+    public <T> T doGet(String url, ResponseHandler<? extends T> handler) throws IOException {
+        if (responseCache != null || singleFlight != null) {
+            BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+            response.setEntity(new StringEntity(doGet(url), ContentType.APPLICATION_JSON));
+            return handler.handleResponse(response);
+        }
+        HttpGet httpGet = new HttpGet(getWsapiUrl() + url);
+        return doRequest(httpGet, handler);
+    }
+
+    /**
+     * Perform a post against the WSAPI without blocking the calling thread.
+     *
+     * @param url  the request url
+     * @param body the body of the post
+     * @return a future completed with the JSON encoded string response
+     */
+    public CompletableFuture<String> doPostAsync(String url, String body) {
+        invalidateCache(url, body);
+        HttpPost httpPost = new HttpPost(getWsapiUrl() + url);
+        httpPost.setEntity(new StringEntity(body, "utf-8"));
+        return doRequestAsync(httpPost);
+    }
+
+    /**
+     * Perform a put against the WSAPI without blocking the calling thread.
+     *
+     * @param url  the request url
+     * @param body the body of the put
+     * @return a future completed with the JSON encoded string response
+     */
+    public CompletableFuture<String> doPutAsync(String url, String body) {
+        invalidateCache(url, body);
+        HttpPut httpPut = new HttpPut(getWsapiUrl() + url);
+        httpPut.setEntity(new StringEntity(body, "utf-8"));
+        return doRequestAsync(httpPut);
+    }
+
+    /**
+     * Perform a delete against the WSAPI without blocking the calling thread.
+     *
+     * @param url the request url
+     * @return a future completed with the JSON encoded string response
+     */
+    public CompletableFuture<String> doDeleteAsync(String url) {
+        invalidateCache(url, null);
+        HttpDelete httpDelete = new HttpDelete(getWsapiUrl() + url);
+        return doRequestAsync(httpDelete);
+    }
+
+    /**
+     * Perform a get against the WSAPI without blocking the calling thread.
+     *
+     * @param url the request url
+     * @return a future completed with the JSON encoded string response
+     */
+    public CompletableFuture<String> doGetAsync(String url) {
+        HttpGet httpGet = new HttpGet(getWsapiUrl() + url);
+        return doRequestAsync(httpGet);
+    }
+
     /**
      * Release all resources associated with this instance.
      */
     public void close() {
         try {
-            client.close();
-        } catch (Throwable t) {
-            throw new RuntimeException(t);
+            closeClient();
+        } finally {
+            shutdownExecutors();
         }
     }
 
@@ -0,0 +1,74 @@
+package com.rallydev.rest.client;
+
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.utils.DateUtils;
+
+import java.io.IOException;
+import java.util.Date;
+
+/**
+ * Thrown when the WSAPI responds with a non-200 status code.
+ * The message is the response's status line, e.g. "HTTP/1.1 503 Service Unavailable".
+ */
+public class HttpStatusException extends IOException {
+
+    private final int statusCode;
+    private final long retryAfter;
+
+    /**
+     * Create a new exception for the specified status.
+     *
+     * @param statusLine the status line of the response
+     * @param statusCode the status code of the response
+     * @param retryAfter the delay in milliseconds requested by the server before retrying, or -1 if none
+     */
+    public HttpStatusException(String statusLine, int statusCode, long retryAfter) {
+        super(statusLine);
+        this.statusCode = statusCode;
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Create a new exception from the specified response, including any Retry-After header.
+     *
+     * @param response the rejected response
+     * @return the exception
+     */
+    public static HttpStatusException fromResponse(HttpResponse response) {
+        return new HttpStatusException(response.getStatusLine().toString(),
+                response.getStatusLine().getStatusCode(),
+                parseRetryAfter(response.getFirstHeader("Retry-After"), System.currentTimeMillis()));
+    }
+
+    static long parseRetryAfter(Header header, long now) {
+        if (header == null || header.getValue() == null) {
+            return -1;
+        }
+        String value = header.getValue().trim();
+        try {
+            return Math.max(Long.parseLong(value), 0) * 1000;
+        } catch (NumberFormatException e) {
+            Date date = DateUtils.parseDate(value);
+            return date != null ? Math.max(date.getTime() - now, 0) : -1;
+        }
+    }
+
+    /**
+     * Get the status code of the response.
+     *
+     * @return the status code, e.g. 503
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * Get the delay requested by the server's Retry-After header.
+     *
+     * @return the delay in milliseconds, or -1 if the response did not include a Retry-After header
+     */
+    public long getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,133 @@
+package com.rallydev.rest.client;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link ResponseCache} which holds up to a maximum number of responses in memory,
+ * evicting the least recently used response when full.
+ */
+public class InMemoryResponseCache implements ResponseCache {
+
+    private final int maxEntries;
+    private final long timeToLive;
+    private final Map<String, CachedResponse> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Create a new cache which always revalidates its responses.
+     *
+     * @param maxEntries the maximum number of responses to be cached
+     */
+    public InMemoryResponseCache(int maxEntries) {
+        this(maxEntries, 0);
+    }
+
+    /**
+     * Create a new cache.
+     *
+     * @param maxEntries the maximum number of responses to be cached
+     * @param timeToLive the time in milliseconds for which a response is used without revalidating it
+     */
+    public InMemoryResponseCache(final int maxEntries, long timeToLive) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be at least 1");
+        }
+        this.maxEntries = maxEntries;
+        this.timeToLive = timeToLive;
+        this.entries = new LinkedHashMap<String, CachedResponse>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public CachedResponse get(String url) {
+        CachedResponse response;
+        synchronized (entries) {
+            response = entries.get(url);
+        }
+        (response != null ? hits : misses).incrementAndGet();
+        return response;
+    }
+
+    public void put(String url, CachedResponse response) {
+        synchronized (entries) {
+            entries.put(url, response);
+        }
+    }
+
+    public void invalidate(String url) {
+        synchronized (entries) {
+            Iterator<String> keys = entries.keySet().iterator();
+            while (keys.hasNext()) {
+                if (isWithin(keys.next(), url)) {
+                    keys.remove();
+                }
+            }
+        }
+    }
+
+    static boolean isWithin(String key, String url) {
+        if (!key.startsWith(url)) {
+            return false;
+        }
+        if (key.length() == url.length()) {
+            return true;
+        }
+        char next = key.charAt(url.length());
+        return next == '.' || next == '/' || next == '?';
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    /**
+     * Get the maximum number of responses cached.
+     *
+     * @return the maximum number of responses
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Get the number of responses currently cached.
+     *
+     * @return the number of responses
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Get the number of lookups which found a cached response, whether or not it then had to be revalidated.
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Get the number of lookups which found no cached response.
+     *
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+}
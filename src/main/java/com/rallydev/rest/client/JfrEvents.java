@@ -0,0 +1,86 @@
+package com.rallydev.rest.client;
+
+/**
+ * <p>Emits Java Flight Recorder events for WSAPI requests, response parsing and query pages, so that recordings can
+ * attribute time to Rally calls rather than to anonymous socket reads.</p>
+ * <p>The events are named com.rallydev.rest.Request, com.rallydev.rest.Parse and com.rallydev.rest.QueryPage.  Like
+ * other application events they are recorded by any recording whose settings do not disable them.  When flight
+ * recorder is not available in the running JVM, or an event is not enabled, the methods of this class do nothing and
+ * return null.</p>
+ * This class is used by the toolkit itself and is not intended to be called by applications.
+ */
+public final class JfrEvents {
+
+    private static final boolean AVAILABLE = isAvailable();
+
+    private JfrEvents() {
+    }
+
+    private static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Begin timing the parsing of a response.
+     *
+     * @return the event to be passed to {@link #endParse}, or null if the event is not enabled
+     */
+    public static Object beginParse() {
+        return AVAILABLE ? JfrRecorder.beginParse() : null;
+    }
+
+    /**
+     * End timing the parsing of a response, committing the event.
+     *
+     * @param event  the event returned by {@link #beginParse}, or null
+     * @param url    the url of the request, absolute or relative to the WSAPI, or null if not known
+     * @param length the length of the response in characters
+     */
+    public static void endParse(Object event, String url, int length) {
+        if (event != null) {
+            JfrRecorder.endParse(event, url, length);
+        }
+    }
+
+    /**
+     * Begin timing a page of a query.
+     *
+     * @return the event to be passed to {@link #endQueryPage}, or null if the event is not enabled
+     */
+    public static Object beginQueryPage() {
+        return AVAILABLE ? JfrRecorder.beginQueryPage() : null;
+    }
+
+    /**
+     * End timing a page of a query, committing the event.
+     *
+     * @param event    the event returned by {@link #beginQueryPage}, or null
+     * @param url      the url of the page, relative to the WSAPI
+     * @param start    the start index of the page
+     * @param pageSize the page size
+     * @param results  the number of results received
+     */
+    public static void endQueryPage(Object event, String url, int start, int pageSize, int results) {
+        if (event != null) {
+            JfrRecorder.endQueryPage(event, url, start, pageSize, results);
+        }
+    }
+
+    static Object beginRequest() {
+        return AVAILABLE ? JfrRecorder.beginRequest() : null;
+    }
+
+    static void endRequest(Object event, String method, String url, int statusCode, long bytesSent,
+                           long bytesReceived) {
+        if (event != null) {
+            JfrRecorder.endRequest(event, method, url, statusCode, bytesSent, bytesReceived);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.rallydev.rest.client;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Creates and commits the flight recorder events behind {@link JfrEvents}.
+ * This class refers to jdk.jfr and must only be loaded once flight recorder is known to be available.
+ */
+final class JfrRecorder {
+
+    private JfrRecorder() {
+    }
+
+    @Name("com.rallydev.rest.Request")
+    @Label("Rally Request")
+    @Category({"Rally", "WSAPI"})
+    @Description("An attempt to send a request to the WSAPI, up to the end of reading the response")
+    static class RequestEvent extends Event {
+        @Label("Method")
+        String method;
+
+        @Label("Path")
+        String path;
+
+        @Label("Type")
+        @Description("The WSAPI type, e.g. defect")
+        String type;
+
+        @Label("Operation")
+        @Description("The WSAPI operation, e.g. query")
+        String operation;
+
+        @Label("Status Code")
+        @Description("The http status code, or -1 if no response was received")
+        int statusCode;
+
+        @Label("Bytes Sent")
+        @DataAmount
+        long bytesSent;
+
+        @Label("Bytes Received")
+        @DataAmount
+        long bytesReceived;
+    }
+
+    @Name("com.rallydev.rest.Parse")
+    @Label("Rally Response Parse")
+    @Category({"Rally", "WSAPI"})
+    @Description("Parsing of a WSAPI response into JSON")
+    static class ParseEvent extends Event {
+        @Label("Path")
+        String path;
+
+        @Label("Type")
+        @Description("The WSAPI type, e.g. defect")
+        String type;
+
+        @Label("Length")
+        @Description("The length of the response in characters")
+        int length;
+    }
+
+    @Name("com.rallydev.rest.QueryPage")
+    @Label("Rally Query Page")
+    @Category({"Rally", "WSAPI"})
+    @Description("A page of a WSAPI query, including parsing")
+    static class QueryPageEvent extends Event {
+        @Label("Path")
+        String path;
+
+        @Label("Type")
+        @Description("The WSAPI type, e.g. defect")
+        String type;
+
+        @Label("Start")
+        int start;
+
+        @Label("Page Size")
+        int pageSize;
+
+        @Label("Results")
+        int results;
+    }
+
+    static Object beginRequest() {
+        RequestEvent event = new RequestEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    static void endRequest(Object begun, String method, String url, int statusCode, long bytesSent,
+                           long bytesReceived) {
+        RequestEvent event = (RequestEvent) begun;
+        event.end();
+        if (event.shouldCommit()) {
+            String[] tags = RequestMetrics.getTags(method, url);
+            event.method = method;
+            event.path = getPath(url);
+            event.type = tags[0];
+            event.operation = tags[1];
+            event.statusCode = statusCode;
+            event.bytesSent = bytesSent;
+            event.bytesReceived = bytesReceived;
+            event.commit();
+        }
+    }
+
+    static Object beginParse() {
+        ParseEvent event = new ParseEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    static void endParse(Object begun, String url, int length) {
+        ParseEvent event = (ParseEvent) begun;
+        event.end();
+        if (event.shouldCommit()) {
+            if (url != null) {
+                event.path = getPath(url);
+                event.type = RequestMetrics.getTags("GET", url)[0];
+            }
+            event.length = length;
+            event.commit();
+        }
+    }
+
+    static Object beginQueryPage() {
+        QueryPageEvent event = new QueryPageEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    static void endQueryPage(Object begun, String url, int start, int pageSize, int results) {
+        QueryPageEvent event = (QueryPageEvent) begun;
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = getPath(url);
+            event.type = RequestMetrics.getTags("GET", url)[0];
+            event.start = start;
+            event.pageSize = pageSize;
+            event.results = results;
+            event.commit();
+        }
+    }
+
+    private static String getPath(String url) {
+        int query = url.indexOf('?');
+        return query >= 0 ? url.substring(0, query) : url;
+    }
+}
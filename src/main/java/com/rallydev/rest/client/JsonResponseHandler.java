@@ -0,0 +1,54 @@
+package com.rallydev.rest.client;
+
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.entity.ContentType;
+import org.apache.http.util.EntityUtils;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A ResponseHandler which parses the JSON body of a WSAPI response directly from the entity stream.
+ * Parsing starts as soon as the first bytes arrive and the body is never materialized as a string.
+ */
+public class JsonResponseHandler implements ResponseHandler<JsonObject> {
+
+    /**
+     * Parse the specified response.
+     *
+     * @param response the response to be parsed
+     * @return the parsed JSON document
+     * @throws IOException if a non-200 response code is returned or if some other
+     *                     problem occurs while reading the response
+     */
+    public JsonObject handleResponse(HttpResponse response) throws IOException {
+        HttpEntity entity = response.getEntity();
+        if (response.getStatusLine().getStatusCode() != 200) {
+            EntityUtils.consumeQuietly(entity);
+            throw HttpStatusException.fromResponse(response);
+        }
+        if (entity == null) {
+            throw new IOException("Response contained no content");
+        }
+
+        ContentType contentType = ContentType.get(entity);
+        Charset charset = contentType != null ? contentType.getCharset() : null;
+        JsonReader reader = new JsonReader(new InputStreamReader(entity.getContent(),
+                charset != null ? charset : StandardCharsets.UTF_8));
+        try {
+            return new JsonParser().parse(reader).getAsJsonObject();
+        } catch (JsonIOException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e);
+        } finally {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.rallydev.rest.client;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>Records a distribution of durations in a fixed amount of memory, in the manner of an HDR histogram.</p>
+ * <p>Durations are recorded with microsecond resolution, exactly below 64 microseconds and otherwise in buckets no wider
+ * than 1/32 of their lower bound, so reported percentiles are within about 3% of the recorded values.  Durations of
+ * more than about 12 days are recorded as the largest bucket.</p>
+ * This class is thread safe.  Recording never blocks or allocates.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKETS = 32;
+    private static final int LINEAR_BUCKETS = 2 * SUB_BUCKETS;
+    private static final int MAX_MAGNITUDE = 39;
+    private static final long MAX_VALUE = (1L << (MAX_MAGNITUDE + 1)) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(
+            LINEAR_BUCKETS + (MAX_MAGNITUDE - 5) * SUB_BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record a duration.
+     *
+     * @param nanos the duration in nanoseconds
+     */
+    public void record(long nanos) {
+        long micros = Math.min(Math.max(TimeUnit.NANOSECONDS.toMicros(nanos), 0), MAX_VALUE);
+        counts.incrementAndGet(getIndex(micros));
+        count.incrementAndGet();
+        total.addAndGet(micros);
+        for (long current = max.get(); micros > current && !max.compareAndSet(current, micros); ) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Get the number of durations recorded.
+     *
+     * @return the count
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Get the mean of the durations recorded.
+     *
+     * @return the mean in nanoseconds, or 0 if nothing has been recorded
+     */
+    public long getMean() {
+        long n = count.get();
+        return n > 0 ? TimeUnit.MICROSECONDS.toNanos(total.get() / n) : 0;
+    }
+
+    /**
+     * Get the longest duration recorded.
+     *
+     * @return the maximum in nanoseconds, or 0 if nothing has been recorded
+     */
+    public long getMax() {
+        return TimeUnit.MICROSECONDS.toNanos(max.get());
+    }
+
+    /**
+     * Get the duration which the specified percentage of recorded durations did not exceed.
+     *
+     * @param percentile the percentile, e.g. 99.9
+     * @return the duration in nanoseconds, or 0 if nothing has been recorded
+     */
+    public long getPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100");
+        }
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return TimeUnit.MICROSECONDS.toNanos(Math.min(getUpperBound(i), max.get()));
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Discard all recorded durations.  Durations recorded concurrently may be partially discarded.
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+
+    static int getIndex(long micros) {
+        if (micros < LINEAR_BUCKETS) {
+            return (int) micros;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(micros);
+        int shift = magnitude - 5;
+        return LINEAR_BUCKETS + (magnitude - 6) * SUB_BUCKETS + (int) (micros >> shift) - SUB_BUCKETS;
+    }
+
+    static long getUpperBound(int index) {
+        if (index < LINEAR_BUCKETS) {
+            return index;
+        }
+        int magnitude = (index - LINEAR_BUCKETS) / SUB_BUCKETS + 6;
+        long subBucket = (index - LINEAR_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << (magnitude - 5)) - 1;
+    }
+}
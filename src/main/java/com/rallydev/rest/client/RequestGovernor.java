@@ -0,0 +1,56 @@
+package com.rallydev.rest.client;
+
+import org.apache.http.client.methods.HttpRequestBase;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * <p>Controls the rate and concurrency of the requests sent to the WSAPI by a {@link HttpClient}.</p>
+ * <p>{@link #beforeRequest} is called before each attempt to send a request, including retries, and may block until
+ * the request is allowed to proceed.  {@link #afterRequest} is called once the attempt completes, whether or not it
+ * succeeded, and allows the governor to adapt to the observed status and latency.  Asynchronous requests are allowed
+ * by {@link #beforeRequestAsync} instead of {@link #beforeRequest}.</p>
+ * Implementations must be thread safe.
+ */
+public interface RequestGovernor {
+
+    /**
+     * Wait until the specified request may be sent.
+     *
+     * @param request the request about to be sent
+     * @throws IOException if the calling thread is interrupted while waiting
+     */
+    void beforeRequest(HttpRequestBase request) throws IOException;
+
+    /**
+     * <p>Allow the specified request to be sent without blocking the calling thread.</p>
+     * The default implementation waits in {@link #beforeRequest} on the specified executor.  Its threads are
+     * limited, so governors which may wait for long should override this to wait without holding a thread.
+     *
+     * @param request  the request about to be sent
+     * @param executor an executor with a limited number of threads which may block until the request is allowed
+     * @return a future completed once the request may be sent, or completed exceptionally with an IOException
+     */
+    default CompletableFuture<Void> beforeRequestAsync(final HttpRequestBase request, Executor executor) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                beforeRequest(request);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Record the outcome of a request previously allowed by {@link #beforeRequest}.
+     *
+     * @param request    the request which was sent
+     * @param statusCode the status code of the response, -1 if no response was received,
+     *                   or 0 if the request was abandoned without being sent
+     * @param latency    the time taken by the request in nanoseconds
+     */
+    void afterRequest(HttpRequestBase request, int statusCode, long latency);
+}
@@ -0,0 +1,71 @@
+package com.rallydev.rest.client;
+
+import org.apache.http.client.methods.HttpRequestBase;
+
+/**
+ * <p>Observes the requests sent to the WSAPI by a {@link HttpClient}, e.g. to record metrics.</p>
+ * <p>{@link #requestStarted} and {@link #requestCompleted} are called around each attempt to send a request, including
+ * retries, and time the exchange on the wire: any wait for a {@link RequestGovernor} is excluded, and so is parsing,
+ * unless the response is streamed through a handler.  {@link #requestFailed} additionally reports each attempt which
+ * ended in an error, and {@link #requestRetried} each retry scheduled by the {@link RetryPolicy}.  Responses served
+ * from a {@link ResponseCache} without revalidation are not sent and are not reported.</p>
+ * <p>{@link #responseParsed} and {@link #queryCompleted} are called by {@link com.rallydev.rest.RallyRestApi}
+ * and {@link com.rallydev.rest.AsyncRallyRestApi}.</p>
+ * Listeners are called on the thread sending the request and must be thread safe and quick to return.
+ */
+public interface RequestListener {
+
+    /**
+     * Called before an attempt to send a request.
+     *
+     * @param request the request about to be sent
+     */
+    void requestStarted(HttpRequestBase request);
+
+    /**
+     * Called once an attempt to send a request completes, whether or not it succeeded.
+     *
+     * @param request       the request which was sent
+     * @param statusCode    the status code of the response, or -1 if no response was received
+     * @param bytesSent     the size of the request body in bytes
+     * @param bytesReceived the number of response body bytes read
+     * @param latency       the time taken by the attempt in nanoseconds
+     */
+    void requestCompleted(HttpRequestBase request, int statusCode, long bytesSent, long bytesReceived, long latency);
+
+    /**
+     * Called after {@link #requestCompleted} when an attempt failed, including when the response had an error status.
+     *
+     * @param request the request which was sent
+     * @param error   the error
+     */
+    void requestFailed(HttpRequestBase request, Exception error);
+
+    /**
+     * Called when a failed request is about to be retried.
+     *
+     * @param request  the request to be retried
+     * @param attempts the number of attempts made so far
+     * @param delay    the time in milliseconds before the next attempt
+     */
+    void requestRetried(HttpRequestBase request, int attempts, long delay);
+
+    /**
+     * Called once a response has been parsed into JSON.
+     *
+     * @param method   the http method of the request, e.g. GET
+     * @param url      the url of the request, relative to the WSAPI
+     * @param length   the length of the response in characters
+     * @param duration the time taken to parse the response in nanoseconds
+     */
+    void responseParsed(String method, String url, int length, long duration);
+
+    /**
+     * Called once a query has completed, after all of its pages have been received.
+     *
+     * @param url     the url of the first page of the query, relative to the WSAPI
+     * @param results the number of results received
+     * @param latency the time taken by the query in nanoseconds
+     */
+    void queryCompleted(String url, int results, long latency);
+}
@@ -0,0 +1,366 @@
+package com.rallydev.rest.client;
+
+import org.apache.http.client.methods.HttpRequestBase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>A {@link RequestListener} which keeps metrics in memory, tagged by WSAPI type and operation, e.g. defect and
+ * query.  The operations are query, get, create, update, delete, add and remove (collection updates), batch and
+ * authorize (security token requests).</p>
+ * <p>For each type and operation the metrics include the number of requests, errors and retries, the status codes
+ * received, the bytes sent and received, the requests in flight and histograms of request latency and parse time.
+ * Queries also record the number of queries, pages per query and a histogram of whole query latency.</p>
+ * <pre>
+ * RequestMetrics metrics = new RequestMetrics();
+ * restApi.getClient().setRequestListener(metrics);
+ * ...
+ * for (RequestMetrics.OperationMetrics operation : metrics.getOperations()) {
+ *     long p99 = operation.getLatency().getPercentile(99);
+ * }
+ * </pre>
+ * This class is thread safe.
+ */
+public class RequestMetrics implements RequestListener {
+
+    private final ConcurrentMap<String, OperationMetrics> operations =
+            new ConcurrentHashMap<String, OperationMetrics>();
+
+    /**
+     * The metrics of one operation on one WSAPI type.
+     */
+    public static class OperationMetrics {
+        private final String type;
+        private final String operation;
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong inFlight = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong retries = new AtomicLong();
+        private final AtomicLong bytesSent = new AtomicLong();
+        private final AtomicLong bytesReceived = new AtomicLong();
+        private final AtomicLong queries = new AtomicLong();
+        private final AtomicLong queryResults = new AtomicLong();
+        private final ConcurrentMap<Integer, AtomicLong> statusCodes = new ConcurrentHashMap<Integer, AtomicLong>();
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LatencyHistogram parseTime = new LatencyHistogram();
+        private final LatencyHistogram queryLatency = new LatencyHistogram();
+
+        OperationMetrics(String type, String operation) {
+            this.type = type;
+            this.operation = operation;
+        }
+
+        /**
+         * Get the WSAPI type, e.g. defect.
+         *
+         * @return the type
+         */
+        public String getType() {
+            return type;
+        }
+
+        /**
+         * Get the operation, e.g. query.
+         *
+         * @return the operation
+         */
+        public String getOperation() {
+            return operation;
+        }
+
+        /**
+         * Get the number of completed requests, counting each retry.
+         *
+         * @return the number of requests
+         */
+        public long getRequests() {
+            return requests.get();
+        }
+
+        /**
+         * Get the number of requests sent and not yet completed.
+         *
+         * @return the number of requests in flight
+         */
+        public long getInFlight() {
+            return inFlight.get();
+        }
+
+        /**
+         * Get the number of requests which failed, including those with an error status.
+         *
+         * @return the number of errors
+         */
+        public long getErrors() {
+            return errors.get();
+        }
+
+        /**
+         * Get the number of retries.
+         *
+         * @return the number of retries
+         */
+        public long getRetries() {
+            return retries.get();
+        }
+
+        /**
+         * Get the number of request body bytes sent.
+         *
+         * @return the number of bytes
+         */
+        public long getBytesSent() {
+            return bytesSent.get();
+        }
+
+        /**
+         * Get the number of response body bytes received.
+         *
+         * @return the number of bytes
+         */
+        public long getBytesReceived() {
+            return bytesReceived.get();
+        }
+
+        /**
+         * Get the number of responses received with each status code.  Requests without a response are counted as -1.
+         *
+         * @return the counts by status code
+         */
+        public Map<Integer, Long> getStatusCodes() {
+            Map<Integer, Long> counts = new TreeMap<Integer, Long>();
+            for (Map.Entry<Integer, AtomicLong> statusCode : statusCodes.entrySet()) {
+                counts.put(statusCode.getKey(), statusCode.getValue().get());
+            }
+            return counts;
+        }
+
+        /**
+         * Get the latency of requests on the wire.
+         *
+         * @return the latency histogram
+         */
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        /**
+         * Get the time taken to parse responses.  Streamed responses are parsed as they are received and are
+         * included in the request latency instead.
+         *
+         * @return the parse time histogram
+         */
+        public LatencyHistogram getParseTime() {
+            return parseTime;
+        }
+
+        /**
+         * Get the number of completed queries.
+         *
+         * @return the number of queries
+         */
+        public long getQueries() {
+            return queries.get();
+        }
+
+        /**
+         * Get the number of results received by completed queries.
+         *
+         * @return the number of results
+         */
+        public long getQueryResults() {
+            return queryResults.get();
+        }
+
+        /**
+         * Get the latency of whole queries, from the first page to the last.
+         *
+         * @return the query latency histogram
+         */
+        public LatencyHistogram getQueryLatency() {
+            return queryLatency;
+        }
+
+        /**
+         * Get the mean number of pages requested per query.
+         *
+         * @return the pages per query, or 0 if no queries have completed
+         */
+        public double getPagesPerQuery() {
+            long n = queries.get();
+            return n > 0 ? (double) requests.get() / n : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%s %s: %d requests, %d errors, %d retries, p50 %.1fms, p99 %.1fms",
+                    type, operation, getRequests(), getErrors(), getRetries(), latency.getPercentile(50) / 1e6,
+                    latency.getPercentile(99) / 1e6);
+        }
+    }
+
+    /**
+     * Get the metrics of every type and operation seen, ordered by type then operation.
+     *
+     * @return the metrics
+     */
+    public List<OperationMetrics> getOperations() {
+        List<OperationMetrics> metrics = new ArrayList<OperationMetrics>(new TreeMap<String, OperationMetrics>(
+                operations).values());
+        return Collections.unmodifiableList(metrics);
+    }
+
+    /**
+     * Get the metrics of the specified type and operation.
+     *
+     * @param type      the WSAPI type, e.g. defect
+     * @param operation the operation, e.g. query
+     * @return the metrics, or null if no such request has been seen
+     */
+    public OperationMetrics getOperation(String type, String operation) {
+        return operations.get(getKey(type.toLowerCase(Locale.ROOT).replace(" ", ""), operation));
+    }
+
+    /**
+     * Discard all metrics.
+     */
+    public void reset() {
+        operations.clear();
+    }
+
+    public void requestStarted(HttpRequestBase request) {
+        getMetrics(request.getMethod(), request.getURI().getRawPath()).inFlight.incrementAndGet();
+    }
+
+    public void requestCompleted(HttpRequestBase request, int statusCode, long bytesSent, long bytesReceived,
+                                 long latency) {
+        OperationMetrics metrics = getMetrics(request.getMethod(), request.getURI().getRawPath());
+        metrics.inFlight.decrementAndGet();
+        metrics.requests.incrementAndGet();
+        metrics.bytesSent.addAndGet(bytesSent);
+        metrics.bytesReceived.addAndGet(bytesReceived);
+        metrics.latency.record(latency);
+        AtomicLong count = metrics.statusCodes.get(statusCode);
+        if (count == null) {
+            AtomicLong existing = metrics.statusCodes.putIfAbsent(statusCode, count = new AtomicLong());
+            count = existing != null ? existing : count;
+        }
+        count.incrementAndGet();
+    }
+
+    public void requestFailed(HttpRequestBase request, Exception error) {
+        getMetrics(request.getMethod(), request.getURI().getRawPath()).errors.incrementAndGet();
+    }
+
+    public void requestRetried(HttpRequestBase request, int attempts, long delay) {
+        getMetrics(request.getMethod(), request.getURI().getRawPath()).retries.incrementAndGet();
+    }
+
+    public void responseParsed(String method, String url, int length, long duration) {
+        getMetrics(method, url).parseTime.record(duration);
+    }
+
+    public void queryCompleted(String url, int results, long latency) {
+        OperationMetrics metrics = getMetrics("GET", url);
+        metrics.queries.incrementAndGet();
+        metrics.queryResults.addAndGet(results);
+        metrics.queryLatency.record(latency);
+    }
+
+    private OperationMetrics getMetrics(String method, String url) {
+        String[] tags = getTags(method, url);
+        String key = getKey(tags[0], tags[1]);
+        OperationMetrics metrics = operations.get(key);
+        if (metrics == null) {
+            OperationMetrics existing = operations.putIfAbsent(key, metrics = new OperationMetrics(tags[0], tags[1]));
+            metrics = existing != null ? existing : metrics;
+        }
+        return metrics;
+    }
+
+    private static String getKey(String type, String operation) {
+        return type + " " + operation;
+    }
+
+    /**
+     * Get the WSAPI type and operation of a request.
+     *
+     * @param method the http method
+     * @param url    the url or path of the request, either absolute or relative to the WSAPI
+     * @return the type and operation
+     */
+    static String[] getTags(String method, String url) {
+        String path = url;
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            path = path.substring(0, query);
+        }
+        int webservice = path.indexOf("/webservice/");
+        if (webservice >= 0) {
+            int version = path.indexOf('/', webservice + "/webservice/".length());
+            path = version >= 0 ? path.substring(version) : "";
+        }
+        if (path.endsWith(".js")) {
+            path = path.substring(0, path.length() - 3);
+        }
+        List<String> segments = new ArrayList<String>();
+        for (String segment : path.toLowerCase(Locale.ROOT).split("/")) {
+            if (!segment.isEmpty()) {
+                segments.add(segment);
+            }
+        }
+        if (segments.isEmpty()) {
+            return new String[]{"unknown", method.toLowerCase(Locale.ROOT)};
+        } else if (segments.get(0).equals("security")) {
+            return new String[]{"security", "authorize"};
+        } else if (segments.get(0).equals("batch")) {
+            return new String[]{"batch", "batch"};
+        }
+
+        int objectId = 1;
+        while (objectId < segments.size() && !isObjectId(segments.get(objectId))) {
+            objectId++;
+        }
+        String type = join(segments.subList(0, objectId));
+        if (objectId == segments.size()) {
+            if (segments.size() > 1 && segments.get(segments.size() - 1).equals("create")) {
+                return new String[]{join(segments.subList(0, segments.size() - 1)), "create"};
+            }
+            if (type.equals("users") || type.equals("subscriptions")) {
+                type = type.substring(0, type.length() - 1);
+            }
+            return new String[]{type, "query"};
+        }
+        List<String> rest = segments.subList(objectId + 1, segments.size());
+        if (rest.isEmpty()) {
+            return new String[]{type, method.equals("GET") ? "get" : method.equals("DELETE") ? "delete" : "update"};
+        }
+        return new String[]{type, rest.size() == 1 ? "query" : rest.get(rest.size() - 1)};
+    }
+
+    private static boolean isObjectId(String segment) {
+        for (int i = 0; i < segment.length(); i++) {
+            char c = segment.charAt(i);
+            if (!Character.isDigit(c) && c != '-' && !(c >= 'a' && c <= 'f')) {
+                return false;
+            }
+        }
+        return !segment.isEmpty() && (Character.isDigit(segment.charAt(0)) || segment.length() == 36);
+    }
+
+    private static String join(List<String> segments) {
+        StringBuilder joined = new StringBuilder();
+        for (String segment : segments) {
+            joined.append(joined.length() > 0 ? "/" : "").append(segment);
+        }
+        return joined.toString();
+    }
+}
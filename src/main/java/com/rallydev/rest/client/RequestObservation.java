@@ -0,0 +1,140 @@
+package com.rallydev.rest.client;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.HttpEntityWrapper;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Reports a single attempt to send a request to a {@link RequestListener} and as a flight recorder event,
+ * counting the response bytes read.
+ */
+final class RequestObservation {
+
+    private static final RequestObservation DISABLED = new RequestObservation(null, null, null);
+
+    private final RequestListener listener;
+    private final Object event;
+    private final HttpRequestBase request;
+    private final long start = System.nanoTime();
+    private int statusCode = -1;
+    private long bytesReceived;
+    private boolean completed;
+
+    private RequestObservation(RequestListener listener, Object event, HttpRequestBase request) {
+        this.listener = listener;
+        this.event = event;
+        this.request = request;
+    }
+
+    /**
+     * Start observing an attempt.
+     *
+     * @param listener the listener, or null if attempts are not observed
+     * @param request  the request about to be sent
+     * @return the observation
+     */
+    static RequestObservation start(RequestListener listener, HttpRequestBase request) {
+        Object event = JfrEvents.beginRequest();
+        if (listener == null && event == null) {
+            return DISABLED;
+        }
+        if (listener != null) {
+            listener.requestStarted(request);
+        }
+        return new RequestObservation(listener, event, request);
+    }
+
+    /**
+     * Record the status of the response and count the bytes subsequently read from its entity.
+     *
+     * @param response the response
+     */
+    void observe(HttpResponse response) {
+        if (this == DISABLED) {
+            return;
+        }
+        statusCode = response.getStatusLine().getStatusCode();
+        if (response.getEntity() != null) {
+            response.setEntity(new CountingEntity(response.getEntity()));
+        }
+    }
+
+    /**
+     * Report the completed attempt.  Only the first call has any effect.
+     *
+     * @param error the error which ended the attempt, or null if it succeeded
+     */
+    void complete(Exception error) {
+        if (this == DISABLED || completed) {
+            return;
+        }
+        completed = true;
+        long bytesSent = 0;
+        if (request instanceof HttpEntityEnclosingRequest) {
+            HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+            bytesSent = entity != null ? Math.max(entity.getContentLength(), 0) : 0;
+        }
+        JfrEvents.endRequest(event, request.getMethod(), request.getURI().getRawPath(), statusCode, bytesSent,
+                bytesReceived);
+        if (listener != null) {
+            listener.requestCompleted(request, statusCode, bytesSent, bytesReceived, System.nanoTime() - start);
+            if (error != null) {
+                listener.requestFailed(request, error);
+            }
+        }
+    }
+
+    private class CountingEntity extends HttpEntityWrapper {
+
+        CountingEntity(HttpEntity entity) {
+            super(entity);
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            return new FilterInputStream(super.getContent()) {
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    if (b >= 0) {
+                        bytesReceived++;
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int n = super.read(b, off, len);
+                    if (n > 0) {
+                        bytesReceived += n;
+                    }
+                    return n;
+                }
+
+                @Override
+                public long skip(long n) throws IOException {
+                    long skipped = super.skip(n);
+                    bytesReceived += skipped;
+                    return skipped;
+                }
+            };
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            try (InputStream in = getContent()) {
+                byte[] buffer = new byte[4096];
+                for (int n; (n = in.read(buffer)) != -1; ) {
+                    out.write(buffer, 0, n);
+                }
+            }
+        }
+    }
+}
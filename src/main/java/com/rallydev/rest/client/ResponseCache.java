@@ -0,0 +1,61 @@
+package com.rallydev.rest.client;
+
+/**
+ * <p>Stores the responses to WSAPI GET requests so that they can be reused by a {@link HttpClient}.</p>
+ * <p>A cached response younger than the cache's time to live is returned without contacting the server.
+ * An older response is revalidated with a conditional request using its ETag or Last-Modified header,
+ * so an unchanged response costs a 304 rather than a full body.</p>
+ * Responses are keyed by their full url, including the fetch list.  Implementations must be thread safe.
+ */
+public interface ResponseCache {
+
+    /**
+     * Get the cached response for the specified url.
+     *
+     * @param url the full request url
+     * @return the cached response, or null if none
+     */
+    CachedResponse get(String url);
+
+    /**
+     * Store the response for the specified url.
+     *
+     * @param url      the full request url
+     * @param response the response
+     */
+    void put(String url, CachedResponse response);
+
+    /**
+     * <p>Record that the cached response for the specified url was revalidated by the server without change.</p>
+     * The response holds the cached body with the new time and validators.  The default implementation stores
+     * it with {@link #put}; implementations which can update the time and validators alone should do so.
+     *
+     * @param url      the full request url
+     * @param response the revalidated response
+     */
+    default void refresh(String url, CachedResponse response) {
+        put(url, response);
+    }
+
+    /**
+     * Remove the cached responses for the specified object, e.g. after it has been updated or deleted.
+     * This removes the response for the url itself and for any url beneath it, regardless of query string,
+     * e.g. https://rally1.rallydev.com/slm/webservice/v2.0/defect/1234 removes
+     * .../defect/1234.js?fetch=true and .../defect/1234/tasks.js
+     *
+     * @param url the full url of the object, without the .js extension or query string
+     */
+    void invalidate(String url);
+
+    /**
+     * Remove all cached responses.
+     */
+    void clear();
+
+    /**
+     * Get the time for which a cached response is used without revalidating it.
+     *
+     * @return the time to live in milliseconds.  0 means responses are always revalidated.
+     */
+    long getTimeToLive();
+}
@@ -0,0 +1,262 @@
+package com.rallydev.rest.client;
+
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.conn.ConnectTimeoutException;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * <p>Determines whether and when a failed request to the WSAPI is retried.</p>
+ * <p>Failed requests are retried after an exponentially increasing, randomly jittered delay.
+ * If the server responds with a Retry-After header that delay is used instead.</p>
+ * <p>Only requests using one of the retryable methods are retried, since other requests may not be safe to repeat.
+ * By default only GET requests are retried.  Transient connection failures and responses with one of the
+ * retryable status codes (by default 429, 502, 503 and 504) are retried.</p>
+ * <p>Retries are limited by a budget shared by all requests using this policy.  Each retry spends one token and each
+ * successful request earns back a fraction of one, so that during an outage retries cannot multiply the load on the
+ * server.</p>
+ * All durations are in milliseconds.
+ */
+public class RetryPolicy {
+
+    private int maxRetries = 3;
+    private long initialBackoff = 200;
+    private long maxBackoff = 10000;
+    private double backoffMultiplier = 2;
+    private long maxRetryAfter = 60000;
+    private Set<String> retryableMethods = new HashSet<String>(Collections.singleton(HttpGet.METHOD_NAME));
+    private Set<Integer> retryableStatusCodes = new HashSet<Integer>(Arrays.asList(429, 502, 503, 504));
+    private double budgetTokens = 10;
+    private double maxBudgetTokens = 10;
+    private double budgetTokensPerSuccess = 0.1;
+
+    /**
+     * Get the maximum number of times a single request is retried.
+     *
+     * @return the maximum number of retries
+     */
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * <p>Set the maximum number of times a single request is retried.</p>
+     * The default is 3.
+     *
+     * @param maxRetries the maximum number of retries
+     */
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * Get the upper bound of the delay before the first retry.
+     *
+     * @return the initial backoff
+     */
+    public long getInitialBackoff() {
+        return initialBackoff;
+    }
+
+    /**
+     * <p>Set the upper bound of the delay before the first retry.</p>
+     * The default is 200.
+     *
+     * @param initialBackoff the initial backoff
+     */
+    public void setInitialBackoff(long initialBackoff) {
+        this.initialBackoff = initialBackoff;
+    }
+
+    /**
+     * Get the upper bound of the delay before any retry.
+     *
+     * @return the maximum backoff
+     */
+    public long getMaxBackoff() {
+        return maxBackoff;
+    }
+
+    /**
+     * <p>Set the upper bound of the delay before any retry.</p>
+     * The default is 10000.
+     *
+     * @param maxBackoff the maximum backoff
+     */
+    public void setMaxBackoff(long maxBackoff) {
+        this.maxBackoff = maxBackoff;
+    }
+
+    /**
+     * Get the factor the backoff grows by with each retry.
+     *
+     * @return the backoff multiplier
+     */
+    public double getBackoffMultiplier() {
+        return backoffMultiplier;
+    }
+
+    /**
+     * <p>Set the factor the backoff grows by with each retry.</p>
+     * The default is 2.
+     *
+     * @param backoffMultiplier the backoff multiplier
+     */
+    public void setBackoffMultiplier(double backoffMultiplier) {
+        this.backoffMultiplier = backoffMultiplier;
+    }
+
+    /**
+     * Get the longest Retry-After delay which will be honoured.
+     *
+     * @return the maximum Retry-After delay
+     */
+    public long getMaxRetryAfter() {
+        return maxRetryAfter;
+    }
+
+    /**
+     * <p>Set the longest Retry-After delay which will be honoured.</p>
+     * Requests for which the server asks for a longer delay fail immediately.  The default is 60000.
+     *
+     * @param maxRetryAfter the maximum Retry-After delay
+     */
+    public void setMaxRetryAfter(long maxRetryAfter) {
+        this.maxRetryAfter = maxRetryAfter;
+    }
+
+    /**
+     * Get the HTTP methods of requests which are safe to retry.
+     *
+     * @return the retryable methods
+     */
+    public Set<String> getRetryableMethods() {
+        return retryableMethods;
+    }
+
+    /**
+     * <p>Set the HTTP methods of requests which are safe to retry.</p>
+     * The default is GET only.  Add DELETE or POST only if repeating those requests is safe for your application.
+     *
+     * @param retryableMethods the retryable methods, e.g. "GET", "DELETE"
+     */
+    public void setRetryableMethods(String... retryableMethods) {
+        this.retryableMethods = new HashSet<String>(Arrays.asList(retryableMethods));
+    }
+
+    /**
+     * Get the response status codes which are retried.
+     *
+     * @return the retryable status codes
+     */
+    public Set<Integer> getRetryableStatusCodes() {
+        return retryableStatusCodes;
+    }
+
+    /**
+     * <p>Set the response status codes which are retried.</p>
+     * The default is 429, 502, 503 and 504.
+     *
+     * @param retryableStatusCodes the retryable status codes
+     */
+    public void setRetryableStatusCodes(Integer... retryableStatusCodes) {
+        this.retryableStatusCodes = new HashSet<Integer>(Arrays.asList(retryableStatusCodes));
+    }
+
+    /**
+     * Get the maximum number of retries which may be made without an intervening success.
+     *
+     * @return the size of the retry budget
+     */
+    public synchronized double getMaxBudgetTokens() {
+        return maxBudgetTokens;
+    }
+
+    /**
+     * Get the number of retries which may currently be made without an intervening success.
+     *
+     * @return the remaining retry budget
+     */
+    public synchronized double getBudgetTokens() {
+        return budgetTokens;
+    }
+
+    /**
+     * <p>Set the size of the retry budget and the fraction of a retry earned back by each successful request.</p>
+     * The defaults are 10 and 0.1, allowing one retry for every ten successful requests once the budget is spent.
+     * The budget starts full.
+     *
+     * @param maxBudgetTokens        the maximum number of retries which may be made without an intervening success
+     * @param budgetTokensPerSuccess the number of retries earned by each successful request
+     */
+    public synchronized void setRetryBudget(double maxBudgetTokens, double budgetTokensPerSuccess) {
+        this.maxBudgetTokens = maxBudgetTokens;
+        this.budgetTokensPerSuccess = budgetTokensPerSuccess;
+        this.budgetTokens = maxBudgetTokens;
+    }
+
+    /**
+     * Record a successful request, earning back part of the retry budget.
+     */
+    public synchronized void onSuccess() {
+        budgetTokens = Math.min(maxBudgetTokens, budgetTokens + budgetTokensPerSuccess);
+    }
+
+    /**
+     * <p>Determine whether the specified failed request should be retried, and after what delay.</p>
+     * A positive result spends one token of the retry budget.
+     *
+     * @param method   the HTTP method of the failed request
+     * @param error    the failure
+     * @param attempts the number of attempts made so far, including the failed one
+     * @return the delay before the next attempt, or -1 if the request should not be retried
+     */
+    public long getRetryDelay(String method, IOException error, int attempts) {
+        if (attempts > maxRetries || !retryableMethods.contains(method) || !isRetryable(error)) {
+            return -1;
+        }
+        long delay = getBackoff(attempts);
+        if (error instanceof HttpStatusException && ((HttpStatusException) error).getRetryAfter() >= 0) {
+            delay = ((HttpStatusException) error).getRetryAfter();
+            if (delay > maxRetryAfter) {
+                return -1;
+            }
+        }
+        synchronized (this) {
+            if (budgetTokens < 1) {
+                return -1;
+            }
+            budgetTokens--;
+        }
+        return delay;
+    }
+
+    /**
+     * Get a delay chosen uniformly at random between zero and the exponential backoff for the specified attempt.
+     *
+     * @param attempts the number of attempts made so far
+     * @return the jittered backoff
+     */
+    protected long getBackoff(int attempts) {
+        double backoff = Math.min(maxBackoff, initialBackoff * Math.pow(backoffMultiplier, attempts - 1));
+        return (long) (ThreadLocalRandom.current().nextDouble() * backoff);
+    }
+
+    private boolean isRetryable(IOException error) {
+        if (error instanceof HttpStatusException) {
+            return retryableStatusCodes.contains(((HttpStatusException) error).getStatusCode());
+        }
+        return error instanceof NoHttpResponseException ||
+                error instanceof ConnectException ||
+                error instanceof ConnectTimeoutException ||
+                error instanceof SocketTimeoutException;
+    }
+}
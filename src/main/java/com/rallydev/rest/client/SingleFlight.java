@@ -0,0 +1,118 @@
+package com.rallydev.rest.client;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Coalesces concurrent identical calls so that only one of them is executed.</p>
+ * <p>The first caller for a key executes the call.  Callers arriving with the same key while it is in flight wait
+ * for it and receive the same result, or the same exception.  Once the call completes the next caller for the key
+ * executes it again, so results are never reused beyond the calls they overlap.</p>
+ * The result is shared between callers and so should be immutable.  This class is thread safe.
+ *
+ * @param <T> the type of the result
+ */
+public class SingleFlight<T> {
+
+    /**
+     * A call whose result may be shared.
+     *
+     * @param <T> the type of the result
+     */
+    public interface Call<T> {
+
+        /**
+         * Execute the call.
+         *
+         * @return the result
+         * @throws IOException if the call fails
+         */
+        T call() throws IOException;
+    }
+
+    private final ConcurrentMap<String, CompletableFuture<T>> inFlight = new ConcurrentHashMap<String, CompletableFuture<T>>();
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong shared = new AtomicLong();
+
+    /**
+     * Execute the call unless an identical call is already in flight, in which case wait for its result.
+     *
+     * @param key  the key identifying identical calls
+     * @param call the call
+     * @return the result of the call
+     * @throws IOException if the call fails or the calling thread is interrupted while waiting for it
+     */
+    public T execute(String key, Call<T> call) throws IOException {
+        CompletableFuture<T> future = new CompletableFuture<T>();
+        CompletableFuture<T> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            shared.incrementAndGet();
+            return await(existing);
+        }
+        executed.incrementAndGet();
+        try {
+            T result = call.call();
+            future.complete(result);
+            return result;
+        } catch (IOException | RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for an identical request");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw (Error) cause;
+        }
+    }
+
+    /**
+     * Stop sharing the calls in flight for the specified key and any key beneath it, e.g. after the object they
+     * retrieve has been updated.  Callers arriving later execute a new call.
+     *
+     * @param key the key, matched as described by {@link ResponseCache#invalidate(String)}
+     */
+    public void forget(String key) {
+        for (String inFlightKey : inFlight.keySet()) {
+            if (InMemoryResponseCache.isWithin(inFlightKey, key)) {
+                inFlight.remove(inFlightKey);
+            }
+        }
+    }
+
+    /**
+     * Get the number of calls executed.
+     *
+     * @return the number of calls executed
+     */
+    public long getExecuted() {
+        return executed.get();
+    }
+
+    /**
+     * Get the number of callers which received the result of an identical call already in flight.
+     *
+     * @return the number of shared results
+     */
+    public long getShared() {
+        return shared.get();
+    }
+}
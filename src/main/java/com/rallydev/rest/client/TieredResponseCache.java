@@ -0,0 +1,59 @@
+package com.rallydev.rest.client;
+
+/**
+ * <p>A {@link ResponseCache} which combines a fast cache with a larger, slower one,
+ * e.g. an {@link InMemoryResponseCache} in front of a {@link DiskResponseCache}.</p>
+ * Responses are stored in both tiers.  A response found only in the second tier is copied into the first.
+ * The time to live of the first tier applies.
+ */
+public class TieredResponseCache implements ResponseCache {
+
+    private final ResponseCache first;
+    private final ResponseCache second;
+
+    /**
+     * Create a new tiered cache.
+     *
+     * @param first  the cache consulted first
+     * @param second the cache consulted when the first has no response
+     */
+    public TieredResponseCache(ResponseCache first, ResponseCache second) {
+        this.first = first;
+        this.second = second;
+    }
+
+    public CachedResponse get(String url) {
+        CachedResponse response = first.get(url);
+        if (response == null) {
+            response = second.get(url);
+            if (response != null) {
+                first.put(url, response);
+            }
+        }
+        return response;
+    }
+
+    public void put(String url, CachedResponse response) {
+        first.put(url, response);
+        second.put(url, response);
+    }
+
+    public void refresh(String url, CachedResponse response) {
+        first.refresh(url, response);
+        second.refresh(url, response);
+    }
+
+    public void invalidate(String url) {
+        first.invalidate(url);
+        second.invalidate(url);
+    }
+
+    public void clear() {
+        first.clear();
+        second.clear();
+    }
+
+    public long getTimeToLive() {
+        return first.getTimeToLive();
+    }
+}
@@ -0,0 +1,176 @@
+package com.rallydev.rest.client;
+
+import org.apache.http.Header;
+import org.apache.http.client.methods.HttpRequestBase;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>A {@link RequestGovernor} which limits the rate of requests made with each API key.</p>
+ * Each API key has its own bucket which holds up to the configured burst of tokens and is refilled at the configured
+ * rate.  Each request takes one token, waiting for the bucket to refill if it is empty.  Requests which are not
+ * authenticated with an API key share a bucket per server.  Asynchronous requests wait for their token on a timer
+ * rather than on a thread.
+ */
+public class TokenBucketGovernor implements RequestGovernor {
+
+    private static final String API_KEY_HEADER = "zsessionid";
+
+    private final double requestsPerSecond;
+    private final int burst;
+    private final ConcurrentMap<String, Bucket> buckets = new ConcurrentHashMap<String, Bucket>();
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Create a new governor.
+     *
+     * @param requestsPerSecond the sustained number of requests allowed per second for each API key
+     * @param burst             the number of requests allowed at once for each API key after a quiet period
+     */
+    public TokenBucketGovernor(double requestsPerSecond, int burst) {
+        if (requestsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("requestsPerSecond must be positive and burst at least 1");
+        }
+        this.requestsPerSecond = requestsPerSecond;
+        this.burst = burst;
+    }
+
+    /**
+     * Get the sustained number of requests allowed per second for each API key.
+     *
+     * @return the request rate
+     */
+    public double getRequestsPerSecond() {
+        return requestsPerSecond;
+    }
+
+    /**
+     * Get the number of requests allowed at once for each API key after a quiet period.
+     *
+     * @return the burst size
+     */
+    public int getBurst() {
+        return burst;
+    }
+
+    /**
+     * Wait until a token is available in the bucket for the request's API key and take it.
+     *
+     * @param request the request about to be sent
+     * @throws IOException if the calling thread is interrupted while waiting
+     */
+    public void beforeRequest(HttpRequestBase request) throws IOException {
+        long wait = reserve(request);
+        if (wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for rate limit");
+            }
+        }
+    }
+
+    /**
+     * Take a token from the bucket for the request's API key, completing the returned future once it is available.
+     * The wait is scheduled on a timer shared by this governor, so no thread is blocked.
+     *
+     * @param request  the request about to be sent
+     * @param executor not used
+     * @return a future completed once the request may be sent
+     */
+    public CompletableFuture<Void> beforeRequestAsync(HttpRequestBase request, Executor executor) {
+        long wait = reserve(request);
+        if (wait <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        final CompletableFuture<Void> allowed = new CompletableFuture<Void>();
+        getScheduler().schedule(() -> {
+            allowed.complete(null);
+        }, wait, TimeUnit.NANOSECONDS);
+        return allowed;
+    }
+
+    /**
+     * Does nothing, since the rate is fixed.
+     *
+     * @param request    the request which was sent
+     * @param statusCode the status code of the response, -1 if no response was received,
+     *                   or 0 if the request was abandoned without being sent
+     * @param latency    the time taken by the request in nanoseconds
+     */
+    public void afterRequest(HttpRequestBase request, int statusCode, long latency) {
+    }
+
+    private long reserve(HttpRequestBase request) {
+        String key = getKey(request);
+        Bucket bucket = buckets.get(key);
+        if (bucket == null) {
+            Bucket created = new Bucket(System.nanoTime());
+            bucket = buckets.putIfAbsent(key, created);
+            if (bucket == null) {
+                bucket = created;
+            }
+        }
+        return bucket.reserve(System.nanoTime());
+    }
+
+    private synchronized ScheduledExecutorService getScheduler() {
+        if (scheduler == null) {
+            //the timer thread exits when no requests are waiting, so the governor needs no shutdown
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, "rally-rest-rate-limit");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.setKeepAliveTime(1, TimeUnit.SECONDS);
+            executor.allowCoreThreadTimeOut(true);
+            scheduler = executor;
+        }
+        return scheduler;
+    }
+
+    /**
+     * Get the key identifying the bucket the specified request draws from.
+     *
+     * @param request the request
+     * @return the request's API key, or its server if it is not authenticated with an API key
+     */
+    protected String getKey(HttpRequestBase request) {
+        Header apiKey = request.getFirstHeader(API_KEY_HEADER);
+        if (apiKey != null) {
+            return apiKey.getValue();
+        }
+        return request.getURI() != null && request.getURI().getHost() != null ? request.getURI().getHost() : "";
+    }
+
+    private class Bucket {
+
+        private double tokens = burst;
+        private long updated;
+
+        Bucket(long now) {
+            this.updated = now;
+        }
+
+        /**
+         * Take a token, borrowing against future refills if the bucket is empty.
+         *
+         * @return the time in nanoseconds to wait before the borrowed token is available
+         */
+        synchronized long reserve(long now) {
+            tokens = Math.min(burst, tokens + (now - updated) * requestsPerSecond / TimeUnit.SECONDS.toNanos(1));
+            updated = now;
+            tokens--;
+            return tokens >= 0 ? 0 : (long) (-tokens * TimeUnit.SECONDS.toNanos(1) / requestsPerSecond);
+        }
+    }
+}
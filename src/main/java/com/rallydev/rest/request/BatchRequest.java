@@ -0,0 +1,201 @@
+package com.rallydev.rest.request;
+
+import com.google.gson.Gson;
+import org.apache.http.client.utils.URLEncodedUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>Represents a WSAPI request to perform many create, update, collection update and delete operations at once.</p>
+ * The operations are sent to the WSAPI batch endpoint.  A batch containing more operations or a larger
+ * payload than the configured limits is split into several batch requests when executed by
+ * {@link com.rallydev.rest.RallyRestApi#batch}.
+ */
+public class BatchRequest extends Request {
+
+    private List<Request> requests = new ArrayList<Request>();
+    private int maxEntries = 100;
+    private int maxBodySize = 512 * 1024;
+
+    /**
+     * Create a new batch request containing the specified operations.
+     *
+     * @param requests zero or more {@link CreateRequest}, {@link UpdateRequest},
+     *                 {@link CollectionUpdateRequest} or {@link DeleteRequest} operations
+     */
+    public BatchRequest(Request... requests) {
+        this(Arrays.asList(requests));
+    }
+
+    /**
+     * Create a new batch request containing the specified operations.
+     *
+     * @param requests the {@link CreateRequest}, {@link UpdateRequest},
+     *                 {@link CollectionUpdateRequest} or {@link DeleteRequest} operations
+     */
+    public BatchRequest(List<? extends Request> requests) {
+        for (Request request : requests) {
+            add(request);
+        }
+    }
+
+    /**
+     * Add the specified operation to this batch.
+     *
+     * @param request a {@link CreateRequest}, {@link UpdateRequest},
+     *                {@link CollectionUpdateRequest} or {@link DeleteRequest}
+     */
+    public void add(Request request) {
+        getMethod(request);
+        requests.add(request);
+    }
+
+    /**
+     * Get the operations in this batch, in the order they will be performed.
+     *
+     * @return the operations
+     */
+    public List<Request> getRequests() {
+        return Collections.unmodifiableList(requests);
+    }
+
+    /**
+     * Get the maximum number of operations sent in a single batch.
+     *
+     * @return the maximum number of operations
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * <p>Set the maximum number of operations sent in a single batch.</p>
+     * The default is 100.
+     *
+     * @param maxEntries the maximum number of operations.  Must be at least 1.
+     */
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Get the maximum size in bytes of the body of a single batch.
+     *
+     * @return the maximum body size
+     */
+    public int getMaxBodySize() {
+        return maxBodySize;
+    }
+
+    /**
+     * <p>Set the maximum size in bytes of the body of a single batch.</p>
+     * A single operation larger than this is sent in a batch of its own.
+     * The default is 512KB.
+     *
+     * @param maxBodySize the maximum body size
+     */
+    public void setMaxBodySize(int maxBodySize) {
+        this.maxBodySize = maxBodySize;
+    }
+
+    /**
+     * Split this batch into batches which respect the configured maximum number of operations and body size.
+     *
+     * @return the batches, in order.  A batch within the limits is returned unchanged.
+     */
+    public List<BatchRequest> partition() {
+        List<BatchRequest> batches = new ArrayList<BatchRequest>();
+        BatchRequest batch = null;
+        int bodySize = 0;
+        for (Request request : requests) {
+            int entrySize = getEntry(request).getBytes(StandardCharsets.UTF_8).length + 1;
+            if (batch == null || batch.requests.size() >= maxEntries ||
+                    (batch.requests.size() > 0 && bodySize + entrySize > maxBodySize)) {
+                batch = newBatch();
+                batches.add(batch);
+                bodySize = "{\"Batch\":[]}".length();
+            }
+            batch.requests.add(request);
+            bodySize += entrySize;
+        }
+        if (batches.size() == 1) {
+            batches.set(0, this);
+        }
+        return batches;
+    }
+
+    private BatchRequest newBatch() {
+        BatchRequest batch = new BatchRequest();
+        batch.setParams(getParams());
+        batch.setGsonBuilder(getGsonBuilder());
+        batch.setMaxEntries(maxEntries);
+        batch.setMaxBodySize(maxBodySize);
+        return batch;
+    }
+
+    /**
+     * Get the JSON encoded string representation of the operations in this batch.
+     *
+     * @return the JSON encoded batch
+     */
+    public String getBody() {
+        StringBuilder body = new StringBuilder("{\"Batch\":[");
+        for (int i = 0; i < requests.size(); i++) {
+            if (i > 0) {
+                body.append(',');
+            }
+            body.append(getEntry(requests.get(i)));
+        }
+        return body.append("]}").toString();
+    }
+
+    private String getEntry(Request request) {
+        Gson gson = gsonBuilder.create();
+        StringBuilder entry = new StringBuilder("{\"Entry\":{\"Path\":");
+        entry.append(gson.toJson(request.toUrl()));
+        entry.append(",\"Method\":").append(gson.toJson(getMethod(request)));
+        String body = getBody(request);
+        if (body != null) {
+            entry.append(",\"Body\":").append(body);
+        }
+        return entry.append("}}").toString();
+    }
+
+    private static String getMethod(Request request) {
+        if (request instanceof CreateRequest || request instanceof UpdateRequest ||
+                request instanceof CollectionUpdateRequest) {
+            return "POST";
+        } else if (request instanceof DeleteRequest) {
+            return "DELETE";
+        }
+        throw new IllegalArgumentException("Unsupported batch operation: " +
+                (request != null ? request.getClass().getName() : null));
+    }
+
+    private static String getBody(Request request) {
+        if (request instanceof CreateRequest) {
+            return ((CreateRequest) request).getBody();
+        } else if (request instanceof UpdateRequest) {
+            return ((UpdateRequest) request).getBody();
+        } else if (request instanceof CollectionUpdateRequest) {
+            return ((CollectionUpdateRequest) request).getBody();
+        }
+        return null;
+    }
+
+    /**
+     * <p>Convert this request into a url compatible with the WSAPI.</p>
+     * Any parameters set will be included.
+     *
+     * @return the url representing this request.
+     */
+    @Override
+    public String toUrl() {
+        return String.format("/batch.js%s",
+                getParams().size() > 0 ? ("?" + URLEncodedUtils.format(getParams(), "utf-8")) : "");
+    }
+}
@@ -46,6 +46,15 @@ public class CollectionUpdateRequest extends Request {
         this.adding = adding;
     }
 
+    /**
+     * Get the ref of the collection to be updated.
+     *
+     * @return the ref, as specified when this request was created
+     */
+    public String getRef() {
+        return ref;
+    }
+
     /**
      * Get the JSON encoded string representation of the object to be updated.
      *
@@ -18,6 +18,15 @@ public class DeleteRequest extends Request{
         this.ref = ref;
     }
 
+    /**
+     * Get the ref of the object to be deleted.
+     *
+     * @return the ref, as specified when this request was created
+     */
+    public String getRef() {
+        return ref;
+    }
+
     /**
      * <p>Convert this request into a url compatible with the WSAPI.</p>
      * Any parameters set will be included.
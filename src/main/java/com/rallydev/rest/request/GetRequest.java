@@ -1,6 +1,7 @@
 package com.rallydev.rest.request;
 
 import com.rallydev.rest.util.Fetch;
+import com.rallydev.rest.util.ParsedRef;
 import com.rallydev.rest.util.Ref;
 import org.apache.http.NameValuePair;
 import org.apache.http.client.utils.URLEncodedUtils;
@@ -27,6 +28,15 @@ public class GetRequest extends Request {
         this.ref = ref;
     }
 
+    /**
+     * Get the ref of the object to be retrieved.
+     *
+     * @return the ref, as specified when this request was created
+     */
+    public String getRef() {
+        return ref;
+    }
+
     /**
      * <p>Get the current list of fields to be returned on the retrieved object.</p>
      * By default all fields will be returned in the response (fetch=true).
@@ -62,8 +72,9 @@ public class GetRequest extends Request {
 
     protected String getEndpoint() {
         String endpoint = ref.toLowerCase();
-        if (Ref.isRef(endpoint)) {
-            endpoint = Ref.getRelativeRef(endpoint);
+        ParsedRef parsedRef = Ref.parse(endpoint);
+        if (parsedRef != null) {
+            endpoint = parsedRef.getRelativeRef();
         } else if (endpoint.contains("user")) {
             endpoint = "/user";
         } else if (endpoint.contains("subscription")) {
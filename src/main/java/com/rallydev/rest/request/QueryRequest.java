@@ -32,6 +32,8 @@ public class QueryRequest extends Request implements Cloneable {
     private boolean scopedUp = false;
     private boolean scopedDown = true;
 
+    private boolean keysetPaging = false;
+
     /**
      * Create a new query request for the specified type.
      *
@@ -241,6 +243,59 @@ public class QueryRequest extends Request implements Cloneable {
         this.limit = limit;
     }
 
+    /**
+     * Get whether keyset paging has been enabled for this request.
+     *
+     * @return whether keyset paging is enabled
+     */
+    public boolean isKeysetPaging() {
+        return keysetPaging;
+    }
+
+    /**
+     * <p>Set whether pages after the first should be requested by ObjectID rather than by start index.</p>
+     * With keyset paging each subsequent page is requested with {@code start=1} and an additional
+     * {@code (ObjectID > lastSeen)} filter ANDed onto any existing query filter.  This keeps the cost of
+     * each page constant for deep result sets and prevents results from being skipped or repeated
+     * when objects are created or deleted while paging.
+     * <p>Keyset paging is only applied when the results are ordered by ObjectID alone (the default order).
+     * For any other order paging by start index is used.</p>
+     * Defaults to false.
+     *
+     * @param keysetPaging whether to page by ObjectID
+     */
+    public void setKeysetPaging(boolean keysetPaging) {
+        this.keysetPaging = keysetPaging;
+    }
+
+    /**
+     * Get whether subsequent pages of this request will be requested by ObjectID.
+     * This is true when keyset paging has been enabled and the results are ordered by ObjectID alone.
+     *
+     * @return whether keyset paging will be used
+     */
+    public boolean usesKeysetPaging() {
+        if (!keysetPaging || getOrder() == null) {
+            return false;
+        }
+        String order = getOrder().trim().replaceAll("\\s+", " ");
+        return order.equalsIgnoreCase("ObjectID") || order.equalsIgnoreCase("ObjectID ASC");
+    }
+
+    /**
+     * Create the request for the page of results following the specified ObjectID when keyset paging.
+     *
+     * @param lastObjectId the ObjectID of the last result of the previous page
+     * @return the request for the next page
+     */
+    public QueryRequest getKeysetPageRequest(String lastObjectId) {
+        QueryRequest pageRequest = clone();
+        QueryFilter keyset = new QueryFilter("ObjectID", ">", lastObjectId);
+        pageRequest.setStart(1);
+        pageRequest.setQueryFilter(getQueryFilter() != null ? getQueryFilter().and(keyset) : keyset);
+        return pageRequest;
+    }
+
     /**
      * Clone this request.
      *
@@ -30,6 +30,15 @@ public class UpdateRequest extends Request {
         this.obj = obj;
     }
 
+    /**
+     * Get the ref of the object to be updated.
+     *
+     * @return the ref, as specified when this request was created
+     */
+    public String getRef() {
+        return ref;
+    }
+
     /**
      * Get the JSON encoded string representation of the object to be updated.
      *
@@ -0,0 +1,50 @@
+package com.rallydev.rest.response;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+/**
+ * Represents a WSAPI response from a batch of create, update and delete operations
+ */
+public class BatchResponse extends Response {
+
+    /**
+     * Create a new batch response from the specified JSON encoded string.
+     *
+     * @param batchResponse the JSON encoded string
+     */
+    public BatchResponse(String batchResponse) {
+        super(batchResponse);
+    }
+
+    /**
+     * Create a new batch response from the specified parsed JSON document.
+     *
+     * @param batchResponse the parsed JSON document
+     */
+    public BatchResponse(JsonObject batchResponse) {
+        super(batchResponse);
+    }
+
+    /**
+     * Get the name of the root JSON result
+     *
+     * @return the root element name
+     */
+    @Override
+    protected String getRoot() {
+        return "BatchResult";
+    }
+
+    /**
+     * Get the results of the individual operations, in the order they were requested.
+     * <p>Each result contains its own Errors and Warnings, and the Object for create and update operations.</p>
+     * <p>Returns an empty array if the batch was not successful</p>
+     *
+     * @return the operation results
+     */
+    public JsonArray getResults() {
+        JsonArray results = wasSuccessful() ? result.getAsJsonArray("Results") : null;
+        return results != null ? results : new JsonArray();
+    }
+}
@@ -1,6 +1,7 @@
 package com.rallydev.rest.response;
 
 import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
 
 /**
  * Represents a WSAPI response from updating a collection.
@@ -17,6 +18,16 @@ public class CollectionUpdateResponse extends Response {
         super(updateResponse);
     }
 
+    /**
+     * Create a new collection update response from the specified parsed JSON document.
+     * Note that this class is only usable with WSAPI versions 2.0 and above.
+     *
+     * @param updateResponse the parsed JSON document
+     */
+    public CollectionUpdateResponse(JsonObject updateResponse) {
+        super(updateResponse);
+    }
+
     /**
      * Get the name of the root JSON result
      *
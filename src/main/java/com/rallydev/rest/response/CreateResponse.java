@@ -17,6 +17,15 @@ public class CreateResponse extends Response {
         super(createResponse);
     }
 
+    /**
+     * Create a new create response from the specified parsed JSON document.
+     *
+     * @param createResponse the parsed JSON document
+     */
+    public CreateResponse(JsonObject createResponse) {
+        super(createResponse);
+    }
+
     /**
      * Get the name of the root JSON result
      *
@@ -1,5 +1,7 @@
 package com.rallydev.rest.response;
 
+import com.google.gson.JsonObject;
+
 /**
  * Represents a WSAPI response from deleting an object
  */
@@ -14,6 +16,15 @@ public class DeleteResponse extends Response {
         super(deleteResponse);
     }
 
+    /**
+     * Create a new delete response from the specified parsed JSON document.
+     *
+     * @param deleteResponse the parsed JSON document
+     */
+    public DeleteResponse(JsonObject deleteResponse) {
+        super(deleteResponse);
+    }
+
     /**
      * Get the name of the root JSON result
      *
@@ -2,7 +2,6 @@ package com.rallydev.rest.response;
 
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 
 import java.util.Map;
 
@@ -20,6 +19,15 @@ public class GetResponse extends Response {
         super(getResponse);
     }
 
+    /**
+     * Create a new get response from the specified parsed JSON document.
+     *
+     * @param getResponse the parsed JSON document
+     */
+    public GetResponse(JsonObject getResponse) {
+        super(getResponse);
+    }
+
     /**
      * Get the name of the root JSON result
      *
@@ -27,9 +35,8 @@ public class GetResponse extends Response {
      */
     @Override
     protected String getRoot() {
-        JsonObject result = ((JsonObject) new JsonParser().parse(raw));
         String root = null;
-        for(Map.Entry<String, JsonElement> member : result.entrySet()) {
+        for(Map.Entry<String, JsonElement> member : getDocument().entrySet()) {
             root = member.getKey();
         }
         return root;
@@ -1,6 +1,11 @@
 package com.rallydev.rest.response;
 
 import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.util.Map;
 
 /**
  * Represents a WSAPI response from querying for objects.
@@ -16,6 +21,40 @@ public class QueryResponse extends Response {
         super(queryResponse);
     }
 
+    /**
+     * Create a new query response from the specified parsed JSON document.
+     *
+     * @param queryResponse the parsed JSON document
+     */
+    public QueryResponse(JsonObject queryResponse) {
+        super(queryResponse);
+    }
+
+    /**
+     * Create a copy of this response with the specified errors added, e.g. those of pages which failed.
+     * The results are shared with this response rather than copied, and errors already present are not repeated.
+     *
+     * @param errors the errors to add
+     * @return the response with the added errors
+     */
+    public QueryResponse withErrors(Iterable<String> errors) {
+        JsonArray allErrors = result.getAsJsonArray("Errors").deepCopy();
+        for (String error : errors) {
+            if (!allErrors.contains(new JsonPrimitive(error))) {
+                allErrors.add(error);
+            }
+        }
+        JsonObject queryResult = new JsonObject();
+        for (Map.Entry<String, JsonElement> member : result.entrySet()) {
+            queryResult.add(member.getKey(), member.getKey().equals("Errors") ? allErrors : member.getValue());
+        }
+        JsonObject document = new JsonObject();
+        for (Map.Entry<String, JsonElement> member : getDocument().entrySet()) {
+            document.add(member.getKey(), member.getKey().equals(getRoot()) ? queryResult : member.getValue());
+        }
+        return new QueryResponse(document);
+    }
+
     /**
      * Get the name of the root JSON result
      *
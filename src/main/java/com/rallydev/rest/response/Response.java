@@ -3,6 +3,7 @@ package com.rallydev.rest.response;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import com.rallydev.rest.client.JfrEvents;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -13,16 +14,64 @@ import java.util.List;
 public abstract class Response {
 
     protected JsonObject result;
+
+    /**
+     * The JSON encoded string this response was created from.
+     * Only populated by {@link #Response(String)}; responses created from a parsed document leave it null.
+     *
+     * @deprecated Holds a second copy of every response.  Use {@link #getRaw()} instead.
+     */
+    @Deprecated
     protected String raw;
 
+    private final JsonObject document;
+
     /**
      * Create a new response from the specified JSON encoded string.
      *
      * @param response the JSON encoded string
      */
     public Response(String response) {
+        this(parse(response));
         this.raw = response;
-        this.result = ((JsonObject) new JsonParser().parse(response)).getAsJsonObject(getRoot());
+    }
+
+    /**
+     * Create a new response from the specified parsed JSON document.
+     *
+     * @param document the parsed JSON document
+     */
+    public Response(JsonObject document) {
+        this.document = document;
+        this.result = document.getAsJsonObject(getRoot());
+    }
+
+    private static JsonObject parse(String response) {
+        Object event = JfrEvents.beginParse();
+        JsonObject document = (JsonObject) new JsonParser().parse(response);
+        JfrEvents.endParse(event, null, response.length());
+        return document;
+    }
+
+    /**
+     * Get the parsed JSON document this response was created from.
+     *
+     * @return the JSON document
+     */
+    protected JsonObject getDocument() {
+        return document;
+    }
+
+    /**
+     * Get the JSON encoded string representation of this response.
+     * The string is serialized from the parsed document on each call, so that it includes any
+     * results merged into the response after it was created, and should be kept by callers which
+     * need it more than once.
+     *
+     * @return the JSON encoded string
+     */
+    public String getRaw() {
+        return document.toString();
     }
 
     /**
@@ -16,6 +16,15 @@ public class UpdateResponse extends Response {
         super(updateResponse);
     }
 
+    /**
+     * Create a new update response from the specified parsed JSON document.
+     *
+     * @param updateResponse the parsed JSON document
+     */
+    public UpdateResponse(JsonObject updateResponse) {
+        super(updateResponse);
+    }
+
     /**
      * Get the name of the root JSON result
      *
@@ -0,0 +1,109 @@
+package com.rallydev.rest.util;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Evaluates a single WSAPI query condition, e.g. (Iteration.Name = "Sprint 1"), against an object.
+ * A field with several values, e.g. a path through an array, matches a positive operator if any value matches,
+ * and a negated operator if no value matches.
+ */
+final class ConditionPredicate implements Predicate<JsonObject> {
+
+    private final String field;
+    private final String operator;
+    private final boolean negated;
+    private final List<String> expected = new ArrayList<String>();
+    private final boolean nullExpected;
+
+    ConditionPredicate(String field, String operator, String value) {
+        String op = operator.trim().toLowerCase();
+        this.negated = op.startsWith("!") && !op.equals("!=");
+        if (negated) {
+            op = op.substring(1);
+        }
+        if (!op.equals("=") && !op.equals("!=") && !op.equals("<") && !op.equals("<=") && !op.equals(">") &&
+                !op.equals(">=") && !op.equals("contains") && !op.equals("in")) {
+            throw new IllegalArgumentException("Unsupported operator: " + operator);
+        }
+        this.field = field;
+        this.operator = op;
+        String unquoted = unquote(value);
+        this.nullExpected = unquoted == null || unquoted.equalsIgnoreCase("null");
+        if (op.equals("in") && unquoted != null) {
+            for (String item : unquoted.split(",")) {
+                expected.add(normalize(unquote(item.trim())));
+            }
+        } else if (!nullExpected) {
+            expected.add(normalize(unquoted));
+        }
+    }
+
+    private static String unquote(String value) {
+        if (value != null && value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
+    private static String normalize(String value) {
+        ParsedRef ref = Ref.parse(value);
+        return ref != null ? ref.getRelativeRef() : value;
+    }
+
+    public boolean test(JsonObject object) {
+        List<JsonElement> values = JsonValues.getAll(object, field);
+        if (nullExpected && (operator.equals("=") || operator.equals("!="))) {
+            return values.isEmpty() == operator.equals("=");
+        }
+        if (operator.equals("!=")) {
+            return !anyMatch(values, "=");
+        }
+        return anyMatch(values, operator) != negated;
+    }
+
+    private boolean anyMatch(List<JsonElement> values, String op) {
+        for (JsonElement value : values) {
+            for (String item : expected) {
+                if (matches(value, op, item)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean matches(JsonElement value, String op, String item) {
+        if (op.equals("contains")) {
+            return JsonValues.toText(value).toLowerCase().contains(item.toLowerCase());
+        } else if (op.equals("=") || op.equals("in")) {
+            return isEqual(value, item);
+        }
+        int result = JsonValues.compare(value, JsonValues.toLiteral(value, item));
+        if (op.equals("<")) {
+            return result < 0;
+        } else if (op.equals("<=")) {
+            return result <= 0;
+        } else if (op.equals(">")) {
+            return result > 0;
+        }
+        return result >= 0;
+    }
+
+    private static boolean isEqual(JsonElement value, String item) {
+        if (value.isJsonObject()) {
+            JsonElement ref = value.getAsJsonObject().get("_ref");
+            if (ref != null && ref.isJsonPrimitive() && Ref.isRef(item)) {
+                return item.equals(Ref.getRelativeRef(ref.getAsString()));
+            }
+        } else if (value.isJsonPrimitive() && Ref.isRef(item) && Ref.isRef(value.getAsString())) {
+            return item.equals(Ref.getRelativeRef(value.getAsString()));
+        }
+        return JsonValues.compare(value, JsonValues.toLiteral(value, item)) == 0 ||
+                JsonValues.toText(value).equalsIgnoreCase(item);
+    }
+}
@@ -0,0 +1,157 @@
+package com.rallydev.rest.util;
+
+import com.google.gson.JsonObject;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>Holds the most recently read or written state of objects, keyed by their relative ref.</p>
+ * <p>When set on a {@link com.rallydev.rest.RallyRestApi}, objects are stored as they are created, updated or
+ * retrieved and removed as they are deleted, so that a read after a write can be answered without a request.
+ * An object is only returned if it holds every field requested, and an object stored from a response
+ * fetching all fields satisfies any fetch.</p>
+ * <p>Objects are copied on the way in and out, so changes made by callers never affect the stored state.
+ * Changes made by other clients are not seen, so an identity map should be scoped to a single unit of work.</p>
+ * This class is thread safe.
+ */
+public class IdentityMap {
+
+    private static class Entry {
+        private final JsonObject object;
+        private final boolean complete;
+
+        private Entry(JsonObject object, boolean complete) {
+            this.object = object;
+            this.complete = complete;
+        }
+    }
+
+    private final int maxEntries;
+    private final Map<String, Entry> entries;
+
+    /**
+     * Create a new identity map holding up to 10000 objects.
+     */
+    public IdentityMap() {
+        this(10000);
+    }
+
+    /**
+     * Create a new identity map.
+     *
+     * @param maxEntries the maximum number of objects held.  The least recently used object is removed when full.
+     */
+    public IdentityMap(final int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be at least 1");
+        }
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Get a copy of the stored state of the specified object, if it holds all of the specified fields.
+     *
+     * @param ref   the ref of the object.  May be absolute or relative, e.g. /defect/1234
+     * @param fetch the fields required.  An empty fetch requires all fields.
+     * @return a copy of the object, or null if it is not held or does not hold all of the fields
+     */
+    public JsonObject get(String ref, Fetch fetch) {
+        String key = Ref.getRelativeRef(ref);
+        if (key == null) {
+            return null;
+        }
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry == null || !covers(entry, fetch)) {
+            return null;
+        }
+        return entry.object.deepCopy();
+    }
+
+    private static boolean covers(Entry entry, Fetch fetch) {
+        if (entry.complete) {
+            return true;
+        }
+        if (fetch == null || fetch.isEmpty()) {
+            return false;
+        }
+        for (String field : fetch) {
+            if (!entry.object.has(field.trim())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Store a copy of the state of the specified object, replacing any state previously held.
+     *
+     * @param object   the object, which must have a _ref
+     * @param complete whether the object holds all of its fields, i.e. it was fetched with fetch=true
+     */
+    public void put(JsonObject object, boolean complete) {
+        String key = object != null && object.has("_ref") && object.get("_ref").isJsonPrimitive() ?
+                Ref.getRelativeRef(object.get("_ref").getAsString()) : null;
+        if (key == null) {
+            return;
+        }
+        JsonObject copy = object.deepCopy();
+        copy.remove("Errors");
+        copy.remove("Warnings");
+        synchronized (entries) {
+            entries.put(key, new Entry(copy, complete));
+        }
+    }
+
+    /**
+     * Remove the stored state of the specified object.
+     *
+     * @param ref the ref of the object.  May be absolute or relative, e.g. /defect/1234
+     */
+    public void remove(String ref) {
+        String key = Ref.getRelativeRef(ref);
+        if (key != null) {
+            synchronized (entries) {
+                entries.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Remove the stored state of all objects.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Get the number of objects held.
+     *
+     * @return the number of objects
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Get the maximum number of objects held.
+     *
+     * @return the maximum number of objects
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+}
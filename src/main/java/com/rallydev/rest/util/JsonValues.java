@@ -0,0 +1,175 @@
+package com.rallydev.rest.util;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Helpers for reading and comparing the field values of WSAPI objects.
+ */
+final class JsonValues {
+
+    private JsonValues() {
+    }
+
+    /**
+     * Get the value at the specified dotted path, e.g. Iteration.Name.
+     *
+     * @param object the object
+     * @param path   the path
+     * @return the value, or null if the path does not lead to a value
+     */
+    static JsonElement get(JsonObject object, String path) {
+        JsonElement value = object;
+        int start = 0;
+        while (value != null) {
+            if (!value.isJsonObject()) {
+                return null;
+            }
+            int dot = path.indexOf('.', start);
+            String field = dot < 0 ? path.substring(start) : path.substring(start, dot);
+            value = value.getAsJsonObject().get(field);
+            if (dot < 0) {
+                break;
+            }
+            start = dot + 1;
+        }
+        return value == null || value.isJsonNull() ? null : value;
+    }
+
+    /**
+     * Get all of the values at the specified dotted path, following every element of any array on the way,
+     * e.g. Tags.Name for an object whose Tags are an array of objects.
+     *
+     * @param object the object
+     * @param path   the path
+     * @return the values, excluding nulls
+     */
+    static List<JsonElement> getAll(JsonObject object, String path) {
+        List<JsonElement> values = new ArrayList<JsonElement>();
+        values.add(object);
+        int start = 0;
+        while (start >= 0 && !values.isEmpty()) {
+            int dot = path.indexOf('.', start);
+            String field = dot < 0 ? path.substring(start) : path.substring(start, dot);
+            List<JsonElement> next = new ArrayList<JsonElement>();
+            for (JsonElement value : values) {
+                addFieldValues(value, field, next);
+            }
+            values = next;
+            start = dot < 0 ? -1 : dot + 1;
+        }
+        List<JsonElement> result = new ArrayList<JsonElement>(values.size());
+        for (JsonElement value : values) {
+            if (value.isJsonArray()) {
+                for (JsonElement element : value.getAsJsonArray()) {
+                    if (!element.isJsonNull()) {
+                        result.add(element);
+                    }
+                }
+            } else {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+
+    private static void addFieldValues(JsonElement value, String field, List<JsonElement> values) {
+        if (value.isJsonArray()) {
+            for (JsonElement element : value.getAsJsonArray()) {
+                addFieldValues(element, field, values);
+            }
+        } else if (value.isJsonObject()) {
+            JsonElement fieldValue = value.getAsJsonObject().get(field);
+            if (fieldValue != null && !fieldValue.isJsonNull()) {
+                values.add(fieldValue);
+            }
+        }
+    }
+
+    /**
+     * Compare two values as the WSAPI orders them: missing values first, then numbers numerically,
+     * then everything else as text, i.e. strings ignoring case and objects by name.
+     * Only JSON numbers are ordered as numbers, so that the ordering stays transitive for strings which
+     * merely look numeric, e.g. "2", "10" and "1a".
+     *
+     * @param a the first value, or null
+     * @param b the second value, or null
+     * @return a negative number, zero or a positive number as a is less than, equal to or greater than b
+     */
+    static int compare(JsonElement a, JsonElement b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : -1) : 1;
+        }
+        BigDecimal x = toNumber(a);
+        BigDecimal y = toNumber(b);
+        if (x != null || y != null) {
+            return x == null ? 1 : y == null ? -1 : x.compareTo(y);
+        }
+        String s = toText(a);
+        String t = toText(b);
+        int result = s.compareToIgnoreCase(t);
+        return result != 0 ? result : s.compareTo(t);
+    }
+
+    /**
+     * Get the value as a number if it is one.
+     *
+     * @param value the value
+     * @return the number, or null if the value is not a JSON number
+     */
+    static BigDecimal toNumber(JsonElement value) {
+        if (!value.isJsonPrimitive() || !value.getAsJsonPrimitive().isNumber()) {
+            return null;
+        }
+        try {
+            return value.getAsBigDecimal();
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Convert the literal of a query condition to a value comparable with the specified field value,
+     * i.e. to a number if the field value is a number and the literal holds one, or else to a string.
+     *
+     * @param value   the field value
+     * @param literal the literal
+     * @return the literal as a JSON value
+     */
+    static JsonPrimitive toLiteral(JsonElement value, String literal) {
+        if (toNumber(value) != null) {
+            try {
+                return new JsonPrimitive(new BigDecimal(literal));
+            } catch (NumberFormatException e) {
+                //compared as text
+            }
+        }
+        return new JsonPrimitive(literal);
+    }
+
+    /**
+     * Get the value as text.  Objects are represented by their name, or failing that their ref.
+     *
+     * @param value the value
+     * @return the text
+     */
+    static String toText(JsonElement value) {
+        if (value.isJsonPrimitive()) {
+            return value.getAsString();
+        } else if (value.isJsonObject()) {
+            JsonObject object = value.getAsJsonObject();
+            for (String field : new String[]{"_refObjectName", "Name", "_ref"}) {
+                JsonElement text = object.get(field);
+                if (text != null && text.isJsonPrimitive()) {
+                    return text.getAsString();
+                }
+            }
+        }
+        return value.toString();
+    }
+}
@@ -0,0 +1,121 @@
+package com.rallydev.rest.util;
+
+/**
+ * <p>Represents the components of a ref url, as parsed by {@link Ref#parse}.</p>
+ * <p>Examples:</p>
+ * <ul>
+ * <li>/defect/1234: type defect, object id 1234</li>
+ * <li>/portfolioitem/feature/1234: type portfolioitem/feature, object id 1234</li>
+ * <li>/defect/1234/tasks: type defect, object id 1234, collection tasks</li>
+ * <li>/workspacepermission/123u456w1: type workspacepermission, object id 123u456w1</li>
+ * </ul>
+ * Instances are immutable and may be shared between threads.
+ */
+public final class ParsedRef {
+
+    private final String relativeRef;
+    private final String type;
+    private final String objectId;
+    private final String collection;
+    private final boolean uuid;
+    private final boolean dynatype;
+
+    ParsedRef(String relativeRef, String type, String objectId, String collection, boolean uuid, boolean dynatype) {
+        this.relativeRef = relativeRef;
+        this.type = type;
+        this.objectId = objectId;
+        this.collection = collection;
+        this.uuid = uuid;
+        this.dynatype = dynatype;
+    }
+
+    /**
+     * Get the relative ref url, e.g. /defect/1234 or /defect/1234/tasks
+     *
+     * @return the relative ref url
+     */
+    public String getRelativeRef() {
+        return relativeRef;
+    }
+
+    /**
+     * Get the type of the referenced object, e.g. defect or portfolioitem/feature
+     *
+     * @return the type
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Get the id of the referenced object.
+     * This is usually the ObjectID, but may be a UUID or a permission id.
+     *
+     * @return the object id
+     */
+    public String getObjectId() {
+        return objectId;
+    }
+
+    /**
+     * Get the name of the referenced collection, e.g. tasks
+     *
+     * @return the collection name, or null if this is not a collection ref
+     */
+    public String getCollection() {
+        return collection;
+    }
+
+    /**
+     * Returns whether this ref refers to a collection of an object rather than the object itself
+     *
+     * @return whether this is a collection ref
+     */
+    public boolean isCollection() {
+        return collection != null;
+    }
+
+    /**
+     * Returns whether the object id is a UUID rather than a numeric ObjectID
+     *
+     * @return whether the object id is a UUID
+     */
+    public boolean isUuid() {
+        return uuid;
+    }
+
+    /**
+     * Get the type as returned by {@link Ref#getTypeFromRef}, which includes the object id for collection refs
+     * of non-dynatypes, e.g. defect/1234 for /defect/1234/tasks
+     */
+    String getLegacyType() {
+        return collection != null && !dynatype ? type + "/" + objectId : type;
+    }
+
+    /**
+     * Get the ObjectID as returned by {@link Ref#getOidFromRef}, which is the collection name for collection refs
+     * of non-dynatypes and includes the collection name for collection refs of dynatypes,
+     * e.g. tasks for /defect/1234/tasks and 1234/children for /portfolioitem/feature/1234/children
+     */
+    String getLegacyOid() {
+        if (collection == null) {
+            return objectId;
+        }
+        return dynatype ? objectId + "/" + collection : collection;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ParsedRef && relativeRef.equals(((ParsedRef) o).relativeRef);
+    }
+
+    @Override
+    public int hashCode() {
+        return relativeRef.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return relativeRef;
+    }
+}
@@ -1,5 +1,13 @@
 package com.rallydev.rest.util;
 
+import com.google.gson.JsonObject;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Predicate;
+
 /**
  * Represents a query filter to be applied to query requests.
  * <p>More on the WSAPI query syntax can be found here: http://rally1.rallydev.com/slm/doc/webservice</p>
@@ -70,46 +78,169 @@ public class QueryFilter implements Cloneable {
      * @return the string representation of this query filter.
      */
     public String toString() {
-        if (left != null) {
-            return String.format("(%s %s %s)", left, operator, right);
-        } else {
-            String val = value;
-            if (val != null) {
-                val = val.contains(" ") ? "\"" + val + "\"" : val;
-
-                if (Ref.isRef(val)) {
-                    val = Ref.getRelativeRef(val);
+        StringBuilder s = new StringBuilder();
+        Deque<Object> pending = new ArrayDeque<Object>();
+        pending.push(this);
+        while (!pending.isEmpty()) {
+            Object next = pending.pop();
+            if (next instanceof String) {
+                s.append((String) next);
+                continue;
+            }
+            QueryFilter filter = (QueryFilter) next;
+            if (filter.left != null) {
+                pending.push(")");
+                pending.push(filter.right != null ? filter.right : "null");
+                pending.push(" " + filter.operator + " ");
+                pending.push(filter.left != null ? filter.left : "null");
+                s.append('(');
+            } else {
+                s.append('(').append(filter.field).append(' ').append(filter.operator).append(' ')
+                        .append(filter.getFormattedValue()).append(')');
+            }
+        }
+        return s.toString();
+    }
+
+    private String getFormattedValue() {
+        String val = value;
+        if (val != null) {
+            val = val.contains(" ") ? "\"" + val + "\"" : val;
+
+            ParsedRef ref = Ref.parse(val);
+            if (ref != null) {
+                val = ref.getRelativeRef();
+            }
+        }
+        return val;
+    }
+
+    /**
+     * <p>Compile this filter into a predicate which evaluates it locally against WSAPI objects,
+     * e.g. to filter query results already retrieved without another request.</p>
+     * <p>The operators =, !=, &lt;, &lt;=, &gt;, &gt;=, contains, !contains, in and !in are supported, and fields may be
+     * dotted paths such as Iteration.Name or Defects.ObjectID.  As with the WSAPI, strings are compared ignoring
+     * case, numbers numerically, refs by their relative ref and other objects by name.  A path through an array
+     * matches if any of its values match.  Objects must have been fetched with the filtered fields.</p>
+     *
+     * @return the predicate
+     * @throws IllegalArgumentException if the filter uses an unsupported operator
+     */
+    public Predicate<JsonObject> toPredicate() {
+        if (left == null) {
+            return new ConditionPredicate(field, operator, value);
+        }
+        boolean and = operator.equalsIgnoreCase("AND");
+        if (!and && !operator.equalsIgnoreCase("OR")) {
+            throw new IllegalArgumentException("Unsupported operator: " + operator);
+        }
+        List<QueryFilter> filters = and ? getConjuncts() : getDisjuncts();
+        final List<Predicate<JsonObject>> predicates = new ArrayList<Predicate<JsonObject>>(filters.size());
+        for (QueryFilter filter : filters) {
+            predicates.add(filter.toPredicate());
+        }
+        if (and) {
+            return object -> {
+                for (Predicate<JsonObject> predicate : predicates) {
+                    if (!predicate.test(object)) {
+                        return false;
+                    }
+                }
+                return true;
+            };
+        }
+        return object -> {
+            for (Predicate<JsonObject> predicate : predicates) {
+                if (predicate.test(object)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    /**
+     * Get the filters which are ORed together to form this filter, in order.
+     * A filter which is not an OR is its own single disjunct.
+     *
+     * @return the disjuncts
+     */
+    public List<QueryFilter> getDisjuncts() {
+        return flatten("OR");
+    }
+
+    /**
+     * Get the filters which are ANDed together to form this filter, in order.
+     * A filter which is not an AND is its own single conjunct.
+     *
+     * @return the conjuncts
+     */
+    public List<QueryFilter> getConjuncts() {
+        return flatten("AND");
+    }
+
+    private List<QueryFilter> flatten(String joinOperator) {
+        List<QueryFilter> filters = new ArrayList<QueryFilter>();
+        Deque<QueryFilter> pending = new ArrayDeque<QueryFilter>();
+        pending.push(this);
+        while (!pending.isEmpty()) {
+            QueryFilter filter = pending.pop();
+            if (filter.left != null && joinOperator.equalsIgnoreCase(filter.operator)) {
+                if (filter.right != null) {
+                    pending.push(filter.right);
                 }
+                pending.push(filter.left);
+            } else {
+                filters.add(filter);
             }
-            return String.format("(%s %s %s)", field, operator, val);
         }
+        return filters;
     }
 
     /**
      * Get a query filter that is the ANDed combination of the specified filters.
+     * The filters are combined as a balanced tree, so its depth grows with the logarithm of their number.
+     * Null filters are skipped.
      *
      * @param queryFilters one or more query filters to be ANDed together
-     * @return the ANDed query filter
+     * @return the ANDed query filter, or null if every filter is null
      */
     public static QueryFilter and(QueryFilter... queryFilters) {
-        QueryFilter result = null;
-        for (QueryFilter q : queryFilters) {
-            result = result == null ? q : result.and(q);
-        }
-        return result;
+        QueryFilter[] filters = withoutNulls(queryFilters);
+        return join(filters, 0, filters.length, "AND");
     }
 
     /**
      * Get a query filter that is the ORed combination of the specified filters.
+     * The filters are combined as a balanced tree, so its depth grows with the logarithm of their number.
+     * Null filters are skipped.
      *
      * @param queryFilters one or more query filters to be ORed together
-     * @return the ORed query filter
+     * @return the ORed query filter, or null if every filter is null
      */
     public static QueryFilter or(QueryFilter... queryFilters) {
-        QueryFilter result = null;
+        QueryFilter[] filters = withoutNulls(queryFilters);
+        return join(filters, 0, filters.length, "OR");
+    }
+
+    private static QueryFilter[] withoutNulls(QueryFilter[] queryFilters) {
+        List<QueryFilter> filters = new ArrayList<QueryFilter>(queryFilters.length);
         for (QueryFilter q : queryFilters) {
-            result = result == null ? q : result.or(q);
+            if (q != null) {
+                filters.add(q);
+            }
+        }
+        return filters.size() == queryFilters.length ? queryFilters : filters.toArray(new QueryFilter[filters.size()]);
+    }
+
+    private static QueryFilter join(QueryFilter[] queryFilters, int from, int to, String operator) {
+        if (to - from == 0) {
+            return null;
+        } else if (to - from == 1) {
+            return queryFilters[from];
         }
-        return result;
+        int middle = from + (to - from + 1) / 2;
+        return new QueryFilter(join(queryFilters, from, middle, operator), operator,
+                join(queryFilters, middle, to, operator));
     }
 }
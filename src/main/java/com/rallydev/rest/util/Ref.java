@@ -1,57 +1,257 @@
 package com.rallydev.rest.util;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 /**
  * Provides utility methods for working with ref URLs.
  */
 public class Ref {
 
-    private static List<Pattern> patterns = new ArrayList<Pattern>(Arrays.asList(
-
-            //dynatype collection ref (/portfolioitem/feature/1234
-            Pattern.compile(".*?/(\\w{2,}/\\w+)/(\\d+/\\w+)(?:\\.js\\??.*)*$"),
-            
-            //dynatype ref (/portfolioitem/feature/1234
-            Pattern.compile(".*?/(\\w{2,}/\\w+)/(\\d+)(?:\\.js\\??.*)*$"),
-
-            //collection ref (/defect/1234/tasks)
-            Pattern.compile(".*?/(\\w+/-?\\d+)/(\\w+)(?:\\.js\\??.*)*$"),
-            
-            //basic ref (/defect/1234)
-            Pattern.compile(".*?/(\\w+)/(-?\\d+)(?:\\.js\\??.*)*$"),
-            
-            //permission ref (/workspacepermission/123u456w1)
-            Pattern.compile(".*?/(\\w+)/(\\d+u\\d+[pw]\\d+)(?:\\.js\\??.*)*$"),
-            
-            //adding UUID regex support in the ref urls
-            
-            //dynatype collection ref (/portfolioitem/feature/81348db8-aacd-447e-8678-2fb910ae9dc3
-            Pattern.compile(".*?/(\\w{2,}/\\w+)/([0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}/\\w+)(?:\\.js\\??.*)*$"),
-            
-            //dynatype ref (/portfolioitem/feature/81348db8-aacd-447e-8678-2fb910ae9dc3
-            Pattern.compile(".*?/(\\w{2,}/\\w+)/([0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12})(?:\\.js\\??.*)*$"),
-
-            //collection ref (/defect/81348db8-aacd-447e-8678-2fb910ae9dc3/tasks)
-            Pattern.compile(".*?/(\\w+/-?[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12})/(\\w+)(?:\\.js\\??.*)*$"),
-            
-            //basic ref (/defect/81348db8-aacd-447e-8678-2fb910ae9dc3)
-            Pattern.compile(".*?/(\\w+)/([0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12})(?:\\.js\\??.*)*$")
-    ));
-    
-    private static Matcher match(String ref) {
-        String test = ref != null ? ref : "";
-        for(Pattern pattern : patterns) {
-            Matcher m = pattern.matcher(test);
-            if(m.matches()) {
-                return m;
+    /*
+     * Supported ref formats, in order of precedence.  A ref may contain any prefix (such as the server and WSAPI
+     * version) followed by one of these and optionally .js and any query string.  When more than one format matches,
+     * the first format in this list wins, and for a given format the longest match wins.
+     *
+     *  1. dynatype collection ref (/portfolioitem/feature/1234/children)
+     *  2. dynatype ref (/portfolioitem/feature/1234)
+     *  3. collection ref (/defect/1234/tasks)
+     *  4. basic ref (/defect/1234)
+     *  5. permission ref (/workspacepermission/123u456w1)
+     *  6. dynatype collection ref (/portfolioitem/feature/81348db8-aacd-447e-8678-2fb910ae9dc3/children)
+     *  7. dynatype ref (/portfolioitem/feature/81348db8-aacd-447e-8678-2fb910ae9dc3)
+     *  8. collection ref (/defect/81348db8-aacd-447e-8678-2fb910ae9dc3/tasks)
+     *  9. basic ref (/defect/81348db8-aacd-447e-8678-2fb910ae9dc3)
+     */
+    private static final int NO_MATCH = 10;
+
+    private static volatile RefCache cache;
+
+    /**
+     * Get the cache used to store parsed refs.
+     *
+     * @return the cache, or null if parsed refs are not cached
+     */
+    public static RefCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Set the cache used to store parsed refs.  By default parsed refs are not cached.
+     * The cache is shared by all callers in this class loader.
+     *
+     * @param refCache the cache, or null to stop caching parsed refs
+     */
+    public static void setCache(RefCache refCache) {
+        cache = refCache;
+    }
+
+    /**
+     * <p>Parse the specified ref url into its components in a single pass.</p>
+     * <p>Supported formats include /defect/1234, /portfolioitem/feature/1234, /defect/1234/tasks,
+     * /workspacepermission/123u456w1 and their UUID equivalents, e.g. /defect/81348db8-aacd-447e-8678-2fb910ae9dc3.
+     * The ref may be absolute or relative and may include the .js extension and a query string.</p>
+     * If a cache is set the result is looked up in and stored to it.
+     *
+     * @param ref the ref url to be parsed.  May be either absolute or relative, e.g. /defect/1234
+     * @return the parsed ref, or null if the specified string was not a valid ref url
+     */
+    public static ParsedRef parse(String ref) {
+        RefCache refCache = cache;
+        return refCache != null ? refCache.parse(ref) : parseUncached(ref);
+    }
+
+    static ParsedRef parseUncached(String ref) {
+        if (ref == null) {
+            return null;
+        }
+
+        //collect the start of each 2, 3 or 4 segment path which is followed by the end of the ref or .js
+        int[] candidates = new int[6];
+        int count = 0;
+        int last = -1, secondLast = -1, thirdLast = -1, fourthLast = -1;
+        int length = ref.length();
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? ref.charAt(i) : '.';
+            if (c == '/') {
+                fourthLast = thirdLast;
+                thirdLast = secondLast;
+                secondLast = last;
+                last = i;
+            } else if (isLineTerminator(c)) {
+                return null;
+            } else if (!isWordChar(c) && c != '-') {
+                if (secondLast >= 0 && (i == length || ref.startsWith(".js", i))) {
+                    if (count + 6 > candidates.length) {
+                        int[] grown = new int[candidates.length * 2];
+                        System.arraycopy(candidates, 0, grown, 0, count);
+                        candidates = grown;
+                    }
+                    for (int start : new int[]{fourthLast, thirdLast, secondLast}) {
+                        if (start >= 0) {
+                            candidates[count++] = start;
+                            candidates[count++] = i;
+                        }
+                    }
+                }
+                last = secondLast = thirdLast = fourthLast = -1;
+            }
+        }
+
+        int bestFormat = NO_MATCH;
+        int bestStart = -1, bestEnd = -1;
+        for (int i = 0; i < count; i += 2) {
+            int format = matchFormat(ref, candidates[i] + 1, candidates[i + 1], bestFormat);
+            if (format < bestFormat) {
+                bestFormat = format;
+                bestStart = candidates[i];
+                bestEnd = candidates[i + 1];
+            }
+        }
+        return bestFormat != NO_MATCH ? createParsedRef(ref, bestStart, bestEnd, bestFormat) : null;
+    }
+
+    /**
+     * Determine which of the supported formats, if any, the path between the specified indices matches.
+     *
+     * @return the first format matched which precedes the specified format, or NO_MATCH
+     */
+    private static int matchFormat(String ref, int start, int end, int before) {
+        int first = ref.indexOf('/', start);
+        int second = first < end ? ref.indexOf('/', first + 1) : -1;
+        int third = second >= 0 && second < end ? ref.indexOf('/', second + 1) : -1;
+        if (second < 0 || second >= end) {
+            second = end;
+        }
+        if (third < 0 || third >= end) {
+            third = end;
+        }
+
+        if (!isWord(ref, start, first)) {
+            return NO_MATCH;
+        }
+        boolean longType = first - start >= 2;
+        if (third < end) {
+            //four segments
+            if (!longType || !isWord(ref, first + 1, second) || !isWord(ref, third + 1, end)) {
+                return NO_MATCH;
+            }
+            if (isDigits(ref, second + 1, third)) {
+                return 1;
+            }
+            return before > 6 && isUuid(ref, second + 1, third) ? 6 : NO_MATCH;
+        } else if (second < end) {
+            //three segments
+            boolean dynatype = longType && isWord(ref, first + 1, second);
+            if (dynatype && isDigits(ref, second + 1, end)) {
+                return 2;
+            }
+            boolean collection = isWord(ref, second + 1, end);
+            if (before > 3 && collection && isSignedDigits(ref, first + 1, second)) {
+                return 3;
+            }
+            if (before > 7 && dynatype && isUuid(ref, second + 1, end)) {
+                return 7;
+            }
+            if (before > 8 && collection && isSignedUuid(ref, first + 1, second)) {
+                return 8;
+            }
+            return NO_MATCH;
+        } else {
+            //two segments
+            if (before > 4 && isSignedDigits(ref, first + 1, end)) {
+                return 4;
+            }
+            if (before > 5 && isPermissionId(ref, first + 1, end)) {
+                return 5;
+            }
+            return before > 9 && isUuid(ref, first + 1, end) ? 9 : NO_MATCH;
+        }
+    }
+
+    private static ParsedRef createParsedRef(String ref, int start, int end, int format) {
+        int first = ref.indexOf('/', start + 1);
+        int second = ref.indexOf('/', first + 1);
+        boolean dynatype = format == 1 || format == 2 || format == 6 || format == 7;
+        boolean collection = format == 1 || format == 3 || format == 6 || format == 8;
+        boolean uuid = format > 5;
+
+        int typeEnd = dynatype ? second : first;
+        int oidEnd = collection ? ref.indexOf('/', typeEnd + 1) : end;
+        return new ParsedRef(ref.substring(start, end),
+                ref.substring(start + 1, typeEnd),
+                ref.substring(typeEnd + 1, oidEnd),
+                collection ? ref.substring(oidEnd + 1, end) : null,
+                uuid, dynatype);
+    }
+
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    private static boolean isWord(String s, int start, int end) {
+        if (start >= end) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (!isWordChar(s.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDigits(String s, int start, int end) {
+        if (start >= end) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
             }
         }
-        return null;
+        return true;
+    }
+
+    private static boolean isSignedDigits(String s, int start, int end) {
+        return isDigits(s, start < end && s.charAt(start) == '-' ? start + 1 : start, end);
+    }
+
+    private static boolean isPermissionId(String s, int start, int end) {
+        //123u456w1 or 123u456p1
+        int u = start;
+        while (u < end && s.charAt(u) != 'u') {
+            u++;
+        }
+        int role = u + 1;
+        while (role < end && s.charAt(role) != 'w' && s.charAt(role) != 'p') {
+            role++;
+        }
+        return isDigits(s, start, u) && isDigits(s, u + 1, role) && isDigits(s, role + 1, end);
+    }
+
+    private static boolean isUuid(String s, int start, int end) {
+        //81348db8-aacd-447e-8678-2fb910ae9dc3
+        if (end - start != 36) {
+            return false;
+        }
+        for (int i = 0; i < 36; i++) {
+            char c = s.charAt(start + i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return false;
+                }
+            } else if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSignedUuid(String s, int start, int end) {
+        return isUuid(s, start < end && s.charAt(start) == '-' ? start + 1 : start, end);
     }
 
     /**
@@ -62,7 +262,7 @@ public class Ref {
      * @return whether the specified string is a valid ref url
      */
     public static boolean isRef(String ref) {
-        return match(ref) != null;
+        return parse(ref) != null;
     }
 
     /**
@@ -73,8 +273,8 @@ public class Ref {
      * @return the relative ref url or null if the specified ref was not valid
      */
     public static String getRelativeRef(String ref) {
-        Matcher matcher = match(ref);
-        return matcher != null ? String.format("/%s/%s", matcher.group(1), matcher.group(2)) : null;
+        ParsedRef parsed = parse(ref);
+        return parsed != null ? parsed.getRelativeRef() : null;
     }
 
     /**
@@ -85,8 +285,8 @@ public class Ref {
      * @return the extracted type or null if the specified ref was not valid
      */
     public static String getTypeFromRef(String ref) {
-        Matcher matcher = match(ref);
-        return matcher != null ? matcher.group(1) : null;
+        ParsedRef parsed = parse(ref);
+        return parsed != null ? parsed.getLegacyType() : null;
     }
 
     /**
@@ -97,7 +297,7 @@ public class Ref {
      * @return the extracted ObjectID or null if the specified ref was not valid
      */
     public static String getOidFromRef(String ref) {
-        Matcher matcher = match(ref);
-        return matcher != null ? matcher.group(2) : null;
+        ParsedRef parsed = parse(ref);
+        return parsed != null ? parsed.getLegacyOid() : null;
     }
 }
@@ -0,0 +1,129 @@
+package com.rallydev.rest.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>A size bounded, least recently used cache of parsed ref urls.</p>
+ * <p>Once installed with {@link Ref#setCache}, repeated lookups of the same ref string by {@link Ref} and its
+ * callers (such as {@link QueryFilter}) are served from the cache.  Strings which are not refs are cached too,
+ * so query values like "Accepted" are only examined once.</p>
+ * This class is thread safe.
+ */
+public class RefCache {
+
+    private static final ParsedRef NOT_A_REF = new ParsedRef("", null, null, null, false, false);
+
+    private final int maxSize;
+    private final Map<String, ParsedRef> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Create a new cache.
+     *
+     * @param maxSize the maximum number of refs to be cached
+     */
+    public RefCache(final int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be at least 1");
+        }
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<String, ParsedRef>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ParsedRef> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Parse the specified ref url, using the cached result if there is one.
+     *
+     * @param ref the ref url to be parsed
+     * @return the parsed ref, or null if the specified string was not a valid ref url
+     */
+    public ParsedRef parse(String ref) {
+        if (ref == null) {
+            return null;
+        }
+        ParsedRef parsed;
+        synchronized (entries) {
+            parsed = entries.get(ref);
+        }
+        if (parsed != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            parsed = Ref.parseUncached(ref);
+            if (parsed == null) {
+                parsed = NOT_A_REF;
+            }
+            synchronized (entries) {
+                entries.put(ref, parsed);
+            }
+        }
+        return parsed != NOT_A_REF ? parsed : null;
+    }
+
+    /**
+     * Get the maximum number of refs cached.
+     *
+     * @return the maximum size
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Get the number of refs currently cached.
+     *
+     * @return the size
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Get the number of lookups served from the cache.
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Get the number of lookups which had to parse the ref.
+     *
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Get the fraction of lookups served from the cache.
+     *
+     * @return the hit rate between 0 and 1, or 0 if there have been no lookups
+     */
+    public double getHitRate() {
+        long hits = getHits();
+        long total = hits + getMisses();
+        return total > 0 ? (double) hits / total : 0;
+    }
+
+    /**
+     * Remove all cached refs and reset the hit and miss counters.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+        hits.set(0);
+        misses.set(0);
+    }
+}
@@ -0,0 +1,55 @@
+package com.rallydev.rest.util;
+
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * <p>Orders query results locally according to a WSAPI order, e.g. "Rank ASC,ObjectID".</p>
+ * Fields may be dotted paths, e.g. Iteration.Name, and are compared as described by the WSAPI:
+ * missing values first, numbers numerically, strings ignoring case and objects by name.
+ * The order can only be applied to results which fetch the ordered fields.
+ */
+public class ResultOrder implements Comparator<JsonObject> {
+
+    private final List<String> fields = new ArrayList<String>();
+    private final List<Boolean> descending = new ArrayList<Boolean>();
+
+    /**
+     * Create a new order.
+     *
+     * @param order the comma separated list of fields, each optionally followed by ASC or DESC
+     */
+    public ResultOrder(String order) {
+        for (String term : order.split(",")) {
+            String[] parts = term.trim().split("\\s+");
+            if (parts[0].isEmpty()) {
+                continue;
+            }
+            fields.add(parts[0]);
+            descending.add(parts.length > 1 && parts[1].equalsIgnoreCase("DESC"));
+        }
+    }
+
+    /**
+     * Get the fields ordered by.
+     *
+     * @return the fields
+     */
+    public List<String> getFields() {
+        return Collections.unmodifiableList(fields);
+    }
+
+    public int compare(JsonObject a, JsonObject b) {
+        for (int i = 0; i < fields.size(); i++) {
+            int result = JsonValues.compare(JsonValues.get(a, fields.get(i)), JsonValues.get(b, fields.get(i)));
+            if (result != 0) {
+                return descending.get(i) ? -result : result;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,327 @@
+package com.rallydev.rest;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.rallydev.rest.client.RequestListener;
+import com.rallydev.rest.request.*;
+import com.rallydev.rest.response.*;
+import com.rallydev.rest.util.IdentityMap;
+import com.rallydev.rest.util.QueryFilter;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.mockito.Mockito.anyLong;
+import static org.mockito.Mockito.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.assertEquals;
+
+@Test
+public class AsyncRallyRestApiTest {
+    private RallyRestApi api;
+
+    @BeforeMethod
+    protected void setUp() throws Exception {
+        api = new RallyRestApi(new URI("https://someServer.rallydev.com"), "_1adfkj234fjlk");
+        api.client = spy(api.client);
+    }
+
+    public void shouldCreate() throws Exception {
+        JsonObject response = buildResponse("CreateResult");
+        JsonObject object = new JsonObject();
+        object.addProperty("_ref", "/defect/1234");
+        response.getAsJsonObject("CreateResult").add("Object", object);
+
+        JsonObject newDefect = new JsonObject();
+        newDefect.addProperty("Name", "Foo");
+        CreateRequest request = new CreateRequest("defect", newDefect);
+        doReturn(completed(response)).when(api.client).doPostAsync(request.toUrl(), request.getBody());
+
+        CreateResponse createResponse = api.async().create(request).get();
+
+        Assert.assertTrue(createResponse.wasSuccessful());
+        assertEquals(createResponse.getObject().get("_ref").getAsString(), "/defect/1234");
+    }
+
+    public void shouldUpdate() throws Exception {
+        JsonObject updatedDefect = new JsonObject();
+        updatedDefect.addProperty("Name", "Foo");
+        UpdateRequest request = new UpdateRequest("/defect/1234", updatedDefect);
+        doReturn(completed(buildResponse("OperationResult"))).when(api.client).doPostAsync(request.toUrl(), request.getBody());
+
+        Assert.assertTrue(api.async().update(request).get().wasSuccessful());
+        verify(api.client).doPostAsync(request.toUrl(), request.getBody());
+    }
+
+    public void shouldUpdateCollection() throws Exception {
+        JsonObject response = buildResponse("OperationResult");
+        response.getAsJsonObject("OperationResult").add("Results", new JsonArray());
+        CollectionUpdateRequest request = new CollectionUpdateRequest("/defect/1234/tags", new JsonArray(), true);
+        doReturn(completed(response)).when(api.client).doPostAsync(request.toUrl(), request.getBody());
+
+        Assert.assertTrue(api.async().updateCollection(request).get().wasSuccessful());
+        verify(api.client).doPostAsync(request.toUrl(), request.getBody());
+    }
+
+    public void shouldDelete() throws Exception {
+        DeleteRequest request = new DeleteRequest("/defect/1234");
+        doReturn(completed(buildResponse("OperationResult"))).when(api.client).doDeleteAsync(request.toUrl());
+
+        Assert.assertTrue(api.async().delete(request).get().wasSuccessful());
+        verify(api.client).doDeleteAsync(request.toUrl());
+    }
+
+    public void shouldStoreCreatedObjectInIdentityMap() throws Exception {
+        api.setIdentityMap(new IdentityMap());
+        JsonObject response = buildResponse("CreateResult");
+        JsonObject object = new JsonObject();
+        object.addProperty("_ref", "/defect/1234");
+        object.addProperty("Name", "Foo");
+        response.getAsJsonObject("CreateResult").add("Object", object);
+        CreateRequest request = new CreateRequest("defect", new JsonObject());
+        doReturn(completed(response)).when(api.client).doPostAsync(request.toUrl(), request.getBody());
+
+        api.async().create(request).get();
+
+        GetResponse getResponse = api.get(new GetRequest("/defect/1234"));
+        verify(api.client, times(0)).doGet(anyString());
+        assertEquals(getResponse.getObject().get("Name").getAsString(), "Foo");
+    }
+
+    public void shouldEvictFromIdentityMapOnUpdate() throws Exception {
+        IdentityMap identityMap = new IdentityMap();
+        api.setIdentityMap(identityMap);
+        JsonObject defect = new JsonObject();
+        defect.addProperty("_ref", "/defect/1234");
+        identityMap.put(defect, true);
+        UpdateRequest request = new UpdateRequest("/defect/1234", new JsonObject());
+        doReturn(new CompletableFuture<String>()).when(api.client).doPostAsync(request.toUrl(), request.getBody());
+
+        api.async().update(request);
+
+        assertEquals(identityMap.size(), 0);
+    }
+
+    public void shouldEvictFromIdentityMapOnDelete() throws Exception {
+        IdentityMap identityMap = new IdentityMap();
+        api.setIdentityMap(identityMap);
+        JsonObject defect = new JsonObject();
+        defect.addProperty("_ref", "/defect/1234");
+        identityMap.put(defect, true);
+        DeleteRequest request = new DeleteRequest("/defect/1234");
+        doReturn(completed(buildResponse("OperationResult"))).when(api.client).doDeleteAsync(request.toUrl());
+
+        api.async().delete(request).get();
+
+        assertEquals(identityMap.size(), 0);
+    }
+
+    public void shouldGet() throws Exception {
+        JsonObject response = buildResponse("Defect");
+        response.getAsJsonObject("Defect").addProperty("_ref", "/defect/1234");
+        GetRequest request = new GetRequest("/defect/1234");
+        doReturn(completed(response)).when(api.client).doGetAsync(request.toUrl());
+
+        GetResponse getResponse = api.async().get(request).get();
+
+        assertEquals(getResponse.getObject().get("_ref").getAsString(), "/defect/1234");
+    }
+
+    public void shouldGetFromIdentityMap() throws Exception {
+        IdentityMap identityMap = new IdentityMap();
+        api.setIdentityMap(identityMap);
+        JsonObject defect = new JsonObject();
+        defect.addProperty("_ref", "/defect/1234");
+        defect.addProperty("Name", "Foo");
+        identityMap.put(defect, true);
+
+        GetResponse getResponse = api.async().get(new GetRequest("/defect/1234")).get();
+
+        verify(api.client, times(0)).doGetAsync(anyString());
+        Assert.assertTrue(getResponse.wasSuccessful());
+        assertEquals(getResponse.getObject().get("Name").getAsString(), "Foo");
+    }
+
+    public void shouldStoreRetrievedObjectInIdentityMap() throws Exception {
+        api.setIdentityMap(new IdentityMap());
+        JsonObject response = buildResponse("Defect");
+        response.getAsJsonObject("Defect").addProperty("_ref", "/defect/1234");
+        response.getAsJsonObject("Defect").addProperty("Name", "Foo");
+        GetRequest request = new GetRequest("/defect/1234");
+        doReturn(completed(response)).when(api.client).doGetAsync(request.toUrl());
+
+        api.async().get(request).get();
+        GetResponse getResponse = api.async().get(request).get();
+
+        verify(api.client, times(1)).doGetAsync(anyString());
+        assertEquals(getResponse.getObject().get("Name").getAsString(), "Foo");
+    }
+
+    public void shouldSplitLongQuery() throws Exception {
+        QueryRequest request = new QueryRequest("Defect");
+        request.setOrder("ObjectID DESC");
+        request.setPageSize(3);
+        request.setQueryFilter(QueryFilter.or(new QueryFilter("FormattedID", "=", "DE1"),
+                new QueryFilter("FormattedID", "=", "DE2"), new QueryFilter("FormattedID", "=", "DE3")));
+        api.setMaxQueryUrlLength(api.getClient().getWsapiUrl().length() + request.toUrl().length() - 1);
+        List<QueryRequest> subQueries = api.splitQuery(request);
+        assertEquals(subQueries.size(), 2);
+        doReturn(completed(buildQueryResponse(2, 1, 2))).when(api.client).doGetAsync(subQueries.get(0).toUrl());
+        doReturn(completed(buildQueryResponse(2, 2, 3))).when(api.client).doGetAsync(subQueries.get(1).toUrl());
+        RequestListener listener = mock(RequestListener.class);
+        api.getClient().setRequestListener(listener);
+
+        QueryResponse queryResponse = api.async().query(request).get();
+
+        verify(api.client, times(2)).doGetAsync(anyString());
+        verify(listener).queryCompleted(eq(request.toUrl()), eq(3), anyLong());
+        JsonArray results = queryResponse.getResults();
+        assertEquals(results.size(), 3);
+        assertEquals(results.get(0).getAsJsonObject().get("_ref").getAsString(), "/defect/3");
+        assertEquals(results.get(2).getAsJsonObject().get("_ref").getAsString(), "/defect/1");
+    }
+
+    public void shouldQueryAllPages() throws Exception {
+        QueryRequest request = new QueryRequest("Defect");
+        request.setPageSize(1);
+        request.setLimit(Integer.MAX_VALUE);
+        String requestUrl = request.toUrl();
+        for (int start = 1; start <= 3; start++) {
+            doReturn(completed(buildQueryResponse(3, start))).when(api.client)
+                    .doGetAsync(requestUrl.replace("start=1", "start=" + start));
+        }
+
+        QueryResponse queryResponse = api.async().query(request).get();
+
+        verify(api.client, times(3)).doGetAsync(anyString());
+        JsonArray results = queryResponse.getResults();
+        assertEquals(results.size(), 3);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(results.get(i).getAsJsonObject().get("_ref").getAsString(), "/defect/" + (i + 1));
+        }
+    }
+
+    public void shouldLimitPagesInFlight() throws Exception {
+        QueryRequest request = new QueryRequest("Defect");
+        request.setPageSize(1);
+        request.setLimit(Integer.MAX_VALUE);
+        String requestUrl = request.toUrl();
+        doReturn(completed(buildQueryResponse(5, 1))).when(api.client).doGetAsync(requestUrl);
+        List<CompletableFuture<String>> pages = new ArrayList<CompletableFuture<String>>();
+        for (int start = 2; start <= 5; start++) {
+            CompletableFuture<String> page = new CompletableFuture<String>();
+            pages.add(page);
+            doReturn(page).when(api.client).doGetAsync(requestUrl.replace("start=1", "start=" + start));
+        }
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            api.setParallelPaging(executor, 2);
+            CompletableFuture<QueryResponse> queryResponse = api.async().query(request);
+
+            verify(api.client, times(3)).doGetAsync(anyString());
+            pages.get(0).complete(new Gson().toJson(buildQueryResponse(5, 2)));
+            verify(api.client, times(4)).doGetAsync(anyString());
+            pages.get(1).complete(new Gson().toJson(buildQueryResponse(5, 3)));
+            verify(api.client, times(5)).doGetAsync(anyString());
+            Assert.assertFalse(queryResponse.isDone());
+            pages.get(2).complete(new Gson().toJson(buildQueryResponse(5, 4)));
+            pages.get(3).complete(new Gson().toJson(buildQueryResponse(5, 5)));
+            assertEquals(queryResponse.get().getResults().size(), 5);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public void shouldReportFailedPage() throws Exception {
+        QueryRequest request = new QueryRequest("Defect");
+        request.setPageSize(1);
+        request.setLimit(Integer.MAX_VALUE);
+        String requestUrl = request.toUrl();
+        for (int start = 1; start <= 3; start++) {
+            JsonObject response = buildQueryResponse(3, start);
+            if (start == 3) {
+                response.getAsJsonObject("QueryResult").getAsJsonArray("Errors").add(new JsonPrimitive("Page failed"));
+            }
+            doReturn(completed(response)).when(api.client)
+                    .doGetAsync(requestUrl.replace("start=1", "start=" + start));
+        }
+
+        QueryResponse queryResponse = api.async().query(request).get();
+
+        Assert.assertFalse(queryResponse.wasSuccessful());
+        assertEquals(queryResponse.getErrors(), new String[]{"Page failed"});
+    }
+
+    public void shouldQueryAllPagesByKeyset() throws Exception {
+        QueryRequest request = new QueryRequest("Defect");
+        request.setPageSize(1);
+        request.setLimit(Integer.MAX_VALUE);
+        request.setKeysetPaging(true);
+        doReturn(completed(buildQueryResponse(2, 1))).when(api.client).doGetAsync(request.toUrl());
+        doReturn(completed(buildQueryResponse(1, 2))).when(api.client).doGetAsync(request.getKeysetPageRequest("1").toUrl());
+
+        QueryResponse queryResponse = api.async().query(request).get();
+
+        verify(api.client, times(2)).doGetAsync(anyString());
+        assertEquals(queryResponse.getResults().size(), 2);
+    }
+
+    public void shouldCompleteExceptionallyOnFailure() throws Exception {
+        CompletableFuture<String> failed = new CompletableFuture<String>();
+        failed.completeExceptionally(new IOException("HTTP/1.1 500 Internal Server Error"));
+        GetRequest request = new GetRequest("/defect/1234");
+        doReturn(failed).when(api.client).doGetAsync(request.toUrl());
+
+        try {
+            api.async().get(request).get();
+            Assert.fail("Expected failure");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    private static CompletableFuture<String> completed(JsonObject response) {
+        return CompletableFuture.completedFuture(new Gson().toJson(response));
+    }
+
+    private static JsonObject buildResponse(String root) {
+        JsonObject response = new JsonObject();
+        JsonObject result = new JsonObject();
+        response.add(root, result);
+        result.add("Errors", new JsonArray());
+        result.add("Warnings", new JsonArray());
+        return response;
+    }
+
+    private static JsonObject buildQueryResponse(int totalResultCount, int... oids) {
+        JsonObject response = buildResponse("QueryResult");
+        JsonObject queryResult = response.getAsJsonObject("QueryResult");
+        JsonArray results = new JsonArray();
+        for (int oid : oids) {
+            JsonObject result = new JsonObject();
+            result.addProperty("_ref", "/defect/" + oid);
+            result.addProperty("ObjectID", oid);
+            results.add(result);
+        }
+        queryResult.add("Results", results);
+        queryResult.addProperty("TotalResultCount", totalResultCount);
+        return response;
+    }
+}
@@ -0,0 +1,182 @@
+package com.rallydev.rest;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.rallydev.rest.util.Fetch;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.mockito.Mockito.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.assertEquals;
+
+@Test
+public class ObjectLoaderTest {
+    private static final Pattern OBJECT_ID = Pattern.compile("ObjectID = (\\d+)");
+
+    private RallyRestApi api;
+    private List<String> urls;
+    private List<Integer> urlLengths;
+
+    @BeforeMethod
+    protected void setUp() throws Exception {
+        api = new RallyRestApi(new URI("https://someServer.rallydev.com"), "_1adfkj234fjlk");
+        api.client = spy(api.client);
+        urls = new ArrayList<String>();
+        urlLengths = new ArrayList<Integer>();
+        doAnswer(new Answer<String>() {
+            public String answer(InvocationOnMock invocation) throws Throwable {
+                String url = URLDecoder.decode((String) invocation.getArguments()[0], "utf-8");
+                urls.add(url);
+                urlLengths.add(api.getClient().getWsapiUrl().length() + ((String) invocation.getArguments()[0]).length());
+                String type = url.substring(1, url.indexOf(".js"));
+                JsonArray results = new JsonArray();
+                Matcher matcher = OBJECT_ID.matcher(url);
+                while (matcher.find()) {
+                    String oid = matcher.group(1);
+                    if (!oid.equals("404")) {
+                        JsonObject result = new JsonObject();
+                        result.addProperty("_ref", "/" + type + "/" + oid);
+                        result.addProperty("ObjectID", Long.parseLong(oid));
+                        results.add(result);
+                    }
+                }
+                JsonObject queryResult = new JsonObject();
+                queryResult.add("Errors", new JsonArray());
+                queryResult.add("Warnings", new JsonArray());
+                queryResult.add("Results", results);
+                queryResult.addProperty("TotalResultCount", results.size());
+                JsonObject response = new JsonObject();
+                response.add("QueryResult", queryResult);
+                return new Gson().toJson(response);
+            }
+        }).when(api.client).doGet(anyString());
+    }
+
+    public void shouldLoadObjectsWithOneQueryPerType() throws Exception {
+        ObjectLoader loader = new ObjectLoader(api, new Fetch("Name"));
+        List<JsonObject> objects = loader.loadAll(Arrays.asList(
+                "/defect/1", "https://rally1.rallydev.com/slm/webservice/v2.0/hierarchicalrequirement/2",
+                "/defect/3", "/defect/404", "/portfolioitem/feature/4"));
+
+        assertEquals(urls.size(), 3);
+        Assert.assertTrue(urls.get(0).startsWith("/defect.js?"));
+        Assert.assertTrue(urls.get(0).contains("query=(((ObjectID = 1) OR (ObjectID = 3)) OR (ObjectID = 404))"));
+        Assert.assertTrue(urls.get(0).contains("fetch=Name,ObjectID"));
+        Assert.assertTrue(urls.get(0).contains("project=null"));
+        Assert.assertTrue(urls.get(1).startsWith("/hierarchicalrequirement.js?"));
+        Assert.assertTrue(urls.get(2).startsWith("/portfolioitem/feature.js?"));
+        assertEquals(objects.get(0).get("_ref").getAsString(), "/defect/1");
+        assertEquals(objects.get(1).get("_ref").getAsString(), "/hierarchicalrequirement/2");
+        assertEquals(objects.get(2).get("_ref").getAsString(), "/defect/3");
+        Assert.assertNull(objects.get(3));
+        assertEquals(objects.get(4).get("_ref").getAsString(), "/portfolioitem/feature/4");
+    }
+
+    public void shouldGiveEachCallerItsOwnObject() throws Exception {
+        ObjectLoader loader = new ObjectLoader(api);
+        CompletableFuture<JsonObject> first = loader.load("/defect/1");
+        CompletableFuture<JsonObject> second = loader.load("/defect/1");
+        Assert.assertFalse(first.isDone());
+        loader.dispatch();
+
+        verify(api.client, times(1)).doGet(anyString());
+        Assert.assertTrue(urls.get(0).contains("fetch=true"));
+        assertEquals(first.get(), second.get());
+        Assert.assertNotSame(first.get(), second.get());
+    }
+
+    public void shouldSplitQueriesByUrlLength() throws Exception {
+        ObjectLoader loader = new ObjectLoader(api);
+        loader.setMaxUrlLength(api.getClient().getWsapiUrl().length() + 250);
+        List<String> refs = new ArrayList<String>();
+        for (int i = 1000; i < 1100; i++) {
+            refs.add("/defect/" + i);
+        }
+        List<JsonObject> objects = loader.loadAll(refs);
+
+        Assert.assertTrue(urls.size() > 1);
+        for (int length : urlLengths) {
+            Assert.assertTrue(length <= loader.getMaxUrlLength());
+            Assert.assertTrue(length > loader.getMaxUrlLength() - 30 || length == urlLengths.get(urlLengths.size() - 1));
+        }
+        for (int i = 0; i < refs.size(); i++) {
+            assertEquals(objects.get(i).get("_ref").getAsString(), refs.get(i));
+        }
+    }
+
+    public void shouldSplitQueriesByBatchSize() throws Exception {
+        ObjectLoader loader = new ObjectLoader(api);
+        loader.setMaxBatchSize(2);
+        loader.loadAll(Arrays.asList("/defect/1", "/defect/2", "/defect/3"));
+        assertEquals(urls.size(), 2);
+        Assert.assertTrue(urls.get(1).contains("pagesize=1"));
+    }
+
+    public void shouldPartitionWithinUrlLength() {
+        ObjectLoader loader = new ObjectLoader(api);
+        loader.setMaxUrlLength(api.getClient().getWsapiUrl().length() + 300);
+        List<String> objectIds = new ArrayList<String>();
+        for (int i = 0; i < 50; i++) {
+            objectIds.add(Integer.toString(100000 + i));
+        }
+        List<List<String>> chunks = loader.partition("defect", objectIds);
+        int total = 0;
+        for (List<String> chunk : chunks) {
+            Assert.assertFalse(chunk.isEmpty());
+            total += chunk.size();
+        }
+        assertEquals(total, objectIds.size());
+    }
+
+    public void shouldFailAllCallersOfFailedQuery() throws Exception {
+        doThrow(new IOException("Service unavailable")).when(api.client).doGet(anyString());
+        ObjectLoader loader = new ObjectLoader(api);
+        try {
+            loader.loadAll(Arrays.asList("/defect/1", "/defect/2"));
+            Assert.fail("Expected IOException");
+        } catch (IOException e) {
+            assertEquals(e.getMessage(), "Service unavailable");
+        }
+    }
+
+    public void shouldDispatchAfterBatchWindow() throws Exception {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            ObjectLoader loader = new ObjectLoader(api);
+            loader.setBatchWindow(scheduler, 10);
+            CompletableFuture<JsonObject> first = loader.load("/defect/1");
+            CompletableFuture<JsonObject> second = loader.load("/defect/2");
+            assertEquals(first.get().get("_ref").getAsString(), "/defect/1");
+            assertEquals(second.get().get("_ref").getAsString(), "/defect/2");
+            verify(api.client, times(1)).doGet(anyString());
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectCollectionRef() {
+        new ObjectLoader(api).load("/defect/1/tasks");
+    }
+}
@@ -0,0 +1,139 @@
+package com.rallydev.rest;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.rallydev.rest.request.QueryRequest;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.mockito.Mockito.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.assertEquals;
+
+@Test
+public class QueryResultsTest {
+    private RallyRestApi api;
+
+    @BeforeMethod
+    protected void setUp() throws Exception {
+        api = new RallyRestApi(new URI("https://someServer.rallydev.com"), "_1adfkj234fjlk");
+        api.client = spy(api.client);
+    }
+
+    public void shouldNotQueryUntilIterated() throws Exception {
+        api.iterate(new QueryRequest("Defect"));
+        verify(api.client, times(0)).doGet(anyString());
+    }
+
+    public void shouldFetchPagesOnDemand() throws Exception {
+        QueryRequest request = new QueryRequest("Defect");
+        request.setPageSize(2);
+        request.setLimit(Integer.MAX_VALUE);
+        String requestUrl = request.toUrl();
+        doReturn(buildQueryResponse(3, 1, 2)).when(api.client).doGet(requestUrl);
+        doReturn(buildQueryResponse(3, 3)).when(api.client).doGet(requestUrl.replace("start=1", "start=3"));
+
+        Iterator<JsonObject> results = api.iterate(request).iterator();
+        assertEquals(results.next().get("_ref").getAsString(), "/defect/1");
+        assertEquals(results.next().get("_ref").getAsString(), "/defect/2");
+        verify(api.client, times(1)).doGet(anyString());
+
+        assertEquals(results.next().get("_ref").getAsString(), "/defect/3");
+        Assert.assertFalse(results.hasNext());
+        verify(api.client, times(2)).doGet(anyString());
+    }
+
+    public void shouldReturnOnePageWithoutLimit() throws Exception {
+        QueryRequest request = new QueryRequest("Defect");
+        request.setPageSize(2);
+        doReturn(buildQueryResponse(3, 1, 2)).when(api.client).doGet(anyString());
+
+        List<JsonObject> results = api.iterate(request).stream().collect(Collectors.toList());
+
+        assertEquals(results.size(), 2);
+        verify(api.client, times(1)).doGet(anyString());
+    }
+
+    public void shouldStreamAllPages() throws Exception {
+        QueryRequest request = new QueryRequest("Defect");
+        request.setPageSize(1);
+        request.setLimit(Integer.MAX_VALUE);
+        String requestUrl = request.toUrl();
+        for (int start = 1; start <= 4; start++) {
+            doReturn(buildQueryResponse(4, start)).when(api.client).doGet(requestUrl.replace("start=1", "start=" + start));
+        }
+
+        List<String> refs = api.iterate(request).stream()
+                .map(o -> o.get("_ref").getAsString())
+                .collect(Collectors.toList());
+
+        assertEquals(refs.size(), 4);
+        assertEquals(refs.get(3), "/defect/4");
+        verify(api.client, times(4)).doGet(anyString());
+    }
+
+    public void shouldStreamAllPagesByKeyset() throws Exception {
+        QueryRequest request = new QueryRequest("Defect");
+        request.setPageSize(2);
+        request.setLimit(Integer.MAX_VALUE);
+        request.setKeysetPaging(true);
+        doReturn(buildQueryResponse(3, 1, 2)).when(api.client).doGet(request.toUrl());
+        doReturn(buildQueryResponse(1, 3)).when(api.client).doGet(request.getKeysetPageRequest("2").toUrl());
+
+        List<JsonObject> results = api.iterate(request).stream().collect(Collectors.toList());
+
+        assertEquals(results.size(), 3);
+        verify(api.client, times(2)).doGet(anyString());
+    }
+
+    public void shouldHandleEmptyResults() throws Exception {
+        QueryRequest request = new QueryRequest("Defect");
+        request.setLimit(10);
+        doReturn(buildQueryResponse(0)).when(api.client).doGet(anyString());
+
+        Assert.assertFalse(api.iterate(request).iterator().hasNext());
+        verify(api.client, times(1)).doGet(anyString());
+    }
+
+    @Test(expectedExceptions = UncheckedIOException.class)
+    public void shouldFailOnErrors() throws Exception {
+        JsonObject response = new JsonObject();
+        JsonObject queryResult = new JsonObject();
+        response.add("QueryResult", queryResult);
+        JsonArray errors = new JsonArray();
+        errors.add("Could not parse");
+        queryResult.add("Errors", errors);
+        queryResult.add("Warnings", new JsonArray());
+        doReturn(new Gson().toJson(response)).when(api.client).doGet(anyString());
+
+        api.iterate(new QueryRequest("Defect")).iterator().hasNext();
+    }
+
+    private String buildQueryResponse(int totalResultCount, int... oids) {
+        JsonObject response = new JsonObject();
+        JsonObject queryResult = new JsonObject();
+        response.add("QueryResult", queryResult);
+        queryResult.add("Errors", new JsonArray());
+        queryResult.add("Warnings", new JsonArray());
+        JsonArray results = new JsonArray();
+        for (int oid : oids) {
+            JsonObject result = new JsonObject();
+            result.addProperty("_ref", "/defect/" + oid);
+            results.add(result);
+        }
+        queryResult.add("Results", results);
+        queryResult.addProperty("TotalResultCount", totalResultCount);
+        return new Gson().toJson(response);
+    }
+}
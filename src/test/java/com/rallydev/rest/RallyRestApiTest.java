@@ -3,18 +3,37 @@ package com.rallydev.rest;
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
 import com.rallydev.rest.client.ApiKeyClient;
 import com.rallydev.rest.client.BasicAuthClient;
+import com.rallydev.rest.client.JsonResponseHandler;
+import com.rallydev.rest.client.RequestListener;
 import com.rallydev.rest.request.*;
 import com.rallydev.rest.response.*;
+import com.rallydev.rest.util.Fetch;
+import com.rallydev.rest.util.IdentityMap;
+import com.rallydev.rest.util.QueryFilter;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.net.URI;
-
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyLong;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -165,6 +184,176 @@ public class RallyRestApiTest {
         Assert.assertTrue(deleteResponse.wasSuccessful());
     }
 
+    public void shouldBatch() throws Exception {
+        JsonObject newDefect = new JsonObject();
+        newDefect.addProperty("Name", "Foo");
+        CreateRequest create = new CreateRequest("defect", newDefect);
+        DeleteRequest delete = new DeleteRequest("/defect/2345");
+        DeleteRequest failedDelete = new DeleteRequest("/defect/3456");
+        BatchRequest request = new BatchRequest(create, delete, failedDelete);
+
+        JsonObject response = new JsonObject();
+        JsonObject batchResult = new JsonObject();
+        response.add("BatchResult", batchResult);
+        batchResult.add("Errors", new JsonArray());
+        batchResult.add("Warnings", new JsonArray());
+        JsonArray results = new JsonArray();
+        JsonObject createResult = new JsonObject();
+        JsonObject object = new JsonObject();
+        object.addProperty("_ref", "/defect/1234");
+        createResult.add("Object", object);
+        results.add(createResult);
+        results.add(new JsonObject());
+        JsonObject failedResult = new JsonObject();
+        JsonArray errors = new JsonArray();
+        errors.add("Not found");
+        failedResult.add("Errors", errors);
+        results.add(failedResult);
+        batchResult.add("Results", results);
+
+        doReturn(new Gson().toJson(response)).when(api.client).doPost(request.toUrl(), request.getBody());
+        List<Response> responses = api.batch(request);
+
+        verify(api.client).doPost(request.toUrl(), request.getBody());
+        assertEquals(responses.size(), 3);
+        CreateResponse createResponse = (CreateResponse) responses.get(0);
+        Assert.assertTrue(createResponse.wasSuccessful());
+        assertEquals(createResponse.getObject().get("_ref").getAsString(), "/defect/1234");
+        Assert.assertTrue(responses.get(1) instanceof DeleteResponse);
+        Assert.assertTrue(responses.get(1).wasSuccessful());
+        Assert.assertFalse(responses.get(2).wasSuccessful());
+        assertEquals(responses.get(2).getErrors()[0], "Not found");
+    }
+
+    public void shouldBatchInPartitions() throws Exception {
+        BatchRequest request = new BatchRequest(new DeleteRequest("/defect/1"), new DeleteRequest("/defect/2"),
+                new DeleteRequest("/defect/3"));
+        request.setMaxEntries(2);
+        List<BatchRequest> batches = request.partition();
+
+        JsonObject first = new JsonObject();
+        JsonObject firstResult = new JsonObject();
+        first.add("BatchResult", firstResult);
+        firstResult.add("Errors", new JsonArray());
+        firstResult.add("Warnings", new JsonArray());
+        JsonArray results = new JsonArray();
+        results.add(new JsonObject());
+        results.add(new JsonObject());
+        firstResult.add("Results", results);
+
+        JsonObject second = new JsonObject();
+        JsonObject secondResult = new JsonObject();
+        second.add("BatchResult", secondResult);
+        JsonArray errors = new JsonArray();
+        errors.add("Batch failed");
+        secondResult.add("Errors", errors);
+        secondResult.add("Warnings", new JsonArray());
+
+        doReturn(new Gson().toJson(first)).when(api.client).doPost(batches.get(0).toUrl(), batches.get(0).getBody());
+        doReturn(new Gson().toJson(second)).when(api.client).doPost(batches.get(1).toUrl(), batches.get(1).getBody());
+        List<Response> responses = api.batch(request);
+
+        assertEquals(responses.size(), 3);
+        Assert.assertTrue(responses.get(0).wasSuccessful());
+        Assert.assertTrue(responses.get(1).wasSuccessful());
+        Assert.assertFalse(responses.get(2).wasSuccessful());
+        assertEquals(responses.get(2).getErrors()[0], "Batch failed");
+    }
+
+    public void shouldGetCreatedObjectFromIdentityMap() throws Exception {
+        api.setIdentityMap(new IdentityMap());
+        JsonObject response = new JsonObject();
+        JsonObject createResult = new JsonObject();
+        response.add("CreateResult", createResult);
+        createResult.add("Errors", new JsonArray());
+        createResult.add("Warnings", new JsonArray());
+        JsonObject object = new JsonObject();
+        object.addProperty("_ref", "https://rally1.rallydev.com/slm/webservice/v2.0/defect/1234");
+        object.addProperty("_type", "Defect");
+        object.addProperty("Name", "Foo");
+        createResult.add("Object", object);
+
+        JsonObject newDefect = new JsonObject();
+        newDefect.addProperty("Name", "Foo");
+        CreateRequest request = new CreateRequest("defect", newDefect);
+        doReturn(new Gson().toJson(response)).when(api.client).doPost(request.toUrl(), request.getBody());
+        api.create(request);
+
+        GetResponse getResponse = api.get(new GetRequest("/defect/1234"));
+        verify(api.client, times(0)).doGet(anyString());
+        Assert.assertTrue(getResponse.wasSuccessful());
+        assertEquals(getResponse.getObject().get("Name").getAsString(), "Foo");
+        assertEquals(getResponse.getObject().get("_type").getAsString(), "Defect");
+    }
+
+    public void shouldRefreshIdentityMapOnUpdate() throws Exception {
+        api.setIdentityMap(new IdentityMap());
+        JsonObject response = new JsonObject();
+        JsonObject updateResult = new JsonObject();
+        response.add("OperationResult", updateResult);
+        updateResult.add("Errors", new JsonArray());
+        updateResult.add("Warnings", new JsonArray());
+        JsonObject object = new JsonObject();
+        object.addProperty("_ref", "/defect/1234");
+        object.addProperty("Name", "Bar");
+        updateResult.add("Object", object);
+
+        JsonObject updatedDefect = new JsonObject();
+        updatedDefect.addProperty("Name", "Bar");
+        UpdateRequest request = new UpdateRequest("/defect/1234", updatedDefect);
+        request.setFetch(new Fetch("Name"));
+        doReturn(new Gson().toJson(response)).when(api.client).doPost(request.toUrl(), request.getBody());
+        api.update(request);
+
+        GetRequest covered = new GetRequest("/defect/1234");
+        covered.setFetch(new Fetch("Name"));
+        assertEquals(api.get(covered).getObject().get("Name").getAsString(), "Bar");
+        verify(api.client, times(0)).doGet(anyString());
+
+        GetRequest uncovered = new GetRequest("/defect/1234");
+        doReturn("{\"Defect\": {\"_ref\": \"/defect/1234\", \"Name\": \"Bar\", \"State\": \"Open\", \"Errors\": [], \"Warnings\": []}}")
+                .when(api.client).doGet(uncovered.toUrl());
+        assertEquals(api.get(uncovered).getObject().get("State").getAsString(), "Open");
+        verify(api.client).doGet(uncovered.toUrl());
+
+        assertEquals(api.get(new GetRequest("/defect/1234")).getObject().get("State").getAsString(), "Open");
+        verify(api.client).doGet(uncovered.toUrl());
+    }
+
+    public void shouldEvictFromIdentityMapOnDelete() throws Exception {
+        IdentityMap identityMap = new IdentityMap();
+        api.setIdentityMap(identityMap);
+        JsonObject defect = new JsonObject();
+        defect.addProperty("_ref", "/defect/1234");
+        identityMap.put(defect, true);
+
+        DeleteRequest request = new DeleteRequest("/defect/1234");
+        doReturn("{\"OperationResult\": {\"Errors\": [], \"Warnings\": []}}").when(api.client).doDelete(request.toUrl());
+        api.delete(request);
+
+        assertEquals(identityMap.size(), 0);
+    }
+
+    public void shouldEvictOwnerFromIdentityMapOnCollectionUpdate() throws Exception {
+        IdentityMap identityMap = new IdentityMap();
+        api.setIdentityMap(identityMap);
+        JsonObject defect = new JsonObject();
+        defect.addProperty("_ref", "/defect/1234");
+        identityMap.put(defect, true);
+
+        JsonArray tags = new JsonArray();
+        JsonObject tag = new JsonObject();
+        tag.addProperty("_ref", "/tag/23456");
+        tags.add(tag);
+        CollectionUpdateRequest request = new CollectionUpdateRequest("/defect/1234/tags", tags, true);
+        doReturn("{\"OperationResult\": {\"Errors\": [], \"Warnings\": [], \"Results\": [{\"_ref\": \"/tag/23456\", \"Name\": \"Foo\"}]}}")
+                .when(api.client).doPost(request.toUrl(), request.getBody());
+        api.updateCollection(request);
+
+        Assert.assertNull(identityMap.get("/defect/1234", new Fetch()));
+        assertEquals(identityMap.get("/tag/23456", new Fetch()).get("Name").getAsString(), "Foo");
+    }
+
     public void shouldGet() throws Exception {
         JsonObject response = new JsonObject();
         JsonObject defect = new JsonObject();
@@ -183,6 +372,42 @@ public class RallyRestApiTest {
         assertEquals(obj.get("_ref").getAsString(), "/defect/1234");
     }
 
+    public void shouldGetWithStreamingResponses() throws Exception {
+        JsonObject response = new JsonObject();
+        JsonObject defect = new JsonObject();
+        response.add("Defect", defect);
+        defect.add("Errors", new JsonArray());
+        defect.add("Warnings", new JsonArray());
+        defect.addProperty("_ref", "/defect/1234");
+
+        GetRequest request = new GetRequest("/defect/1234");
+        doReturn(response).when(api.client).doGet(eq(request.toUrl()), any(JsonResponseHandler.class));
+        api.setStreamingResponses(true);
+        GetResponse getResponse = api.get(request);
+
+        verify(api.client, times(0)).doGet(anyString());
+        Assert.assertTrue(getResponse.wasSuccessful());
+        assertEquals(getResponse.getObject().get("_ref").getAsString(), "/defect/1234");
+    }
+
+    public void shouldCreateWithStreamingResponses() throws Exception {
+        JsonObject response = new JsonObject();
+        JsonObject createResult = new JsonObject();
+        response.add("CreateResult", createResult);
+        createResult.add("Errors", new JsonArray());
+        createResult.add("Warnings", new JsonArray());
+        JsonObject object = new JsonObject();
+        object.addProperty("_ref", "/defect/1234");
+        createResult.add("Object", object);
+
+        CreateRequest request = new CreateRequest("defect", new JsonObject());
+        doReturn(response).when(api.client).doPost(eq(request.toUrl()), eq(request.getBody()), any(JsonResponseHandler.class));
+        api.setStreamingResponses(true);
+        CreateResponse createResponse = api.create(request);
+
+        assertEquals(createResponse.getObject().get("_ref").getAsString(), "/defect/1234");
+    }
+
     public void shouldQueryOnePage() throws Exception {
         JsonObject response = buildQueryResponse(5);
         QueryRequest request = new QueryRequest("Defect");
@@ -196,6 +421,49 @@ public class RallyRestApiTest {
         assertEquals(queryResponse.getTotalResultCount(), 5);
     }
 
+    public void shouldReportParsingAndQueriesToListener() throws Exception {
+        RequestListener listener = mock(RequestListener.class);
+        doReturn(listener).when(api.client).getRequestListener();
+        String response = new Gson().toJson(buildQueryResponse(5));
+        QueryRequest request = new QueryRequest("Defect");
+        request.setPageSize(1);
+        doReturn(response).when(api.client).doGet(request.toUrl());
+        QueryResponse queryResponse = api.query(request);
+
+        verify(listener).responseParsed(eq("GET"), eq(request.toUrl()), eq(response.length()), anyLong());
+        verify(listener).queryCompleted(eq(request.toUrl()), eq(queryResponse.getResults().size()), anyLong());
+    }
+
+    public void shouldRecordQueryPages() throws Exception {
+        JsonObject response = buildQueryResponse(5);
+        QueryRequest request = new QueryRequest("Defect");
+        request.setPageSize(2);
+        request.setLimit(Integer.MAX_VALUE);
+        doReturn(new Gson().toJson(response)).when(api.client).doGet(anyString());
+        try (Recording recording = new Recording()) {
+            recording.enable("com.rallydev.rest.QueryPage");
+            recording.start();
+            api.query(request);
+            recording.stop();
+
+            Path file = Files.createTempFile("rally-rest-api", ".jfr");
+            recording.dump(file);
+            List<RecordedEvent> events = new ArrayList<RecordedEvent>();
+            for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+                if (event.getEventType().getName().equals("com.rallydev.rest.QueryPage") &&
+                        event.getThread().getJavaThreadId() == Thread.currentThread().getId()) {
+                    events.add(event);
+                }
+            }
+            Files.delete(file);
+            assertEquals(events.size(), 3);
+            assertEquals(events.get(0).getString("path"), "/defect.js");
+            assertEquals(events.get(0).getString("type"), "defect");
+            assertEquals(events.get(0).getInt("pageSize"), 2);
+            assertEquals(events.get(2).getInt("start"), 5);
+        }
+    }
+
     public void shouldQueryAllPages() throws Exception {
         JsonObject response = buildQueryResponse(5);
         QueryRequest request = new QueryRequest("Defect");
@@ -282,18 +550,256 @@ public class RallyRestApiTest {
         verify(api.client).doGet(requestUrl.replace("start=5", "start=10"));
     }
 
+    public void shouldQueryAllPagesInParallel() throws Exception {
+        QueryRequest request = new QueryRequest("Defect");
+        request.setPageSize(1);
+        request.setLimit(Integer.MAX_VALUE);
+        String requestUrl = request.toUrl();
+        for (int start = 1; start <= 5; start++) {
+            JsonObject response = buildQueryResponse(5);
+            JsonObject result = new JsonObject();
+            result.addProperty("_ref", "/defect/" + start);
+            response.getAsJsonObject("QueryResult").getAsJsonArray("Results").add(result);
+            doReturn(new Gson().toJson(response)).when(api.client).doGet(requestUrl.replace("start=1", "start=" + start));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            api.setParallelPaging(executor, 2);
+            QueryResponse queryResponse = api.query(request);
+
+            verify(api.client, times(5)).doGet(anyString());
+            JsonArray results = queryResponse.getResults();
+            assertEquals(results.size(), 5);
+            for (int i = 0; i < 5; i++) {
+                assertEquals(results.get(i).getAsJsonObject().get("_ref").getAsString(), "/defect/" + (i + 1));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public void shouldQuerySomePagesInParallel() throws Exception {
+        JsonObject response = buildQueryResponse(5);
+
+        QueryRequest request = new QueryRequest("Defect");
+        request.setPageSize(2);
+        request.setLimit(4);
+        doReturn(new Gson().toJson(response)).when(api.client).doGet(anyString());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            api.setParallelPaging(executor, 4);
+            api.query(request);
+        } finally {
+            executor.shutdown();
+        }
+
+        String requestUrl = request.toUrl();
+        verify(api.client, times(2)).doGet(anyString());
+        verify(api.client).doGet(requestUrl);
+        verify(api.client).doGet(requestUrl.replace("start=1", "start=3"));
+    }
+
+    public void shouldReportFailedPageInParallel() throws Exception {
+        QueryRequest request = new QueryRequest("Defect");
+        request.setPageSize(1);
+        request.setLimit(Integer.MAX_VALUE);
+        String requestUrl = request.toUrl();
+        for (int start = 1; start <= 3; start++) {
+            JsonObject response = buildQueryResponse(3, start);
+            if (start == 2) {
+                response.getAsJsonObject("QueryResult").getAsJsonArray("Errors").add(new JsonPrimitive("Page failed"));
+            }
+            doReturn(new Gson().toJson(response)).when(api.client).doGet(requestUrl.replace("start=1", "start=" + start));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            api.setParallelPaging(executor, 2);
+            QueryResponse queryResponse = api.query(request);
+
+            Assert.assertFalse(queryResponse.wasSuccessful());
+            assertEquals(queryResponse.getErrors(), new String[]{"Page failed"});
+            assertEquals(queryResponse.getTotalResultCount(), 3);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public void shouldReportFailedPageByKeyset() throws Exception {
+        QueryRequest request = new QueryRequest("Defect");
+        request.setPageSize(2);
+        request.setLimit(Integer.MAX_VALUE);
+        request.setKeysetPaging(true);
+        JsonObject failedPage = buildQueryResponse(3);
+        failedPage.getAsJsonObject("QueryResult").getAsJsonArray("Errors").add(new JsonPrimitive("Page failed"));
+        doReturn(new Gson().toJson(buildQueryResponse(5, 1, 2))).when(api.client).doGet(request.toUrl());
+        doReturn(new Gson().toJson(failedPage)).when(api.client).doGet(request.getKeysetPageRequest("2").toUrl());
+
+        QueryResponse queryResponse = api.query(request);
+
+        verify(api.client, times(2)).doGet(anyString());
+        Assert.assertFalse(queryResponse.wasSuccessful());
+        assertEquals(queryResponse.getErrors(), new String[]{"Page failed"});
+        assertEquals(queryResponse.getResults().size(), 2);
+    }
+
+    public void shouldQueryAllPagesByKeyset() throws Exception {
+        QueryRequest request = new QueryRequest("Defect");
+        request.setPageSize(2);
+        request.setLimit(Integer.MAX_VALUE);
+        request.setKeysetPaging(true);
+        doReturn(new Gson().toJson(buildQueryResponse(5, 1, 2))).when(api.client).doGet(request.toUrl());
+        doReturn(new Gson().toJson(buildQueryResponse(3, 3, 4))).when(api.client).doGet(request.getKeysetPageRequest("2").toUrl());
+        doReturn(new Gson().toJson(buildQueryResponse(1, 5))).when(api.client).doGet(request.getKeysetPageRequest("4").toUrl());
+
+        QueryResponse queryResponse = api.query(request);
+
+        verify(api.client, times(3)).doGet(anyString());
+        JsonArray results = queryResponse.getResults();
+        assertEquals(results.size(), 5);
+        assertEquals(results.get(4).getAsJsonObject().get("_ref").getAsString(), "/defect/5");
+        assertEquals(queryResponse.getTotalResultCount(), 5);
+    }
+
+    public void shouldStopKeysetPagingAtLimit() throws Exception {
+        QueryRequest request = new QueryRequest("Defect");
+        request.setPageSize(2);
+        request.setLimit(4);
+        request.setKeysetPaging(true);
+        doReturn(new Gson().toJson(buildQueryResponse(10, 1, 2))).when(api.client).doGet(request.toUrl());
+        doReturn(new Gson().toJson(buildQueryResponse(8, 3, 4))).when(api.client).doGet(request.getKeysetPageRequest("2").toUrl());
+
+        QueryResponse queryResponse = api.query(request);
+
+        verify(api.client, times(2)).doGet(anyString());
+        assertEquals(queryResponse.getResults().size(), 4);
+    }
+
+    public void shouldNotSplitShortQuery() throws Exception {
+        QueryRequest request = new QueryRequest("Defect");
+        request.setQueryFilter(new QueryFilter("FormattedID", "=", "DE1").or(new QueryFilter("FormattedID", "=", "DE2")));
+        Assert.assertNull(api.splitQuery(request));
+        api.setMaxQueryUrlLength(10000);
+        Assert.assertNull(api.splitQuery(request));
+        api.setMaxQueryUrlLength(10);
+        request.setQueryFilter(new QueryFilter("FormattedID", "=", "DE1").and(new QueryFilter("Name", "=", "foo")));
+        Assert.assertNull(api.splitQuery(request));
+    }
+
+    public void shouldSplitLongQuery() throws Exception {
+        QueryRequest request = new QueryRequest("Defect");
+        request.setFetch(new Fetch("FormattedID"));
+        request.setOrder("Name DESC");
+        QueryFilter[] ids = new QueryFilter[100];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = new QueryFilter("FormattedID", "=", "DE" + (1000 + i));
+        }
+        request.setQueryFilter(new QueryFilter("State", "=", "Open").and(QueryFilter.or(ids)));
+        int maxLength = api.getClient().getWsapiUrl().length() + request.toUrl().length() / 3;
+        api.setMaxQueryUrlLength(maxLength);
+
+        List<QueryRequest> subQueries = api.splitQuery(request);
+
+        Assert.assertTrue(subQueries.size() >= 3);
+        int disjuncts = 0;
+        for (QueryRequest subQuery : subQueries) {
+            Assert.assertTrue(api.getClient().getWsapiUrl().length() + subQuery.toUrl().length() <= maxLength);
+            List<QueryFilter> conjuncts = subQuery.getQueryFilter().getConjuncts();
+            assertEquals(conjuncts.get(0).toString(), "(State = Open)");
+            disjuncts += conjuncts.get(1).getDisjuncts().size();
+            assertEquals(subQuery.getFetch(), new Fetch("FormattedID", "Name", "ObjectID"));
+            assertEquals(subQuery.getLimit(), 200);
+        }
+        assertEquals(disjuncts, ids.length);
+    }
+
+    public void shouldMergeSplitQueryResults() throws Exception {
+        QueryRequest request = new QueryRequest("Defect");
+        request.setOrder("ObjectID DESC");
+        request.setPageSize(3);
+        request.setQueryFilter(QueryFilter.or(new QueryFilter("FormattedID", "=", "DE1"),
+                new QueryFilter("FormattedID", "=", "DE2"), new QueryFilter("FormattedID", "=", "DE3")));
+        api.setMaxQueryUrlLength(api.getClient().getWsapiUrl().length() + request.toUrl().length() - 1);
+        List<QueryRequest> subQueries = api.splitQuery(request);
+        assertEquals(subQueries.size(), 2);
+        doReturn(new Gson().toJson(buildQueryResponse(3, 1, 2, 4))).when(api.client).doGet(subQueries.get(0).toUrl());
+        doReturn(new Gson().toJson(buildQueryResponse(2, 2, 3))).when(api.client).doGet(subQueries.get(1).toUrl());
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        QueryResponse queryResponse;
+        try {
+            api.setParallelPaging(executor, 2);
+            queryResponse = api.query(request);
+        } finally {
+            executor.shutdown();
+        }
+
+        verify(api.client, times(2)).doGet(anyString());
+        Assert.assertTrue(queryResponse.wasSuccessful());
+        JsonArray results = queryResponse.getResults();
+        assertEquals(results.size(), 3);
+        assertEquals(results.get(0).getAsJsonObject().get("_ref").getAsString(), "/defect/4");
+        assertEquals(results.get(1).getAsJsonObject().get("_ref").getAsString(), "/defect/3");
+        assertEquals(results.get(2).getAsJsonObject().get("_ref").getAsString(), "/defect/2");
+        assertEquals(queryResponse.getTotalResultCount(), 4);
+        assertEquals(queryResponse.getStart(), 1);
+        assertEquals(queryResponse.getPageSize(), 3);
+    }
+
+    public void shouldMergeSubQueriesWithNumericLookingNames() throws Exception {
+        QueryRequest request = new QueryRequest("Defect");
+        request.setOrder("Name");
+        request.setPageSize(100);
+        request.setQueryFilter(QueryFilter.or(new QueryFilter("FormattedID", "=", "DE1"),
+                new QueryFilter("FormattedID", "=", "DE2")));
+        api.setMaxQueryUrlLength(api.getClient().getWsapiUrl().length() + request.toUrl().length() - 1);
+        List<QueryRequest> subQueries = api.splitQuery(request);
+        assertEquals(subQueries.size(), 2);
+        String[] names = {"2", "10", "1a"};
+        for (int i = 0; i < subQueries.size(); i++) {
+            JsonObject response = buildQueryResponse(30);
+            JsonArray results = response.getAsJsonObject("QueryResult").getAsJsonArray("Results");
+            for (int oid = i * 30 + 1; oid <= (i + 1) * 30; oid++) {
+                JsonObject result = new JsonObject();
+                result.addProperty("_ref", "/defect/" + oid);
+                result.addProperty("ObjectID", oid);
+                result.addProperty("Name", names[oid % names.length]);
+                results.add(result);
+            }
+            doReturn(new Gson().toJson(response)).when(api.client).doGet(subQueries.get(i).toUrl());
+        }
+
+        QueryResponse queryResponse = api.query(request);
+
+        JsonArray results = queryResponse.getResults();
+        assertEquals(results.size(), 60);
+        assertEquals(results.get(0).getAsJsonObject().get("Name").getAsString(), "10");
+        assertEquals(results.get(20).getAsJsonObject().get("Name").getAsString(), "1a");
+        assertEquals(results.get(40).getAsJsonObject().get("Name").getAsString(), "2");
+        assertEquals(results.get(59).getAsJsonObject().get("ObjectID").getAsInt(), 60);
+    }
+
     public void shouldClose() throws Exception {
         api.close();
         verify(api.client).close();
     }
 
-    private JsonObject buildQueryResponse(int totalResultCount) {
+    private JsonObject buildQueryResponse(int totalResultCount, int... oids) {
         JsonObject response = new JsonObject();
         JsonObject queryResult = new JsonObject();
         response.add("QueryResult", queryResult);
         queryResult.add("Errors", new JsonArray());
         queryResult.add("Warnings", new JsonArray());
-        queryResult.add("Results", new JsonArray());
+        JsonArray results = new JsonArray();
+        for (int oid : oids) {
+            JsonObject result = new JsonObject();
+            result.addProperty("_ref", "/defect/" + oid);
+            result.addProperty("ObjectID", oid);
+            results.add(result);
+        }
+        queryResult.add("Results", results);
         queryResult.addProperty("TotalResultCount", totalResultCount);
         return response;
     }
@@ -0,0 +1,133 @@
+package com.rallydev.rest.client;
+
+import org.apache.http.client.methods.HttpGet;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class AdaptiveConcurrencyGovernorTest {
+
+    private final HttpGet request = new HttpGet("https://rally1.rallydev.com/slm/webservice/v2.0/defect/1234.js");
+
+    @Test
+    public void shouldGrowOnSuccess() throws Exception {
+        AdaptiveConcurrencyGovernor governor = new AdaptiveConcurrencyGovernor(2, 1, 10);
+        for (int i = 0; i < 10; i++) {
+            governor.beforeRequest(request);
+            governor.afterRequest(request, 200, 1000);
+        }
+        Assert.assertTrue(governor.getLimit() > 2);
+        Assert.assertEquals(governor.getInFlight(), 0);
+    }
+
+    @Test
+    public void shouldNotExceedMaxLimit() throws Exception {
+        AdaptiveConcurrencyGovernor governor = new AdaptiveConcurrencyGovernor(2, 1, 3);
+        for (int i = 0; i < 100; i++) {
+            governor.beforeRequest(request);
+            governor.afterRequest(request, 200, 1000);
+        }
+        Assert.assertEquals(governor.getLimit(), 3);
+    }
+
+    @Test
+    public void shouldShrinkOnThrottling() throws Exception {
+        AdaptiveConcurrencyGovernor governor = new AdaptiveConcurrencyGovernor(8, 1, 10);
+        governor.beforeRequest(request);
+        governor.afterRequest(request, 429, 1000);
+        Assert.assertEquals(governor.getLimit(), 4);
+        Thread.sleep(1);
+        governor.beforeRequest(request);
+        governor.afterRequest(request, 503, 1000);
+        Assert.assertEquals(governor.getLimit(), 2);
+    }
+
+    @Test
+    public void shouldNotShrinkBelowMinLimit() throws Exception {
+        AdaptiveConcurrencyGovernor governor = new AdaptiveConcurrencyGovernor(2, 2, 10);
+        governor.beforeRequest(request);
+        governor.afterRequest(request, 503, 1000);
+        Assert.assertEquals(governor.getLimit(), 2);
+    }
+
+    @Test
+    public void shouldShrinkOnRisingLatency() throws Exception {
+        AdaptiveConcurrencyGovernor governor = new AdaptiveConcurrencyGovernor(8, 1, 10);
+        governor.beforeRequest(request);
+        governor.afterRequest(request, 200, 1000);
+        int limit = governor.getLimit();
+        governor.beforeRequest(request);
+        governor.afterRequest(request, 200, 10000);
+        Assert.assertTrue(governor.getLimit() < limit);
+    }
+
+    @Test
+    public void shouldShrinkOnFailuresWithoutResponse() throws Exception {
+        AdaptiveConcurrencyGovernor governor = new AdaptiveConcurrencyGovernor(4, 1, 10);
+        governor.beforeRequest(request);
+        governor.afterRequest(request, -1, 1000);
+        Assert.assertEquals(governor.getLimit(), 2);
+        Assert.assertEquals(governor.getInFlight(), 0);
+    }
+
+    @Test
+    public void shouldIgnoreAbandonedRequests() throws Exception {
+        AdaptiveConcurrencyGovernor governor = new AdaptiveConcurrencyGovernor(4, 1, 10);
+        governor.beforeRequest(request);
+        governor.afterRequest(request, 0, 0);
+        Assert.assertEquals(governor.getLimit(), 4);
+        Assert.assertEquals(governor.getInFlight(), 0);
+    }
+
+    @Test
+    public void shouldCompareLatencyPerOperation() throws Exception {
+        HttpGet query = new HttpGet("https://rally1.rallydev.com/slm/webservice/v2.0/defect?query=&start=1");
+        AdaptiveConcurrencyGovernor governor = new AdaptiveConcurrencyGovernor(8, 1, 10);
+        governor.beforeRequest(request);
+        governor.afterRequest(request, 200, 1000);
+        int limit = governor.getLimit();
+        governor.beforeRequest(query);
+        governor.afterRequest(query, 200, 100000);
+        Assert.assertTrue(governor.getLimit() >= limit);
+    }
+
+    @Test
+    public void shouldQueueAsyncRequestsBeyondLimit() throws Exception {
+        AdaptiveConcurrencyGovernor governor = new AdaptiveConcurrencyGovernor(1, 1, 1);
+        CompletableFuture<Void> first = governor.beforeRequestAsync(request, null);
+        CompletableFuture<Void> second = governor.beforeRequestAsync(request, null);
+        Assert.assertTrue(first.isDone());
+        Assert.assertFalse(second.isDone());
+        governor.afterRequest(request, 200, 1000);
+        Assert.assertTrue(second.isDone());
+        Assert.assertEquals(governor.getInFlight(), 1);
+    }
+
+    @Test
+    public void shouldBlockBeyondLimit() throws Exception {
+        final AdaptiveConcurrencyGovernor governor = new AdaptiveConcurrencyGovernor(1, 1, 1);
+        governor.beforeRequest(request);
+        final CountDownLatch started = new CountDownLatch(1);
+        Thread waiter = new Thread(() -> {
+            try {
+                governor.beforeRequest(request);
+                started.countDown();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        waiter.start();
+        Assert.assertFalse(started.await(100, TimeUnit.MILLISECONDS));
+        governor.afterRequest(request, 200, 1000);
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(governor.getInFlight(), 1);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectInvalidLimits() {
+        new AdaptiveConcurrencyGovernor(5, 1, 4);
+    }
+}
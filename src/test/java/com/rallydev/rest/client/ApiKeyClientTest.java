@@ -9,9 +9,11 @@ import org.testng.annotations.Test;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.concurrent.CompletableFuture;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.argThat;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.*;
 
 public class ApiKeyClientTest {
@@ -37,4 +39,19 @@ public class ApiKeyClientTest {
         client.doRequest(new HttpGet());
         verify(client).doRequest(argThat(new HttpRequestHeaderMatcher("zsessionid", apiKey)));
     }
+
+    @Test
+    public void shouldIncludeApiKeyOnAsyncRequest() throws Exception {
+        doReturn(CompletableFuture.completedFuture("")).when(client).executeRequestAsync(any(HttpRequestBase.class));
+        client.doRequestAsync(new HttpGet());
+        verify(client).executeRequestAsync(argThat(new HttpRequestHeaderMatcher("zsessionid", apiKey)));
+    }
+
+    @Test
+    public void shouldIncludeApiKeyOnRequestWithHandler() throws Exception {
+        JsonResponseHandler handler = new JsonResponseHandler();
+        doReturn(null).when(client).executeRequest(any(HttpRequestBase.class), any(JsonResponseHandler.class));
+        client.doRequest(new HttpGet(), handler);
+        verify(client).executeRequest(argThat(new HttpRequestHeaderMatcher("zsessionid", apiKey)), eq(handler));
+    }
 }
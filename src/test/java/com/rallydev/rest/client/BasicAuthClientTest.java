@@ -10,6 +10,7 @@ import org.testng.annotations.Test;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.concurrent.CompletableFuture;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.*;
@@ -89,4 +90,32 @@ public class BasicAuthClientTest {
         delete.getURI().getQuery().contains(BasicAuthClient.SECURITY_TOKEN_KEY + "=foo");
         verify(client).executeRequest(delete);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldNotRequestCSRFTokenOnAsyncGet() throws Exception {
+        doReturn(CompletableFuture.completedFuture("")).when(client).executeRequestAsync(any(HttpRequestBase.class));
+        client.doRequestAsync(new HttpGet(server)).get();
+        verify(client, times(1)).executeRequestAsync(any(HttpRequestBase.class));
+    }
+
+    @Test
+    public void shouldIncludeCSRFTokenOnAsyncPost() throws Exception {
+        doReturn(CompletableFuture.completedFuture("")).when(client).executeRequestAsync(any(HttpPost.class));
+        doReturn(CompletableFuture.completedFuture(SECURITY_TOKEN_RESPONSE)).when(client).executeRequestAsync(any(HttpGet.class));
+        HttpPost post = new HttpPost(server);
+        client.doRequestAsync(post).get();
+        Assert.assertTrue(post.getURI().getQuery().contains(BasicAuthClient.SECURITY_TOKEN_PARAM_KEY + "=foo"));
+        verify(client).executeRequestAsync(post);
+    }
+
+    @Test
+    public void shouldSkipCSRFTokenOnAsyncPostWhenEndpointMissing() throws Exception {
+        CompletableFuture<String> failed = new CompletableFuture<String>();
+        failed.completeExceptionally(new java.io.IOException("HTTP/1.1 404 Not Found"));
+        doReturn(failed).doReturn(CompletableFuture.completedFuture("")).when(client).executeRequestAsync(any(HttpRequestBase.class));
+        HttpPost post = new HttpPost(server);
+        client.doRequestAsync(post).get();
+        Assert.assertNull(post.getURI().getQuery());
+        verify(client).executeRequestAsync(post);
+    }
+}
@@ -0,0 +1,72 @@
+package com.rallydev.rest.client;
+
+import org.apache.http.client.methods.HttpGet;
+import org.mockito.InOrder;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class CompositeGovernorTest {
+
+    private final HttpGet request = new HttpGet("https://rally1.rallydev.com/slm/webservice/v2.0/defect/1234.js");
+
+    @Test
+    public void shouldConsultAllGovernors() throws Exception {
+        RequestGovernor first = mock(RequestGovernor.class);
+        RequestGovernor second = mock(RequestGovernor.class);
+        CompositeGovernor governor = new CompositeGovernor(first, second);
+
+        governor.beforeRequest(request);
+        governor.afterRequest(request, 200, 1000);
+
+        InOrder order = inOrder(first, second);
+        order.verify(first).beforeRequest(request);
+        order.verify(second).beforeRequest(request);
+        order.verify(second).afterRequest(request, 200, 1000);
+        order.verify(first).afterRequest(request, 200, 1000);
+    }
+
+    @Test
+    public void shouldReleaseGovernorsWhenOneFails() throws Exception {
+        RequestGovernor first = mock(RequestGovernor.class);
+        RequestGovernor second = mock(RequestGovernor.class);
+        RequestGovernor third = mock(RequestGovernor.class);
+        doThrow(new InterruptedIOException()).when(second).beforeRequest(request);
+        CompositeGovernor governor = new CompositeGovernor(first, second, third);
+
+        try {
+            governor.beforeRequest(request);
+        } catch (InterruptedIOException e) {
+            //expected
+        }
+
+        verify(first).afterRequest(request, 0, 0);
+        verify(second, never()).afterRequest(request, 0, 0);
+        verify(third, never()).beforeRequest(request);
+    }
+
+    @Test
+    public void shouldAllowAsyncRequestsWithAllGovernors() throws Exception {
+        AdaptiveConcurrencyGovernor first = new AdaptiveConcurrencyGovernor(1, 1, 1);
+        AdaptiveConcurrencyGovernor second = new AdaptiveConcurrencyGovernor(1, 1, 1);
+        CompositeGovernor governor = new CompositeGovernor(first, second);
+
+        governor.beforeRequestAsync(request, null).get();
+        CompletableFuture<Void> waiting = governor.beforeRequestAsync(request, null);
+
+        Assert.assertFalse(waiting.isDone());
+        governor.afterRequest(request, 200, 1000);
+        waiting.get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(first.getInFlight(), 1);
+        Assert.assertEquals(second.getInFlight(), 1);
+    }
+}
@@ -0,0 +1,290 @@
+package com.rallydev.rest.client;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+
+public class DiskResponseCacheTest {
+
+    private static final String URL = "https://rally1.rallydev.com/slm/webservice/v2.0/defect/1234";
+
+    private File directory;
+
+    @BeforeMethod
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("rally-cache").toFile();
+    }
+
+    @AfterMethod
+    public void deleteDirectory() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    private CachedResponse createResponse(String body) {
+        return new CachedResponse(body, "\"abc\"", null, System.currentTimeMillis());
+    }
+
+    @Test
+    public void shouldStoreResponses() throws IOException {
+        DiskResponseCache cache = new DiskResponseCache(directory, 1000, 5000, 60000);
+        try {
+            cache.put(URL + ".js?fetch=true", new CachedResponse("{\"Name\":\"é\"}", null, "Tue, 01 Jan 2030 00:00:00 GMT", 42));
+            cache.put(URL + ".js?fetch=true", createResponse("{}"));
+            CachedResponse response = cache.get(URL + ".js?fetch=true");
+            Assert.assertEquals(response.getBody(), "{}");
+            Assert.assertEquals(response.getETag(), "\"abc\"");
+            Assert.assertNull(response.getLastModified());
+            Assert.assertNull(cache.get(URL + ".js?fetch=Name"));
+            Assert.assertEquals(cache.size(), 1);
+            Assert.assertEquals(cache.getTimeToLive(), 5000);
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void shouldSurviveRestart() throws IOException {
+        DiskResponseCache cache = new DiskResponseCache(directory, 1000, 0, 60000);
+        cache.put("a", new CachedResponse("{\"Name\":\"é\"}", null, "Tue, 01 Jan 2030 00:00:00 GMT", System.currentTimeMillis()));
+        cache.put("b", createResponse("b"));
+        cache.invalidate("b");
+        cache.close();
+
+        cache = new DiskResponseCache(directory, 1000, 0, 60000);
+        try {
+            CachedResponse response = cache.get("a");
+            Assert.assertEquals(response.getBody(), "{\"Name\":\"é\"}");
+            Assert.assertNull(response.getETag());
+            Assert.assertEquals(response.getLastModified(), "Tue, 01 Jan 2030 00:00:00 GMT");
+            Assert.assertNull(cache.get("b"));
+            Assert.assertEquals(cache.size(), 1);
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void shouldStoreResponsesOver64Kb() throws IOException {
+        StringBuilder body = new StringBuilder("{\"Results\":\"");
+        StringBuilder url = new StringBuilder(URL + ".js?query=");
+        while (body.length() < 100000) {
+            body.append("é0123456789");
+            url.append("0123456789");
+        }
+        body.append("\"}");
+        DiskResponseCache cache = new DiskResponseCache(directory, 1000000, 0, 60000);
+        cache.put(url.toString(), new CachedResponse(body.toString(), "\"abc\"", null, System.currentTimeMillis()));
+        Assert.assertEquals(cache.get(url.toString()).getBody(), body.toString());
+        cache.close();
+
+        cache = new DiskResponseCache(directory, 1000000, 0, 60000);
+        try {
+            Assert.assertEquals(cache.get(url.toString()).getBody(), body.toString());
+            cache.compact();
+            Assert.assertEquals(cache.get(url.toString()).getBody(), body.toString());
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void shouldKeepCachingAfterFailedCompaction() throws IOException {
+        DiskResponseCache cache = new DiskResponseCache(directory, 1000, 0, 60000);
+        File compactFile = new File(directory, "responses.compact");
+        try {
+            cache.put("a", createResponse("a"));
+            Assert.assertTrue(compactFile.mkdir());
+            try {
+                cache.compact();
+                Assert.fail("Expected failure");
+            } catch (IOException e) {
+                //expected
+            }
+            cache.put("b", createResponse("b"));
+            Assert.assertEquals(cache.get("a").getBody(), "a");
+            Assert.assertEquals(cache.get("b").getBody(), "b");
+        } finally {
+            cache.close();
+            compactFile.delete();
+        }
+    }
+
+    @Test
+    public void shouldDiscardPartiallyWrittenRecord() throws IOException {
+        DiskResponseCache cache = new DiskResponseCache(directory, 1000, 0, 60000);
+        cache.put("a", createResponse("a"));
+        cache.put("b", createResponse("b"));
+        long size = cache.getLogSize();
+        cache.close();
+
+        RandomAccessFile log = new RandomAccessFile(new File(directory, "responses.log"), "rw");
+        log.setLength(size - 3);
+        log.close();
+
+        cache = new DiskResponseCache(directory, 1000, 0, 60000);
+        try {
+            Assert.assertEquals(cache.get("a").getBody(), "a");
+            Assert.assertNull(cache.get("b"));
+            cache.put("c", createResponse("c"));
+            Assert.assertEquals(cache.get("c").getBody(), "c");
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void shouldKeepAppendingAfterFailedRead() throws IOException {
+        DiskResponseCache cache = new DiskResponseCache(directory, 1000, 0, 60000);
+        try {
+            cache.put("a", createResponse("a"));
+            cache.put("b", createResponse("b"));
+            long size = cache.getLogSize();
+            RandomAccessFile log = new RandomAccessFile(new File(directory, "responses.log"), "rw");
+            log.setLength(size - 3);
+            log.close();
+
+            Assert.assertNull(cache.get("b"));
+            try {
+                cache.compact();
+                Assert.fail("Expected failure");
+            } catch (IOException e) {
+                //expected
+            }
+            cache.put("c", createResponse("c"));
+            Assert.assertEquals(cache.get("a").getBody(), "a");
+            Assert.assertEquals(cache.get("c").getBody(), "c");
+            Assert.assertEquals(cache.getLogSize(), size + 1 + 4 + 1 + 4 + 8 + 1 + 4 + "\"abc\"".length() + 1 + 1);
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void shouldRefreshWithoutAppending() throws IOException {
+        DiskResponseCache cache = new DiskResponseCache(directory, 1000, 0, 60000);
+        long now = System.currentTimeMillis();
+        cache.put("a", new CachedResponse("a", "\"abc\"", null, now - 1000));
+        long size = cache.getLogSize();
+        cache.refresh("a", new CachedResponse("a", "\"def\"", "Tue, 01 Jan 2030 00:00:00 GMT", now));
+        Assert.assertEquals(cache.getLogSize(), size);
+        CachedResponse response = cache.get("a");
+        Assert.assertEquals(response.getBody(), "a");
+        Assert.assertEquals(response.getETag(), "\"def\"");
+        Assert.assertEquals(response.getLastModified(), "Tue, 01 Jan 2030 00:00:00 GMT");
+        Assert.assertEquals(response.getStoredAt(), now);
+
+        cache.compact();
+        cache.close();
+        cache = new DiskResponseCache(directory, 1000, 0, 60000);
+        try {
+            Assert.assertEquals(cache.get("a").getETag(), "\"def\"");
+            Assert.assertEquals(cache.get("a").getStoredAt(), now);
+            Assert.assertEquals(cache.getSize(), cache.getLogSize() - 1 - 4 - 1 - 4);
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsed() throws IOException {
+        int recordSize = 8 + 1 + 4 + "\"abc\"".length() + 1 + 1;
+        DiskResponseCache cache = new DiskResponseCache(directory, 2 * recordSize, 0, 60000);
+        try {
+            cache.put("a", createResponse("a"));
+            cache.put("b", createResponse("b"));
+            cache.get("a");
+            cache.put("c", createResponse("c"));
+            Assert.assertEquals(cache.size(), 2);
+            Assert.assertEquals(cache.getSize(), 2 * recordSize);
+            Assert.assertNotNull(cache.get("a"));
+            Assert.assertNull(cache.get("b"));
+            Assert.assertNotNull(cache.get("c"));
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void shouldCompactLog() throws IOException {
+        DiskResponseCache cache = new DiskResponseCache(directory, 100, 0, 60000);
+        try {
+            for (int i = 0; i < 50; i++) {
+                cache.put("a", createResponse("a" + i));
+            }
+            Assert.assertTrue(cache.getLogSize() <= 200);
+            cache.compact();
+            Assert.assertEquals(cache.size(), 1);
+            Assert.assertEquals(cache.getLogSize(), 1 + 4 + 1 + 4 + cache.getSize());
+            Assert.assertEquals(cache.get("a").getBody(), "a49");
+            cache.put("b", createResponse("b"));
+            Assert.assertEquals(cache.get("b").getBody(), "b");
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void shouldDiscardExpiredResponses() throws IOException {
+        DiskResponseCache cache = new DiskResponseCache(directory, 1000, 0, 60000);
+        try {
+            cache.put("a", new CachedResponse("a", "\"abc\"", null, System.currentTimeMillis() - 60000));
+            cache.put("b", createResponse("b"));
+            Assert.assertNull(cache.get("a"));
+            Assert.assertNotNull(cache.get("b"));
+            Assert.assertEquals(cache.size(), 1);
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void shouldInvalidateObject() throws IOException {
+        DiskResponseCache cache = new DiskResponseCache(directory, 1000, 0, 60000);
+        try {
+            cache.put(URL + ".js?fetch=true", createResponse("{}"));
+            cache.put(URL + "/tasks.js", createResponse("{}"));
+            cache.put(URL + "5.js", createResponse("{}"));
+            cache.invalidate(URL);
+            Assert.assertNull(cache.get(URL + ".js?fetch=true"));
+            Assert.assertNull(cache.get(URL + "/tasks.js"));
+            Assert.assertNotNull(cache.get(URL + "5.js"));
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void shouldClear() throws IOException {
+        DiskResponseCache cache = new DiskResponseCache(directory, 1000, 0, 60000);
+        try {
+            cache.put("a", createResponse("a"));
+            cache.clear();
+            Assert.assertEquals(cache.size(), 0);
+            Assert.assertEquals(cache.getLogSize(), 0);
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void shouldLockDirectory() throws IOException {
+        DiskResponseCache cache = new DiskResponseCache(directory, 1000, 0, 60000);
+        try {
+            new DiskResponseCache(directory, 1000, 0, 60000);
+        } finally {
+            cache.close();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.rallydev.rest.client;
 
+import com.google.gson.JsonObject;
 import com.rallydev.rest.matchers.HttpRequestBodyMatcher;
 import com.rallydev.rest.matchers.HttpRequestHeaderMatcher;
 import com.rallydev.rest.matchers.HttpRequestUrlMatcher;
@@ -18,9 +19,21 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpServer;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.argThat;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.*;
 
 public class HttpClientTest {
@@ -136,6 +149,35 @@ public class HttpClientTest {
         verify(client).doRequest(argThat(new HttpRequestUrlMatcher(client.getWsapiUrl() + url)));
     }
 
+    @Test
+    public void shouldGetWithHandler() throws Exception {
+        String url = "/defect/12345";
+        JsonResponseHandler handler = new JsonResponseHandler();
+        doReturn(null).when(client).executeRequest(any(HttpGet.class), any(JsonResponseHandler.class));
+        client.setApplicationName("FooName");
+        client.doGet(url, handler);
+        verify(client).executeRequest(argThat(new HttpRequestUrlMatcher(client.getWsapiUrl() + url)), eq(handler));
+        verify(client).executeRequest(argThat(new HttpRequestHeaderMatcher("X-RallyIntegrationName", "FooName")), eq(handler));
+    }
+
+    @Test
+    public void shouldPostWithHandler() throws Exception {
+        String url = "/defect/12345";
+        String body = "{}";
+        JsonResponseHandler handler = new JsonResponseHandler();
+        doReturn(null).when(client).executeRequest(any(HttpPost.class), any(JsonResponseHandler.class));
+        client.doPost(url, body, handler);
+        verify(client).executeRequest(argThat(new HttpRequestBodyMatcher(client.getWsapiUrl() + url, body)), eq(handler));
+    }
+
+    @Test
+    public void shouldStreamValidResponse() throws Exception {
+        client.client = spy(client.client);
+        doReturn(createMockResponse("{\"Foo\": \"Bar\"}")).when(client.client).execute(any(HttpGet.class));
+        JsonObject response = client.doGet("/defect/1234", new JsonResponseHandler());
+        Assert.assertEquals(response.get("Foo").getAsString(), "Bar");
+    }
+
     @Test
     public void shouldGzip() throws Exception {
         String url = "/defect/1234";
@@ -161,6 +203,551 @@ public class HttpClientTest {
         client.doGet("/defect/1234");
     }
 
+    @Test
+    public void shouldGetAsync() throws Exception {
+        String url = "/defect/12345";
+        doReturn(CompletableFuture.completedFuture("")).when(client).doRequestAsync(any(HttpGet.class));
+        client.doGetAsync(url);
+        verify(client).doRequestAsync(argThat(new HttpRequestUrlMatcher(client.getWsapiUrl() + url)));
+    }
+
+    @Test
+    public void shouldPostAsync() throws Exception {
+        String url = "/defect/12345";
+        String body = "{}";
+        doReturn(CompletableFuture.completedFuture("")).when(client).doRequestAsync(any(HttpPost.class));
+        client.doPostAsync(url, body);
+        verify(client).doRequestAsync(argThat(new HttpRequestBodyMatcher(client.getWsapiUrl() + url, body)));
+    }
+
+    @Test
+    public void shouldDeleteAsync() throws Exception {
+        String url = "/defect/12345";
+        doReturn(CompletableFuture.completedFuture("")).when(client).doRequestAsync(any(HttpDelete.class));
+        client.doDeleteAsync(url);
+        verify(client).doRequestAsync(argThat(new HttpRequestUrlMatcher(client.getWsapiUrl() + url)));
+    }
+
+    @Test
+    public void shouldSetHeadersAsync() throws Exception {
+        doReturn(CompletableFuture.completedFuture("")).when(client).executeRequestAsync(any(HttpRequestBase.class));
+        client.setApplicationName("FooName");
+        client.doRequestAsync(new HttpGet());
+        verify(client).executeRequestAsync(argThat(new HttpRequestHeaderMatcher("X-RallyIntegrationName", "FooName")));
+    }
+
+    @Test
+    public void shouldExecuteRequestAsync() throws Exception {
+        HttpServer server = startServer(200, "{\"Foo\": \"Bar\"}");
+        try {
+            HttpClient asyncClient = new HttpClient(new URI("http://localhost:" + server.getAddress().getPort()));
+            try {
+                Assert.assertEquals(asyncClient.doGetAsync("/defect/1234.js").get(), "{\"Foo\": \"Bar\"}");
+            } finally {
+                asyncClient.close();
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void shouldFailAsyncWithInvalidResponse() throws Exception {
+        HttpServer server = startServer(500, "");
+        try {
+            HttpClient asyncClient = new HttpClient(new URI("http://localhost:" + server.getAddress().getPort()));
+            try {
+                asyncClient.doGetAsync("/defect/1234.js").get();
+                Assert.fail("Expected failure");
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof IOException);
+            } finally {
+                asyncClient.close();
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void shouldUseDefaultConnectionSettings() {
+        Assert.assertEquals(client.getConnectionSettings().getMaxConnectionsTotal(), 20);
+        Assert.assertEquals(client.getConnectionSettings().getMaxConnectionsPerRoute(), 20);
+        Assert.assertEquals(client.getPoolStats().getMax(), 20);
+        Assert.assertEquals(client.getPoolStats().getLeased(), 0);
+        Assert.assertNull(client.getAsyncPoolStats());
+    }
+
+    @Test
+    public void shouldApplyConnectionSettings() throws Exception {
+        ConnectionSettings settings = new ConnectionSettings();
+        settings.setMaxConnectionsTotal(64);
+        settings.setMaxConnectionsPerRoute(32);
+        settings.setConnectionTimeToLive(60000);
+        settings.setMaxIdleTime(30000);
+        settings.setConnectTimeout(1000);
+        settings.setSocketTimeout(5000);
+        client.setConnectionSettings(settings);
+
+        Assert.assertSame(client.getConnectionSettings(), settings);
+        Assert.assertEquals(client.getPoolStats().getMax(), 64);
+        verify(client).buildClient();
+    }
+
+    @Test
+    public void shouldReportAsyncPoolStats() throws Exception {
+        HttpServer server = startServer(200, "{}");
+        try {
+            HttpClient asyncClient = new HttpClient(new URI("http://localhost:" + server.getAddress().getPort()));
+            ConnectionSettings settings = new ConnectionSettings();
+            settings.setMaxConnectionsTotal(8);
+            asyncClient.setConnectionSettings(settings);
+            try {
+                asyncClient.doGetAsync("/defect/1234.js").get();
+                Assert.assertEquals(asyncClient.getAsyncPoolStats().getMax(), 8);
+                Assert.assertEquals(asyncClient.getAsyncPoolStats().getLeased(), 0);
+            } finally {
+                asyncClient.close();
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void shouldRetryFailedGet() throws Exception {
+        HttpServer server = startServer(new AtomicInteger(2), "{\"Foo\": \"Bar\"}");
+        try {
+            HttpClient retryClient = new HttpClient(new URI("http://localhost:" + server.getAddress().getPort()));
+            RetryPolicy policy = new RetryPolicy();
+            policy.setInitialBackoff(1);
+            retryClient.setRetryPolicy(policy);
+            try {
+                Assert.assertEquals(retryClient.doGet("/defect/1234.js"), "{\"Foo\": \"Bar\"}");
+                Assert.assertEquals(retryClient.doGet("/defect/1234.js", new JsonResponseHandler()).get("Foo").getAsString(),
+                        "Bar");
+                Assert.assertEquals(policy.getBudgetTokens(), 8.2, 0.001);
+            } finally {
+                retryClient.close();
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void shouldNotRetryFailedPost() throws Exception {
+        AtomicInteger failures = new AtomicInteger(1);
+        HttpServer server = startServer(failures, "{}");
+        try {
+            HttpClient retryClient = new HttpClient(new URI("http://localhost:" + server.getAddress().getPort()));
+            RetryPolicy policy = new RetryPolicy();
+            policy.setInitialBackoff(1);
+            retryClient.setRetryPolicy(policy);
+            try {
+                retryClient.doPost("/defect/create.js", "{}");
+                Assert.fail("Expected failure");
+            } catch (HttpStatusException e) {
+                Assert.assertEquals(e.getStatusCode(), 503);
+                Assert.assertEquals(failures.get(), 0);
+            } finally {
+                retryClient.close();
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void shouldNotRetryWithoutPolicy() throws Exception {
+        HttpServer server = startServer(new AtomicInteger(1), "{}");
+        try {
+            HttpClient retryClient = new HttpClient(new URI("http://localhost:" + server.getAddress().getPort()));
+            try {
+                retryClient.doGet("/defect/1234.js");
+                Assert.fail("Expected failure");
+            } catch (HttpStatusException e) {
+                Assert.assertEquals(e.getStatusCode(), 503);
+                Assert.assertEquals(e.getRetryAfter(), 0);
+            } finally {
+                retryClient.close();
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void shouldRetryFailedGetAsync() throws Exception {
+        HttpServer server = startServer(new AtomicInteger(2), "{}");
+        try {
+            HttpClient retryClient = new HttpClient(new URI("http://localhost:" + server.getAddress().getPort()));
+            RetryPolicy policy = new RetryPolicy();
+            policy.setInitialBackoff(1);
+            retryClient.setRetryPolicy(policy);
+            try {
+                Assert.assertEquals(retryClient.doGetAsync("/defect/1234.js").get(), "{}");
+            } finally {
+                retryClient.close();
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void shouldGovernEachAttempt() throws Exception {
+        RequestGovernor governor = mock(RequestGovernor.class);
+        client.setRequestGovernor(governor);
+        RetryPolicy policy = new RetryPolicy();
+        policy.setInitialBackoff(1);
+        client.setRetryPolicy(policy);
+        doThrow(new HttpStatusException("HTTP/1.1 503", 503, 0)).doReturn("{}")
+                .when(client).executeRequest(any(HttpRequestBase.class));
+
+        Assert.assertEquals(client.doGet("/defect/1234.js"), "{}");
+
+        verify(governor, times(2)).beforeRequest(any(HttpRequestBase.class));
+        verify(governor).afterRequest(any(HttpRequestBase.class), eq(503), anyLong());
+        verify(governor).afterRequest(any(HttpRequestBase.class), eq(200), anyLong());
+    }
+
+    @Test
+    public void shouldReleaseGovernorOnFailure() throws Exception {
+        RequestGovernor governor = mock(RequestGovernor.class);
+        client.setRequestGovernor(governor);
+        doThrow(new IOException("Connection reset")).when(client).executeRequest(any(HttpRequestBase.class));
+
+        try {
+            client.doGet("/defect/1234.js");
+            Assert.fail("Expected failure");
+        } catch (IOException e) {
+            Assert.assertEquals(e.getMessage(), "Connection reset");
+        }
+        verify(governor).afterRequest(any(HttpRequestBase.class), eq(-1), anyLong());
+    }
+
+    @Test
+    public void shouldGovernAsyncRequests() throws Exception {
+        AdaptiveConcurrencyGovernor governor = new AdaptiveConcurrencyGovernor(1, 1, 1);
+        client.setRequestGovernor(governor);
+        CompletableFuture<String> first = new CompletableFuture<String>();
+        doReturn(first).doReturn(CompletableFuture.completedFuture("{}"))
+                .when(client).executeRequestAsync(any(HttpRequestBase.class));
+
+        client.doGetAsync("/defect/1234.js");
+        CompletableFuture<String> second = client.doGetAsync("/defect/5678.js");
+
+        verify(client, times(1)).executeRequestAsync(any(HttpRequestBase.class));
+        Assert.assertEquals(governor.getInFlight(), 1);
+        first.completeExceptionally(new HttpStatusException("HTTP/1.1 503", 503, 0));
+        Assert.assertEquals(second.get(), "{}");
+        verify(client, times(2)).executeRequestAsync(any(HttpRequestBase.class));
+        Assert.assertEquals(governor.getInFlight(), 0);
+    }
+
+    @Test
+    public void shouldReportEachAttemptToListener() throws Exception {
+        HttpServer server = startServer(new AtomicInteger(1), "{\"Foo\": \"Bar\"}");
+        try {
+            HttpClient observedClient = new HttpClient(new URI("http://localhost:" + server.getAddress().getPort()));
+            RetryPolicy policy = new RetryPolicy();
+            policy.setInitialBackoff(1);
+            observedClient.setRetryPolicy(policy);
+            RequestMetrics metrics = new RequestMetrics();
+            observedClient.setRequestListener(metrics);
+            Assert.assertSame(observedClient.getRequestListener(), metrics);
+            try {
+                Assert.assertEquals(observedClient.doGet("/defect/1234.js"), "{\"Foo\": \"Bar\"}");
+                Assert.assertEquals(observedClient.doPost("/defect/create.js", "{\"Defect\":{}}"), "{\"Foo\": \"Bar\"}");
+                Assert.assertEquals(observedClient.doGetAsync("/defect.js").get(), "{\"Foo\": \"Bar\"}");
+            } finally {
+                observedClient.close();
+            }
+
+            RequestMetrics.OperationMetrics get = metrics.getOperation("defect", "get");
+            Assert.assertEquals(get.getRequests(), 2);
+            Assert.assertEquals(get.getErrors(), 1);
+            Assert.assertEquals(get.getRetries(), 1);
+            Assert.assertEquals(get.getInFlight(), 0);
+            Assert.assertEquals(get.getStatusCodes().get(503), Long.valueOf(1));
+            Assert.assertEquals(get.getBytesReceived(), 14);
+            RequestMetrics.OperationMetrics create = metrics.getOperation("defect", "create");
+            Assert.assertEquals(create.getRequests(), 1);
+            Assert.assertEquals(create.getBytesSent(), 13);
+            Assert.assertEquals(metrics.getOperation("defect", "query").getBytesReceived(), 14);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void shouldReportFailedAttemptToListener() throws Exception {
+        RequestListener listener = mock(RequestListener.class);
+        client.setRequestListener(listener);
+        IOException error = new IOException("Connection refused");
+        client.client = mock(CloseableHttpClient.class);
+        when(client.client.execute(any(HttpUriRequest.class))).thenThrow(error);
+
+        try {
+            client.doGet("/defect/1234.js");
+            Assert.fail("Expected failure");
+        } catch (IOException e) {
+            Assert.assertSame(e, error);
+        }
+        verify(listener).requestStarted(any(HttpRequestBase.class));
+        verify(listener).requestCompleted(any(HttpRequestBase.class), eq(-1), eq(0L), eq(0L), anyLong());
+        verify(listener).requestFailed(any(HttpRequestBase.class), eq(error));
+    }
+
+    @Test
+    public void shouldRevalidateCachedResponse() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        AtomicInteger notModified = new AtomicInteger();
+        HttpServer server = startETagServer(requests, notModified);
+        try {
+            HttpClient cachingClient = new HttpClient(new URI("http://localhost:" + server.getAddress().getPort()));
+            cachingClient.setResponseCache(new InMemoryResponseCache(10));
+            try {
+                Assert.assertEquals(cachingClient.doGet("/defect/1234.js"), "{\"Foo\": \"Bar\"}");
+                Assert.assertEquals(cachingClient.doGet("/defect/1234.js"), "{\"Foo\": \"Bar\"}");
+                Assert.assertEquals(cachingClient.doGet("/defect/1234.js", new JsonResponseHandler()).get("Foo").getAsString(), "Bar");
+                Assert.assertEquals(requests.get(), 3);
+                Assert.assertEquals(notModified.get(), 2);
+            } finally {
+                cachingClient.close();
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void shouldRefreshRevalidatedResponse() throws Exception {
+        HttpServer server = startETagServer(new AtomicInteger(), new AtomicInteger());
+        try {
+            HttpClient cachingClient = new HttpClient(new URI("http://localhost:" + server.getAddress().getPort()));
+            ResponseCache cache = spy(new TieredResponseCache(new InMemoryResponseCache(10), new InMemoryResponseCache(10)));
+            cachingClient.setResponseCache(cache);
+            try {
+                cachingClient.doGet("/defect/1234.js");
+                cachingClient.doGet("/defect/1234.js");
+                verify(cache, times(1)).put(anyString(), any(CachedResponse.class));
+                verify(cache, times(1)).refresh(anyString(), any(CachedResponse.class));
+            } finally {
+                cachingClient.close();
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void shouldServeFreshCachedResponse() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        HttpServer server = startETagServer(requests, new AtomicInteger());
+        try {
+            HttpClient cachingClient = new HttpClient(new URI("http://localhost:" + server.getAddress().getPort()));
+            cachingClient.setResponseCache(new InMemoryResponseCache(10, 60000));
+            try {
+                cachingClient.doGet("/defect/1234.js");
+                Assert.assertEquals(cachingClient.doGet("/defect/1234.js"), "{\"Foo\": \"Bar\"}");
+                Assert.assertEquals(requests.get(), 1);
+
+                cachingClient.doPost("/defect/1234.js", "{}");
+                cachingClient.doGet("/defect/1234.js");
+                Assert.assertEquals(requests.get(), 3);
+            } finally {
+                cachingClient.close();
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void shouldQueryCreatedObjects() throws Exception {
+        final AtomicInteger created = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().close();
+            if ("POST".equals(exchange.getRequestMethod())) {
+                created.incrementAndGet();
+            }
+            exchange.getResponseHeaders().add("ETag", "\"v" + created.get() + "\"");
+            byte[] body = ("{\"TotalResultCount\": " + created.get() + "}").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        try {
+            HttpClient cachingClient = new HttpClient(new URI("http://localhost:" + server.getAddress().getPort()));
+            cachingClient.setResponseCache(new InMemoryResponseCache(10, 60000));
+            try {
+                String query = "/defect.js?query=(Name%20%3D%20%22Foo%22)&fetch=Name";
+                Assert.assertEquals(cachingClient.doGet(query), "{\"TotalResultCount\": 0}");
+                cachingClient.doPost("/defect/create.js", "{\"Defect\":{\"Name\":\"Foo\"}}");
+                Assert.assertEquals(cachingClient.doGet(query), "{\"TotalResultCount\": 1}");
+                Assert.assertEquals(cachingClient.doGet(query), "{\"TotalResultCount\": 1}");
+                Assert.assertNull(cachingClient.getResponseCache().get(cachingClient.getWsapiUrl() + query));
+            } finally {
+                cachingClient.close();
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void shouldOnlyCacheObjectUrls() {
+        Assert.assertTrue(HttpClient.isObjectUrl(client.getWsapiUrl() + "/defect/1234.js?fetch=Name"));
+        Assert.assertTrue(HttpClient.isObjectUrl(client.getWsapiUrl() + "/portfolioitem/feature/1234.js"));
+        Assert.assertFalse(HttpClient.isObjectUrl(client.getWsapiUrl() + "/defect.js?query=(ObjectID%20%3D%201234)"));
+        Assert.assertFalse(HttpClient.isObjectUrl(client.getWsapiUrl() + "/defect/1234/tasks.js?start=1"));
+    }
+
+    @Test
+    public void shouldInvalidateOwnerOfUpdatedCollection() throws Exception {
+        ResponseCache cache = mock(ResponseCache.class);
+        client.setResponseCache(cache);
+        doReturn("").when(client).doRequest(any(HttpPost.class));
+
+        client.doPost("/defect/123/tasks/add.js?fetch=FormattedID", "{}");
+
+        verify(cache).invalidate(client.getWsapiUrl() + "/defect/123");
+        verify(cache, times(1)).invalidate(anyString());
+    }
+
+    @Test
+    public void shouldInvalidateEachBatchOperation() throws Exception {
+        ResponseCache cache = mock(ResponseCache.class);
+        client.setResponseCache(cache);
+        doReturn("").when(client).doRequest(any(HttpPost.class));
+
+        client.doPost("/batch.js", "{\"Batch\":[" +
+                "{\"Entry\":{\"Path\":\"/defect/1.js\",\"Method\":\"POST\",\"Body\":{}}}," +
+                "{\"Entry\":{\"Path\":\"/defect/2/tasks/remove.js\",\"Method\":\"POST\",\"Body\":{}}}," +
+                "{\"Entry\":{\"Path\":\"/task/3.js\",\"Method\":\"DELETE\"}}]}");
+
+        verify(cache).invalidate(client.getWsapiUrl() + "/defect/1");
+        verify(cache).invalidate(client.getWsapiUrl() + "/defect/2");
+        verify(cache).invalidate(client.getWsapiUrl() + "/task/3");
+        verify(cache, times(3)).invalidate(anyString());
+    }
+
+    @Test
+    public void shouldRemoveCollectionOnCollectionUpdate() throws Exception {
+        InMemoryResponseCache cache = new InMemoryResponseCache(10);
+        client.setResponseCache(cache);
+        String owner = client.getWsapiUrl() + "/defect/123.js";
+        String collection = client.getWsapiUrl() + "/defect/123/tasks.js?start=1";
+        cache.put(owner, new CachedResponse("{}", "\"1\"", null, System.currentTimeMillis()));
+        cache.put(collection, new CachedResponse("{}", "\"2\"", null, System.currentTimeMillis()));
+        doReturn("").when(client).doRequest(any(HttpPost.class));
+
+        client.doPost("/defect/123/tasks/add.js", "{}");
+
+        Assert.assertNull(cache.get(owner));
+        Assert.assertNull(cache.get(collection));
+    }
+
+    @Test
+    public void shouldCoalesceIdenticalGets() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger requests = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().close();
+            requests.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = "{\"Foo\": \"Bar\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final HttpClient coalescingClient = new HttpClient(new URI("http://localhost:" + server.getAddress().getPort()));
+            coalescingClient.setCoalescingRequests(true);
+            Assert.assertTrue(coalescingClient.isCoalescingRequests());
+            try {
+                Future<String> first = executor.submit(() -> coalescingClient.doGet("/defect/1234.js"));
+                Future<JsonObject> second = executor.submit(() -> coalescingClient.doGet("/defect/1234.js", new JsonResponseHandler()));
+                while (coalescingClient.getSingleFlight().getShared() == 0) {
+                    Thread.sleep(1);
+                }
+                release.countDown();
+                Assert.assertEquals(first.get(), "{\"Foo\": \"Bar\"}");
+                Assert.assertEquals(second.get().get("Foo").getAsString(), "Bar");
+                Assert.assertEquals(requests.get(), 1);
+            } finally {
+                coalescingClient.close();
+            }
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+            server.stop(0);
+        }
+    }
+
+    private HttpServer startETagServer(final AtomicInteger requests, final AtomicInteger notModified) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().close();
+            requests.incrementAndGet();
+            exchange.getResponseHeaders().add("ETag", "\"v1\"");
+            if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModified.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                byte[] body = "{\"Foo\": \"Bar\"}".getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+            }
+            exchange.close();
+        });
+        server.start();
+        return server;
+    }
+
+    private HttpServer startServer(final AtomicInteger failures, final String responseText) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().close();
+            if (failures.getAndDecrement() > 0) {
+                exchange.getResponseHeaders().add("Retry-After", "0");
+                exchange.sendResponseHeaders(503, -1);
+            } else {
+                byte[] body = responseText.getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+            }
+            exchange.close();
+        });
+        server.start();
+        return server;
+    }
+
+    private HttpServer startServer(final int status, final String responseText) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            byte[] body = responseText.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+            if (body.length > 0) {
+                exchange.getResponseBody().write(body);
+            }
+            exchange.close();
+        });
+        server.start();
+        return server;
+    }
+
     private CloseableHttpResponse createMockResponse(String responseText) throws Exception {
         CloseableHttpResponse response = mock(CloseableHttpResponse.class);
         StatusLine status = mock(StatusLine.class);
@@ -0,0 +1,42 @@
+package com.rallydev.rest.client;
+
+import org.apache.http.HttpVersion;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.message.BasicHttpResponse;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Date;
+
+public class HttpStatusExceptionTest {
+
+    @Test
+    public void shouldCreateFromResponse() {
+        BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 503, "Service Unavailable");
+        response.addHeader("Retry-After", "3");
+        HttpStatusException e = HttpStatusException.fromResponse(response);
+        Assert.assertEquals(e.getMessage(), "HTTP/1.1 503 Service Unavailable");
+        Assert.assertEquals(e.getStatusCode(), 503);
+        Assert.assertEquals(e.getRetryAfter(), 3000);
+    }
+
+    @Test
+    public void shouldHandleMissingRetryAfter() {
+        BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 500, "Internal Server Error");
+        Assert.assertEquals(HttpStatusException.fromResponse(response).getRetryAfter(), -1);
+    }
+
+    @Test
+    public void shouldParseRetryAfterDate() {
+        long now = System.currentTimeMillis();
+        String date = DateUtils.formatDate(new Date(now + 10000));
+        long retryAfter = HttpStatusException.parseRetryAfter(new BasicHeader("Retry-After", date), now);
+        Assert.assertTrue(retryAfter > 8000 && retryAfter <= 10000);
+    }
+
+    @Test
+    public void shouldIgnoreInvalidRetryAfter() {
+        Assert.assertEquals(HttpStatusException.parseRetryAfter(new BasicHeader("Retry-After", "soon"), 0), -1);
+    }
+}
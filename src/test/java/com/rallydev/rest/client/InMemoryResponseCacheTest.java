@@ -0,0 +1,63 @@
+package com.rallydev.rest.client;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class InMemoryResponseCacheTest {
+
+    private static final String URL = "https://rally1.rallydev.com/slm/webservice/v2.0/defect/1234";
+
+    private CachedResponse createResponse(String body) {
+        return new CachedResponse(body, "\"abc\"", null, System.currentTimeMillis());
+    }
+
+    @Test
+    public void shouldStoreResponses() {
+        InMemoryResponseCache cache = new InMemoryResponseCache(10);
+        CachedResponse response = createResponse("{}");
+        cache.put(URL + ".js?fetch=true", response);
+        Assert.assertSame(cache.get(URL + ".js?fetch=true"), response);
+        Assert.assertNull(cache.get(URL + ".js?fetch=Name"));
+        Assert.assertEquals(cache.getHits(), 1);
+        Assert.assertEquals(cache.getMisses(), 1);
+        Assert.assertEquals(cache.getTimeToLive(), 0);
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsed() {
+        InMemoryResponseCache cache = new InMemoryResponseCache(2, 1000);
+        cache.put("a", createResponse("a"));
+        cache.put("b", createResponse("b"));
+        cache.get("a");
+        cache.put("c", createResponse("c"));
+        Assert.assertEquals(cache.size(), 2);
+        Assert.assertNotNull(cache.get("a"));
+        Assert.assertNull(cache.get("b"));
+        Assert.assertNotNull(cache.get("c"));
+    }
+
+    @Test
+    public void shouldInvalidateObject() {
+        InMemoryResponseCache cache = new InMemoryResponseCache(10);
+        cache.put(URL + ".js?fetch=true", createResponse("{}"));
+        cache.put(URL + "/tasks.js", createResponse("{}"));
+        cache.put(URL + "5.js", createResponse("{}"));
+        cache.invalidate(URL);
+        Assert.assertNull(cache.get(URL + ".js?fetch=true"));
+        Assert.assertNull(cache.get(URL + "/tasks.js"));
+        Assert.assertNotNull(cache.get(URL + "5.js"));
+    }
+
+    @Test
+    public void shouldClear() {
+        InMemoryResponseCache cache = new InMemoryResponseCache(10);
+        cache.put("a", createResponse("a"));
+        cache.clear();
+        Assert.assertEquals(cache.size(), 0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectInvalidSize() {
+        new InMemoryResponseCache(0);
+    }
+}
@@ -0,0 +1,94 @@
+package com.rallydev.rest.client;
+
+import com.rallydev.rest.response.GetResponse;
+import com.sun.net.httpserver.HttpServer;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class JfrEventsTest {
+
+    @Test
+    public void shouldRecordRequests() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().close();
+            byte[] body = "{\"Foo\": \"Bar\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        try (Recording recording = new Recording();
+             HttpClient client = new HttpClient(new URI("http://localhost:" + server.getAddress().getPort()))) {
+            recording.enable("com.rallydev.rest.Request");
+            recording.start();
+            client.doPost("/defect/create.js", "{\"Defect\":{}}");
+            recording.stop();
+
+            List<RecordedEvent> events = readEvents(recording, "com.rallydev.rest.Request");
+            Assert.assertEquals(events.size(), 1);
+            RecordedEvent event = events.get(0);
+            Assert.assertEquals(event.getString("method"), "POST");
+            Assert.assertEquals(event.getString("path"), "/slm/webservice/v2.0/defect/create.js");
+            Assert.assertEquals(event.getString("type"), "defect");
+            Assert.assertEquals(event.getString("operation"), "create");
+            Assert.assertEquals(event.getInt("statusCode"), 200);
+            Assert.assertEquals(event.getLong("bytesSent"), 13);
+            Assert.assertEquals(event.getLong("bytesReceived"), 14);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void shouldRecordParsing() throws Exception {
+        try (Recording recording = new Recording()) {
+            recording.enable("com.rallydev.rest.Parse");
+            recording.start();
+            String response = "{\"Defect\": {\"Errors\": [], \"Warnings\": []}}";
+            new GetResponse(response);
+            recording.stop();
+
+            List<RecordedEvent> events = readEvents(recording, "com.rallydev.rest.Parse");
+            Assert.assertEquals(events.size(), 1);
+            Assert.assertEquals(events.get(0).getInt("length"), response.length());
+        }
+    }
+
+    @Test
+    public void shouldRecordNothingWhenDisabled() throws Exception {
+        Assert.assertNull(JfrEvents.beginParse());
+        Assert.assertNull(JfrEvents.beginQueryPage());
+        Assert.assertNull(JfrEvents.beginRequest());
+        JfrEvents.endParse(null, "/defect.js", 0);
+    }
+
+    static List<RecordedEvent> readEvents(Recording recording, String name) throws IOException {
+        Path file = Files.createTempFile("rally-rest-api", ".jfr");
+        try {
+            recording.dump(file);
+            List<RecordedEvent> events = new ArrayList<RecordedEvent>();
+            for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+                if (event.getEventType().getName().equals(name) &&
+                        event.getThread().getJavaThreadId() == Thread.currentThread().getId()) {
+                    events.add(event);
+                }
+            }
+            return events;
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.rallydev.rest.client;
+
+import com.google.gson.JsonObject;
+import org.apache.http.HttpResponse;
+import org.apache.http.StatusLine;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.entity.StringEntity;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class JsonResponseHandlerTest {
+
+    private JsonResponseHandler handler = new JsonResponseHandler();
+
+    @Test
+    public void shouldParseResponse() throws Exception {
+        JsonObject result = handler.handleResponse(createMockResponse(200,
+                new StringEntity("{\"QueryResult\": {\"TotalResultCount\": 5}}", ContentType.APPLICATION_JSON)));
+        Assert.assertEquals(result.getAsJsonObject("QueryResult").get("TotalResultCount").getAsInt(), 5);
+    }
+
+    @Test
+    public void shouldParseUtf8ResponseWithoutContentType() throws Exception {
+        InputStream content = new ByteArrayInputStream("{\"Name\": \"备\"}".getBytes(StandardCharsets.UTF_8));
+        JsonObject result = handler.handleResponse(createMockResponse(200, new InputStreamEntity(content)));
+        Assert.assertEquals(result.get("Name").getAsString(), "备");
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void shouldExplodeWithInvalidResponse() throws Exception {
+        handler.handleResponse(createMockResponse(500, new StringEntity("")));
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void shouldPropagateReadFailures() throws Exception {
+        InputStream content = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Connection reset");
+            }
+        };
+        handler.handleResponse(createMockResponse(200, new InputStreamEntity(content)));
+    }
+
+    private HttpResponse createMockResponse(int statusCode, org.apache.http.HttpEntity entity) {
+        HttpResponse response = mock(HttpResponse.class);
+        StatusLine status = mock(StatusLine.class);
+        when(response.getStatusLine()).thenReturn(status);
+        when(status.getStatusCode()).thenReturn(statusCode);
+        when(response.getEntity()).thenReturn(entity);
+        return response;
+    }
+}
@@ -0,0 +1,80 @@
+package com.rallydev.rest.client;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void shouldReportNothingWhenEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals(histogram.getCount(), 0);
+        Assert.assertEquals(histogram.getPercentile(99), 0);
+        Assert.assertEquals(histogram.getMean(), 0);
+        Assert.assertEquals(histogram.getMax(), 0);
+    }
+
+    @Test
+    public void shouldRecordSmallValuesExactly() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int micros = 1; micros <= 50; micros++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(micros));
+        }
+        Assert.assertEquals(histogram.getCount(), 50);
+        Assert.assertEquals(histogram.getPercentile(50), TimeUnit.MICROSECONDS.toNanos(25));
+        Assert.assertEquals(histogram.getPercentile(100), TimeUnit.MICROSECONDS.toNanos(50));
+        Assert.assertEquals(histogram.getMax(), TimeUnit.MICROSECONDS.toNanos(50));
+    }
+
+    @Test
+    public void shouldReportPercentilesWithinPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int millis = 1; millis <= 1000; millis++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+        assertWithin(histogram.getPercentile(50), TimeUnit.MILLISECONDS.toNanos(500));
+        assertWithin(histogram.getPercentile(99), TimeUnit.MILLISECONDS.toNanos(990));
+        assertWithin(histogram.getPercentile(99.9), TimeUnit.MILLISECONDS.toNanos(999));
+        Assert.assertEquals(histogram.getMax(), TimeUnit.MILLISECONDS.toNanos(1000));
+        Assert.assertEquals(histogram.getMean(), TimeUnit.MICROSECONDS.toNanos(500500));
+    }
+
+    @Test
+    public void shouldClampLargeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(Long.MAX_VALUE);
+        histogram.record(-1);
+        Assert.assertEquals(histogram.getCount(), 2);
+        Assert.assertEquals(histogram.getPercentile(50), 0);
+        Assert.assertTrue(histogram.getPercentile(100) > TimeUnit.DAYS.toNanos(12));
+    }
+
+    @Test
+    public void shouldMapEveryValueToABucketContainingIt() {
+        for (long micros = 0; micros < 1L << 40; micros = micros * 3 / 2 + 1) {
+            int index = LatencyHistogram.getIndex(micros);
+            Assert.assertTrue(LatencyHistogram.getUpperBound(index) >= micros);
+            Assert.assertTrue(index == 0 || LatencyHistogram.getUpperBound(index - 1) < micros);
+        }
+    }
+
+    @Test
+    public void shouldReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000000);
+        histogram.reset();
+        Assert.assertEquals(histogram.getCount(), 0);
+        Assert.assertEquals(histogram.getPercentile(50), 0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectInvalidPercentile() {
+        new LatencyHistogram().getPercentile(101);
+    }
+
+    private static void assertWithin(long actual, long expected) {
+        Assert.assertTrue(Math.abs(actual - expected) <= expected / 32, actual + " is not within 3% of " + expected);
+    }
+}
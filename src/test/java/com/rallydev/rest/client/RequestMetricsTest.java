@@ -0,0 +1,112 @@
+package com.rallydev.rest.client;
+
+import org.apache.http.client.methods.HttpDelete;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+
+public class RequestMetricsTest {
+
+    private static final String WSAPI = "https://rally1.rallydev.com/slm/webservice/v2.0";
+
+    @Test
+    public void shouldTagRequestsByTypeAndOperation() {
+        assertTags("GET", WSAPI + "/defect.js?query=&start=1", "defect", "query");
+        assertTags("GET", WSAPI + "/users.js", "user", "query");
+        assertTags("GET", WSAPI + "/portfolioitem/feature.js", "portfolioitem/feature", "query");
+        assertTags("GET", WSAPI + "/defect/1234.js", "defect", "get");
+        assertTags("GET", WSAPI + "/defect/f3a4c1d2-95b8-4f3a-9c1d-2e3f4a5b6c7d.js", "defect", "get");
+        assertTags("POST", WSAPI + "/defect/1234.js", "defect", "update");
+        assertTags("DELETE", WSAPI + "/defect/1234.js", "defect", "delete");
+        assertTags("POST", WSAPI + "/portfolioitem/feature/create.js", "portfolioitem/feature", "create");
+        assertTags("GET", WSAPI + "/defect/1234/Tasks", "defect", "query");
+        assertTags("POST", WSAPI + "/defect/1234/tags/add.js", "defect", "add");
+        assertTags("POST", WSAPI + "/defect/1234/tags/remove.js", "defect", "remove");
+        assertTags("POST", WSAPI + "/batch", "batch", "batch");
+        assertTags("GET", WSAPI + "/security/authorize", "security", "authorize");
+        assertTags("GET", "/defect/1234.js?fetch=Name", "defect", "get");
+    }
+
+    @Test
+    public void shouldRecordRequests() {
+        RequestMetrics metrics = new RequestMetrics();
+        HttpPost create = new HttpPost(WSAPI + "/defect/create.js");
+
+        metrics.requestStarted(create);
+        Assert.assertEquals(metrics.getOperation("Defect", "create").getInFlight(), 1);
+        metrics.requestCompleted(create, 503, 20, 0, 1000000);
+        metrics.requestFailed(create, new HttpStatusException("HTTP/1.1 503", 503, 0));
+        metrics.requestRetried(create, 1, 0);
+        metrics.requestStarted(create);
+        metrics.requestCompleted(create, 200, 20, 300, 3000000);
+        metrics.responseParsed("POST", "/defect/create.js", 300, 50000);
+
+        RequestMetrics.OperationMetrics operation = metrics.getOperation("Defect", "create");
+        Assert.assertEquals(operation.getType(), "defect");
+        Assert.assertEquals(operation.getOperation(), "create");
+        Assert.assertEquals(operation.getInFlight(), 0);
+        Assert.assertEquals(operation.getRequests(), 2);
+        Assert.assertEquals(operation.getErrors(), 1);
+        Assert.assertEquals(operation.getRetries(), 1);
+        Assert.assertEquals(operation.getBytesSent(), 40);
+        Assert.assertEquals(operation.getBytesReceived(), 300);
+        Assert.assertEquals(operation.getStatusCodes().get(200), Long.valueOf(1));
+        Assert.assertEquals(operation.getStatusCodes().get(503), Long.valueOf(1));
+        Assert.assertEquals(operation.getLatency().getCount(), 2);
+        Assert.assertEquals(operation.getLatency().getMax(), 3000000);
+        Assert.assertEquals(operation.getParseTime().getCount(), 1);
+    }
+
+    @Test
+    public void shouldRecordPagesPerQuery() {
+        RequestMetrics metrics = new RequestMetrics();
+        for (int start = 1; start <= 401; start += 200) {
+            HttpGet page = new HttpGet(WSAPI + "/defect.js?start=" + start + "&pagesize=200");
+            metrics.requestStarted(page);
+            metrics.requestCompleted(page, 200, 0, 1000, 1000000);
+        }
+        metrics.queryCompleted("/defect.js?start=1&pagesize=200", 450, 5000000);
+
+        RequestMetrics.OperationMetrics operation = metrics.getOperation("defect", "query");
+        Assert.assertEquals(operation.getQueries(), 1);
+        Assert.assertEquals(operation.getQueryResults(), 450);
+        Assert.assertEquals(operation.getPagesPerQuery(), 3.0);
+        Assert.assertEquals(operation.getQueryLatency().getMax(), 5000000);
+    }
+
+    @Test
+    public void shouldListOperationsInOrder() {
+        RequestMetrics metrics = new RequestMetrics();
+        metrics.requestRetried(new HttpDelete(WSAPI + "/task/1.js"), 1, 0);
+        metrics.requestRetried(new HttpGet(WSAPI + "/defect/1.js"), 1, 0);
+        metrics.requestRetried(new HttpGet(WSAPI + "/defect.js"), 1, 0);
+
+        Assert.assertEquals(metrics.getOperations().size(), 3);
+        Assert.assertEquals(metrics.getOperations().get(0).getOperation(), "get");
+        Assert.assertEquals(metrics.getOperations().get(1).getOperation(), "query");
+        Assert.assertEquals(metrics.getOperations().get(2).getType(), "task");
+
+        metrics.reset();
+        Assert.assertEquals(metrics.getOperations(), Collections.emptyList());
+        Assert.assertNull(metrics.getOperation("task", "delete"));
+    }
+
+    @Test
+    public void shouldDescribeOperation() {
+        RequestMetrics metrics = new RequestMetrics();
+        HttpGet get = new HttpGet(WSAPI + "/defect/1.js");
+        metrics.requestStarted(get);
+        metrics.requestCompleted(get, 200, 0, 10, 2000000);
+        Assert.assertEquals(metrics.getOperation("defect", "get").toString(),
+                "defect get: 1 requests, 0 errors, 0 retries, p50 2.0ms, p99 2.0ms");
+    }
+
+    private static void assertTags(String method, String url, String type, String operation) {
+        String[] tags = RequestMetrics.getTags(method, url);
+        Assert.assertEquals(tags[0], type, url);
+        Assert.assertEquals(tags[1], operation, url);
+    }
+}
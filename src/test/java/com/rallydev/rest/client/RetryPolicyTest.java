@@ -0,0 +1,106 @@
+package com.rallydev.rest.client;
+
+import org.apache.http.NoHttpResponseException;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+
+public class RetryPolicyTest {
+
+    private RetryPolicy policy;
+
+    @BeforeMethod
+    public void setUp() {
+        policy = new RetryPolicy();
+    }
+
+    @Test
+    public void shouldUseDefaults() {
+        Assert.assertEquals(policy.getMaxRetries(), 3);
+        Assert.assertTrue(policy.getRetryableMethods().contains("GET"));
+        Assert.assertFalse(policy.getRetryableMethods().contains("POST"));
+        Assert.assertTrue(policy.getRetryableStatusCodes().contains(429));
+        Assert.assertTrue(policy.getRetryableStatusCodes().contains(503));
+        Assert.assertFalse(policy.getRetryableStatusCodes().contains(500));
+        Assert.assertEquals(policy.getBudgetTokens(), 10.0);
+    }
+
+    @Test
+    public void shouldRetryRetryableStatus() {
+        long delay = policy.getRetryDelay("GET", new HttpStatusException("HTTP/1.1 503", 503, -1), 1);
+        Assert.assertTrue(delay >= 0 && delay <= policy.getInitialBackoff());
+    }
+
+    @Test
+    public void shouldRetryConnectionFailure() {
+        Assert.assertTrue(policy.getRetryDelay("GET", new NoHttpResponseException("Foo"), 1) >= 0);
+    }
+
+    @Test
+    public void shouldNotRetryOtherStatus() {
+        Assert.assertEquals(policy.getRetryDelay("GET", new HttpStatusException("HTTP/1.1 500", 500, -1), 1), -1);
+        Assert.assertEquals(policy.getRetryDelay("GET", new IOException("Foo"), 1), -1);
+    }
+
+    @Test
+    public void shouldNotRetryUnsafeMethods() {
+        HttpStatusException error = new HttpStatusException("HTTP/1.1 503", 503, -1);
+        Assert.assertEquals(policy.getRetryDelay("POST", error, 1), -1);
+        policy.setRetryableMethods("GET", "POST");
+        Assert.assertTrue(policy.getRetryDelay("POST", error, 1) >= 0);
+    }
+
+    @Test
+    public void shouldStopAfterMaxRetries() {
+        HttpStatusException error = new HttpStatusException("HTTP/1.1 503", 503, -1);
+        policy.setMaxRetries(2);
+        Assert.assertTrue(policy.getRetryDelay("GET", error, 2) >= 0);
+        Assert.assertEquals(policy.getRetryDelay("GET", error, 3), -1);
+    }
+
+    @Test
+    public void shouldBackOffExponentially() {
+        policy.setInitialBackoff(100);
+        policy.setMaxBackoff(350);
+        for (int i = 0; i < 20; i++) {
+            Assert.assertTrue(policy.getBackoff(1) <= 100);
+            Assert.assertTrue(policy.getBackoff(2) <= 200);
+            Assert.assertTrue(policy.getBackoff(3) <= 350);
+            Assert.assertTrue(policy.getBackoff(10) <= 350);
+        }
+    }
+
+    @Test
+    public void shouldHonourRetryAfter() {
+        Assert.assertEquals(policy.getRetryDelay("GET", new HttpStatusException("HTTP/1.1 429", 429, 5000), 1), 5000);
+    }
+
+    @Test
+    public void shouldNotRetryWhenRetryAfterTooLong() {
+        policy.setMaxRetryAfter(1000);
+        Assert.assertEquals(policy.getRetryDelay("GET", new HttpStatusException("HTTP/1.1 429", 429, 5000), 1), -1);
+    }
+
+    @Test
+    public void shouldEnforceRetryBudget() {
+        HttpStatusException error = new HttpStatusException("HTTP/1.1 503", 503, -1);
+        policy.setRetryBudget(2, 0.5);
+        Assert.assertTrue(policy.getRetryDelay("GET", error, 1) >= 0);
+        Assert.assertTrue(policy.getRetryDelay("GET", error, 1) >= 0);
+        Assert.assertEquals(policy.getRetryDelay("GET", error, 1), -1);
+
+        policy.onSuccess();
+        Assert.assertEquals(policy.getRetryDelay("GET", error, 1), -1);
+        policy.onSuccess();
+        Assert.assertTrue(policy.getRetryDelay("GET", error, 1) >= 0);
+    }
+
+    @Test
+    public void shouldNotExceedMaxBudget() {
+        policy.setRetryBudget(2, 1);
+        policy.onSuccess();
+        Assert.assertEquals(policy.getBudgetTokens(), 2.0);
+    }
+}
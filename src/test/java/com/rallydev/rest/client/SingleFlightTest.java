@@ -0,0 +1,120 @@
+package com.rallydev.rest.client;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SingleFlightTest {
+
+    private static void await(CountDownLatch latch) throws IOException {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException();
+        }
+    }
+
+    private void awaitShared(SingleFlight<?> flight, long shared) throws InterruptedException {
+        while (flight.getShared() < shared) {
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    public void shouldShareResultOfCallInFlight() throws Exception {
+        final SingleFlight<String> flight = new SingleFlight<String>();
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger calls = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(() -> flight.execute("a", () -> {
+                calls.incrementAndGet();
+                await(release);
+                return "result";
+            }));
+            while (flight.getExecuted() == 0) {
+                Thread.sleep(1);
+            }
+            Future<String> second = executor.submit(() -> flight.execute("a", () -> {
+                calls.incrementAndGet();
+                return "other";
+            }));
+            awaitShared(flight, 1);
+            release.countDown();
+            Assert.assertEquals(first.get(), "result");
+            Assert.assertSame(second.get(), first.get());
+            Assert.assertEquals(calls.get(), 1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldShareException() throws Exception {
+        final SingleFlight<String> flight = new SingleFlight<String>();
+        final CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(() -> flight.execute("a", () -> {
+                await(release);
+                throw new IOException("Service unavailable");
+            }));
+            while (flight.getExecuted() == 0) {
+                Thread.sleep(1);
+            }
+            Future<String> second = executor.submit(() -> flight.execute("a", () -> "other"));
+            awaitShared(flight, 1);
+            release.countDown();
+            for (Future<String> future : new Future[]{first, second}) {
+                try {
+                    future.get();
+                    Assert.fail("Expected IOException");
+                } catch (ExecutionException e) {
+                    Assert.assertEquals(e.getCause().getMessage(), "Service unavailable");
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldExecuteAgainOnceComplete() throws IOException {
+        SingleFlight<String> flight = new SingleFlight<String>();
+        Assert.assertEquals(flight.execute("a", () -> "first"), "first");
+        Assert.assertEquals(flight.execute("a", () -> "second"), "second");
+        Assert.assertEquals(flight.getExecuted(), 2);
+        Assert.assertEquals(flight.getShared(), 0);
+    }
+
+    @Test
+    public void shouldForgetCallsInFlight() throws Exception {
+        final SingleFlight<String> flight = new SingleFlight<String>();
+        final CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        try {
+            Future<String> first = executor.submit(() -> flight.execute("/defect/1234.js", () -> {
+                await(release);
+                return "stale";
+            }));
+            while (flight.getExecuted() == 0) {
+                Thread.sleep(1);
+            }
+            flight.forget("/defect/1234");
+            Assert.assertEquals(flight.execute("/defect/1234.js", () -> "fresh"), "fresh");
+            release.countDown();
+            Assert.assertEquals(first.get(), "stale");
+            Assert.assertEquals(flight.getShared(), 0);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.rallydev.rest.client;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TieredResponseCacheTest {
+
+    private CachedResponse createResponse(String body) {
+        return new CachedResponse(body, "\"abc\"", null, System.currentTimeMillis());
+    }
+
+    @Test
+    public void shouldStoreInBothTiers() {
+        InMemoryResponseCache first = new InMemoryResponseCache(10, 1000);
+        InMemoryResponseCache second = new InMemoryResponseCache(10);
+        TieredResponseCache cache = new TieredResponseCache(first, second);
+        CachedResponse response = createResponse("a");
+        cache.put("a", response);
+        Assert.assertSame(first.get("a"), response);
+        Assert.assertSame(second.get("a"), response);
+        Assert.assertEquals(cache.getTimeToLive(), 1000);
+    }
+
+    @Test
+    public void shouldPromoteFromSecondTier() {
+        InMemoryResponseCache first = new InMemoryResponseCache(10);
+        InMemoryResponseCache second = new InMemoryResponseCache(10);
+        TieredResponseCache cache = new TieredResponseCache(first, second);
+        CachedResponse response = createResponse("a");
+        second.put("a", response);
+        Assert.assertSame(cache.get("a"), response);
+        Assert.assertSame(first.get("a"), response);
+        Assert.assertNull(cache.get("b"));
+    }
+
+    @Test
+    public void shouldInvalidateAndClearBothTiers() {
+        InMemoryResponseCache first = new InMemoryResponseCache(10);
+        InMemoryResponseCache second = new InMemoryResponseCache(10);
+        TieredResponseCache cache = new TieredResponseCache(first, second);
+        cache.put("a/1", createResponse("a"));
+        cache.put("b", createResponse("b"));
+        cache.invalidate("a");
+        Assert.assertEquals(first.size(), 1);
+        Assert.assertEquals(second.size(), 1);
+        cache.clear();
+        Assert.assertEquals(first.size(), 0);
+        Assert.assertEquals(second.size(), 0);
+    }
+}
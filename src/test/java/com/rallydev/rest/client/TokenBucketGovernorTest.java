@@ -0,0 +1,79 @@
+package com.rallydev.rest.client;
+
+import org.apache.http.client.methods.HttpGet;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+public class TokenBucketGovernorTest {
+
+    private HttpGet createRequest(String apiKey) {
+        HttpGet request = new HttpGet("https://rally1.rallydev.com/slm/webservice/v2.0/defect/1234.js");
+        if (apiKey != null) {
+            request.setHeader("zsessionid", apiKey);
+        }
+        return request;
+    }
+
+    @Test
+    public void shouldAllowBurst() throws Exception {
+        TokenBucketGovernor governor = new TokenBucketGovernor(1, 5);
+        long start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            governor.beforeRequest(createRequest("foo"));
+        }
+        Assert.assertTrue(System.nanoTime() - start < 500000000L);
+    }
+
+    @Test
+    public void shouldLimitRate() throws Exception {
+        TokenBucketGovernor governor = new TokenBucketGovernor(50, 1);
+        long start = System.nanoTime();
+        for (int i = 0; i < 6; i++) {
+            governor.beforeRequest(createRequest("foo"));
+        }
+        Assert.assertTrue(System.nanoTime() - start >= 90000000L);
+    }
+
+    @Test
+    public void shouldLimitRateAsyncWithoutExecutor() throws Exception {
+        TokenBucketGovernor governor = new TokenBucketGovernor(50, 1);
+        Executor executor = runnable -> Assert.fail("should not block a thread");
+        long start = System.nanoTime();
+        List<CompletableFuture<Void>> allowed = new ArrayList<CompletableFuture<Void>>();
+        for (int i = 0; i < 6; i++) {
+            allowed.add(governor.beforeRequestAsync(createRequest("foo"), executor));
+        }
+        Assert.assertTrue(allowed.get(0).isDone());
+        Assert.assertFalse(allowed.get(5).isDone());
+        CompletableFuture.allOf(allowed.toArray(new CompletableFuture[allowed.size()])).get(5, TimeUnit.SECONDS);
+        Assert.assertTrue(System.nanoTime() - start >= 90000000L);
+    }
+
+    @Test
+    public void shouldLimitEachApiKeySeparately() throws Exception {
+        TokenBucketGovernor governor = new TokenBucketGovernor(0.1, 1);
+        long start = System.nanoTime();
+        governor.beforeRequest(createRequest("foo"));
+        governor.beforeRequest(createRequest("bar"));
+        governor.beforeRequest(createRequest(null));
+        Assert.assertTrue(System.nanoTime() - start < 500000000L);
+    }
+
+    @Test
+    public void shouldKeyByApiKeyOrServer() {
+        TokenBucketGovernor governor = new TokenBucketGovernor(1, 1);
+        Assert.assertEquals(governor.getKey(createRequest("foo")), "foo");
+        Assert.assertEquals(governor.getKey(createRequest(null)), "rally1.rallydev.com");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectInvalidRate() {
+        new TokenBucketGovernor(0, 1);
+    }
+}
@@ -0,0 +1,112 @@
+package com.rallydev.rest.request;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+public class BatchRequestTest {
+
+    private CreateRequest createRequest(String name) {
+        JsonObject defect = new JsonObject();
+        defect.addProperty("Name", name);
+        return new CreateRequest("defect", defect);
+    }
+
+    @Test
+    public void shouldConstructCorrectUrl() {
+        BatchRequest req = new BatchRequest();
+        Assert.assertEquals(req.toUrl(), "/batch.js");
+    }
+
+    @Test
+    public void shouldConstructCorrectUrlWithExtraParam() {
+        BatchRequest req = new BatchRequest();
+        req.addParam("foo", "Bar");
+        Assert.assertEquals(req.toUrl(), "/batch.js?foo=Bar");
+    }
+
+    @Test
+    public void shouldCreateCorrectBody() {
+        CreateRequest create = createRequest("Foo");
+        JsonObject updated = new JsonObject();
+        updated.addProperty("Name", "Bar");
+        UpdateRequest update = new UpdateRequest("/defect/1234", updated);
+        DeleteRequest delete = new DeleteRequest("/defect/2345");
+
+        BatchRequest req = new BatchRequest(create, update, delete);
+        JsonArray batch = new JsonParser().parse(req.getBody()).getAsJsonObject().getAsJsonArray("Batch");
+        Assert.assertEquals(batch.size(), 3);
+
+        JsonObject first = batch.get(0).getAsJsonObject().getAsJsonObject("Entry");
+        Assert.assertEquals(first.get("Path").getAsString(), create.toUrl());
+        Assert.assertEquals(first.get("Method").getAsString(), "POST");
+        Assert.assertEquals(first.getAsJsonObject("Body"), new JsonParser().parse(create.getBody()));
+
+        JsonObject second = batch.get(1).getAsJsonObject().getAsJsonObject("Entry");
+        Assert.assertEquals(second.get("Path").getAsString(), update.toUrl());
+        Assert.assertEquals(second.get("Method").getAsString(), "POST");
+        Assert.assertEquals(second.getAsJsonObject("Body"), new JsonParser().parse(update.getBody()));
+
+        JsonObject third = batch.get(2).getAsJsonObject().getAsJsonObject("Entry");
+        Assert.assertEquals(third.get("Path").getAsString(), "/defect/2345.js");
+        Assert.assertEquals(third.get("Method").getAsString(), "DELETE");
+        Assert.assertFalse(third.has("Body"));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectUnsupportedOperations() {
+        new BatchRequest(new GetRequest("/defect/1234"));
+    }
+
+    @Test
+    public void shouldNotPartitionSmallBatch() {
+        BatchRequest req = new BatchRequest(createRequest("Foo"), createRequest("Bar"));
+        List<BatchRequest> batches = req.partition();
+        Assert.assertEquals(batches.size(), 1);
+        Assert.assertSame(batches.get(0), req);
+    }
+
+    @Test
+    public void shouldPartitionByMaxEntries() {
+        BatchRequest req = new BatchRequest(createRequest("A"), createRequest("B"), createRequest("C"),
+                createRequest("D"), createRequest("E"));
+        req.setMaxEntries(2);
+        req.addParam("foo", "Bar");
+        List<BatchRequest> batches = req.partition();
+        Assert.assertEquals(batches.size(), 3);
+        Assert.assertEquals(batches.get(0).getRequests().size(), 2);
+        Assert.assertEquals(batches.get(1).getRequests().size(), 2);
+        Assert.assertEquals(batches.get(2).getRequests().size(), 1);
+        Assert.assertSame(batches.get(2).getRequests().get(0), req.getRequests().get(4));
+        Assert.assertEquals(batches.get(1).toUrl(), "/batch.js?foo=Bar");
+    }
+
+    @Test
+    public void shouldPartitionByMaxBodySize() {
+        CreateRequest create = createRequest("Foo");
+        BatchRequest single = new BatchRequest(create);
+        int singleSize = single.getBody().length();
+
+        BatchRequest req = new BatchRequest(create, createRequest("Bar"), createRequest("Baz"));
+        req.setMaxBodySize(singleSize + 10);
+        List<BatchRequest> batches = req.partition();
+        Assert.assertEquals(batches.size(), 3);
+        for (BatchRequest batch : batches) {
+            Assert.assertTrue(batch.getBody().length() <= req.getMaxBodySize());
+        }
+    }
+
+    @Test
+    public void shouldSendOversizedOperationAlone() {
+        BatchRequest req = new BatchRequest(createRequest("Foo"), createRequest("Bar"));
+        req.setMaxBodySize(1);
+        List<BatchRequest> batches = req.partition();
+        Assert.assertEquals(batches.size(), 2);
+        Assert.assertEquals(batches.get(0).getRequests().size(), 1);
+        Assert.assertEquals(batches.get(1).getRequests().size(), 1);
+    }
+}
@@ -162,4 +162,46 @@ public class QueryRequestTest {
         QueryRequest q = new QueryRequest(collection);
         Assert.assertEquals(q.toUrl(), "/defect/1234/tasks?start=1&pagesize=200&fetch=true&order=ObjectID");
     }
+
+    @Test
+    public void shouldOnlyUseKeysetPagingWhenOrderedByObjectID() {
+        QueryRequest q = new QueryRequest("Defect");
+        Assert.assertFalse(q.usesKeysetPaging());
+
+        q.setKeysetPaging(true);
+        Assert.assertTrue(q.isKeysetPaging());
+        Assert.assertTrue(q.usesKeysetPaging());
+
+        q.setOrder("ObjectID ASC");
+        Assert.assertTrue(q.usesKeysetPaging());
+
+        q.setOrder("Name");
+        Assert.assertFalse(q.usesKeysetPaging());
+
+        q.setOrder("ObjectID DESC");
+        Assert.assertFalse(q.usesKeysetPaging());
+    }
+
+    @Test
+    public void shouldCreateCorrectKeysetPageRequest() {
+        QueryRequest q = new QueryRequest("Defect");
+        q.setStart(5);
+        q.setKeysetPaging(true);
+
+        QueryRequest page = q.getKeysetPageRequest("1234");
+        Assert.assertEquals(page.getStart(), 1);
+        Assert.assertEquals(page.getQueryFilter().toString(), "(ObjectID > 1234)");
+        Assert.assertEquals(q.getStart(), 5);
+        Assert.assertNull(q.getQueryFilter());
+    }
+
+    @Test
+    public void shouldCombineKeysetPageRequestWithQueryFilter() {
+        QueryRequest q = new QueryRequest("Defect");
+        q.setQueryFilter(new QueryFilter("State", "=", "Open"));
+
+        QueryRequest page = q.getKeysetPageRequest("1234");
+        Assert.assertEquals(page.getQueryFilter().toString(), "((State = Open) AND (ObjectID > 1234))");
+        Assert.assertEquals(q.getQueryFilter().toString(), "(State = Open)");
+    }
 }
@@ -0,0 +1,30 @@
+package com.rallydev.rest.response;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class BatchResponseTest {
+
+    @Test
+    public void shouldReturnResults() {
+        BatchResponse r = new BatchResponse("{\"BatchResult\": { \"Errors\": [], \"Warnings\": [], " +
+                "\"Results\": [{\"Errors\": [], \"Object\": {\"_ref\": \"/defect/1234\"}}, {\"Errors\": [\"Foo\"]}]}}");
+        Assert.assertTrue(r.wasSuccessful());
+        JsonArray results = r.getResults();
+        Assert.assertEquals(results.size(), 2);
+        Assert.assertEquals(results.get(0).getAsJsonObject().getAsJsonObject("Object").get("_ref").getAsString(),
+                "/defect/1234");
+        Assert.assertEquals(results.get(1).getAsJsonObject().getAsJsonArray("Errors").get(0).getAsString(), "Foo");
+    }
+
+    @Test
+    public void shouldReturnErrors() {
+        BatchResponse r = new BatchResponse("{\"BatchResult\": { \"Errors\": " +
+                new Gson().toJson(new String[]{"Foo", "Bar"}) + ", \"Warnings\": []}}");
+        Assert.assertFalse(r.wasSuccessful());
+        Assert.assertEquals(r.getErrors().length, 2);
+        Assert.assertEquals(r.getResults().size(), 0);
+    }
+}
@@ -1,6 +1,8 @@
 package com.rallydev.rest.response;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -32,4 +34,11 @@ public class GetResponseTest {
         Assert.assertEquals(r.getObject().get("Foo").getAsString(), "Bar");
     }
 
+    @Test
+    public void shouldCreateFromParsedDocument() {
+        JsonObject document = new JsonParser().parse("{\"Defect\": { \"Errors\": [], \"Foo\": \"Bar\"}}").getAsJsonObject();
+        GetResponse r = new GetResponse(document);
+        Assert.assertTrue(r.wasSuccessful(), "Successful correct");
+        Assert.assertEquals(r.getObject().get("Foo").getAsString(), "Bar");
+    }
 }
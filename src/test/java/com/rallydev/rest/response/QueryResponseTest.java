@@ -6,6 +6,8 @@ import com.google.gson.JsonObject;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.util.Arrays;
+
 public class QueryResponseTest {
     private QueryResponse createResponse(String[] errors, JsonArray results) {
         return new QueryResponse("{\"QueryResult\": { \"Errors\": " + new Gson().toJson(errors) + ", \"Warnings\": [], \"TotalResultCount\": "  +
@@ -44,4 +46,19 @@ public class QueryResponseTest {
         Assert.assertEquals(r.getTotalResultCount(), 0);
         Assert.assertEquals(r.getResults().size(), 0);
     }
+
+    @Test
+    public void shouldAddErrorsWithoutCopyingResults() {
+        JsonArray results = new JsonArray();
+        results.add(new JsonObject());
+        QueryResponse r = createResponse(new String[]{"Foo"}, results);
+
+        QueryResponse withErrors = r.withErrors(Arrays.asList("Foo", "Bar"));
+
+        Assert.assertEquals(withErrors.getErrors(), new String[]{"Foo", "Bar"});
+        Assert.assertEquals(r.getErrors(), new String[]{"Foo"});
+        Assert.assertSame(withErrors.getResults(), r.getResults());
+        Assert.assertEquals(withErrors.getTotalResultCount(), 1);
+        Assert.assertEquals(withErrors.getPageSize(), 20);
+    }
 }
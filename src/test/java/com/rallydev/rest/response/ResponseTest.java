@@ -1,5 +1,7 @@
 package com.rallydev.rest.response;
 
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -47,4 +49,30 @@ public class ResponseTest {
         String[] warnings = r.getWarnings();
         Assert.assertEquals(warnings.length, 0, "Warning length correct");
     }
+
+    @Test
+    public void shouldCreateFromParsedDocument() {
+        JsonObject document = new JsonParser().parse("{\"Root\": {\"Errors\": [\"Foo\"]}}").getAsJsonObject();
+        Response r = new Response(document) {
+            @Override
+            public String getRoot() {
+                return "Root";
+            }
+        };
+        Assert.assertEquals(r.getErrors().length, 1, "Error length correct");
+        Assert.assertSame(r.getDocument(), document);
+    }
+
+    @Test
+    public void shouldReturnRaw() {
+        Response r = createResponse("{\"Errors\": []}");
+        Assert.assertEquals(new JsonParser().parse(r.getRaw()), new JsonParser().parse("{\"Root\": {\"Errors\": []}}"));
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void shouldPopulateRawField() {
+        Response r = createResponse("{\"Errors\": []}");
+        Assert.assertEquals(r.raw, "{\"Root\": {\"Errors\": []}}");
+    }
 }
@@ -0,0 +1,80 @@
+package com.rallydev.rest.util;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class IdentityMapTest {
+
+    private JsonObject createDefect(String ref, String name) {
+        JsonObject defect = new JsonObject();
+        defect.addProperty("_ref", ref);
+        defect.addProperty("Name", name);
+        return defect;
+    }
+
+    @Test
+    public void shouldStoreCompleteObjects() {
+        IdentityMap map = new IdentityMap();
+        map.put(createDefect("https://rally1.rallydev.com/slm/webservice/v2.0/defect/1234", "Foo"), true);
+        Assert.assertEquals(map.get("/defect/1234", new Fetch()).get("Name").getAsString(), "Foo");
+        Assert.assertEquals(map.get("/defect/1234.js", new Fetch("Name", "State")).get("Name").getAsString(), "Foo");
+        Assert.assertNull(map.get("/defect/2345", new Fetch()));
+        Assert.assertEquals(map.size(), 1);
+    }
+
+    @Test
+    public void shouldOnlyReturnPartialObjectsWhenFetchIsCovered() {
+        IdentityMap map = new IdentityMap();
+        map.put(createDefect("/defect/1234", "Foo"), false);
+        Assert.assertNotNull(map.get("/defect/1234", new Fetch("Name")));
+        Assert.assertNull(map.get("/defect/1234", new Fetch("Name", "State")));
+        Assert.assertNull(map.get("/defect/1234", new Fetch()));
+    }
+
+    @Test
+    public void shouldCopyObjects() {
+        IdentityMap map = new IdentityMap();
+        JsonObject defect = createDefect("/defect/1234", "Foo");
+        defect.add("Errors", new JsonArray());
+        map.put(defect, true);
+        defect.addProperty("Name", "Bar");
+
+        JsonObject stored = map.get("/defect/1234", new Fetch());
+        Assert.assertEquals(stored.get("Name").getAsString(), "Foo");
+        Assert.assertFalse(stored.has("Errors"));
+        stored.addProperty("Name", "Baz");
+        Assert.assertEquals(map.get("/defect/1234", new Fetch()).get("Name").getAsString(), "Foo");
+    }
+
+    @Test
+    public void shouldRemoveObjects() {
+        IdentityMap map = new IdentityMap();
+        map.put(createDefect("/defect/1234", "Foo"), true);
+        map.remove("https://rally1.rallydev.com/slm/webservice/v2.0/defect/1234.js");
+        Assert.assertNull(map.get("/defect/1234", new Fetch()));
+        map.put(createDefect("/defect/1234", "Foo"), true);
+        map.clear();
+        Assert.assertEquals(map.size(), 0);
+    }
+
+    @Test
+    public void shouldIgnoreObjectsWithoutRef() {
+        IdentityMap map = new IdentityMap();
+        map.put(new JsonObject(), true);
+        map.put(null, true);
+        Assert.assertEquals(map.size(), 0);
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsed() {
+        IdentityMap map = new IdentityMap(2);
+        map.put(createDefect("/defect/1", "A"), true);
+        map.put(createDefect("/defect/2", "B"), true);
+        map.get("/defect/1", new Fetch());
+        map.put(createDefect("/defect/3", "C"), true);
+        Assert.assertNotNull(map.get("/defect/1", new Fetch()));
+        Assert.assertNull(map.get("/defect/2", new Fetch()));
+    }
+}
@@ -1,8 +1,13 @@
 package com.rallydev.rest.util;
 
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
+
 public class QueryFilterTest {
     
     @Test
@@ -69,4 +74,130 @@ public class QueryFilterTest {
         Assert.assertEquals(QueryFilter.or(q, q2, q3).toString(), "(((Foo = Bar) OR (Bar = Baz)) OR (Baz = Foo))");
         Assert.assertNull(QueryFilter.or());
     }
+
+    @Test
+    public void shouldGetDisjuncts() {
+        QueryFilter q = new QueryFilter("Foo", "=", "Bar");
+        QueryFilter q2 = new QueryFilter("Bar", "=", "Baz");
+        QueryFilter q3 = new QueryFilter("Baz", "=", "Foo");
+        Assert.assertEquals(QueryFilter.or(q, q2.or(q3)).getDisjuncts(), Arrays.asList(q, q2, q3));
+        QueryFilter and = q.and(q2);
+        Assert.assertEquals(and.getDisjuncts(), Collections.singletonList(and));
+        Assert.assertEquals(q.getDisjuncts(), Collections.singletonList(q));
+    }
+
+    @Test
+    public void shouldGetConjuncts() {
+        QueryFilter q = new QueryFilter("Foo", "=", "Bar");
+        QueryFilter q2 = new QueryFilter("Bar", "=", "Baz");
+        QueryFilter q3 = new QueryFilter("Baz", "=", "Foo");
+        QueryFilter or = q2.or(q3);
+        Assert.assertEquals(q.and(or).getConjuncts(), Arrays.asList(q, or));
+        Assert.assertEquals(QueryFilter.and(q, q2, q3).getConjuncts(), Arrays.asList(q, q2, q3));
+    }
+
+    @Test
+    public void shouldCreateBalancedStaticQuery() {
+        QueryFilter[] filters = new QueryFilter[4];
+        for (int i = 0; i < filters.length; i++) {
+            filters[i] = new QueryFilter("ObjectID", "=", Integer.toString(i));
+        }
+        Assert.assertEquals(QueryFilter.or(filters).toString(),
+                "(((ObjectID = 0) OR (ObjectID = 1)) OR ((ObjectID = 2) OR (ObjectID = 3)))");
+        Assert.assertSame(QueryFilter.and(new QueryFilter[]{filters[0]}), filters[0]);
+    }
+
+    @Test
+    public void shouldSkipNullStaticQueries() {
+        QueryFilter a = new QueryFilter("Name", "=", "Foo");
+        QueryFilter b = new QueryFilter("Name", "=", "Bar");
+        Assert.assertEquals(QueryFilter.or(null, a).toString(), "(Name = Foo)");
+        Assert.assertEquals(QueryFilter.and(null, a, null, b).toString(), "((Name = Foo) AND (Name = Bar))");
+        Assert.assertNull(QueryFilter.or(null, null));
+    }
+
+    @Test
+    public void shouldRenderVeryLargeQueries() {
+        QueryFilter[] filters = new QueryFilter[100000];
+        QueryFilter chained = null;
+        for (int i = 0; i < filters.length; i++) {
+            filters[i] = new QueryFilter("ObjectID", "=", Integer.toString(i));
+            chained = chained == null ? filters[i] : chained.or(filters[i]);
+        }
+        String balanced = QueryFilter.or(filters).toString();
+        Assert.assertTrue(balanced.startsWith("(((((((((((((((((" + "(ObjectID = 0) OR (ObjectID = 1))"));
+        Assert.assertEquals(balanced.length(), chained.toString().length());
+        Assert.assertEquals(QueryFilter.or(filters).getDisjuncts().size(), filters.length);
+        Assert.assertTrue(chained.toString().endsWith(" OR (ObjectID = 99999))"));
+    }
+
+    private static final JsonObject DEFECT = new JsonParser().parse("{" +
+            "\"_ref\": \"https://rally1.rallydev.com/slm/webservice/v2.0/defect/1234\"," +
+            "\"Name\": \"Login fails\", \"State\": \"Open\", \"PlanEstimate\": 5, \"Blocked\": false," +
+            "\"Owner\": null," +
+            "\"Iteration\": {\"_ref\": \"https://rally1.rallydev.com/slm/webservice/v2.0/iteration/55\"," +
+            "  \"_refObjectName\": \"Sprint 1\", \"Name\": \"Sprint 1\"}," +
+            "\"Tasks\": [{\"ObjectID\": 7, \"State\": \"Defined\"}, {\"ObjectID\": 8, \"State\": \"Completed\"}]" +
+            "}").getAsJsonObject();
+
+    private boolean matches(String field, String operator, String value) {
+        return new QueryFilter(field, operator, value).toPredicate().test(DEFECT);
+    }
+
+    @Test
+    public void shouldEvaluateEquality() {
+        Assert.assertTrue(matches("State", "=", "open"));
+        Assert.assertFalse(matches("State", "!=", "Open"));
+        Assert.assertTrue(matches("PlanEstimate", "=", "5.0"));
+        Assert.assertTrue(matches("Blocked", "=", "false"));
+        Assert.assertTrue(matches("Owner", "=", "null"));
+        Assert.assertTrue(matches("Iteration", "!=", "null"));
+        Assert.assertTrue(matches("Iteration", "=", "/iteration/55"));
+        Assert.assertTrue(matches("Iteration", "=", "https://rally1.rallydev.com/slm/webservice/v2.0/iteration/55"));
+        Assert.assertFalse(matches("Iteration", "=", "/iteration/56"));
+        Assert.assertTrue(matches("Iteration.Name", "=", "Sprint 1"));
+        Assert.assertTrue(matches("Iteration.Name", "=", "\"Sprint 1\""));
+    }
+
+    @Test
+    public void shouldEvaluateComparisons() {
+        Assert.assertTrue(matches("PlanEstimate", "<", "10"));
+        Assert.assertTrue(matches("PlanEstimate", "<=", "5"));
+        Assert.assertFalse(matches("PlanEstimate", ">", "5"));
+        Assert.assertTrue(matches("PlanEstimate", ">=", "5"));
+        Assert.assertFalse(matches("Owner", ">", "0"));
+    }
+
+    @Test
+    public void shouldEvaluateContainsAndIn() {
+        Assert.assertTrue(matches("Name", "contains", "LOGIN"));
+        Assert.assertFalse(matches("Name", "!contains", "login"));
+        Assert.assertTrue(matches("State", "in", "Fixed,Open"));
+        Assert.assertTrue(matches("State", "!in", "Fixed,Closed"));
+    }
+
+    @Test
+    public void shouldEvaluateArrayPaths() {
+        Assert.assertTrue(matches("Tasks.ObjectID", "=", "8"));
+        Assert.assertFalse(matches("Tasks.ObjectID", "=", "9"));
+        Assert.assertFalse(matches("Tasks.State", "!=", "Completed"));
+        Assert.assertTrue(matches("Tasks.State", "!=", "Accepted"));
+        Assert.assertFalse(matches("Missing.Field", "=", "x"));
+    }
+
+    @Test
+    public void shouldEvaluateAndOr() {
+        QueryFilter open = new QueryFilter("State", "=", "Open");
+        QueryFilter closed = new QueryFilter("State", "=", "Closed");
+        QueryFilter small = new QueryFilter("PlanEstimate", "<", "3");
+        Assert.assertTrue(open.or(closed).toPredicate().test(DEFECT));
+        Assert.assertFalse(open.and(small).toPredicate().test(DEFECT));
+        Assert.assertTrue(QueryFilter.and(open, closed.or(small).or(open)).toPredicate().test(DEFECT));
+        Assert.assertFalse(QueryFilter.or(closed, small).toPredicate().test(DEFECT));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectUnsupportedOperator() {
+        new QueryFilter("Name", "~", "foo").toPredicate();
+    }
 }
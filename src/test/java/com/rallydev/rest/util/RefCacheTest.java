@@ -0,0 +1,80 @@
+package com.rallydev.rest.util;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+public class RefCacheTest {
+
+    @AfterMethod
+    public void tearDown() {
+        Ref.setCache(null);
+    }
+
+    @Test
+    public void shouldCacheParsedRefs() {
+        RefCache cache = new RefCache(10);
+        ParsedRef first = cache.parse("/defect/1234.js");
+        ParsedRef second = cache.parse("/defect/1234.js");
+        Assert.assertEquals(first.getRelativeRef(), "/defect/1234");
+        Assert.assertSame(second, first);
+        Assert.assertEquals(cache.getHits(), 1);
+        Assert.assertEquals(cache.getMisses(), 1);
+        Assert.assertEquals(cache.getHitRate(), 0.5);
+        Assert.assertEquals(cache.size(), 1);
+    }
+
+    @Test
+    public void shouldCacheNonRefs() {
+        RefCache cache = new RefCache(10);
+        Assert.assertNull(cache.parse("Accepted"));
+        Assert.assertNull(cache.parse("Accepted"));
+        Assert.assertEquals(cache.getHits(), 1);
+        Assert.assertNull(cache.parse(null));
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsed() {
+        RefCache cache = new RefCache(2);
+        cache.parse("/defect/1");
+        cache.parse("/defect/2");
+        cache.parse("/defect/1");
+        cache.parse("/defect/3");
+        Assert.assertEquals(cache.size(), 2);
+
+        cache.parse("/defect/1");
+        Assert.assertEquals(cache.getHits(), 2);
+        cache.parse("/defect/2");
+        Assert.assertEquals(cache.getMisses(), 4);
+    }
+
+    @Test
+    public void shouldClear() {
+        RefCache cache = new RefCache(2);
+        cache.parse("/defect/1");
+        cache.parse("/defect/1");
+        cache.clear();
+        Assert.assertEquals(cache.size(), 0);
+        Assert.assertEquals(cache.getHits(), 0);
+        Assert.assertEquals(cache.getMisses(), 0);
+        Assert.assertEquals(cache.getHitRate(), 0.0);
+    }
+
+    @Test
+    public void shouldBeUsedByRef() {
+        RefCache cache = new RefCache(10);
+        Ref.setCache(cache);
+        Assert.assertSame(Ref.getCache(), cache);
+        Assert.assertEquals(Ref.getRelativeRef("https://rally1.rallydev.com/slm/webservice/v2.0/defect/1234"), "/defect/1234");
+        Assert.assertEquals(Ref.getTypeFromRef("https://rally1.rallydev.com/slm/webservice/v2.0/defect/1234"), "defect");
+        Assert.assertEquals(new QueryFilter("State", "=", "Open").toString(), "(State = Open)");
+        Assert.assertEquals(new QueryFilter("State", "=", "Open").toString(), "(State = Open)");
+        Assert.assertEquals(cache.getHits(), 2);
+        Assert.assertEquals(cache.getMisses(), 2);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectInvalidSize() {
+        new RefCache(0);
+    }
+}
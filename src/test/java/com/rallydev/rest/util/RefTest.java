@@ -3,6 +3,13 @@ package com.rallydev.rest.util;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 public class RefTest {
 
     @Test
@@ -122,4 +129,109 @@ public class RefTest {
         Assert.assertEquals(Ref.getRelativeRef("/portfolioitem/feature/1234/children"), "/portfolioitem/feature/1234/children", "Valid dynatype relative collection ref");
         Assert.assertEquals(Ref.getRelativeRef("/typedefinition/-12345/attributes"), "/typedefinition/-12345/attributes", "Valid built-in type def attributes relative collection ref");
     }
+
+    @Test
+    public void shouldSupportUuidRefs() {
+        String uuid = "81348db8-aacd-447e-8678-2fb910ae9dc3";
+        Assert.assertEquals(Ref.getRelativeRef("https://rally1.rallydev.com/slm/webservice/v2.0/defect/" + uuid + ".js"), "/defect/" + uuid, "Valid uuid ref");
+        Assert.assertEquals(Ref.getOidFromRef("/portfolioitem/feature/" + uuid), uuid, "Get oid from dynatype uuid ref");
+        Assert.assertEquals(Ref.getTypeFromRef("/portfolioitem/feature/" + uuid), "portfolioitem/feature", "Get type from dynatype uuid ref");
+        Assert.assertEquals(Ref.getTypeFromRef("/defect/" + uuid + "/tasks"), "defect/" + uuid, "Get type from uuid collection ref");
+        Assert.assertEquals(Ref.getOidFromRef("/portfolioitem/feature/" + uuid + "/children"), uuid + "/children", "Get oid from dynatype uuid collection ref");
+    }
+
+    @Test
+    public void shouldParseRefs() {
+        ParsedRef ref = Ref.parse("https://rally1.rallydev.com/slm/webservice/v2.0/defect/1234.js?fetch=true");
+        Assert.assertEquals(ref.getRelativeRef(), "/defect/1234");
+        Assert.assertEquals(ref.getType(), "defect");
+        Assert.assertEquals(ref.getObjectId(), "1234");
+        Assert.assertNull(ref.getCollection());
+        Assert.assertFalse(ref.isCollection());
+        Assert.assertFalse(ref.isUuid());
+    }
+
+    @Test
+    public void shouldParseCollectionRefs() {
+        ParsedRef ref = Ref.parse("/defect/1234/tasks");
+        Assert.assertEquals(ref.getType(), "defect");
+        Assert.assertEquals(ref.getObjectId(), "1234");
+        Assert.assertEquals(ref.getCollection(), "tasks");
+        Assert.assertTrue(ref.isCollection());
+
+        ParsedRef dynatypeRef = Ref.parse("/portfolioitem/feature/1234/children.js");
+        Assert.assertEquals(dynatypeRef.getRelativeRef(), "/portfolioitem/feature/1234/children");
+        Assert.assertEquals(dynatypeRef.getType(), "portfolioitem/feature");
+        Assert.assertEquals(dynatypeRef.getObjectId(), "1234");
+        Assert.assertEquals(dynatypeRef.getCollection(), "children");
+    }
+
+    @Test
+    public void shouldParseUuidRefs() {
+        ParsedRef ref = Ref.parse("/portfolioitem/feature/81348db8-aacd-447e-8678-2fb910ae9dc3");
+        Assert.assertEquals(ref.getType(), "portfolioitem/feature");
+        Assert.assertEquals(ref.getObjectId(), "81348db8-aacd-447e-8678-2fb910ae9dc3");
+        Assert.assertTrue(ref.isUuid());
+    }
+
+    @Test
+    public void shouldParseEqualRefs() {
+        Assert.assertEquals(Ref.parse("https://rally1.rallydev.com/slm/webservice/v2.0/defect/1234.js"), Ref.parse("/defect/1234"));
+        Assert.assertEquals(Ref.parse("/defect/1234").hashCode(), Ref.parse("/defect/1234.js").hashCode());
+        Assert.assertNotEquals(Ref.parse("/defect/1234"), Ref.parse("/defect/1235"));
+    }
+
+    @Test
+    public void shouldNotParseInvalidRefs() {
+        Assert.assertNull(Ref.parse(null));
+        Assert.assertNull(Ref.parse(""));
+        Assert.assertNull(Ref.parse("/defect"));
+        Assert.assertNull(Ref.parse("/defect/1234.xml"));
+        Assert.assertNull(Ref.parse("/defect/1234\n"));
+    }
+
+    @Test
+    public void shouldMatchRegexSemantics() {
+        String[] parts = {"/", "/", "/", "defect", "portfolioitem", "feature", "x", "1234", "-1234", "tasks",
+                "81348db8-aacd-447e-8678-2fb910ae9dc3", "123u456w1", "123u456p1", ".js", "?fetch=true", ".", "-",
+                "https://rally1.rallydev.com/slm/webservice/v2.0", "\"", " ", "\n", "a", "1", "_"};
+        Random random = new Random(42);
+        for (int i = 0; i < 50000; i++) {
+            StringBuilder ref = new StringBuilder();
+            int length = random.nextInt(10);
+            for (int j = 0; j < length; j++) {
+                ref.append(parts[random.nextInt(parts.length)]);
+            }
+            assertSameAsRegex(ref.toString());
+        }
+    }
+
+    private static final List<Pattern> LEGACY_PATTERNS = new ArrayList<Pattern>(Arrays.asList(
+            Pattern.compile(".*?/(\\w{2,}/\\w+)/(\\d+/\\w+)(?:\\.js\\??.*)*$"),
+            Pattern.compile(".*?/(\\w{2,}/\\w+)/(\\d+)(?:\\.js\\??.*)*$"),
+            Pattern.compile(".*?/(\\w+/-?\\d+)/(\\w+)(?:\\.js\\??.*)*$"),
+            Pattern.compile(".*?/(\\w+)/(-?\\d+)(?:\\.js\\??.*)*$"),
+            Pattern.compile(".*?/(\\w+)/(\\d+u\\d+[pw]\\d+)(?:\\.js\\??.*)*$"),
+            Pattern.compile(".*?/(\\w{2,}/\\w+)/([0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}/\\w+)(?:\\.js\\??.*)*$"),
+            Pattern.compile(".*?/(\\w{2,}/\\w+)/([0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12})(?:\\.js\\??.*)*$"),
+            Pattern.compile(".*?/(\\w+/-?[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12})/(\\w+)(?:\\.js\\??.*)*$"),
+            Pattern.compile(".*?/(\\w+)/([0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12})(?:\\.js\\??.*)*$")
+    ));
+
+    private void assertSameAsRegex(String ref) {
+        Matcher matcher = null;
+        for (Pattern pattern : LEGACY_PATTERNS) {
+            Matcher m = pattern.matcher(ref);
+            if (m.matches()) {
+                matcher = m;
+                break;
+            }
+        }
+        Assert.assertEquals(Ref.isRef(ref), matcher != null, ref);
+        if (matcher != null) {
+            Assert.assertEquals(Ref.getRelativeRef(ref), "/" + matcher.group(1) + "/" + matcher.group(2), ref);
+            Assert.assertEquals(Ref.getTypeFromRef(ref), matcher.group(1), ref);
+            Assert.assertEquals(Ref.getOidFromRef(ref), matcher.group(2), ref);
+        }
+    }
 }
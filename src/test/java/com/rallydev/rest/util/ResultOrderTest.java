@@ -0,0 +1,80 @@
+package com.rallydev.rest.util;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class ResultOrderTest {
+
+    private JsonObject parse(String json) {
+        return new JsonParser().parse(json).getAsJsonObject();
+    }
+
+    private List<String> sortNames(String order, JsonObject... objects) {
+        List<JsonObject> sorted = new ArrayList<JsonObject>(Arrays.asList(objects));
+        Collections.sort(sorted, new ResultOrder(order));
+        List<String> names = new ArrayList<String>();
+        for (JsonObject object : sorted) {
+            names.add(object.get("Name").getAsString());
+        }
+        return names;
+    }
+
+    @Test
+    public void shouldParseOrder() {
+        Assert.assertEquals(new ResultOrder(" Rank DESC , ObjectID").getFields(), Arrays.asList("Rank", "ObjectID"));
+    }
+
+    @Test
+    public void shouldOrderNumbersNumerically() {
+        Assert.assertEquals(sortNames("Estimate",
+                parse("{\"Name\":\"a\",\"Estimate\":10}"),
+                parse("{\"Name\":\"b\",\"Estimate\":9.5}"),
+                parse("{\"Name\":\"c\",\"Estimate\":null}")), Arrays.asList("c", "b", "a"));
+    }
+
+    @Test
+    public void shouldOrderNumericLookingStringsAsText() {
+        Assert.assertEquals(sortNames("Name",
+                parse("{\"Name\":\"2\"}"),
+                parse("{\"Name\":\"10\"}"),
+                parse("{\"Name\":\"1a\"}")), Arrays.asList("10", "1a", "2"));
+    }
+
+    @Test
+    public void shouldOrderNumbersBeforeText() {
+        Assert.assertEquals(sortNames("Estimate",
+                parse("{\"Name\":\"a\",\"Estimate\":\"1\"}"),
+                parse("{\"Name\":\"b\",\"Estimate\":10}"),
+                parse("{\"Name\":\"c\",\"Estimate\":2}")), Arrays.asList("c", "b", "a"));
+    }
+
+    @Test
+    public void shouldOrderStringsIgnoringCase() {
+        Assert.assertEquals(sortNames("Name DESC",
+                parse("{\"Name\":\"apple\"}"),
+                parse("{\"Name\":\"Banana\"}"),
+                parse("{\"Name\":\"cherry\"}")), Arrays.asList("cherry", "Banana", "apple"));
+    }
+
+    @Test
+    public void shouldOrderByDottedPathAndTieBreak() {
+        Assert.assertEquals(sortNames("Iteration.Name,ObjectID DESC",
+                parse("{\"Name\":\"a\",\"ObjectID\":1,\"Iteration\":{\"Name\":\"Sprint 2\"}}"),
+                parse("{\"Name\":\"b\",\"ObjectID\":2,\"Iteration\":{\"Name\":\"Sprint 1\"}}"),
+                parse("{\"Name\":\"c\",\"ObjectID\":3,\"Iteration\":{\"Name\":\"Sprint 2\"}}")), Arrays.asList("b", "c", "a"));
+    }
+
+    @Test
+    public void shouldOrderObjectsByName() {
+        Assert.assertEquals(sortNames("Owner",
+                parse("{\"Name\":\"a\",\"Owner\":{\"_ref\":\"/user/1\",\"_refObjectName\":\"Zed\"}}"),
+                parse("{\"Name\":\"b\",\"Owner\":{\"_ref\":\"/user/2\",\"_refObjectName\":\"Amy\"}}")), Arrays.asList("b", "a"));
+    }
+}